@@ -0,0 +1,76 @@
+package gym;
+
+import java.util.Collection;
+
+/**
+ * Contrato común de los almacenes de socios indexados por DNI.
+ * <p>
+ * {@link RepositorioClientes} guarda un objeto {@link Cliente} por socio y es el
+ * más rápido; {@link RepositorioCompacto} guarda los datos en arreglos primitivos
+ * y ocupa varias veces menos memoria, a cambio de armar un objeto en cada consulta.
+ * </p>
+ * <p>
+ * Las implementaciones tienen que ser seguras para varios hilos: el servicio
+ * serializa las escrituras de un mismo DNI, pero escribe DNIs distintos en paralelo
+ * y lee sin locks.
+ * </p>
+ */
+public interface AlmacenClientes {
+    /**
+     * Agrega un cliente si su DNI todavía no está registrado.
+     * * @param c Cliente a guardar.
+     * @return true si se agregó, false si el DNI ya existía.
+     */
+    boolean agregar(Cliente c);
+
+    /**
+     * Los cambios de nombre y de plan hechos sobre el cliente devuelto quedan guardados.
+     * * @param dni DNI a buscar.
+     * @return el cliente con ese DNI, o null si no existe.
+     */
+    Cliente buscar(String dni);
+
+    /**
+     * Consulta sólo el plan, para los caminos que no necesitan al cliente entero.
+     * Las implementaciones que arman un objeto por consulta lo redefinen para no crearlo.
+     * * @param dni DNI a buscar.
+     * @return el plan del cliente, o null si no existe (o no tiene plan).
+     */
+    default Plan planDe(String dni) {
+        Cliente c = buscar(dni);
+        return c == null ? null : c.getPlan();
+    }
+
+    /**
+     * Indica si el almacén está pensado para ocupar poca memoria. En ese caso el
+     * servicio no mantiene los índices por nombre desde el arranque: los arma
+     * recién la primera vez que alguien lista o busca por nombre.
+     * * @return true si conviene no indexar por nombre hasta que haga falta.
+     */
+    default boolean ahorraMemoria() {
+        return false;
+    }
+
+    /**
+     * @param dni DNI a verificar.
+     * @return true si hay un cliente con ese DNI.
+     */
+    boolean contiene(String dni);
+
+    /**
+     * Quita un cliente del almacén.
+     * * @param dni DNI del cliente a eliminar.
+     * @return el cliente eliminado (con sus últimos datos), o null si no existía.
+     */
+    Cliente eliminar(String dni);
+
+    /**
+     * @return cantidad de clientes registrados.
+     */
+    int tamanio();
+
+    /**
+     * @return todos los clientes, sin orden definido.
+     */
+    Collection<Cliente> valores();
+}
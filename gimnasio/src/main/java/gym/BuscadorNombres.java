@@ -0,0 +1,395 @@
+package gym;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Búsqueda aproximada de socios por nombre, sin distinguir tildes ni mayúsculas.
+ * <p>
+ * El nombre se normaliza (sin tildes, en minúsculas, sólo letras y números) y se
+ * parte en trigramas por palabra: "Gómez" da "  g", " go", "gom", "ome", "mez" y
+ * "ez ". Por cada trigrama hay una lista con los socios que lo tienen. Buscar es
+ * recorrer sólo las listas de los trigramas del texto, contar cuántos comparte cada
+ * socio y quedarse con los mejores: no depende del orden de las palabras ("Gomez
+ * Juan") y tolera errores de tipeo ("Jaun Gomes"). La última palabra del texto
+ * cuenta como prefijo, así que "juan go" ya encuentra a "Juan Gómez".
+ * </p>
+ * <p>
+ * Los trigramas usan un alfabeto de 38 símbolos (letras, dígitos, espacio y "otro"),
+ * así que las listas están en un arreglo fijo, sin hash ni objetos por consulta.
+ * Cada lista publica sus socios como un arreglo de enteros que las consultas leen
+ * sin locks: agregar escribe después del final publicado y quitar arma un arreglo
+ * nuevo, de modo que una consulta en curso nunca ve una lista a medio cambiar.
+ * </p>
+ * <p>
+ * Como {@link IndiceNombres}, no guarda a los socios (sólo su DNI, su nombre
+ * normalizado y sus trigramas): los ganadores se buscan en el almacén al final de
+ * cada búsqueda. Tampoco sincroniza las escrituras de un mismo socio: el servicio
+ * lo actualiza con el lock del DNI tomado.
+ * </p>
+ */
+final class BuscadorNombres {
+    private static final int SIMBOLOS = 38;
+    private static final int ESPACIO = 36;
+    private static final int OTRO = 37;
+    // Fracción mínima de trigramas del texto que tiene que compartir un socio para competir
+    private static final double MINIMO_COMUN = 0.3;
+    // Del texto buscado se usan a lo sumo estos caracteres (ningún nombre es más largo)
+    private static final int LARGO_MAXIMO = 60;
+
+    /** Un socio encontrado con su puntaje (más alto es mejor). */
+    record Coincidencia(Cliente socio, double puntaje) { }
+
+    /** Lo publicado de una lista: los primeros <code>n</code> números de socio de <code>ids</code>. */
+    private record Vista(int[] ids, int n) { }
+
+    private static final Vista VACIA = new Vista(new int[0], 0);
+
+    /** Socios que tienen un trigrama. */
+    private static final class Lista {
+        private int[] ids = new int[4];
+        private int n;
+        private volatile Vista vista = VACIA;
+
+        synchronized void agregar(int id) {
+            if (n == ids.length) ids = Arrays.copyOf(ids, n * 2);
+            ids[n++] = id;
+            vista = new Vista(ids, n);
+        }
+
+        synchronized void quitar(int id) {
+            for (int i = 0; i < n; i++) {
+                if (ids[i] != id) continue;
+                // Arreglo nuevo: quien esté leyendo el viejo no ve corrimientos
+                int[] nuevo = new int[Math.max(4, ids.length)];
+                System.arraycopy(ids, 0, nuevo, 0, i);
+                System.arraycopy(ids, i + 1, nuevo, i, n - i - 1);
+                ids = nuevo;
+                n--;
+                vista = new Vista(ids, n);
+                return;
+            }
+        }
+    }
+
+    /** Un socio indexado: su nombre normalizado y sus trigramas (sin repetir). */
+    private record Entrada(String dni, String normalizado, int[] trigramas) { }
+
+    /** Un candidato durante la búsqueda, antes de buscar al socio en el almacén. */
+    private record Puntaje(Entrada entrada, double puntaje) { }
+
+    // Mayor puntaje primero; a igual puntaje, por nombre normalizado y DNI
+    private static final Comparator<Puntaje> POR_PUNTAJE = Comparator.comparingDouble(Puntaje::puntaje).reversed()
+            .thenComparing(p -> p.entrada().normalizado())
+            .thenComparing(p -> p.entrada().dni());
+
+    private final AtomicReferenceArray<Lista> listas = new AtomicReferenceArray<>(SIMBOLOS * SIMBOLOS * SIMBOLOS);
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    // Número de socio -> entrada; los números se reusan al dar de baja (guardado por this)
+    private volatile Entrada[] entradas = new Entrada[1024];
+    // Cantidad de trigramas de cada nombre (tope 127): acota el puntaje sin leer la entrada
+    private volatile byte[] largos = new byte[1024];
+    private int proximo;
+    private int[] libres = new int[16];
+    private int cantidadLibres;
+
+    /** Contadores por número de socio, reusados entre consultas del mismo hilo. */
+    private static final class Conteo {
+        byte[] cuenta = new byte[0];
+        int[] tocados = new int[1024];
+        int n;
+        int[] orden = new int[1024];
+    }
+
+    private static final ThreadLocal<Conteo> CONTEOS = ThreadLocal.withInitial(Conteo::new);
+
+    // Busca al socio de un DNI en el almacén (null si ya no está)
+    private final Function<String, Cliente> socios;
+
+    /**
+     * @param socios Búsqueda por DNI en el almacén del servicio.
+     */
+    BuscadorNombres(Function<String, Cliente> socios) {
+        this.socios = socios;
+    }
+
+    /**
+     * Agrega un socio con su nombre actual.
+     * * @param c Socio a indexar.
+     */
+    void agregar(Cliente c) {
+        String normalizado = normalizar(c.getNombre());
+        int[] trigramas = trigramas(normalizado, true);
+        int id;
+        synchronized (this) {
+            id = cantidadLibres > 0 ? libres[--cantidadLibres] : proximo++;
+            Entrada[] actuales = entradas;
+            byte[] cantidades = largos;
+            if (id >= actuales.length) {
+                actuales = Arrays.copyOf(actuales, Math.max(id + 1, actuales.length * 2));
+                cantidades = Arrays.copyOf(cantidades, actuales.length);
+            }
+            actuales[id] = new Entrada(c.getDni(), normalizado, trigramas);
+            cantidades[id] = (byte) Math.min(trigramas.length, Byte.MAX_VALUE);
+            // Primero los largos: quien lea las entradas encuentra largos al menos igual de largos
+            largos = cantidades;
+            entradas = actuales;
+        }
+        ids.put(c.getDni(), id);
+        for (int t : trigramas) lista(t).agregar(id);
+    }
+
+    /**
+     * Quita a un socio.
+     * * @param dni DNI del socio.
+     */
+    void quitar(String dni) {
+        Integer id = ids.remove(dni);
+        if (id == null) return;
+        Entrada e = entradas[id];
+        for (int t : e.trigramas()) lista(t).quitar(id);
+        synchronized (this) {
+            entradas[id] = null;
+            if (cantidadLibres == libres.length) libres = Arrays.copyOf(libres, cantidadLibres * 2);
+            libres[cantidadLibres++] = id;
+        }
+    }
+
+    /**
+     * Reindexa a un socio después de cambiarle el nombre.
+     * * @param c Socio, ya con el nombre nuevo.
+     */
+    void renombrar(Cliente c) {
+        quitar(c.getDni());
+        agregar(c);
+    }
+
+    /**
+     * Busca los socios cuyo nombre más se parece al texto.
+     * <p>
+     * El puntaje es el coeficiente de Dice entre los trigramas del texto y los del
+     * nombre (1 = mismos trigramas), más 1 si alguna palabra del nombre empieza con
+     * el texto y 2 si el nombre es exactamente el texto.
+     * </p>
+     * <p>
+     * Un socio tiene que compartir al menos <code>m</code> de los <code>t</code> trigramas
+     * del texto, así que está en alguna de las t - m + 1 listas más cortas: sólo esas
+     * se recorren contando, y las más largas ("  g", " go") se consultan después en
+     * los trigramas de cada candidato. Después se puntúa de los que más comparten a
+     * los que menos: con <code>c</code> trigramas en común no se pasa de 2c / (t + c) y
+     * los extras exigen tenerlos todos, así que cuando esa cota ya no alcanza al peor
+     * de los mejores se deja de mirar. Así sólo se leen los datos de unos pocos socios
+     * aunque los trigramas comunes los toquen a casi todos.
+     * </p>
+     * * @param texto Nombre o parte del nombre, con o sin tildes.
+     * @param maximo Cantidad máxima de resultados.
+     * @return los mejores, de mayor a menor puntaje.
+     */
+    List<Coincidencia> buscar(String texto, int maximo) {
+        String consulta = normalizar(texto);
+        // Los contadores son bytes: el texto no puede tener más trigramas de los que entran
+        if (consulta.length() > LARGO_MAXIMO) consulta = consulta.substring(0, LARGO_MAXIMO).trim();
+        int[] propios = trigramas(consulta, false);
+        if (propios.length == 0) return List.of();
+        int minimo = Math.max(1, (int) Math.ceil(propios.length * MINIMO_COMUN));
+
+        // Las listas de más cortas a más largas; las últimas m - 1 no se recorren
+        Vista[] vistas = new Vista[propios.length];
+        Integer[] porLargo = new Integer[propios.length];
+        for (int i = 0; i < propios.length; i++) {
+            Lista l = listas.get(propios[i]);
+            vistas[i] = l == null ? VACIA : l.vista;
+            porLargo[i] = i;
+        }
+        Arrays.sort(porLargo, Comparator.comparingInt(i -> vistas[i].n()));
+        int recorridas = propios.length - minimo + 1;
+        int[] salteados = new int[propios.length - recorridas];
+        for (int i = recorridas; i < propios.length; i++) salteados[i - recorridas] = propios[porLargo[i]];
+
+        Conteo conteo = CONTEOS.get();
+        Entrada[] actuales = entradas;
+        byte[] cantidades = largos;
+        if (conteo.cuenta.length < actuales.length) conteo.cuenta = new byte[actuales.length];
+        byte[] cuenta = conteo.cuenta;
+        conteo.n = 0;
+        try {
+            for (int k = 0; k < recorridas; k++) {
+                Vista v = vistas[porLargo[k]];
+                int[] ids = v.ids();
+                for (int i = 0; i < v.n(); i++) {
+                    int id = ids[i];
+                    // Un socio agregado después de leer las entradas no entra en esta consulta
+                    if (id >= cuenta.length) continue;
+                    if (cuenta[id]++ == 0) tocar(conteo, id);
+                }
+            }
+
+            // Los candidatos agrupados por trigramas en común, de más a menos
+            int[] desde = new int[propios.length + 2];
+            int piso = minimo - salteados.length;
+            for (int i = 0; i < conteo.n; i++) {
+                int c = cuenta[conteo.tocados[i]];
+                if (c >= piso) desde[propios.length - c + 1]++;
+            }
+            for (int c = 1; c < desde.length; c++) desde[c] += desde[c - 1];
+            int candidatos = desde[desde.length - 1];
+            if (conteo.orden.length < candidatos) conteo.orden = new int[Math.max(candidatos, conteo.orden.length * 2)];
+            int[] orden = conteo.orden;
+            for (int i = 0; i < conteo.n; i++) {
+                int id = conteo.tocados[i];
+                int c = cuenta[id];
+                if (c >= piso) orden[desde[propios.length - c]++] = id;
+            }
+
+            PriorityQueue<Puntaje> mejores = new PriorityQueue<>(Math.min(maximo, 1024) + 1, POR_PUNTAJE.reversed());
+            int contadosAntes = -1;
+            for (int i = 0; i < candidatos; i++) {
+                int id = orden[i];
+                int contados = cuenta[id];
+                if (contados != contadosAntes && mejores.size() == maximo) {
+                    int posibles = contados + salteados.length;
+                    double cota = posibles == propios.length ? 4 : 2.0 * posibles / (propios.length + posibles);
+                    if (cota < mejores.peek().puntaje()) break;
+                }
+                contadosAntes = contados;
+                if (mejores.size() == maximo && cota(propios.length, contados + salteados.length, cantidades[id])
+                        < mejores.peek().puntaje()) {
+                    continue;
+                }
+                Entrada e = actuales[id];
+                if (e == null) continue;
+                int comunes = contados;
+                for (int t : salteados) if (Arrays.binarySearch(e.trigramas(), t) >= 0) comunes++;
+                if (comunes < minimo) continue;
+                double puntaje = 2.0 * comunes / (propios.length + e.trigramas().length);
+                if (comunes == propios.length && empiezaPalabra(e.normalizado(), consulta)) puntaje += 1;
+                if (e.normalizado().equals(consulta)) puntaje += 2;
+                if (mejores.size() == maximo && puntaje < mejores.peek().puntaje()) continue;
+                mejores.add(new Puntaje(e, puntaje));
+                if (mejores.size() > maximo) mejores.poll();
+            }
+            // Sólo los ganadores se buscan en el almacén
+            ArrayList<Coincidencia> out = new ArrayList<>(mejores.size());
+            for (Puntaje p : mejores) {
+                Cliente c = socios.apply(p.entrada().dni());
+                if (c != null) out.add(new Coincidencia(c, p.puntaje()));
+            }
+            out.sort(ORDEN);
+            return out;
+        } finally {
+            for (int i = 0; i < conteo.n; i++) cuenta[conteo.tocados[i]] = 0;
+        }
+    }
+
+    /** Mayor puntaje primero; a igual puntaje, por nombre y DNI para que el orden sea estable. */
+    static final Comparator<Coincidencia> ORDEN = Comparator.comparingDouble(Coincidencia::puntaje).reversed()
+            .thenComparing(c -> String.valueOf(c.socio().getNombre()))
+            .thenComparing(c -> c.socio().getDni());
+
+    /**
+     * El mejor puntaje posible para un nombre.
+     * * @param deTexto Trigramas del texto.
+     * @param posibles Máximo de trigramas que puede compartir.
+     * @param delNombre Trigramas del nombre.
+     * @return una cota superior del puntaje.
+     */
+    private static double cota(int deTexto, int posibles, int delNombre) {
+        double dice = 2.0 * Math.min(posibles, delNombre) / (deTexto + delNombre);
+        if (posibles < deTexto) return dice;
+        // Igual al texto sólo si además tiene, como mucho, el trigrama que cierra la última palabra
+        return dice + 1 + (delNombre <= deTexto + 1 ? 2 : 0);
+    }
+
+    /** @return true si alguna palabra de <code>nombre</code> empieza con <code>texto</code>. */
+    private static boolean empiezaPalabra(String nombre, String texto) {
+        for (int i = 0; i <= nombre.length() - texto.length(); i++) {
+            if ((i == 0 || nombre.charAt(i - 1) == ' ') && nombre.startsWith(texto, i)) return true;
+        }
+        return false;
+    }
+
+    private static void tocar(Conteo conteo, int id) {
+        if (conteo.n == conteo.tocados.length) conteo.tocados = Arrays.copyOf(conteo.tocados, conteo.n * 2);
+        conteo.tocados[conteo.n++] = id;
+    }
+
+    private Lista lista(int trigrama) {
+        Lista l = listas.get(trigrama);
+        if (l != null) return l;
+        listas.compareAndSet(trigrama, null, new Lista());
+        return listas.get(trigrama);
+    }
+
+    /**
+     * Sin tildes, en minúsculas, con un espacio entre palabras y nada más que letras y números.
+     * * @param nombre Texto original (puede ser null).
+     * @return el texto normalizado.
+     */
+    static String normalizar(String nombre) {
+        if (nombre == null) return "";
+        String sinTildes = Normalizer.normalize(nombre, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(sinTildes.length());
+        for (int i = 0; i < sinTildes.length(); i++) {
+            char ch = sinTildes.charAt(i);
+            if (Character.getType(ch) == Character.NON_SPACING_MARK) continue;
+            if (Character.isLetterOrDigit(ch)) {
+                sb.append(Character.toLowerCase(ch));
+            } else if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+                sb.append(' ');
+            }
+        }
+        int n = sb.length();
+        if (n > 0 && sb.charAt(n - 1) == ' ') sb.setLength(n - 1);
+        return sb.toString();
+    }
+
+    /**
+     * Trigramas de cada palabra, con dos espacios adelante y uno atrás.
+     * * @param normalizado Resultado de {@link #normalizar(String)}.
+     * @param cerrarUltima false para dejar la última palabra abierta (se busca como prefijo).
+     * @return los códigos de trigrama, sin repetir.
+     */
+    private static int[] trigramas(String normalizado, boolean cerrarUltima) {
+        if (normalizado.isEmpty()) return new int[0];
+        int[] out = new int[normalizado.length() * 2 + 4];
+        int n = 0;
+        int a = ESPACIO;
+        int b = ESPACIO;
+        for (int i = 0; i <= normalizado.length(); i++) {
+            boolean fin = i == normalizado.length();
+            if (fin && !cerrarUltima) break;
+            int c = fin ? ESPACIO : simbolo(normalizado.charAt(i));
+            out[n++] = (a * SIMBOLOS + b) * SIMBOLOS + c;
+            if (c == ESPACIO) {
+                a = ESPACIO;
+                b = ESPACIO;
+                // Después del espacio la palabra siguiente arranca con su propio "  x"
+                continue;
+            }
+            a = b;
+            b = c;
+        }
+        int[] unicos = Arrays.copyOf(out, n);
+        Arrays.sort(unicos);
+        int k = 0;
+        for (int i = 0; i < unicos.length; i++) {
+            if (i == 0 || unicos[i] != unicos[i - 1]) unicos[k++] = unicos[i];
+        }
+        return Arrays.copyOf(unicos, k);
+    }
+
+    private static int simbolo(char ch) {
+        if (ch >= 'a' && ch <= 'z') return ch - 'a';
+        if (ch >= '0' && ch <= '9') return 26 + (ch - '0');
+        if (ch == ' ') return ESPACIO;
+        return OTRO;
+    }
+}
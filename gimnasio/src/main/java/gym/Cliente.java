@@ -10,8 +10,9 @@ import java.time.Period;
  */
 public class Cliente implements Pagable, Identificable {
     private final String dni;
-    private String nombre;
-    private Plan plan;
+    // volatile: se modifican desde una recepción y se leen desde otras sin bloquear
+    private volatile String nombre;
+    private volatile Plan plan;
     private final LocalDate fechaAlta;
 
     /**
@@ -59,11 +60,39 @@ public class Cliente implements Pagable, Identificable {
      */
     @Override
     public double calcularCuota() {
-        long meses = Period.between(fechaAlta, LocalDate.now()).toTotalMonths();
+        return calcularCuota(LocalDate.now());
+    }
+
+    /**
+     * Igual que {@link #calcularCuota()} pero con una fecha de referencia fija,
+     * para que una facturación completa use la misma fecha para todos.
+     * * @param referencia Fecha a la que se calcula la antigüedad.
+     * @return el precio final a pagar.
+     */
+    public double calcularCuota(LocalDate referencia) {
+        // Por los getters: una vista de RepositorioCompacto lee el plan del almacén
+        return cuota(getPlan(), tieneDescuento(referencia));
+    }
+
+    /**
+     * @param referencia Fecha a la que se calcula la antigüedad.
+     * @return true si a esa fecha el socio cumplió 12 meses y tiene descuento.
+     */
+    public boolean tieneDescuento(LocalDate referencia) {
+        return Period.between(fechaAlta, referencia).toTotalMonths() >= 12;
+    }
+
+    /**
+     * Regla de precio compartida con la facturación masiva.
+     * * @param plan Plan del socio.
+     * @param descuento Si corresponde el descuento por antigüedad.
+     * @return el precio final a pagar.
+     */
+    static double cuota(Plan plan, boolean descuento) {
         double base = plan.precio();
 
         // Si ya pasó un año, aplicamos descuento
-        if (meses >= 12) {
+        if (descuento) {
             return base * 0.9;
         } else {
             return base;
@@ -72,7 +101,7 @@ public class Cliente implements Pagable, Identificable {
 
     @Override
     public String toString(){
-        return "Cliente [DNI=" + dni + ", Nombre=" + nombre + ", Plan=" + plan + ", Alta=" + fechaAlta + "]";
+        return "Cliente [DNI=" + dni + ", Nombre=" + getNombre() + ", Plan=" + getPlan() + ", Alta=" + fechaAlta + "]";
     }
 
     /**
@@ -0,0 +1,344 @@
+package gym;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Ejecuta una secuencia de comandos contra el servicio, sin menú ni pausas.
+ * <p>
+ * Formato: un comando por línea, con los campos separados por punto y coma
+ * (los nombres pueden tener espacios y comas). Las líneas vacías y las que
+ * empiezan con <code>#</code> se ignoran. Cada comando se puede escribir con su
+ * nombre o con el número de la opción del menú:
+ * </p>
+ * <pre>
+ * alta;dni;nombre;plan[;fechaAlta]       (1)    buscar;dni                       (2)
+ * nombre;dni;nuevoNombre                 (3)    plan;dni;plan                    (4)
+ * baja;dni                               (5)    listar[;prefijo]                 (6)
+ * cuota;dni                              (7)    estadisticas                     (8)
+ * log[;cantidad]                         (9)    auditoria;dni;tipo;desde;hasta   (10)
+ * facturar[;fecha[;archivo]]             (11)   importar;archivo.csv             (12)
+ * metricas                               (13)   ingreso;dni                      (14)
+ * visitas[;dni]                          (15)   buscarNombre;texto[;cantidad]    (16)
+ * pago;dni;monto                         (17)   morosos[;fecha[;cantidad]]       (18)
+ * salida
+ * </pre>
+ * <p>
+ * Las fechas son <code>yyyy-MM-dd</code> o <code>dd/MM/yyyy</code> y los campos
+ * opcionales pueden quedar vacíos. Un comando que falla (DNI inexistente o
+ * repetido, dato inválido, archivo que no se puede leer) escribe
+ * <code>ERROR linea N: motivo</code> y se sigue con el siguiente.
+ * </p>
+ * <p>
+ * Todas las respuestas van a un único {@link Writer} (conviene que tenga un buffer
+ * grande): nada se baja a la salida línea por línea. Las escrituras no esperan
+ * al disco una por una; al final se espera una sola vez a que todo el lote esté
+ * en el journal (ver {@link GimnasioService#confirmarEnDisco()}).
+ * </p>
+ */
+public final class ComandosLote {
+    private static final DateTimeFormatter DF = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final int TAMANIO_PAGINA = 1_000;
+    private static final int RESULTADOS_BUSQUEDA = 10;
+    private static final int MOROSOS_A_MOSTRAR = 20;
+    private static final int MAX_CAMPOS = 8;
+
+    private final GimnasioService servicio;
+    private Writer out;
+
+    /**
+     * @param servicio Servicio contra el que se ejecutan los comandos.
+     */
+    public ComandosLote(GimnasioService servicio) {
+        this.servicio = servicio;
+    }
+
+    /**
+     * Resumen de una ejecución.
+     * * @param comandos Comandos ejecutados (sin contar vacíos ni comentarios).
+     * @param errores Comandos que fallaron.
+     */
+    public record Resumen(long comandos, long errores) { }
+
+    /**
+     * Ejecuta todos los comandos de la entrada.
+     * * @param in Comandos, uno por línea.
+     * @param out Donde escribir las respuestas; se hace flush al terminar pero no se cierra.
+     * @return cuántos comandos se ejecutaron y cuántos fallaron.
+     * @throws IOException si falla la lectura o la escritura.
+     */
+    public Resumen ejecutar(BufferedReader in, Writer out) throws IOException {
+        this.out = out;
+        long comandos = 0, errores = 0, numero = 0;
+        String[] campos = new String[MAX_CAMPOS];
+        String linea;
+        try {
+            while ((linea = in.readLine()) != null) {
+                numero++;
+                String l = linea.strip();
+                if (l.isEmpty() || l.charAt(0) == '#') continue;
+                comandos++;
+                int n = separar(l, campos);
+                try {
+                    ejecutar(campos, n);
+                } catch (SocioNoEncontradoException | IllegalArgumentException | IllegalStateException
+                         | DateTimeException | UncheckedIOException e) {
+                    errores++;
+                    out.write("ERROR linea " + numero + ": " + e.getMessage() + "\n");
+                }
+            }
+            try {
+                servicio.confirmarEnDisco().join();
+            } catch (RuntimeException e) {
+                errores++;
+                out.write("ERROR al bajar el journal a disco: " + e.getMessage() + "\n");
+            }
+            out.flush();
+            return new Resumen(comandos, errores);
+        } finally {
+            this.out = null;
+        }
+    }
+
+    private void ejecutar(String[] c, int n) throws IOException {
+        String comando = c[0].toLowerCase(Locale.ROOT);
+        switch (comando) {
+            case "alta", "1" -> {
+                requerir(c, n, 4, "alta;dni;nombre;plan[;fechaAlta]");
+                LocalDate alta = opcional(c, n, 4) == null ? LocalDate.now() : fecha(c[4]);
+                servicio.altaCliente(new Cliente(c[1], c[2], plan(c[3]), alta));
+                linea("OK alta " + c[1]);
+            }
+            case "buscar", "2" -> {
+                requerir(c, n, 2, "buscar;dni");
+                linea(servicio.buscarPorDni(c[1]).toString());
+            }
+            case "nombre", "3" -> {
+                requerir(c, n, 3, "nombre;dni;nuevoNombre");
+                servicio.modificarNombre(c[1], c[2]);
+                linea("OK nombre " + c[1]);
+            }
+            case "plan", "4" -> {
+                requerir(c, n, 3, "plan;dni;plan");
+                servicio.cambiarPlan(c[1], plan(c[2]));
+                linea("OK plan " + c[1]);
+            }
+            case "baja", "5" -> {
+                requerir(c, n, 2, "baja;dni");
+                if (!servicio.baja(c[1])) throw new SocioNoEncontradoException("No existe cliente con DNI " + c[1]);
+                linea("OK baja " + c[1]);
+            }
+            case "listar", "6" -> listar(opcional(c, n, 1));
+            case "cuota", "7" -> {
+                requerir(c, n, 2, "cuota;dni");
+                linea(String.format(Locale.ROOT, "%s %.2f", c[1], servicio.cuotaDe(c[1])));
+            }
+            case "estadisticas", "8" -> {
+                try (Instantanea foto = servicio.abrirInstantanea()) {
+                    linea("Socios: " + foto.cantidadClientes() + " (operaciones registradas: " + foto.secuenciaLog() + ")");
+                    for (String l : foto.estadisticas().comoLineas(YearMonth.now(), 12)) linea(l);
+                }
+            }
+            case "log", "9" -> {
+                String cantidad = opcional(c, n, 1);
+                paginas(ConsultaLog.masNuevasPrimero(TAMANIO_PAGINA),
+                        cantidad == null ? Long.MAX_VALUE : entero(cantidad));
+            }
+            case "auditoria", "10" -> {
+                String dni = opcional(c, n, 1);
+                String tipo = opcional(c, n, 2);
+                String desde = opcional(c, n, 3);
+                String hasta = opcional(c, n, 4);
+                paginas(ConsultaLog.masNuevasPrimero(TAMANIO_PAGINA)
+                        .delSocio(dni)
+                        .deTipo(tipo == null ? null : tipo(tipo))
+                        .entre(desde == null ? null : fecha(desde).atStartOfDay(),
+                                hasta == null ? null : fecha(hasta).plusDays(1).atStartOfDay()), Long.MAX_VALUE);
+            }
+            case "facturar", "11" -> facturar(opcional(c, n, 1), opcional(c, n, 2));
+            case "importar", "12" -> {
+                requerir(c, n, 2, "importar;archivo.csv");
+                Path csv = Path.of(c[1]);
+                Path rechazos = csv.resolveSibling(csv.getFileName() + ".rechazos.csv");
+                ResultadoImportacion r;
+                try {
+                    r = new ImportadorCsv(servicio).importar(csv, rechazos);
+                } catch (IOException e) {
+                    // Un archivo que no se puede leer es un error del comando, no de la salida
+                    throw new UncheckedIOException("no se pudo importar " + csv + ": " + e.getMessage(), e);
+                }
+                linea("OK importar " + r.importadas() + " de " + r.filas() + " filas"
+                        + (r.rechazadas() > 0 ? ", " + r.rechazadas() + " rechazadas en " + rechazos : ""));
+            }
+            case "metricas", "13" -> {
+                for (String l : servicio.getMetricas().comoLineas()) linea(l);
+            }
+            case "ingreso", "14" -> {
+                requerir(c, n, 2, "ingreso;dni");
+                ControlAcceso.Ingreso r = servicio.ingresar(c[1]);
+                linea(r == ControlAcceso.Ingreso.PERMITIDO ? "OK ingreso " + c[1] : "DENEGADO ingreso " + c[1] + " (" + r + ")");
+            }
+            case "salida" -> {
+                servicio.registrarSalida();
+                linea("OK salida");
+            }
+            case "visitas", "15" -> visitas(opcional(c, n, 1));
+            case "buscarnombre", "16" -> {
+                requerir(c, n, 2, "buscarNombre;texto[;cantidad]");
+                String cantidad = opcional(c, n, 2);
+                for (Cliente s : servicio.buscarPorNombre(c[1], cantidad == null ? RESULTADOS_BUSQUEDA : (int) entero(cantidad))) {
+                    linea(s.toString());
+                }
+            }
+            case "pago", "17" -> {
+                requerir(c, n, 3, "pago;dni;monto");
+                LocalDate vence = servicio.registrarPago(c[1], monto(c[2]));
+                linea("OK pago " + c[1] + " vence " + vence);
+            }
+            case "morosos", "18" -> {
+                String cantidad = opcional(c, n, 2);
+                morosos(opcional(c, n, 1), cantidad == null ? MOROSOS_A_MOSTRAR : (int) entero(cantidad));
+            }
+            default -> throw new IllegalArgumentException("Comando desconocido: " + c[0]);
+        }
+    }
+
+    private void listar(String prefijo) throws IOException {
+        PaginaSocios pagina = servicio.listarPorNombre(prefijo, TAMANIO_PAGINA, null);
+        while (true) {
+            for (Cliente s : pagina.socios()) linea(s.toString());
+            if (!pagina.hayMas()) return;
+            pagina = servicio.listarPorNombre(prefijo, TAMANIO_PAGINA, pagina.token());
+        }
+    }
+
+    private void paginas(ConsultaLog consulta, long maximo) throws IOException {
+        long escritas = 0;
+        PaginaLog pagina = servicio.leerLog(consulta);
+        while (true) {
+            for (String l : pagina.lineas()) {
+                if (escritas++ == maximo) return;
+                linea(l);
+            }
+            if (!pagina.hayMas()) return;
+            pagina = servicio.leerLog(consulta.continuarDesde(pagina.token()));
+        }
+    }
+
+    private void facturar(String fecha, String archivo) throws IOException {
+        LocalDate ref = fecha == null ? LocalDate.now() : fecha(fecha);
+        if (archivo == null) archivo = String.format("facturas-%d-%02d.csv", ref.getYear(), ref.getMonthValue());
+        ResumenFacturacion r;
+        try {
+            r = servicio.facturarMes(ref, Path.of(archivo));
+        } catch (IOException e) {
+            throw new UncheckedIOException("no se pudo escribir " + archivo + ": " + e.getMessage(), e);
+        }
+        linea("--- Facturación al " + DF.format(ref) + " ---");
+        for (String l : r.comoLineas()) linea(l);
+        linea("OK facturas en " + archivo);
+    }
+
+    private void visitas(String dni) throws IOException {
+        ControlAcceso a = servicio.accesos();
+        LocalDate hasta = LocalDate.now();
+        LocalDate desde = hasta.minusDays(29);
+        linea("Personas adentro ahora: " + a.ocupacion());
+        int[] porHora = a.visitasPorHora(desde, hasta);
+        for (int h = 0; h < 24; h++) {
+            if (porHora[h] > 0) linea(String.format("%02d:00-%02d:00  %d", h, h + 1, porHora[h]));
+        }
+        int pico = a.horaPico(desde, hasta);
+        linea(pico < 0 ? "Sin visitas registradas." : String.format("Hora pico: %02d:00 a %02d:00", pico, pico + 1));
+        if (dni != null) linea("Visitas de " + dni + ": " + a.visitas(dni, desde, hasta));
+    }
+
+    private void morosos(String fecha, int cantidad) throws IOException {
+        LocalDate f = fecha == null ? LocalDate.now() : fecha(fecha);
+        LibroPagos pagos = servicio.pagos();
+        linea("Morosos al " + DF.format(f) + ": " + pagos.cantidadMorosos(f)
+                + ", deuda vencida $" + Facturacion.importe(pagos.deudaVencida(f)));
+        for (LibroPagos.Moroso m : pagos.morosos(f, cantidad)) {
+            linea(m.socio().getDni() + ";" + m.socio().getNombre() + ";" + m.vencimiento() + ";"
+                    + m.cuotas() + ";" + Facturacion.importe(m.centavos()));
+        }
+    }
+
+    private void linea(String s) throws IOException {
+        out.write(s);
+        out.write('\n');
+    }
+
+    /**
+     * Parte la línea en campos (sin espacios alrededor); lo que sobra queda en el último.
+     * * @return cantidad de campos.
+     */
+    private static int separar(String linea, String[] campos) {
+        int n = 0;
+        int desde = 0;
+        while (n < campos.length - 1) {
+            int sep = linea.indexOf(';', desde);
+            if (sep < 0) break;
+            campos[n++] = linea.substring(desde, sep).strip();
+            desde = sep + 1;
+        }
+        campos[n++] = linea.substring(desde).strip();
+        return n;
+    }
+
+    private static void requerir(String[] c, int n, int campos, String uso) {
+        for (int i = 1; i < campos; i++) {
+            if (i >= n || c[i].isEmpty()) throw new IllegalArgumentException("Faltan datos, el formato es " + uso);
+        }
+    }
+
+    /** @return el campo, o null si no está o está vacío. */
+    private static String opcional(String[] c, int n, int i) {
+        return i < n && !c[i].isEmpty() ? c[i] : null;
+    }
+
+    private static Plan plan(String s) {
+        Plan p = ImportadorCsv.plan(s);
+        if (p == null) throw new IllegalArgumentException("Plan desconocido: " + s);
+        return p;
+    }
+
+    private static LocalDate fecha(String s) {
+        LocalDate f = ImportadorCsv.fecha(s);
+        if (f == null) throw new IllegalArgumentException("Fecha invalida: " + s);
+        return f;
+    }
+
+    private static TipoOperacion tipo(String s) {
+        for (TipoOperacion t : TipoOperacion.values()) {
+            if (t.name().equalsIgnoreCase(s)) return t;
+        }
+        throw new IllegalArgumentException("Tipo de operacion desconocido: " + s);
+    }
+
+    private static double monto(String s) {
+        try {
+            return Double.parseDouble(s.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Monto invalido: " + s);
+        }
+    }
+
+    private static long entero(String s) {
+        try {
+            long v = Long.parseLong(s);
+            if (v <= 0 || v > Integer.MAX_VALUE) throw new IllegalArgumentException("Cantidad fuera de rango: " + s);
+            return v;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cantidad invalida: " + s);
+        }
+    }
+}
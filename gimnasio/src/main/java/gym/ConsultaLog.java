@@ -0,0 +1,131 @@
+package gym;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Parámetros para leer el log de a páginas.
+ * <p>
+ * Es inmutable: cada método devuelve una consulta nueva. Ejemplo:
+ * <code>ConsultaLog.masNuevasPrimero(20).delSocio("12345678").entre(desde, hasta)</code>,
+ * y para la página siguiente <code>consulta.continuarDesde(pagina.token())</code>.
+ * </p>
+ */
+public final class ConsultaLog {
+    private final boolean masNuevasPrimero;
+    private final int tamanioPagina;
+    private final long token;
+    private final long desdeNanos;
+    private final long hastaNanos;
+    private final String dni;
+    private final TipoOperacion tipo;
+
+    private ConsultaLog(boolean masNuevasPrimero, int tamanioPagina, long token, long desdeNanos, long hastaNanos,
+                        String dni, TipoOperacion tipo) {
+        if (tamanioPagina <= 0) {
+            throw new IllegalArgumentException("El tamaño de pagina debe ser positivo");
+        }
+        this.masNuevasPrimero = masNuevasPrimero;
+        this.tamanioPagina = tamanioPagina;
+        this.token = token;
+        this.desdeNanos = desdeNanos;
+        this.hastaNanos = hastaNanos;
+        this.dni = dni;
+        this.tipo = tipo;
+    }
+
+    /**
+     * @param tamanioPagina Cantidad máxima de operaciones por página.
+     * @return una consulta que empieza por la operación más reciente.
+     */
+    public static ConsultaLog masNuevasPrimero(int tamanioPagina) {
+        return new ConsultaLog(true, tamanioPagina, -1, Long.MIN_VALUE, Long.MAX_VALUE, null, null);
+    }
+
+    /**
+     * @param tamanioPagina Cantidad máxima de operaciones por página.
+     * @return una consulta que empieza por la operación más vieja.
+     */
+    public static ConsultaLog masViejasPrimero(int tamanioPagina) {
+        return new ConsultaLog(false, tamanioPagina, -1, Long.MIN_VALUE, Long.MAX_VALUE, null, null);
+    }
+
+    /**
+     * Limita la consulta a un rango de tiempo [desde, hasta).
+     * * @param desde Inicio del rango (incluido), o null para no limitar.
+     * @param hasta Fin del rango (excluido), o null para no limitar.
+     * @return la consulta con el rango aplicado.
+     */
+    public ConsultaLog entre(LocalDateTime desde, LocalDateTime hasta) {
+        return entreNanos(desde == null ? Long.MIN_VALUE : aNanos(desde), hasta == null ? Long.MAX_VALUE : aNanos(hasta));
+    }
+
+    /**
+     * Igual que {@link #entre(LocalDateTime, LocalDateTime)} pero en nanosegundos desde 1970.
+     * * @param desdeNanos Inicio del rango (incluido).
+     * @param hastaNanos Fin del rango (excluido).
+     * @return la consulta con el rango aplicado.
+     */
+    public ConsultaLog entreNanos(long desdeNanos, long hastaNanos) {
+        return new ConsultaLog(masNuevasPrimero, tamanioPagina, token, desdeNanos, hastaNanos, dni, tipo);
+    }
+
+    /**
+     * Limita la consulta a las operaciones de un socio, incluidas las altas
+     * masivas en las que entró.
+     * * @param dni DNI del socio, o null para no filtrar.
+     * @return la consulta con el filtro aplicado.
+     */
+    public ConsultaLog delSocio(String dni) {
+        return new ConsultaLog(masNuevasPrimero, tamanioPagina, token, desdeNanos, hastaNanos, dni, tipo);
+    }
+
+    /**
+     * Limita la consulta a un tipo de operación.
+     * * @param tipo Tipo buscado, o null para no filtrar.
+     * @return la consulta con el filtro aplicado.
+     */
+    public ConsultaLog deTipo(TipoOperacion tipo) {
+        return new ConsultaLog(masNuevasPrimero, tamanioPagina, token, desdeNanos, hastaNanos, dni, tipo);
+    }
+
+    /**
+     * @param token Valor de {@link PaginaLog#token()} de la página anterior.
+     * @return la consulta que sigue a partir de esa página.
+     */
+    public ConsultaLog continuarDesde(long token) {
+        return new ConsultaLog(masNuevasPrimero, tamanioPagina, token, desdeNanos, hastaNanos, dni, tipo);
+    }
+
+    public boolean masNuevasPrimero() { return masNuevasPrimero; }
+
+    public int tamanioPagina() { return tamanioPagina; }
+
+    /** @return secuencia desde la que seguir, o -1 para empezar desde el extremo. */
+    public long token() { return token; }
+
+    public long desdeNanos() { return desdeNanos; }
+
+    public long hastaNanos() { return hastaNanos; }
+
+    /** @return DNI filtrado, o null. */
+    public String dni() { return dni; }
+
+    /** @return tipo filtrado, o null. */
+    public TipoOperacion tipo() { return tipo; }
+
+    /**
+     * @param e Evento a verificar.
+     * @return true si el evento cumple los filtros de socio y tipo (no los de tiempo).
+     */
+    boolean coincide(EventoOperacion e) {
+        return (dni == null || dni.equals(e.dni()) || e.tipo() == TipoOperacion.ALTA_MASIVA && e.dnis().contains(dni))
+                && (tipo == null || tipo == e.tipo());
+    }
+
+    private static long aNanos(LocalDateTime f) {
+        Instant i = f.atZone(ZoneId.systemDefault()).toInstant();
+        return i.getEpochSecond() * 1_000_000_000L + i.getNano();
+    }
+}
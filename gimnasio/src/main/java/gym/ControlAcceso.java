@@ -0,0 +1,225 @@
+package gym;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Control de acceso por molinete: valida cada ingreso, guarda las visitas y
+ * lleva la ocupación del gimnasio.
+ * <p>
+ * Validar un ingreso no crea objetos: el plan se consulta directo en el almacén
+ * ({@link AlmacenClientes#planDe(String)}), el horario es una máscara de bits del
+ * {@link Plan} y el día y la hora local se toman de la franja horaria en curso,
+ * que se calcula una sola vez por hora.
+ * </p>
+ * <p>
+ * Las visitas se guardan por hora (local) en un arreglo de <code>long</code> por
+ * franja: el DNI numérico tal cual, y los DNIs con letras como un número propio
+ * asignado la primera vez que pasan. Son 8 bytes por visita, sin objetos, y las
+ * consultas recorren sólo las franjas del rango pedido.
+ * </p>
+ * <p>
+ * Las visitas quedan en memoria: no van al journal ni al log de operaciones,
+ * que son para los cambios de los socios.
+ * </p>
+ */
+public final class ControlAcceso {
+    private static final long MILIS_HORA = 3_600_000L;
+    private static final int BITS_BLOQUE = 10;
+    private static final int LARGO_BLOQUE = 1 << BITS_BLOQUE;
+
+    /** Resultado de pasar por el molinete. */
+    public enum Ingreso {
+        /** Puede pasar; ya cuenta en la ocupación. */
+        PERMITIDO,
+        /** No hay socio con ese DNI (o no tiene plan). */
+        NO_ES_SOCIO,
+        /** Su plan no permite entrar a esta hora. */
+        FUERA_DE_HORARIO
+    }
+
+    private final AlmacenClientes clientes;
+    private final ZoneId zona;
+
+    // Clave = día (epoch) * 24 + hora local
+    private final ConcurrentSkipListMap<Long, Franja> franjas = new ConcurrentSkipListMap<>();
+    private volatile Franja actual;
+    private final AtomicInteger adentro = new AtomicInteger();
+
+    // DNIs que no son números -> código negativo (-2, -3, ...) para guardarlos en las franjas
+    private final ConcurrentHashMap<String, Long> codigosTexto = new ConcurrentHashMap<>();
+    private final AtomicLong proximoCodigo = new AtomicLong(-2);
+
+    /** Visitas de una hora local. */
+    private static final class Franja {
+        final long clave;
+        final long desdeMilis;
+        final long hastaMilis;
+        final DayOfWeek dia;
+        final int hora;
+        // Bloques fijos: agregar nunca copia lo ya guardado (ni frena el molinete copiando)
+        private long[][] bloques = new long[4][];
+        private int cantidad;
+
+        Franja(long clave, long desdeMilis, long hastaMilis, DayOfWeek dia, int hora) {
+            this.clave = clave;
+            this.desdeMilis = desdeMilis;
+            this.hastaMilis = hastaMilis;
+            this.dia = dia;
+            this.hora = hora;
+        }
+
+        synchronized void agregar(long codigo) {
+            int b = cantidad >>> BITS_BLOQUE;
+            if ((cantidad & (LARGO_BLOQUE - 1)) == 0) {
+                if (b == bloques.length) bloques = Arrays.copyOf(bloques, b * 2);
+                bloques[b] = new long[LARGO_BLOQUE];
+            }
+            bloques[b][cantidad & (LARGO_BLOQUE - 1)] = codigo;
+            cantidad++;
+        }
+
+        synchronized int cantidad() {
+            return cantidad;
+        }
+
+        synchronized int contar(long codigo) {
+            int n = 0;
+            for (int i = 0; i < cantidad; i += LARGO_BLOQUE) {
+                long[] bloque = bloques[i >>> BITS_BLOQUE];
+                int hasta = Math.min(LARGO_BLOQUE, cantidad - i);
+                for (int j = 0; j < hasta; j++) {
+                    if (bloque[j] == codigo) n++;
+                }
+            }
+            return n;
+        }
+    }
+
+    /**
+     * @param clientes Almacén donde se valida a los socios.
+     * @param zona Zona horaria de los horarios de los planes.
+     */
+    ControlAcceso(AlmacenClientes clientes, ZoneId zona) {
+        this.clientes = clientes;
+        this.zona = zona;
+    }
+
+    /**
+     * Valida un ingreso y, si corresponde, lo registra.
+     * * @param dni DNI leído en el molinete.
+     * @param epochMilis Momento del ingreso.
+     * @return si puede pasar o por qué no.
+     */
+    Ingreso ingresar(String dni, long epochMilis) {
+        Plan p = clientes.planDe(dni);
+        if (p == null) return Ingreso.NO_ES_SOCIO;
+        Franja f = franja(epochMilis);
+        if (!p.permiteIngreso(f.dia, f.hora)) return Ingreso.FUERA_DE_HORARIO;
+        f.agregar(codigo(dni));
+        adentro.incrementAndGet();
+        return Ingreso.PERMITIDO;
+    }
+
+    /**
+     * Registra que alguien salió (el molinete de salida no pide DNI).
+     */
+    void salir() {
+        // Nunca por debajo de cero: salidas de gente que entró antes de arrancar el sistema
+        adentro.getAndUpdate(n -> n > 0 ? n - 1 : 0);
+    }
+
+    /** @return cuántas personas hay adentro ahora. */
+    public int ocupacion() {
+        return adentro.get();
+    }
+
+    /**
+     * Cuenta las visitas de un socio.
+     * * @param dni DNI del socio.
+     * @param desde Primer día (incluido).
+     * @param hasta Último día (incluido).
+     * @return la cantidad de ingresos permitidos en ese rango.
+     */
+    public int visitas(String dni, LocalDate desde, LocalDate hasta) {
+        long codigo = RepositorioCompacto.clave(dni);
+        if (codigo < 0) {
+            Long c = codigosTexto.get(dni);
+            if (c == null) return 0;
+            codigo = c;
+        }
+        int n = 0;
+        for (Franja f : rango(desde, hasta)) n += f.contar(codigo);
+        return n;
+    }
+
+    /**
+     * Suma las visitas de cada hora del día en un rango de fechas.
+     * * @param desde Primer día (incluido).
+     * @param hasta Último día (incluido).
+     * @return 24 totales: el índice es la hora (0 = de 0 a 1).
+     */
+    public int[] visitasPorHora(LocalDate desde, LocalDate hasta) {
+        int[] porHora = new int[24];
+        for (Franja f : rango(desde, hasta)) porHora[f.hora] += f.cantidad();
+        return porHora;
+    }
+
+    /**
+     * @param desde Primer día (incluido).
+     * @param hasta Último día (incluido).
+     * @return la hora del día con más visitas en el rango (la primera si empatan), o -1 si no hubo ninguna.
+     */
+    public int horaPico(LocalDate desde, LocalDate hasta) {
+        int[] porHora = visitasPorHora(desde, hasta);
+        int pico = -1;
+        for (int h = 0; h < 24; h++) {
+            if (porHora[h] > 0 && (pico < 0 || porHora[h] > porHora[pico])) pico = h;
+        }
+        return pico;
+    }
+
+    private Iterable<Franja> rango(LocalDate desde, LocalDate hasta) {
+        return franjas.subMap(desde.toEpochDay() * 24, true, hasta.toEpochDay() * 24 + 23, true).values();
+    }
+
+    private Franja franja(long epochMilis) {
+        Franja f = actual;
+        if (f != null && epochMilis >= f.desdeMilis && epochMilis < f.hastaMilis) return f;
+        return cambiarFranja(epochMilis);
+    }
+
+    // Una vez por hora (o para ingresos fuera de la hora en curso): calcula la hora local
+    private Franja cambiarFranja(long epochMilis) {
+        Instant instante = Instant.ofEpochMilli(epochMilis);
+        LocalDateTime local = LocalDateTime.ofInstant(instante, zona).truncatedTo(ChronoUnit.HOURS);
+        long clave = local.toLocalDate().toEpochDay() * 24 + local.getHour();
+        Franja f = franjas.computeIfAbsent(clave, k -> {
+            long desde = local.atZone(zona).toInstant().toEpochMilli();
+            return new Franja(k, desde, desde + MILIS_HORA, local.getDayOfWeek(), local.getHour());
+        });
+        // Al volver la hora en el cambio de horario, la misma hora local se repite: vale la franja que ya estaba
+        if (epochMilis >= f.desdeMilis && epochMilis < f.hastaMilis) {
+            Franja vieja = actual;
+            if (vieja == null || f.clave >= vieja.clave) actual = f;
+        }
+        return f;
+    }
+
+    private long codigo(String dni) {
+        long c = RepositorioCompacto.clave(dni);
+        if (c >= 0) return c;
+        Long texto = codigosTexto.get(dni);
+        if (texto != null) return texto;
+        return codigosTexto.computeIfAbsent(dni, k -> proximoCodigo.getAndDecrement());
+    }
+}
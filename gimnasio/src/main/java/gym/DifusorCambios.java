@@ -0,0 +1,90 @@
+package gym;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Las suscripciones a los cambios de un servicio y el hilo que las despierta.
+ * <p>
+ * Cada cambio llama a {@link #avisar()} después de registrarse en el log. Si no
+ * hay suscripciones dormidas eso es leer un booleano; si hay, el primer cambio
+ * que lo ve baja la marca con un CAS y despierta a un único hilo despertador,
+ * que es quien despierta a las suscripciones. Así un cambio nunca espera a un
+ * suscriptor ni hace más de un unpark, aunque haya miles de suscripciones.
+ * </p>
+ */
+final class DifusorCambios {
+    private final RegistroOperaciones log;
+    private final CopyOnWriteArrayList<Suscripcion> suscripciones = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean hayDormidas = new AtomicBoolean();
+    private final AtomicLong creadas = new AtomicLong();
+    private volatile Thread despertador;
+    private volatile boolean cerrado;
+
+    DifusorCambios(RegistroOperaciones log) {
+        this.log = log;
+    }
+
+    /**
+     * Crea una suscripción y arranca su hilo.
+     * * @param desde Secuencia de la primera operación a entregar (se ajusta al final del log si es mayor).
+     * @param tamanioLote Máximo de operaciones por lote.
+     * @param receptor Quien recibe los lotes.
+     * @return la suscripción.
+     */
+    synchronized Suscripcion suscribir(long desde, int tamanioLote, ReceptorCambios receptor) {
+        if (cerrado) throw new IllegalStateException("El servicio esta cerrado");
+        if (despertador == null) {
+            despertador = Thread.ofPlatform().daemon().name("difusor-cambios").start(this::despertar);
+        }
+        Suscripcion s = new Suscripcion(log, this, Math.min(desde, log.finSecuencia()), tamanioLote, receptor,
+                "suscripcion-" + creadas.incrementAndGet());
+        suscripciones.add(s);
+        s.iniciar();
+        return s;
+    }
+
+    /**
+     * Aviso de una operación nueva en el log. Va en el camino de cada cambio: no bloquea.
+     */
+    void avisar() {
+        if (hayDormidas.get() && hayDormidas.compareAndSet(true, false)) {
+            LockSupport.unpark(despertador);
+        }
+    }
+
+    /** Una suscripción se anota para que la despierten (antes de volver a mirar el log). */
+    void esperando() {
+        hayDormidas.set(true);
+    }
+
+    void quitar(Suscripcion s) {
+        suscripciones.remove(s);
+    }
+
+    /** @return cantidad de suscripciones activas. */
+    int cantidad() {
+        return suscripciones.size();
+    }
+
+    private void despertar() {
+        while (!cerrado) {
+            LockSupport.park(this);
+            for (Suscripcion s : suscripciones) s.despertar();
+        }
+    }
+
+    /**
+     * Cierra todas las suscripciones (esperando los lotes en curso) y el despertador.
+     */
+    void cerrar() {
+        synchronized (this) {
+            cerrado = true;
+        }
+        for (Suscripcion s : suscripciones) s.close();
+        Thread d = despertador;
+        if (d != null) LockSupport.unpark(d);
+    }
+}
@@ -0,0 +1,16 @@
+package gym;
+
+/**
+ * Nivel de durabilidad del journal de operaciones.
+ * Define cuándo se fuerza a disco (fsync) lo que escribió el servicio.
+ */
+public enum Durabilidad {
+    /** No se hace fsync; el sistema operativo decide cuándo bajar los datos. Lo más rápido. */
+    NINGUNA,
+
+    /** fsync periódico en segundo plano: se pueden perder los últimos milisegundos ante un corte. */
+    AGRUPADA,
+
+    /** Cada operación espera su fsync antes de volver; las que llegan juntas comparten uno solo. */
+    SIEMPRE
+}
@@ -0,0 +1,284 @@
+package gym;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Estadísticas de socios que se mantienen al día con cada operación, sin recorrer a nadie.
+ * <p>
+ * Lleva las altas y bajas de cada mes (con su año), los socios activos de cada
+ * plan y cuántos de ellos ya tienen el descuento por antigüedad, así que cada
+ * consulta (incluida la recaudación mensual proyectada) cuesta O(1).
+ * </p>
+ * <p>
+ * El descuento depende del día: un socio lo gana al cumplir 12 meses. Para no
+ * revisar a todos cada día, los socios que todavía no lo tienen se cuentan en un
+ * "calendario de aniversarios" (por día en que lo ganan y por plan). Avanzar la
+ * fecha pasa los días vencidos del calendario a los contadores con descuento:
+ * cada socio se mueve una sola vez en toda su vida.
+ * </p>
+ * <p>
+ * Los contadores son atómicos y las altas, cambios y bajas pueden llegar desde
+ * varios hilos a la vez. Lo único que no puede correr en paralelo con ellas es
+ * {@link #avanzarHasta(int)}: {@link GimnasioService} lo llama con las escrituras frenadas.
+ * </p>
+ */
+public final class EstadisticasSocios {
+    private static final Plan[] PLANES = Plan.values();
+
+    // Día (epoch) al que corresponden los contadores de descuento; sólo avanza
+    private volatile int dia;
+    private final AtomicIntegerArray activos = new AtomicIntegerArray(PLANES.length);
+    private final AtomicIntegerArray conDescuento = new AtomicIntegerArray(PLANES.length);
+    // Día en que ganan el descuento -> socios activos de cada plan que lo ganan ese día
+    private final ConcurrentSkipListMap<Integer, AtomicIntegerArray> aniversarios = new ConcurrentSkipListMap<>();
+    // Clave = año * 12 + (mes - 1)
+    private final ConcurrentHashMap<Integer, Mes> porMes = new ConcurrentHashMap<>();
+
+    /** Altas y bajas de un mes. */
+    private static final class Mes {
+        final AtomicInteger altas = new AtomicInteger();
+        final AtomicInteger bajas = new AtomicInteger();
+    }
+
+    /**
+     * @param hoy Fecha a la que se calcula el descuento de los socios que se agreguen.
+     */
+    EstadisticasSocios(LocalDate hoy) {
+        this.dia = (int) hoy.toEpochDay();
+    }
+
+    /**
+     * Día en que un socio gana el descuento: el primero en que
+     * {@link Cliente#tieneDescuento(LocalDate)} da true. Es el mismo día del
+     * alta un año después, salvo para el 29 de febrero, que lo gana el 1 de marzo.
+     * * @param fechaAlta Fecha de alta del socio.
+     * @return el día (epoch) del aniversario.
+     */
+    static int aniversario(LocalDate fechaAlta) {
+        // Sin crear fechas: un año son 366 días si en el medio hay un 29 de febrero
+        int anio = fechaAlta.getYear();
+        boolean bisiesto = fechaAlta.getMonthValue() <= 2 ? Year.isLeap(anio) : Year.isLeap(anio + 1);
+        return (int) fechaAlta.toEpochDay() + (bisiesto ? 366 : 365);
+    }
+
+    /**
+     * Cuenta un socio nuevo.
+     * * @param c Socio agregado.
+     */
+    void alta(Cliente c) {
+        mes(c.getFechaAlta()).altas.incrementAndGet();
+        sumar(c.getPlan(), aniversario(c.getFechaAlta()), 1);
+    }
+
+    /**
+     * Pasa un socio de un plan a otro.
+     * * @param c Socio (su fecha de alta decide si ya tiene descuento).
+     * @param anterior Plan que tenía.
+     * @param nuevo Plan que tiene ahora.
+     */
+    void cambioPlan(Cliente c, Plan anterior, Plan nuevo) {
+        if (anterior == nuevo) return;
+        int aniversario = aniversario(c.getFechaAlta());
+        sumar(anterior, aniversario, -1);
+        sumar(nuevo, aniversario, 1);
+    }
+
+    /**
+     * Descuenta un socio dado de baja.
+     * * @param c Socio eliminado, con el plan que tenía.
+     * @param fechaBaja Día de la baja (define en qué mes se cuenta).
+     */
+    void baja(Cliente c, LocalDate fechaBaja) {
+        mes(fechaBaja).bajas.incrementAndGet();
+        sumar(c.getPlan(), aniversario(c.getFechaAlta()), -1);
+    }
+
+    private void sumar(Plan p, int aniversario, int delta) {
+        int i = p.ordinal();
+        activos.addAndGet(i, delta);
+        if (aniversario <= dia) {
+            conDescuento.addAndGet(i, delta);
+        } else {
+            aniversarios.computeIfAbsent(aniversario, k -> new AtomicIntegerArray(PLANES.length)).addAndGet(i, delta);
+        }
+    }
+
+    private Mes mes(LocalDate fecha) {
+        int clave = fecha.getYear() * 12 + fecha.getMonthValue() - 1;
+        Mes m = porMes.get(clave);
+        return m != null ? m : porMes.computeIfAbsent(clave, k -> new Mes());
+    }
+
+    /**
+     * @param hoy Día (epoch) actual.
+     * @return true si hay que llamar a {@link #avanzarHasta(int)} antes de consultar.
+     */
+    boolean atrasadas(int hoy) {
+        return hoy > dia;
+    }
+
+    /**
+     * Pasa a "con descuento" a los socios que cumplieron el año hasta ese día inclusive.
+     * No puede correr a la vez que altas, cambios o bajas.
+     * * @param hoy Día (epoch) al que se quieren las estadísticas.
+     */
+    void avanzarHasta(int hoy) {
+        if (hoy <= dia) return;
+        Iterator<Map.Entry<Integer, AtomicIntegerArray>> it = aniversarios.headMap(hoy, true).entrySet().iterator();
+        while (it.hasNext()) {
+            AtomicIntegerArray socios = it.next().getValue();
+            for (int i = 0; i < PLANES.length; i++) conDescuento.addAndGet(i, socios.get(i));
+            it.remove();
+        }
+        dia = hoy;
+    }
+
+    /** @return fecha a la que corresponden los socios con descuento y la recaudación. */
+    public LocalDate fecha() { return LocalDate.ofEpochDay(dia); }
+
+    /**
+     * @param mes Año y mes.
+     * @return socios que se dieron de alta ese mes (incluidos los que después se dieron de baja).
+     */
+    public int altas(YearMonth mes) {
+        Mes m = porMes.get(mes.getYear() * 12 + mes.getMonthValue() - 1);
+        return m == null ? 0 : m.altas.get();
+    }
+
+    /**
+     * @param mes Año y mes.
+     * @return socios que se dieron de baja ese mes.
+     */
+    public int bajas(YearMonth mes) {
+        Mes m = porMes.get(mes.getYear() * 12 + mes.getMonthValue() - 1);
+        return m == null ? 0 : m.bajas.get();
+    }
+
+    /** @return socios activos con ese plan. */
+    public int activos(Plan p) { return activos.get(p.ordinal()); }
+
+    /** @return socios activos con ese plan que ya tienen el descuento por antigüedad. */
+    public int conDescuento(Plan p) { return conDescuento.get(p.ordinal()); }
+
+    /** @return socios activos en total. */
+    public int activos() {
+        int n = 0;
+        for (int i = 0; i < PLANES.length; i++) n += activos.get(i);
+        return n;
+    }
+
+    /** @return socios activos con descuento en total. */
+    public int conDescuento() {
+        int n = 0;
+        for (int i = 0; i < PLANES.length; i++) n += conDescuento.get(i);
+        return n;
+    }
+
+    /**
+     * @param p Plan.
+     * @return lo que pagarían por mes los socios activos de ese plan, en centavos.
+     */
+    public long recaudacionCentavos(Plan p) {
+        long con = conDescuento(p);
+        return (activos(p) - con) * Facturacion.centavos(Cliente.cuota(p, false))
+                + con * Facturacion.centavos(Cliente.cuota(p, true));
+    }
+
+    /**
+     * Recaudación mensual proyectada: lo que daría facturar hoy a todos los socios activos.
+     * Coincide con el total de {@link GimnasioService#facturarMes(LocalDate, java.nio.file.Path)}
+     * a la fecha {@link #fecha()}.
+     * @return el total en centavos.
+     */
+    public long recaudacionCentavos() {
+        long total = 0;
+        for (Plan p : PLANES) total += recaudacionCentavos(p);
+        return total;
+    }
+
+    /**
+     * @param hasta Último mes a mostrar.
+     * @param meses Cantidad de meses hacia atrás.
+     * @return un resumen para mostrar en la consola.
+     */
+    public List<String> comoLineas(YearMonth hasta, int meses) {
+        List<String> out = new ArrayList<>();
+        out.add("Al " + fecha() + ":");
+        for (Plan p : PLANES) {
+            out.add(String.format("  %-8s %8d activos  %8d c/desc.  $%s", p, activos(p), conDescuento(p),
+                    Facturacion.importe(recaudacionCentavos(p))));
+        }
+        out.add(String.format("  %-8s %8d activos  %8d c/desc.  $%s por mes", "TOTAL", activos(), conDescuento(),
+                Facturacion.importe(recaudacionCentavos())));
+        out.add("Mes        altas    bajas");
+        for (YearMonth m = hasta.minusMonths(meses - 1); !m.isAfter(hasta); m = m.plusMonths(1)) {
+            out.add(String.format("%s %8d %8d", m, altas(m), bajas(m)));
+        }
+        return out;
+    }
+
+    /**
+     * Copia todo a un arreglo para guardarlo en un snapshot. No puede correr a la vez que
+     * altas, cambios o bajas.
+     * <pre>
+     * [día][planes][activos por plan][con descuento por plan]
+     * [aniversarios][por cada uno: día, socios por plan]
+     * [meses][por cada uno: año * 12 + mes - 1, altas, bajas]
+     * </pre>
+     * @return el estado como enteros.
+     */
+    int[] exportar() {
+        int[] out = new int[3 + 2 * PLANES.length + aniversarios.size() * (1 + PLANES.length) + 1 + porMes.size() * 3];
+        int k = 0;
+        out[k++] = dia;
+        out[k++] = PLANES.length;
+        for (int i = 0; i < PLANES.length; i++) out[k++] = activos.get(i);
+        for (int i = 0; i < PLANES.length; i++) out[k++] = conDescuento.get(i);
+        out[k++] = aniversarios.size();
+        for (Map.Entry<Integer, AtomicIntegerArray> e : aniversarios.entrySet()) {
+            out[k++] = e.getKey();
+            for (int i = 0; i < PLANES.length; i++) out[k++] = e.getValue().get(i);
+        }
+        out[k++] = porMes.size();
+        for (Map.Entry<Integer, Mes> e : porMes.entrySet()) {
+            out[k++] = e.getKey();
+            out[k++] = e.getValue().altas.get();
+            out[k++] = e.getValue().bajas.get();
+        }
+        return out;
+    }
+
+    /**
+     * Reemplaza el contenido por el de {@link #exportar()}. Sólo con el servicio vacío.
+     * * @param datos Estado guardado.
+     */
+    void cargar(int[] datos) {
+        int k = 0;
+        dia = datos[k++];
+        // Si después se agregaron planes, los nuevos arrancan en cero
+        int planes = datos[k++];
+        for (int i = 0; i < planes; i++) activos.set(i, datos[k++]);
+        for (int i = 0; i < planes; i++) conDescuento.set(i, datos[k++]);
+        for (int n = datos[k++]; n > 0; n--) {
+            AtomicIntegerArray socios = new AtomicIntegerArray(PLANES.length);
+            aniversarios.put(datos[k++], socios);
+            for (int i = 0; i < planes; i++) socios.set(i, datos[k++]);
+        }
+        for (int n = datos[k++]; n > 0; n--) {
+            Mes m = new Mes();
+            porMes.put(datos[k++], m);
+            m.altas.set(datos[k++]);
+            m.bajas.set(datos[k++]);
+        }
+    }
+}
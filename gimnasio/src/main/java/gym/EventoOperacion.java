@@ -0,0 +1,84 @@
+package gym;
+
+import java.util.List;
+
+/**
+ * Una operación registrada en el log, con sus datos crudos.
+ * Es inmutable: se puede pasar entre hilos sin copiarla.
+ */
+public final class EventoOperacion {
+    private final long secuencia;
+    private final long epochNanos;
+    private final TipoOperacion tipo;
+    private final String dni;
+    private final Object anterior;
+    private final Object nuevo;
+
+    EventoOperacion(long secuencia, long epochNanos, TipoOperacion tipo, String dni, Object anterior, Object nuevo) {
+        this.secuencia = secuencia;
+        this.epochNanos = epochNanos;
+        this.tipo = tipo;
+        this.dni = dni;
+        this.anterior = anterior;
+        this.nuevo = nuevo;
+    }
+
+    /** @return posición de la operación dentro del log (empieza en 0). */
+    public long secuencia() { return secuencia; }
+
+    /** @return instante de la operación en nanosegundos desde 1970. */
+    public long epochNanos() { return epochNanos; }
+
+    public TipoOperacion tipo() { return tipo; }
+
+    public String dni() { return dni; }
+
+    /** @return ver {@link TipoOperacion#describir(String, Object, Object)}. */
+    public Object anterior() { return anterior; }
+
+    /** @return ver {@link TipoOperacion#describir(String, Object, Object)}. */
+    public Object nuevo() { return nuevo; }
+
+    /** @return el nombre del socio en ALTA y el nombre nuevo en MODIFICACION; null en los demás. */
+    public String nombre() {
+        return switch (tipo) {
+            case ALTA -> (String) anterior;
+            case MODIFICACION -> (String) nuevo;
+            default -> null;
+        };
+    }
+
+    /** @return el plan en ALTA y el plan nuevo en CAMBIO_PLAN; null en los demás. */
+    public Plan plan() {
+        return switch (tipo) {
+            case ALTA, CAMBIO_PLAN -> (Plan) nuevo;
+            default -> null;
+        };
+    }
+
+    /** @return el monto pagado en centavos en PAGO; 0 en los demás. */
+    public long centavos() {
+        return tipo == TipoOperacion.PAGO && anterior instanceof Long c ? c : 0;
+    }
+
+    /** @return los DNIs afectados: todos los del lote en ALTA_MASIVA, el del socio en los demás. */
+    @SuppressWarnings("unchecked")
+    public List<String> dnis() {
+        if (tipo == TipoOperacion.ALTA_MASIVA) {
+            return anterior instanceof List<?> l ? (List<String>) l : List.of();
+        }
+        return dni == null ? List.of() : List.of(dni);
+    }
+
+    /**
+     * @return la línea de log con fecha, hora y descripción.
+     */
+    public String comoLinea() {
+        return Reloj.linea(epochNanos, tipo.describir(dni, anterior, nuevo));
+    }
+
+    @Override
+    public String toString() {
+        return comoLinea();
+    }
+}
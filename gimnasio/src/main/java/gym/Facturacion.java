@@ -0,0 +1,203 @@
+package gym;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Motor de facturación mensual de todos los socios.
+ * <p>
+ * Usa una única fecha de referencia para toda la corrida. En vez de llamar a
+ * <code>Period.between</code> por cada socio, calcula una sola vez la fecha límite
+ * (<code>referencia - 12 meses</code>): tiene descuento quien se dio de alta ese
+ * día o antes, que es exactamente la regla de {@link Cliente#tieneDescuento(LocalDate)}
+ * (incluido el 29 de febrero). El precio de cada plan con y sin descuento también
+ * se calcula una vez, en centavos.
+ * </p>
+ * <p>
+ * La corrida paralela parte la lista de socios en bloques y los procesa con un
+ * stream paralelo (fork/join): cada bloque acumula sus propios totales, que se
+ * combinan al final, y escribe sus facturas en el archivo de a un bloque por vez.
+ * El orden de los bloques en el archivo no está garantizado.
+ * La corrida secuencial es la referencia: recorre los socios uno por uno con
+ * {@link Cliente#calcularCuota(LocalDate)}.
+ * </p>
+ */
+public final class Facturacion {
+    private static final Plan[] PLANES = Plan.values();
+    // Socios por bloque: suficiente para repartir el trabajo sin que cada bloque pese en memoria
+    private static final int TAMANIO_BLOQUE = 8192;
+    private static final String CABECERA = "dni;nombre;plan;importe;descuento\n";
+
+    private final LocalDate referencia;
+    private final long limiteDescuento;
+    // [plan][0 = sin descuento, 1 = con descuento]
+    private final long[][] centavosPorPlan = new long[PLANES.length][2];
+
+    /**
+     * @param referencia Fecha a la que se factura (la misma para todos los socios).
+     */
+    public Facturacion(LocalDate referencia) {
+        this.referencia = referencia;
+        this.limiteDescuento = referencia.minusMonths(12).toEpochDay();
+        for (Plan p : PLANES) {
+            centavosPorPlan[p.ordinal()][0] = centavos(Cliente.cuota(p, false));
+            centavosPorPlan[p.ordinal()][1] = centavos(Cliente.cuota(p, true));
+        }
+    }
+
+    /**
+     * Totales acumulados por un hilo (o por un bloque).
+     */
+    private static final class Acumulador {
+        final long[] socios = new long[PLANES.length];
+        final long[] conDescuento = new long[PLANES.length];
+        final long[] centavos = new long[PLANES.length];
+
+        void sumar(Plan p, boolean descuento, long importe) {
+            int i = p.ordinal();
+            socios[i]++;
+            if (descuento) conDescuento[i]++;
+            centavos[i] += importe;
+        }
+
+        Acumulador combinar(Acumulador o) {
+            for (int i = 0; i < PLANES.length; i++) {
+                socios[i] += o.socios[i];
+                conDescuento[i] += o.conDescuento[i];
+                centavos[i] += o.centavos[i];
+            }
+            return this;
+        }
+
+        ResumenFacturacion resumen(LocalDate referencia) {
+            return new ResumenFacturacion(referencia, socios, conDescuento, centavos);
+        }
+    }
+
+    /**
+     * Factura a todos los socios de la lista en paralelo.
+     * * @param socios Socios a facturar.
+     * @param facturas Archivo donde escribir una factura por socio, o null para sólo calcular totales.
+     * @return los totales por plan.
+     * @throws IOException si falla la escritura del archivo.
+     */
+    public ResumenFacturacion facturar(List<Cliente> socios, Path facturas) throws IOException {
+        if (facturas == null) return enParalelo(socios, null);
+        try (BufferedWriter out = Files.newBufferedWriter(facturas, StandardCharsets.UTF_8)) {
+            out.write(CABECERA);
+            return enParalelo(socios, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private ResumenFacturacion enParalelo(List<Cliente> socios, Writer out) {
+        int bloques = (socios.size() + TAMANIO_BLOQUE - 1) / TAMANIO_BLOQUE;
+        // Cada bloque devuelve su propio acumulador: ningún hilo escribe en los totales de otro
+        return IntStream.range(0, bloques).parallel()
+                .mapToObj(b -> procesar(socios, b, out))
+                .reduce(Acumulador::combinar)
+                .orElseGet(Acumulador::new)
+                .resumen(referencia);
+    }
+
+    private Acumulador procesar(List<Cliente> socios, int bloque, Writer out) {
+        Acumulador acc = new Acumulador();
+        int desde = bloque * TAMANIO_BLOQUE;
+        int hasta = Math.min(socios.size(), desde + TAMANIO_BLOQUE);
+        StringBuilder sb = out == null ? null : new StringBuilder((hasta - desde) * 48);
+        for (int i = desde; i < hasta; i++) {
+            Cliente c = socios.get(i);
+            // El plan se lee una sola vez: otra recepción podría cambiarlo mientras tanto
+            Plan p = c.getPlan();
+            boolean descuento = c.getFechaAlta().toEpochDay() <= limiteDescuento;
+            long importe = centavosPorPlan[p.ordinal()][descuento ? 1 : 0];
+            acc.sumar(p, descuento, importe);
+            if (sb != null) linea(sb, c.getDni(), c.getNombre(), p, importe, descuento);
+        }
+        if (sb != null) {
+            // Un solo write por bloque: los hilos se turnan poco y el archivo se escribe a medida que avanza
+            synchronized (out) {
+                try {
+                    out.append(sb);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        return acc;
+    }
+
+    /**
+     * Factura socio por socio, en un solo hilo, con la regla de {@link Cliente}.
+     * Sirve como referencia para verificar la corrida paralela.
+     * * @param socios Socios a facturar.
+     * @param facturas Archivo donde escribir una factura por socio, o null para sólo calcular totales.
+     * @return los totales por plan.
+     * @throws IOException si falla la escritura del archivo.
+     */
+    public ResumenFacturacion facturarSecuencial(List<Cliente> socios, Path facturas) throws IOException {
+        Acumulador acc = new Acumulador();
+        try (BufferedWriter out = facturas == null ? null : Files.newBufferedWriter(facturas, StandardCharsets.UTF_8)) {
+            if (out != null) out.write(CABECERA);
+            StringBuilder sb = new StringBuilder(64);
+            for (Cliente c : socios) {
+                Plan p = c.getPlan();
+                boolean descuento = c.tieneDescuento(referencia);
+                long importe = centavos(Cliente.cuota(p, descuento));
+                acc.sumar(p, descuento, importe);
+                if (out != null) {
+                    sb.setLength(0);
+                    linea(sb, c.getDni(), c.getNombre(), p, importe, descuento);
+                    out.append(sb);
+                }
+            }
+        }
+        return acc.resumen(referencia);
+    }
+
+    private static void linea(StringBuilder sb, String dni, String nombre, Plan p, long importe, boolean descuento) {
+        sb.append(dni).append(';');
+        campo(sb, nombre);
+        sb.append(';').append(p.name()).append(';');
+        importe(sb, importe);
+        sb.append(';').append(descuento ? "SI" : "NO").append('\n');
+    }
+
+    /** Agrega un texto al CSV, entre comillas sólo si hace falta. */
+    private static void campo(StringBuilder sb, String s) {
+        if (s == null) return;
+        if (s.indexOf(';') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) {
+            sb.append(s);
+            return;
+        }
+        sb.append('"').append(s.replace("\"", "\"\"")).append('"');
+    }
+
+    static long centavos(double monto) {
+        return Math.round(monto * 100);
+    }
+
+    private static void importe(StringBuilder sb, long centavos) {
+        long c = Math.abs(centavos % 100);
+        sb.append(centavos / 100).append('.').append(c < 10 ? "0" : "").append(c);
+    }
+
+    /**
+     * @param centavos Monto en centavos.
+     * @return el monto con dos decimales, por ejemplo "13500.00".
+     */
+    static String importe(long centavos) {
+        StringBuilder sb = new StringBuilder(16);
+        importe(sb, centavos);
+        return sb.toString();
+    }
+}
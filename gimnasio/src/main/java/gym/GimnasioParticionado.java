@@ -0,0 +1,438 @@
+package gym;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Gimnasio repartido en varias particiones independientes según el DNI.
+ * <p>
+ * Cada partición es un {@link GimnasioService} completo, con su almacén, sus
+ * estadísticas, su log y (si es persistente) su journal. Un socio vive siempre
+ * en la misma partición, elegida por un hash del DNI, así que las operaciones
+ * sobre un socio van directo a la suya y nunca comparten locks, contadores ni
+ * log con las de otras particiones: con varios núcleos las escrituras escalan
+ * con la cantidad de particiones.
+ * </p>
+ * <p>
+ * Las operaciones que abarcan a todos (cantidad, altas por mes, listados por
+ * nombre y facturación) consultan las particiones en paralelo y combinan los
+ * resultados. Cada partición responde con su propio estado del momento: no hay
+ * un corte común entre particiones. Para un reporte consistente de una partición
+ * está {@link GimnasioService#abrirInstantanea()} en {@link #particion(int)}.
+ * </p>
+ * <p>
+ * La cantidad de particiones define dónde vive cada socio: un directorio de
+ * journals se tiene que abrir siempre con la misma cantidad.
+ * </p>
+ */
+public final class GimnasioParticionado implements AutoCloseable {
+    private final GimnasioService[] particiones;
+
+    /**
+     * Crea un gimnasio particionado que trabaja sólo en memoria.
+     * * @param particiones Cantidad de particiones (al menos 1).
+     */
+    public GimnasioParticionado(int particiones) {
+        this(crear(particiones));
+    }
+
+    private GimnasioParticionado(GimnasioService[] particiones) {
+        this.particiones = particiones;
+    }
+
+    private static GimnasioService[] crear(int particiones) {
+        validar(particiones);
+        GimnasioService[] out = new GimnasioService[particiones];
+        for (int i = 0; i < particiones; i++) out[i] = new GimnasioService();
+        return out;
+    }
+
+    private static void validar(int particiones) {
+        if (particiones < 1) {
+            throw new IllegalArgumentException("Tiene que haber al menos una particion");
+        }
+    }
+
+    /**
+     * Abre (o crea) un gimnasio particionado persistente: un journal por partición
+     * en el directorio, cada uno con sus snapshots.
+     * * @param directorio Directorio de los journals.
+     * @param particiones Cantidad de particiones; la misma con que se creó el directorio.
+     * @param durabilidad Cuándo se fuerzan los cambios a disco.
+     * @return el gimnasio, con las particiones ya recuperadas.
+     * @throws IOException si algún journal no se puede abrir.
+     * @throws IllegalArgumentException si el directorio tiene journals de otra cantidad de particiones.
+     */
+    public static GimnasioParticionado abrir(Path directorio, int particiones, Durabilidad durabilidad) throws IOException {
+        validar(particiones);
+        Files.createDirectories(directorio);
+        int existentes = 0;
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(directorio, "particion-*.journal")) {
+            for (Path ignorado : ds) existentes++;
+        }
+        if (existentes != 0 && existentes != particiones) {
+            throw new IllegalArgumentException("El directorio tiene " + existentes
+                    + " particiones; con otra cantidad los socios quedarian en la particion equivocada");
+        }
+        GimnasioService[] out = new GimnasioService[particiones];
+        try {
+            for (int i = 0; i < particiones; i++) {
+                out[i] = new GimnasioService(directorio.resolve(String.format("particion-%03d.journal", i)), durabilidad);
+            }
+        } catch (IOException | RuntimeException e) {
+            cerrar(out, e);
+            throw e;
+        }
+        return new GimnasioParticionado(out);
+    }
+
+    /** @return cantidad de particiones. */
+    public int cantidadParticiones() {
+        return particiones.length;
+    }
+
+    /**
+     * @param i Número de partición.
+     * @return el servicio de esa partición (para métricas, log o instantáneas propias).
+     */
+    public GimnasioService particion(int i) {
+        return particiones[i];
+    }
+
+    /**
+     * @param dni DNI de un socio.
+     * @return el número de la partición donde vive.
+     */
+    public int particionDe(String dni) {
+        int h = dni == null ? 0 : dni.hashCode();
+        // Hash multiplicativo y bits altos: no se correlaciona con los bits bajos que eligen el lock dentro del servicio
+        long mezcla = (h * 0x9E3779B9L) & 0xFFFFFFFFL;
+        return (int) ((mezcla * particiones.length) >>> 32);
+    }
+
+    private GimnasioService de(String dni) {
+        return particiones[particionDe(dni)];
+    }
+
+    /**
+     * Da de alta un socio en su partición.
+     * * @param c Socio a registrar.
+     * @throws IllegalArgumentException si el DNI ya existe.
+     */
+    public void altaCliente(Cliente c) {
+        de(c.getDni()).altaCliente(c);
+    }
+
+    /**
+     * Da de alta un lote: se reparte por partición y cada parte se aplica en
+     * paralelo como un {@link GimnasioService#altaMasiva(List, String)} propio.
+     * * @param lote Socios a registrar.
+     * @param origen De dónde vienen (se muestra en el log de cada partición).
+     * @return los socios que no se agregaron porque su DNI ya existía.
+     * @throws IllegalArgumentException si a algún socio le falta el plan o la fecha
+     *                                  de alta; en ese caso ninguna partición agrega nada.
+     */
+    public List<Cliente> altaMasiva(List<Cliente> lote, String origen) {
+        // Se revisa todo antes de repartir: las partes se aplican por separado
+        for (Cliente c : lote) GimnasioService.validar(c);
+        List<List<Cliente>> partes = new ArrayList<>(particiones.length);
+        for (int i = 0; i < particiones.length; i++) partes.add(new ArrayList<>(lote.size() / particiones.length + 1));
+        for (Cliente c : lote) partes.get(particionDe(c.getDni())).add(c);
+        List<Cliente> repetidos = Collections.synchronizedList(new ArrayList<>());
+        IntStream.range(0, particiones.length).parallel()
+                .forEach(i -> repetidos.addAll(particiones[i].altaMasiva(partes.get(i), origen)));
+        return new ArrayList<>(repetidos);
+    }
+
+    /**
+     * Busca un socio en su partición.
+     * * @param dni El documento a buscar.
+     * @return el socio.
+     * @throws SocioNoEncontradoException si no hay nadie con ese DNI.
+     */
+    public Cliente buscarPorDni(String dni) {
+        return de(dni).buscarPorDni(dni);
+    }
+
+    /**
+     * Cambia el nombre de un socio en su partición.
+     * * @param dni DNI del socio a modificar.
+     * @param nuevoNombre El nuevo nombre a guardar.
+     */
+    public void modificarNombre(String dni, String nuevoNombre) {
+        de(dni).modificarNombre(dni, nuevoNombre);
+    }
+
+    /**
+     * Cambia el plan de un socio en su partición.
+     * * @param dni DNI del socio.
+     * @param p Nuevo plan.
+     */
+    public void cambiarPlan(String dni, Plan p) {
+        de(dni).cambiarPlan(dni, p);
+    }
+
+    /**
+     * Da de baja a un socio en su partición.
+     * * @param dni DNI del socio a eliminar.
+     * @return true si se eliminó, false si no se encontró.
+     */
+    public boolean baja(String dni) {
+        return de(dni).baja(dni);
+    }
+
+    /**
+     * Calcula la cuota de un socio en su partición.
+     * * @param dni DNI del socio.
+     * @return el monto de la cuota.
+     */
+    public double cuotaDe(String dni) {
+        return de(dni).cuotaDe(dni);
+    }
+
+    /**
+     * Verifica si un DNI existe en su partición.
+     * * @param dni DNI a verificar.
+     * @return true si ya existe.
+     */
+    public boolean existeDni(String dni) {
+        return de(dni).existeDni(dni);
+    }
+
+    /**
+     * Valida un ingreso por molinete contra la partición del socio.
+     * * @param dni DNI leído en el molinete.
+     * @return si puede pasar o por qué no.
+     */
+    public ControlAcceso.Ingreso ingresar(String dni) {
+        return de(dni).ingresar(dni);
+    }
+
+    /**
+     * Registra un pago en la partición del socio.
+     * * @param dni DNI del socio.
+     * @param monto Monto pagado.
+     * @return el vencimiento de su próxima cuota impaga.
+     */
+    public LocalDate registrarPago(String dni, double monto) {
+        return de(dni).registrarPago(dni, monto);
+    }
+
+    /**
+     * @param fecha Fecha a la que se calcula.
+     * @return cuántos socios de todas las particiones tienen cuotas vencidas a esa fecha.
+     */
+    public long cantidadMorosos(LocalDate fecha) {
+        long total = 0;
+        for (GimnasioService p : particiones) total += p.pagos().cantidadMorosos(fecha);
+        return total;
+    }
+
+    /**
+     * @param fecha Fecha a la que se calcula.
+     * @return la deuda vencida de todas las particiones, en centavos.
+     */
+    public long deudaVencida(LocalDate fecha) {
+        long total = 0;
+        for (GimnasioService p : particiones) total += p.pagos().deudaVencida(fecha);
+        return total;
+    }
+
+    /**
+     * Los socios más atrasados de todas las particiones: cada una da sus primeros
+     * <code>maximo</code> y se mezclan por vencimiento.
+     * * @param fecha Fecha a la que se calcula.
+     * @param maximo Cantidad máxima de socios a devolver.
+     * @return los morosos, los más atrasados primero.
+     */
+    public List<LibroPagos.Moroso> morosos(LocalDate fecha, int maximo) {
+        return IntStream.range(0, particiones.length).parallel()
+                .mapToObj(i -> particiones[i].pagos().morosos(fecha, maximo))
+                .flatMap(List::stream)
+                .sorted(LibroPagos.ORDEN)
+                .limit(maximo)
+                .toList();
+    }
+
+    /** @return cuántas personas hay adentro, sumando los molinetes de todas las particiones. */
+    public int ocupacion() {
+        int total = 0;
+        for (GimnasioService p : particiones) total += p.accesos().ocupacion();
+        return total;
+    }
+
+    /** @return cantidad de socios de todas las particiones. */
+    public int cantidadClientes() {
+        int total = 0;
+        for (GimnasioService p : particiones) total += p.cantidadClientes();
+        return total;
+    }
+
+    /** @return las altas por mes sumadas de todas las particiones (índice 0 = Enero). */
+    public int[] getAltasPorMes() {
+        int[] total = new int[12];
+        for (GimnasioService p : particiones) {
+            int[] altas = p.getAltasPorMes();
+            for (int i = 0; i < 12; i++) total[i] += altas[i];
+        }
+        return total;
+    }
+
+    /**
+     * Listado de todos los socios ordenado por nombre. Cada partición recorre su
+     * índice en paralelo y después se mezclan las listas ya ordenadas, comparando
+     * las claves de orden que guardan los índices (sin volver a pasar por el Collator).
+     * @return los socios en orden alfabético.
+     */
+    public Cliente[] listarOrdenadosPorNombre() {
+        Ordenados[] partes = IntStream.range(0, particiones.length).parallel()
+                .mapToObj(i -> {
+                    Ordenados o = new Ordenados();
+                    particiones[i].recorrerPorNombre(o::agregar);
+                    return o;
+                })
+                .toArray(Ordenados[]::new);
+        int total = 0;
+        for (Ordenados o : partes) total += o.socios.size();
+        Cliente[] out = new Cliente[total];
+        int k = 0;
+        PriorityQueue<Ordenados> cabezas = new PriorityQueue<>(Math.max(1, partes.length), Ordenados::compararCabezas);
+        for (Ordenados o : partes) if (o.quedan()) cabezas.add(o);
+        while (!cabezas.isEmpty()) {
+            Ordenados o = cabezas.poll();
+            out[k++] = o.socios.get(o.siguiente++);
+            if (o.quedan()) cabezas.add(o);
+        }
+        return out;
+    }
+
+    /**
+     * Lista socios en orden alfabético de a páginas. Cada partición lee su página
+     * (con un socio de más) en paralelo y se mezclan; el token sirve para todas las
+     * particiones porque es una posición en el orden, no en un índice en particular.
+     * * @param prefijo Inicio del nombre, o null para todos.
+     * @param tamanio Cantidad máxima de socios por página.
+     * @param token Token de la página anterior, o null para empezar.
+     * @return una página de socios con el token para pedir la siguiente.
+     */
+    public PaginaSocios listarPorNombre(String prefijo, int tamanio, String token) {
+        Ordenados[] partes = IntStream.range(0, particiones.length).parallel()
+                .mapToObj(i -> {
+                    // Con uno de más, el primero de la página siguiente siempre está entre lo leído
+                    PaginaSocios p = particiones[i].listarPorNombre(prefijo, tamanio == Integer.MAX_VALUE ? tamanio : tamanio + 1, token);
+                    Ordenados o = new Ordenados();
+                    // Las páginas son chicas: recalcular las claves cuesta poco
+                    for (Cliente c : p.socios()) o.agregar(IndiceNombres.orden(c.getNombre()), c);
+                    return o;
+                })
+                .toArray(Ordenados[]::new);
+        PriorityQueue<Ordenados> cabezas = new PriorityQueue<>(Math.max(1, partes.length), Ordenados::compararCabezas);
+        for (Ordenados o : partes) if (o.quedan()) cabezas.add(o);
+        ArrayList<Cliente> out = new ArrayList<>(tamanio);
+        while (!cabezas.isEmpty()) {
+            Ordenados o = cabezas.peek();
+            if (out.size() == tamanio) {
+                // El primero que no entró es donde empieza la página siguiente
+                return new PaginaSocios(out, IndiceNombres.token(o.claves.get(o.siguiente), o.socios.get(o.siguiente).getDni()), true);
+            }
+            cabezas.poll();
+            out.add(o.socios.get(o.siguiente++));
+            if (o.quedan()) cabezas.add(o);
+        }
+        return new PaginaSocios(out, null, false);
+    }
+
+    /**
+     * Busca socios por nombre en todas las particiones a la vez. El puntaje de un
+     * socio depende sólo de su nombre y del texto, así que los mejores de cada
+     * partición se comparan directamente.
+     * * @param texto Nombre o parte del nombre.
+     * @param maximo Cantidad máxima de resultados.
+     * @return los socios más parecidos, del más parecido al menos.
+     */
+    public List<Cliente> buscarPorNombre(String texto, int maximo) {
+        List<BuscadorNombres.Coincidencia> todas = IntStream.range(0, particiones.length).parallel()
+                .mapToObj(i -> particiones[i].coincidencias(texto, maximo))
+                .flatMap(List::stream)
+                .sorted(BuscadorNombres.ORDEN)
+                .limit(maximo)
+                .toList();
+        ArrayList<Cliente> out = new ArrayList<>(todas.size());
+        for (BuscadorNombres.Coincidencia c : todas) out.add(c.socio());
+        return out;
+    }
+
+    /** Socios de una partición en orden, con sus claves y la posición de la mezcla. */
+    private static final class Ordenados {
+        final ArrayList<byte[]> claves = new ArrayList<>();
+        final ArrayList<Cliente> socios = new ArrayList<>();
+        int siguiente;
+
+        void agregar(byte[] clave, Cliente c) {
+            claves.add(clave);
+            socios.add(c);
+        }
+
+        boolean quedan() {
+            return siguiente < socios.size();
+        }
+
+        static int compararCabezas(Ordenados a, Ordenados b) {
+            return IndiceNombres.comparar(a.claves.get(a.siguiente), a.socios.get(a.siguiente).getDni(),
+                    b.claves.get(b.siguiente), b.socios.get(b.siguiente).getDni());
+        }
+    }
+
+    /**
+     * Factura el mes a los socios de todas las particiones. Cada partición copia
+     * su lista en paralelo (frenando sólo sus propias escrituras) y después se
+     * factura todo junto, en paralelo, a un único archivo.
+     * * @param referencia Fecha de facturación.
+     * @param facturas Archivo donde escribir una factura por socio, o null para sólo calcular totales.
+     * @return los totales por plan de todo el gimnasio.
+     * @throws IOException si falla la escritura del archivo.
+     */
+    public ResumenFacturacion facturarMes(LocalDate referencia, Path facturas) throws IOException {
+        List<ArrayList<Cliente>> partes = IntStream.range(0, particiones.length).parallel()
+                .mapToObj(i -> particiones[i].copiaSocios())
+                .toList();
+        int total = 0;
+        for (ArrayList<Cliente> p : partes) total += p.size();
+        ArrayList<Cliente> socios = new ArrayList<>(total);
+        for (ArrayList<Cliente> p : partes) socios.addAll(p);
+        return new Facturacion(referencia).facturar(socios, facturas);
+    }
+
+    /**
+     * Cierra todas las particiones, aunque alguna falle.
+     * @throws IOException la primera falla, con las demás como suprimidas.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException falla = cerrar(particiones, null);
+        if (falla != null) throw falla;
+    }
+
+    private static IOException cerrar(GimnasioService[] servicios, Exception previa) {
+        IOException falla = null;
+        for (GimnasioService s : servicios) {
+            if (s == null) continue;
+            try {
+                s.close();
+            } catch (IOException e) {
+                if (previa != null) previa.addSuppressed(e);
+                else if (falla == null) falla = e;
+                else falla.addSuppressed(e);
+            }
+        }
+        return falla;
+    }
+}
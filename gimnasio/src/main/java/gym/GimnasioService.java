@@ -0,0 +1,1171 @@
+package gym;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import gym.MetricasServicio.Operacion;
+
+/**
+ * Clase de servicio que contiene la lógica de negocio del gimnasio.
+ * Aquí manejamos el repositorio de clientes, el log de operaciones y las estadísticas.
+ * <p>
+ * Aplica conceptos de POO, Colecciones y Lambdas.
+ * </p>
+ * <p>
+ * <b>Concurrencia:</b> varias recepciones pueden usar la misma instancia.
+ * Las lecturas no toman locks; las escrituras sobre un mismo DNI se serializan
+ * con locks "rayados" (uno por franja de DNIs), de modo que operaciones sobre
+ * socios distintos avanzan en paralelo y el log queda en el mismo orden en que
+ * se aplicaron los cambios de cada socio.
+ * </p>
+ * <p>
+ * <b>Persistencia:</b> si se crea con un archivo de journal, cada cambio se
+ * guarda en disco y al volver a abrirlo se reconstruyen los socios, las
+ * estadísticas y el log reproduciendo las operaciones.
+ * Para no reproducir toda la historia en cada arranque se pueden guardar
+ * snapshots: al abrir se mapea el último y sólo se reproduce el journal
+ * posterior (el log en memoria arranca desde ese punto).
+ * Todo lo que el journal rechazaría (textos demasiado largos, journal cerrado o
+ * con el disco fallado) se rechaza antes de aplicar el cambio en memoria. Si aun
+ * así el journal falla con el cambio ya aplicado, memoria y disco quedaron distintos
+ * y el servicio se detiene: desde ahí toda llamada lanza {@link IllegalStateException}
+ * y hay que reiniciarlo para volver al estado del disco.
+ * </p>
+ * <p>
+ * <b>Reportes consistentes:</b> {@link #listarOrdenadosPorNombre()},
+ * {@link #getAltasPorMes()} y {@link #logComoLineas()} leen cada uno el estado del
+ * momento en que se llaman. Para un reporte que los combine, {@link #abrirInstantanea()}
+ * da una vista fija donde socios, estadísticas y log coinciden, sin copiar a los
+ * socios ni frenar las escrituras mientras se lee.
+ * </p>
+ * <p>
+ * <b>Cambios:</b> otros sistemas (accesos, contabilidad, mailing) pueden
+ * {@link #suscribir(long, int, ReceptorCambios) suscribirse} a las altas, cambios
+ * de nombre y de plan, bajas y pagos a partir de una secuencia del log: los reciben en
+ * orden, de a lotes, en un hilo propio, sin frenar nunca a los cambios.
+ * </p>
+ * <p>
+ * <b>Pagos:</b> {@link #registrarPago(String, double)} cancela cuotas de un socio
+ * y {@link #pagos()} responde quién está atrasado a una fecha y cuánto se debe
+ * en total, sin recorrer a los socios.
+ * </p>
+ * <p>
+ * <b>Métricas:</b> cada método público mide su latencia y cuenta sus errores
+ * por tipo de excepción (ver {@link #getMetricas()}).
+ * </p>
+ * * @author Santi
+ */
+public class GimnasioService implements AutoCloseable {
+    // Almacén indexado por DNI: búsqueda, alta y baja en O(1)
+    private final AlmacenClientes clientes;
+
+    // Índice ordenado por nombre; con journal o almacén compacto se arma recién la primera vez que se usa
+    // Los dos índices por nombre guardan DNIs y buscan a los socios en el almacén al leer
+    private final IndiceNombres porNombre = new IndiceNombres(this::socio);
+    private volatile boolean nombresIndexados = true;
+
+    // Trigramas de los nombres para la búsqueda aproximada; se arma como el índice por nombre
+    private final BuscadorNombres buscador = new BuscadorNombres(this::socio);
+    private volatile boolean nombresBuscables = true;
+
+    // Latencias, llamadas y errores de cada método público (-Dgym.metricas=false para desactivarlas)
+    private final MetricasServicio metricas = new MetricasServicio(Boolean.parseBoolean(System.getProperty("gym.metricas", "true")));
+
+    // Motor de log: por defecto nuestra lista enlazada propia (OperacionLog)
+    private final RegistroOperaciones log;
+
+    // Array atómico para contar altas por mes (índice 0 = Enero)
+    private final AtomicIntegerArray altasPorMes = new AtomicIntegerArray(12);
+
+    // Altas y bajas por año y mes, activos por plan y descuentos, al día con cada cambio
+    private final EstadisticasSocios estadisticas = new EstadisticasSocios(LocalDate.now());
+
+    // Versiones anteriores de los socios mientras haya instantáneas abiertas
+    private final Versiones versiones = new Versiones();
+
+    // Suscripciones a los cambios (leen el log desde su posición)
+    private final DifusorCambios cambios;
+
+    // Ingresos por molinete, visitas por hora y ocupación
+    private final ControlAcceso accesos;
+
+    // Pagos y vencimientos; el índice de morosos se arma la primera vez que se consulta
+    private final LibroPagos pagos;
+
+    // Locks rayados: potencia de 2 para elegir la franja con una máscara. Son ReentrantLock y no
+    // monitores porque con la franja tomada se puede esperar lugar en el journal: un hilo virtual
+    // bloqueado dentro de un synchronized no suelta su hilo portador
+    private static final int FRANJAS = 64;
+    private final ReentrantLock[] candados = new ReentrantLock[FRANJAS];
+    {
+        for (int i = 0; i < FRANJAS; i++) candados[i] = new ReentrantLock();
+    }
+
+    // Journal en disco; null si el servicio trabaja sólo en memoria
+    private final JournalOperaciones journal;
+    // Por qué no se pudo guardar una operación ya aplicada en memoria; desde ahí el servicio no atiende más
+    private volatile RuntimeException detenido;
+    private final Path archivoJournal;
+    private ScheduledExecutorService programador;
+
+    /**
+     * Crea un servicio que trabaja sólo en memoria (se pierde todo al cerrar).
+     */
+    public GimnasioService() {
+        this(new OperacionLog());
+    }
+
+    /**
+     * Crea un servicio en memoria con un motor de log a elección
+     * (por ejemplo un {@link OperacionLogCircular} para acotar la memoria).
+     * * @param log Motor donde se registran las operaciones.
+     */
+    public GimnasioService(RegistroOperaciones log) {
+        this(log, new RepositorioClientes());
+    }
+
+    /**
+     * Crea un servicio en memoria con un motor de log y un almacén de socios a elección
+     * (por ejemplo un {@link RepositorioCompacto} para millones de socios).
+     * * @param log Motor donde se registran las operaciones.
+     * @param almacen Almacén de socios, vacío.
+     */
+    public GimnasioService(RegistroOperaciones log, AlmacenClientes almacen) {
+        this.log = log;
+        this.clientes = vacio(almacen);
+        this.accesos = new ControlAcceso(clientes, ZoneId.systemDefault());
+        this.pagos = new LibroPagos(clientes);
+        this.cambios = new DifusorCambios(log);
+        this.journal = null;
+        this.archivoJournal = null;
+        // Aunque no guarden socios, los índices ocupan más que un almacén compacto: se arman recién si alguien lista
+        nombresIndexados = !almacen.ahorraMemoria();
+        nombresBuscables = nombresIndexados;
+    }
+
+    /**
+     * Crea un servicio persistente. Si hay un snapshot lo mapea y reproduce sólo
+     * las operaciones del journal posteriores a él; si no, reproduce todo el journal.
+     * * @param archivoJournal Archivo donde se guardan las operaciones.
+     * @param durabilidad Cuándo se fuerzan los cambios a disco.
+     * @throws IOException si el archivo no se puede abrir o no es un journal válido.
+     */
+    public GimnasioService(Path archivoJournal, Durabilidad durabilidad) throws IOException {
+        this(archivoJournal, durabilidad, new OperacionLog());
+    }
+
+    /**
+     * Igual que {@link #GimnasioService(Path, Durabilidad)} pero con un motor de log a elección.
+     * * @param archivoJournal Archivo donde se guardan las operaciones.
+     * @param durabilidad Cuándo se fuerzan los cambios a disco.
+     * @param log Motor donde se registran las operaciones.
+     * @throws IOException si el archivo no se puede abrir o no es un journal válido.
+     */
+    public GimnasioService(Path archivoJournal, Durabilidad durabilidad, RegistroOperaciones log) throws IOException {
+        this(archivoJournal, durabilidad, log, new RepositorioClientes());
+    }
+
+    /**
+     * Igual que {@link #GimnasioService(Path, Durabilidad)} pero con un motor de log y un almacén a elección.
+     * * @param archivoJournal Archivo donde se guardan las operaciones.
+     * @param durabilidad Cuándo se fuerzan los cambios a disco.
+     * @param log Motor donde se registran las operaciones.
+     * @param almacen Almacén de socios, vacío.
+     * @throws IOException si el archivo no se puede abrir o no es un journal válido.
+     */
+    public GimnasioService(Path archivoJournal, Durabilidad durabilidad, RegistroOperaciones log,
+                           AlmacenClientes almacen) throws IOException {
+        this.log = log;
+        this.clientes = vacio(almacen);
+        this.accesos = new ControlAcceso(clientes, ZoneId.systemDefault());
+        this.pagos = new LibroPagos(clientes);
+        this.cambios = new DifusorCambios(log);
+        this.archivoJournal = archivoJournal.toAbsolutePath();
+        // Calcular claves de orden durante la recuperación la haría varias veces más lenta
+        nombresIndexados = false;
+        nombresBuscables = false;
+        long desde = 0;
+        Path ultimo = ultimoSnapshot();
+        if (ultimo != null) {
+            SnapshotClientes snap = SnapshotClientes.abrir(ultimo);
+            if (clientes instanceof RepositorioClientes r) {
+                r.cargarBase(snap);
+            } else {
+                // Los otros almacenes no leen del snapshot a demanda: se cargan enteros
+                snap.recorrer(clientes::agregar);
+            }
+            int[] altas = snap.altasPorMes();
+            for (int i = 0; i < 12; i++) altasPorMes.set(i, altas[i]);
+            int[] guardadas = snap.estadisticas();
+            if (guardadas != null) {
+                estadisticas.cargar(guardadas);
+            } else {
+                // Snapshot viejo: sólo se pueden reconstruir a partir de los socios activos
+                snap.recorrer(estadisticas::alta);
+            }
+            snap.recorrerCuentas(pagos::cargar);
+            if (snap.conApertura()) pagos.reabrir(snap.apertura());
+            desde = snap.posicionJournal();
+        }
+        this.journal = JournalOperaciones.abrir(archivoJournal, durabilidad, desde, new Recuperador());
+        metricas.agregarJournal(journal.metricas());
+        if (!pagos.abierto()) abrirLibroPagos();
+    }
+
+    /**
+     * Abre el libro de pagos la primera vez que estos datos arrancan con él: los
+     * socios que ya había se dan por pagos hasta el mes actual (si no, todos
+     * figurarían debiendo desde su alta). Queda en el journal, así que se hace una sola vez.
+     */
+    private void abrirLibroPagos() {
+        int socios = clientes.tamanio();
+        int mes = socios == 0 ? Integer.MIN_VALUE : LibroPagos.mes(LocalDate.now());
+        pagos.abrir(mes);
+        long ts = Reloj.epochNanos();
+        if (socios > 0) ts = log.registrar(TipoOperacion.APERTURA, null, socios, YearMonth.from(LocalDate.now()));
+        esperarDurable(journal.apertura(ts / 1_000_000, mes));
+    }
+
+    /**
+     * Lo que las estadísticas, el libro de pagos y el journal necesitan de un socio
+     * nuevo. Se revisa antes de tocar el almacén, para que un alta inválida no deje nada a medias.
+     * * @param c Socio a registrar.
+     * @throws IllegalArgumentException si es null, le falta el plan o la fecha de alta,
+     *                                  o el DNI o el nombre no entran en el journal.
+     */
+    static void validar(Cliente c) {
+        if (c == null) throw new IllegalArgumentException("El socio es obligatorio");
+        if (c.getPlan() == null) {
+            throw new IllegalArgumentException("El plan es obligatorio: " + c.getDni());
+        }
+        if (c.getFechaAlta() == null) {
+            throw new IllegalArgumentException("La fecha de alta es obligatoria: " + c.getDni());
+        }
+        JournalOperaciones.validarTexto(c.getDni());
+        JournalOperaciones.validarTexto(c.getNombre());
+    }
+
+    /**
+     * Cada método público corre por acá: mide la llamada y la rechaza si el servicio se detuvo.
+     */
+    private <T, E extends Exception> T medir(Operacion op, MetricasServicio.Medicion<T, E> cuerpo) throws E {
+        return metricas.medir(op, () -> {
+            enMarcha();
+            return cuerpo.ejecutar();
+        });
+    }
+
+    private <E extends Exception> void medir(Operacion op, MetricasServicio.Accion<E> cuerpo) throws E {
+        metricas.medir(op, () -> {
+            enMarcha();
+            cuerpo.ejecutar();
+        });
+    }
+
+    private void enMarcha() {
+        RuntimeException causa = detenido;
+        if (causa != null) {
+            throw new IllegalStateException("El servicio se detuvo porque no pudo guardar una operacion en el journal; hay que reiniciarlo", causa);
+        }
+    }
+
+    /**
+     * Lo que el journal rechazaría se rechaza antes de aplicar nada en memoria
+     * (los textos ya los revisa {@link #validar(Cliente)}).
+     */
+    private void journalDisponible() {
+        if (journal != null) journal.verificar();
+    }
+
+    /**
+     * Guarda en el journal una operación que ya se aplicó en memoria. Si falla igual
+     * (por ejemplo, se cerró o falló el disco entre la verificación y la escritura),
+     * memoria y disco quedaron distintos: el servicio se detiene en vez de seguir
+     * confirmando operaciones que no se van a poder recuperar.
+     * * @return posición del final del registro, o 0 si el servicio no tiene journal.
+     */
+    private long alJournal(LongSupplier escritura) {
+        if (journal == null) return 0;
+        try {
+            return escritura.getAsLong();
+        } catch (RuntimeException e) {
+            throw detener(e);
+        }
+    }
+
+    private IllegalStateException detener(RuntimeException e) {
+        if (detenido == null) detenido = e;
+        return new IllegalStateException("No se pudo guardar la operacion en el journal; el servicio se detiene", e);
+    }
+
+    private static AlmacenClientes vacio(AlmacenClientes almacen) {
+        if (almacen.tamanio() != 0) {
+            throw new IllegalArgumentException("El almacen de socios tiene que estar vacio");
+        }
+        return almacen;
+    }
+
+    /**
+     * Devuelve el lock que protege las escrituras de un DNI.
+     * Mezclamos los bits del hash para repartir mejor DNIs consecutivos.
+     */
+    private ReentrantLock candado(String dni) {
+        int h = dni == null ? 0 : dni.hashCode();
+        h ^= (h >>> 16);
+        return candados[h & (FRANJAS - 1)];
+    }
+
+    /**
+     * Da de alta un cliente nuevo en el sistema.
+     * Valida que el DNI no esté duplicado antes de agregar; la validación es
+     * atómica aunque varias recepciones intenten registrar el mismo DNI a la vez.
+     * * @param c Objeto Cliente a registrar.
+     * @throws IllegalArgumentException si el DNI ya existe o al socio le falta el
+     *                                  plan o la fecha de alta.
+     */
+    public void altaCliente(Cliente c){
+        medir(Operacion.ALTA_CLIENTE, () -> {
+            validar(c);
+            journalDisponible();
+            long pos;
+            ReentrantLock franja = candado(c.getDni());
+            franja.lock();
+            try {
+                versionar(c.getDni());
+                // agregar() verifica y guarda en un solo paso, sin recorrer la colección
+                if (!clientes.agregar(c)) {
+                    throw new IllegalArgumentException("El DNI ya esta registrado en el sistema");
+                }
+                contarAlta(c);
+                pagos.alta(c);
+                if (nombresIndexados) porNombre.agregar(c);
+                if (nombresBuscables) buscador.agregar(c);
+                long ts = log.registrar(TipoOperacion.ALTA, c.getDni(), c.getNombre(), c.getPlan());
+                cambios.avisar();
+                pos = alJournal(() -> journal.alta(ts / 1_000_000, c));
+            } finally {
+                franja.unlock();
+            }
+            // El fsync se espera fuera del lock para que otras altas se sumen al mismo
+            esperarDurable(pos);
+        });
+    }
+
+    /**
+     * Da de alta un lote de socios de una sola vez (por ejemplo, al importar un archivo).
+     * <p>
+     * Todo el lote se aplica con las escrituras frenadas: los DNIs repetidos se
+     * descartan en el mismo paso que se agregan los demás, el log recibe una única
+     * entrada ALTA_MASIVA y el journal guarda el lote como una unidad, que al
+     * recuperar se aplica entera o no se aplica.
+     * </p>
+     * <p>
+     * Los socios importados ya venían pagando: sus cuotas se dan por pagas hasta
+     * el mes actual, para que no aparezcan como morosos desde su fecha de alta.
+     * </p>
+     * * @param lote Socios a registrar.
+     * @param origen De dónde vienen (se muestra en el log).
+     * @return los socios que no se agregaron porque su DNI ya existía.
+     */
+    public List<Cliente> altaMasiva(List<Cliente> lote, String origen){
+        return altaMasiva(lote, null, origen);
+    }
+
+    /**
+     * Igual que {@link #altaMasiva(List, String)}, indicando hasta qué mes pagó cada socio.
+     * * @param lote Socios a registrar.
+     * @param pagadoHasta Por socio, el último mes con la cuota paga (null = el mes actual);
+     *                    la lista entera puede ser null.
+     * @param origen De dónde vienen (se muestra en el log).
+     * @return los socios que no se agregaron porque su DNI ya existía.
+     * @throws IllegalArgumentException si las listas no tienen el mismo largo o a
+     *                                  algún socio le falta el plan o la fecha de
+     *                                  alta; en ese caso no se agrega ninguno.
+     */
+    public List<Cliente> altaMasiva(List<Cliente> lote, List<YearMonth> pagadoHasta, String origen){
+        return medir(Operacion.ALTA_MASIVA, () -> {
+            if (pagadoHasta != null && pagadoHasta.size() != lote.size()) {
+                throw new IllegalArgumentException("Hace falta un mes pagado por socio");
+            }
+            for (Cliente c : lote) validar(c);
+            if (lote.isEmpty()) return List.of();
+            JournalOperaciones.validarLote(origen, lote);
+            journalDisponible();
+            int mesActual = LibroPagos.mes(LocalDate.now());
+            int[] pagados = new int[lote.size()];
+            for (int i = 0; i < pagados.length; i++) {
+                YearMonth m = pagadoHasta == null ? null : pagadoHasta.get(i);
+                pagados[i] = m == null ? mesActual : m.getYear() * 12 + m.getMonthValue() - 1;
+            }
+            // Las claves de orden por nombre se calculan antes, en paralelo y sin frenar a nadie
+            byte[][] ordenes = new byte[lote.size()][];
+            if (nombresIndexados) {
+                IntStream.range(0, ordenes.length).parallel()
+                        .forEach(i -> ordenes[i] = IndiceNombres.orden(lote.get(i).getNombre()));
+            }
+            ResultadoLote r = conTodasLasFranjas(() -> {
+                ArrayList<Cliente> agregados = new ArrayList<>(lote.size());
+                int[] pagadosAgregados = new int[lote.size()];
+                ArrayList<Cliente> repetidos = new ArrayList<>();
+                for (int i = 0; i < ordenes.length; i++) {
+                    Cliente c = lote.get(i);
+                    versionar(c.getDni());
+                    if (clientes.agregar(c)) {
+                        contarAlta(c);
+                        pagos.alDia(c, pagados[i]);
+                        pagos.alta(c);
+                        pagadosAgregados[agregados.size()] = pagados[i];
+                        if (nombresIndexados) {
+                            if (ordenes[i] != null) porNombre.agregar(c, ordenes[i]);
+                            else porNombre.agregar(c);
+                        }
+                        if (nombresBuscables) buscador.agregar(c);
+                        agregados.add(c);
+                    } else {
+                        repetidos.add(c);
+                    }
+                }
+                long pos = 0;
+                if (!agregados.isEmpty()) {
+                    long ts = log.registrar(TipoOperacion.ALTA_MASIVA, null, dnis(agregados), origen);
+                    cambios.avisar();
+                    int[] pagadosLote = Arrays.copyOf(pagadosAgregados, agregados.size());
+                    pos = alJournal(() -> journal.altaMasiva(ts / 1_000_000, origen, agregados, pagadosLote));
+                }
+                return new ResultadoLote(pos, repetidos);
+            });
+            esperarDurable(r.posicion());
+            return r.repetidos();
+        });
+    }
+
+    /** Los DNIs de un lote, que es lo que guarda el log de un ALTA_MASIVA. */
+    private static List<String> dnis(List<Cliente> socios) {
+        String[] out = new String[socios.size()];
+        for (int i = 0; i < out.length; i++) out[i] = socios.get(i).getDni();
+        return List.of(out);
+    }
+
+    /** Resultado de aplicar un lote con las escrituras frenadas. */
+    private record ResultadoLote(long posicion, List<Cliente> repetidos) { }
+
+    /**
+     * Con instantáneas abiertas, guarda cómo está el socio antes de cambiarlo.
+     * Va con el lock del DNI tomado y antes de tocar el almacén (ver {@link Versiones}).
+     */
+    private void versionar(String dni) {
+        if (versiones.hayLecturas()) versiones.guardar(dni, clientes.buscar(dni));
+    }
+
+    private void contarAlta(Cliente c) {
+        // Actualizamos estadística: mes - 1 porque el array va de 0 a 11
+        LocalDate fa = c.getFechaAlta();
+        int idx = fa.getMonthValue() - 1;
+        if (idx >= 0 && idx < 12) altasPorMes.incrementAndGet(idx);
+        estadisticas.alta(c);
+    }
+
+    /**
+     * Busca un cliente dentro de la colección.
+     * * @param dni El documento a buscar.
+     * @return El objeto Cliente si lo encuentra.
+     * @throws SocioNoEncontradoException si no hay nadie con ese DNI.
+     */
+    public Cliente buscarPorDni(String dni){
+        return medir(Operacion.BUSCAR_POR_DNI, () -> buscarOFallar(dni));
+    }
+
+    // Los índices por nombre buscan acá a los socios de los DNIs que guardan
+    private Cliente socio(String dni) {
+        return clientes.buscar(dni);
+    }
+
+    // Las operaciones del servicio buscan por acá para no contarse como buscarPorDni en las métricas
+    private Cliente buscarOFallar(String dni) {
+        Cliente c = clientes.buscar(dni);
+        if (c != null) {
+            return c;
+        }
+        throw new SocioNoEncontradoException("No existe cliente con DNI " + dni);
+    }
+
+    /**
+     * Actualiza el nombre de un socio existente y registra la acción en el log.
+     * * @param dni DNI del socio a modificar.
+     * @param nuevoNombre El nuevo nombre a guardar.
+     */
+    public void modificarNombre(String dni, String nuevoNombre){
+        medir(Operacion.MODIFICAR_NOMBRE, () -> {
+            JournalOperaciones.validarTexto(nuevoNombre);
+            journalDisponible();
+            long pos;
+            ReentrantLock franja = candado(dni);
+            franja.lock();
+            try {
+                Cliente c = buscarOFallar(dni);
+                versionar(dni);
+                String anterior = c.getNombre();
+                c.setNombre(nuevoNombre);
+                if (nombresIndexados) porNombre.renombrar(anterior, c);
+                if (nombresBuscables) buscador.renombrar(c);
+                long ts = log.registrar(TipoOperacion.MODIFICACION, dni, anterior, nuevoNombre);
+                cambios.avisar();
+                pos = alJournal(() -> journal.modificacion(ts / 1_000_000, dni, nuevoNombre));
+            } finally {
+                franja.unlock();
+            }
+            esperarDurable(pos);
+        });
+    }
+
+    /**
+     * Cambia el plan de un socio y registra la acción.
+     * @param dni DNI del socio.
+     * @param p Nuevo plan seleccionado.
+     * @throws IllegalArgumentException si el plan es null.
+     */
+    public void cambiarPlan(String dni, Plan p){
+        medir(Operacion.CAMBIAR_PLAN, () -> {
+            if (p == null) throw new IllegalArgumentException("El plan es obligatorio");
+            journalDisponible();
+            long pos;
+            ReentrantLock franja = candado(dni);
+            franja.lock();
+            try {
+                Cliente c = buscarOFallar(dni);
+                versionar(dni);
+                Plan anterior = c.getPlan();
+                c.setPlan(p);
+                estadisticas.cambioPlan(c, anterior, p);
+                pagos.cambioPlan(c, anterior, p);
+                long ts = log.registrar(TipoOperacion.CAMBIO_PLAN, dni, anterior, p);
+                cambios.avisar();
+                pos = alJournal(() -> journal.cambioPlan(ts / 1_000_000, dni, p));
+            } finally {
+                franja.unlock();
+            }
+            esperarDurable(pos);
+        });
+    }
+
+    /**
+     * Elimina un socio del sistema.
+     * <p>
+     * <b>Nota técnica:</b> El repositorio está indexado por DNI, así que la baja
+     * es un acceso directo por clave en lugar de recorrer toda la colección.
+     * </p>
+     * * @param dni DNI del socio a eliminar.
+     * @return true si se eliminó, false si no se encontró.
+     */
+    public boolean baja(String dni){
+        return medir(Operacion.BAJA, () -> {
+            journalDisponible();
+            long pos = 0;
+            boolean borrado;
+            ReentrantLock franja = candado(dni);
+            franja.lock();
+            try {
+                versionar(dni);
+                Cliente c = clientes.eliminar(dni);
+                borrado = c != null;
+
+                if (borrado) {
+                    if (nombresIndexados) porNombre.quitar(c.getNombre(), dni);
+                    if (nombresBuscables) buscador.quitar(dni);
+                    pagos.baja(c);
+                    long ts = log.registrar(TipoOperacion.BAJA, dni, null, null);
+                    cambios.avisar();
+                    estadisticas.baja(c, Reloj.aFecha(ts).toLocalDate());
+                    pos = alJournal(() -> journal.baja(ts / 1_000_000, dni));
+                }
+            } finally {
+                franja.unlock();
+            }
+            esperarDurable(pos);
+            return borrado;
+        });
+    }
+
+    /**
+     * Genera un listado de clientes ordenado alfabéticamente por nombre.
+     * <p>
+     * <b>Nota técnica:</b> No ordena nada al llamarlo: recorre el índice por nombre,
+     * que se mantiene ordenado en cada alta, cambio de nombre y baja.
+     * </p>
+     * * @return Arreglo de clientes ordenados.
+     */
+    public Cliente[] listarOrdenadosPorNombre(){
+        return medir(Operacion.LISTAR_ORDENADOS, () -> indiceNombres().todos());
+    }
+
+    /**
+     * Lista socios en orden alfabético de a páginas, opcionalmente sólo los
+     * cuyo nombre empieza con un prefijo (sin distinguir tildes ni mayúsculas).
+     * Sólo se recorren los socios de la página pedida.
+     * * @param prefijo Inicio del nombre (por ejemplo "G"), o null para todos.
+     * @param tamanio Cantidad máxima de socios por página.
+     * @param token Valor de {@link PaginaSocios#token()} de la página anterior, o null para empezar.
+     * @return una página de socios con el token para pedir la siguiente.
+     */
+    public PaginaSocios listarPorNombre(String prefijo, int tamanio, String token){
+        return medir(Operacion.LISTAR_POR_NOMBRE, () -> indiceNombres().pagina(prefijo, tamanio, token));
+    }
+
+    /**
+     * Busca socios por nombre sin saber cómo está escrito exactamente: no distingue
+     * tildes ni mayúsculas, no importa el orden de las palabras, tolera errores de
+     * tipeo y la última palabra puede estar incompleta ("gomez ju" encuentra a
+     * "Juan Gómez").
+     * <p>
+     * <b>Nota técnica:</b> Sólo se recorren los socios que comparten algún trigrama
+     * con el texto (ver {@link BuscadorNombres}); el índice se mantiene en cada alta,
+     * cambio de nombre y baja.
+     * </p>
+     * * @param texto Nombre o parte del nombre.
+     * @param maximo Cantidad máxima de resultados.
+     * @return los socios más parecidos, del más parecido al menos.
+     */
+    public List<Cliente> buscarPorNombre(String texto, int maximo){
+        return medir(Operacion.BUSCAR_POR_NOMBRE, () -> {
+            List<BuscadorNombres.Coincidencia> encontrados = coincidencias(texto, maximo);
+            ArrayList<Cliente> out = new ArrayList<>(encontrados.size());
+            for (BuscadorNombres.Coincidencia c : encontrados) out.add(c.socio());
+            return out;
+        });
+    }
+
+    /** Como {@link #buscarPorNombre(String, int)}, con el puntaje de cada socio para mezclar particiones. */
+    List<BuscadorNombres.Coincidencia> coincidencias(String texto, int maximo) {
+        if (maximo <= 0) {
+            throw new IllegalArgumentException("La cantidad de resultados debe ser positiva");
+        }
+        if (!nombresBuscables) {
+            conTodasLasFranjas(() -> {
+                if (!nombresBuscables) {
+                    for (Cliente c : clientes.valores()) buscador.agregar(c);
+                    nombresBuscables = true;
+                }
+                return null;
+            });
+        }
+        return buscador.buscar(texto, maximo);
+    }
+
+    /**
+     * Devuelve el índice por nombre, armándolo si el servicio arrancó desde un journal.
+     * Se arma con las escrituras frenadas para que ningún cambio quede afuera.
+     */
+    private IndiceNombres indiceNombres() {
+        if (!nombresIndexados) {
+            conTodasLasFranjas(() -> {
+                if (!nombresIndexados) {
+                    for (Cliente c : clientes.valores()) porNombre.agregar(c);
+                    nombresIndexados = true;
+                }
+                return null;
+            });
+        }
+        return porNombre;
+    }
+
+    /**
+     * Calcula cuánto debe pagar un cliente específico.
+     * Delega el cálculo al propio objeto Cliente (polimorfismo/lógica interna).
+     * * @param dni DNI del socio.
+     * @return el monto de la cuota.
+     */
+    public double cuotaDe(String dni){
+        return medir(Operacion.CUOTA_DE, () -> {
+            Cliente c = buscarOFallar(dni);
+            return c.calcularCuota();
+        });
+    }
+
+    /**
+     * Factura el mes a todos los socios, en paralelo y con una única fecha de referencia.
+     * <p>
+     * Se factura a los socios registrados al empezar la corrida: la lista se copia
+     * con las escrituras frenadas un instante y después se calcula sin bloquear a nadie.
+     * </p>
+     * * @param referencia Fecha de facturación (define quién tiene descuento por antigüedad).
+     * @param facturas Archivo donde escribir una factura por socio, o null para sólo calcular totales.
+     * @return los totales por plan.
+     * @throws IOException si falla la escritura del archivo.
+     */
+    public ResumenFacturacion facturarMes(LocalDate referencia, Path facturas) throws IOException {
+        return medir(Operacion.FACTURAR_MES, () -> new Facturacion(referencia).facturar(copiaSocios(), facturas));
+    }
+
+    /**
+     * Copia la lista de socios con las escrituras frenadas un instante.
+     * @return los socios registrados en ese momento.
+     */
+    ArrayList<Cliente> copiaSocios() {
+        return conTodasLasFranjas(() -> new ArrayList<>(clientes.valores()));
+    }
+
+    /**
+     * Recorre los socios en orden alfabético con su clave de orden, para mezclar
+     * listados de varios servicios (ver {@link GimnasioParticionado}).
+     * * @param accion Recibe la clave de orden del nombre y el socio.
+     */
+    void recorrerPorNombre(BiConsumer<byte[], Cliente> accion) {
+        indiceNombres().recorrer(accion);
+    }
+
+    /**
+     * Verifica si un DNI ya existe en el repositorio.
+     * Lo usamos para validaciones antes del alta.
+     * * @param dni DNI a verificar.
+     * @return true si ya existe.
+     */
+    public boolean existeDni(String dni){
+        return medir(Operacion.EXISTE_DNI, () -> clientes.contiene(dni));
+    }
+
+    /**
+     * @return cantidad de socios activos.
+     */
+    public int cantidadClientes(){
+        return medir(Operacion.CANTIDAD_CLIENTES, () -> clientes.tamanio());
+    }
+
+    /**
+     * Devuelve una copia de la estadística de altas por mes.
+     * @return arreglo de enteros con 12 posiciones.
+     */
+    public int[] getAltasPorMes(){
+        return medir(Operacion.ALTAS_POR_MES, () -> copiaAltasPorMes());
+    }
+
+    /**
+     * Devuelve las estadísticas de socios al día de hoy: altas y bajas por mes,
+     * activos por plan, descuentos y recaudación proyectada. Todas sus consultas
+     * son O(1) y siguen al día con los cambios posteriores; los descuentos
+     * corresponden a {@link EstadisticasSocios#fecha()} hasta la próxima llamada.
+     * @return las estadísticas del servicio.
+     */
+    public EstadisticasSocios estadisticas(){
+        return medir(Operacion.ESTADISTICAS, () -> {
+            int hoy = (int) LocalDate.now().toEpochDay();
+            if (estadisticas.atrasadas(hoy)) {
+                // Una vez por día: los aniversarios vencidos pasan a tener descuento sin que nadie escriba
+                conTodasLasFranjas(() -> {
+                    estadisticas.avanzarHasta(hoy);
+                    return null;
+                });
+            }
+            return estadisticas;
+        });
+    }
+
+    /**
+     * Abre una vista fija del servicio para armar reportes: el listado por nombre,
+     * las altas por mes, las estadísticas y el log de la instantánea corresponden
+     * todos al mismo momento.
+     * <p>
+     * Las escrituras se frenan sólo para copiar la posición del log y los contadores
+     * de estadísticas, que son unos pocos enteros; los socios no se copian. Consultar
+     * la instantánea no toma locks de escritura, y mientras siga abierta cada cambio
+     * guarda además la versión anterior del socio. Hay que cerrarla al terminar.
+     * </p>
+     * @return la instantánea, abierta.
+     */
+    public Instantanea abrirInstantanea(){
+        return medir(Operacion.ABRIR_INSTANTANEA, () -> {
+            int hoy = (int) LocalDate.now().toEpochDay();
+            return conTodasLasFranjas(() -> {
+                // Las estadísticas fijas no avanzan solas: se llevan al día antes de copiarlas
+                if (estadisticas.atrasadas(hoy)) estadisticas.avanzarHasta(hoy);
+                return new Instantanea(clientes, this::indiceNombres, log, versiones, log.finSecuencia(),
+                        clientes.tamanio(), copiaAltasPorMes(), estadisticas.exportar());
+            });
+        });
+    }
+
+    /**
+     * Valida el ingreso de un socio por el molinete: que exista y que su plan le
+     * permita entrar a esta hora. Si puede pasar, se registra la visita y sube la
+     * ocupación. No toma locks ni crea objetos, para aguantar ráfagas de miles de
+     * ingresos por segundo.
+     * * @param dni DNI leído en el molinete.
+     * @return si puede pasar o por qué no.
+     */
+    public ControlAcceso.Ingreso ingresar(String dni){
+        return medir(Operacion.INGRESAR, () -> accesos.ingresar(dni, System.currentTimeMillis()));
+    }
+
+    /**
+     * Registra una pasada por el molinete de salida (baja la ocupación).
+     */
+    public void registrarSalida(){
+        medir(Operacion.REGISTRAR_SALIDA, () -> {
+            accesos.salir();
+        });
+    }
+
+    /**
+     * @return la ocupación actual y las consultas de visitas por socio y por hora.
+     */
+    public ControlAcceso accesos(){
+        return accesos;
+    }
+
+    /**
+     * Registra un pago de un socio: cancela las cuotas que alcance, de la más vieja
+     * a la más nueva, y lo que sobra queda a favor para la próxima (ver {@link LibroPagos}).
+     * Las cuotas vencidas se cancelan siempre, por muchas que sean; el tope es sólo
+     * para las que se pagan por adelantado. Mueve al socio en el índice de vencimientos en O(log n).
+     * * @param dni DNI del socio.
+     * @param monto Monto pagado.
+     * @return el vencimiento de su próxima cuota impaga.
+     * @throws SocioNoEncontradoException si no hay nadie con ese DNI.
+     * @throws IllegalArgumentException si el monto no es positivo o adelanta más de
+     *         {@value LibroPagos#CUOTAS_POR_PAGO} cuotas que todavía no vencieron.
+     */
+    public LocalDate registrarPago(String dni, double monto){
+        return medir(Operacion.REGISTRAR_PAGO, () -> {
+            long centavos = Facturacion.centavos(monto);
+            journalDisponible();
+            long pos;
+            LocalDate vencimiento;
+            ReentrantLock franja = candado(dni);
+            franja.lock();
+            try {
+                Cliente c = buscarOFallar(dni);
+                vencimiento = LibroPagos.vencimientoDe(pagos.pagar(c, centavos, LocalDate.now()).mes());
+                long ts = log.registrar(TipoOperacion.PAGO, dni, centavos, vencimiento);
+                cambios.avisar();
+                pos = alJournal(() -> journal.pago(ts / 1_000_000, dni, centavos));
+            } finally {
+                franja.unlock();
+            }
+            esperarDurable(pos);
+            return vencimiento;
+        });
+    }
+
+    /**
+     * Devuelve el libro de pagos: vencimiento y deuda de cada socio, morosos a una
+     * fecha y deuda vencida total. La primera vez arma el índice de vencimientos
+     * con las escrituras frenadas.
+     * @return el libro de pagos, con el índice al día.
+     */
+    public LibroPagos pagos(){
+        return medir(Operacion.PAGOS, () -> {
+            if (!pagos.indexado()) {
+                conTodasLasFranjas(() -> {
+                    pagos.indexar();
+                    return null;
+                });
+            }
+            return pagos;
+        });
+    }
+
+    private int[] copiaAltasPorMes() {
+        int[] copia = new int[12];
+        for (int i = 0; i < 12; i++) copia[i] = altasPorMes.get(i);
+        return copia;
+    }
+
+    /**
+     * Obtiene el historial completo de operaciones.
+     * Para historiales largos conviene {@link #leerLog(ConsultaLog)}, que no copia todo.
+     * @return array de strings con los logs.
+     */
+    public String[] logComoLineas(){
+        return medir(Operacion.LOG_COMO_LINEAS, () -> log.comoLineas());
+    }
+
+    /**
+     * Lee el log de a páginas (más nuevas o más viejas primero, con filtro de tiempo).
+     * * @param consulta Parámetros de la lectura.
+     * @return una página de operaciones con el token para pedir la siguiente.
+     */
+    public PaginaLog leerLog(ConsultaLog consulta){
+        return medir(Operacion.LEER_LOG, () -> log.leer(consulta));
+    }
+
+    /**
+     * Guarda un snapshot con el estado actual de todos los socios.
+     * <p>
+     * Las escrituras se frenan sólo mientras se copia el estado en memoria;
+     * el archivo se escribe después, sin bloquear a nadie. Los snapshots
+     * anteriores se borran al terminar.
+     * </p>
+     * @throws IOException si falla la escritura.
+     * @throws IllegalStateException si el servicio trabaja sólo en memoria.
+     */
+    public void guardarSnapshot() throws IOException {
+        medir(Operacion.GUARDAR_SNAPSHOT, () -> {
+            if (journal == null) {
+                throw new IllegalStateException("El servicio no tiene journal; no hay donde guardar el snapshot");
+            }
+            // Con todas las franjas tomadas no hay operaciones a medio aplicar:
+            // el estado copiado corresponde exactamente a la posición del journal
+            Foto foto = conTodasLasFranjas(() ->
+                    new Foto(journal.posicion(), copiaAltasPorMes(), estadisticas.exportar(),
+                            new ArrayList<>(clientes.valores()), pagos.exportar(), pagos.apertura()));
+            long posicion = foto.posicion();
+
+            // El journal tiene que estar en disco hasta la posición que el snapshot dice cubrir
+            journal.forzar();
+            Path destino = archivoJournal.resolveSibling(String.format("%s.%019d.snap", archivoJournal.getFileName(), posicion));
+            Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+            SnapshotClientes.escribir(temporal, posicion, foto.altasPorMes(), foto.estadisticas(), foto.clientes(), foto.cuentas(),
+                    foto.apertura());
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+
+            for (Path viejo : snapshots()) {
+                if (!viejo.equals(destino)) {
+                    // En Windows puede fallar si todavía está mapeado; se reintenta en el próximo snapshot
+                    try {
+                        Files.deleteIfExists(viejo);
+                    } catch (IOException ignorado) { }
+                }
+            }
+        });
+    }
+
+    /** Estado copiado con las escrituras frenadas, para escribirlo después. */
+    private record Foto(long posicion, int[] altasPorMes, int[] estadisticas, ArrayList<Cliente> clientes,
+                        Map<String, LibroPagos.Cuenta> cuentas, int apertura) { }
+
+    /**
+     * @return las métricas de latencia y errores de este servicio.
+     */
+    public MetricasServicio getMetricas(){
+        return metricas;
+    }
+
+    /**
+     * Guarda un snapshot automáticamente cada cierta cantidad de minutos.
+     * * @param minutos Intervalo entre snapshots.
+     */
+    public synchronized void programarSnapshots(long minutos) {
+        if (journal == null) {
+            throw new IllegalStateException("El servicio no tiene journal; no hay donde guardar el snapshot");
+        }
+        if (programador != null) programador.shutdownNow();
+        programador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "gym-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        programador.scheduleWithFixedDelay(() -> {
+            try {
+                guardarSnapshot();
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("Aviso: no se pudo guardar el snapshot: " + e.getMessage());
+            }
+        }, minutos, minutos, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Suscribe a un receptor a las operaciones del log (ALTA, ALTA_MASIVA,
+     * MODIFICACION, CAMBIO_PLAN, BAJA y PAGO) a partir de una secuencia.
+     * <p>
+     * Primero recibe las que ya están en el log desde esa secuencia y después las
+     * nuevas a medida que ocurren, siempre en orden y de a lotes de hasta
+     * <code>tamanioLote</code>. Para arrancar desde un estado conocido: abrir una
+     * {@link Instantanea}, leer lo que haga falta y suscribirse desde su
+     * {@link Instantanea#secuenciaLog()}. Las secuencias son las del log en memoria,
+     * que arranca de nuevo al reabrir el servicio.
+     * </p>
+     * * @param desde Secuencia de la primera operación a recibir (0 = todo lo que hay
+     *              en el log; {@link Long#MAX_VALUE} = sólo lo que pase de ahora en más).
+     * @param tamanioLote Máximo de operaciones por lote (lo que la suscripción tiene en memoria).
+     * @param receptor Quien recibe los lotes, desde el hilo de la suscripción.
+     * @return la suscripción; hay que cerrarla cuando ya no interese (también se cierra con el servicio).
+     */
+    public Suscripcion suscribir(long desde, int tamanioLote, ReceptorCambios receptor){
+        return medir(Operacion.SUSCRIBIR, () -> {
+            if (desde < 0) throw new IllegalArgumentException("La secuencia no puede ser negativa");
+            if (tamanioLote <= 0) throw new IllegalArgumentException("El tamaño de lote debe ser positivo");
+            return cambios.suscribir(desde, tamanioLote, receptor);
+        });
+    }
+
+    /**
+     * Devuelve un futuro que se completa cuando todas las operaciones que ya
+     * terminaron (en cualquier hilo) están en disco, con fsync incluido.
+     * <p>
+     * Sirve para trabajar sin esperar al disco en cada operación (durabilidad
+     * NINGUNA o AGRUPADA) y confirmar recién al final de un trabajo, o para no
+     * bloquear a quien llama: el journal sólo escribe desde su propio hilo.
+     * Sin journal, el futuro ya viene completo.
+     * </p>
+     * @return el futuro; falla con {@link UncheckedIOException} si no se pudo escribir.
+     */
+    public CompletableFuture<Void> confirmarEnDisco(){
+        return medir(Operacion.CONFIRMAR_EN_DISCO, () -> {
+            if (journal == null) return CompletableFuture.completedFuture(null);
+            return journal.durable(journal.posicion());
+        });
+    }
+
+    /**
+     * Baja a disco las operaciones pendientes y cierra el journal.
+     * No hace nada si el servicio trabaja sólo en memoria.
+     * @throws IOException si falla la escritura final.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (programador != null) programador.shutdownNow();
+        }
+        cambios.cerrar();
+        metricas.dejarDeExportar();
+        if (journal != null) journal.close();
+    }
+
+    /**
+     * Ejecuta la acción con todos los locks de escritura tomados (en orden, para no
+     * provocar deadlocks). Las lecturas siguen funcionando mientras tanto.
+     */
+    private <T> T conTodasLasFranjas(Supplier<T> accion) {
+        int tomadas = 0;
+        try {
+            for (; tomadas < FRANJAS; tomadas++) candados[tomadas].lock();
+            return accion.get();
+        } finally {
+            while (tomadas > 0) candados[--tomadas].unlock();
+        }
+    }
+
+    private Path ultimoSnapshot() throws IOException {
+        Path ultimo = null;
+        for (Path p : snapshots()) {
+            // El nombre lleva la posición con ceros a la izquierda: el mayor es el más nuevo
+            if (ultimo == null || p.getFileName().toString().compareTo(ultimo.getFileName().toString()) > 0) {
+                ultimo = p;
+            }
+        }
+        return ultimo;
+    }
+
+    private ArrayList<Path> snapshots() throws IOException {
+        ArrayList<Path> out = new ArrayList<>();
+        Path dir = archivoJournal.getParent();
+        String patron = archivoJournal.getFileName() + ".*.snap";
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, patron)) {
+            for (Path p : ds) out.add(p);
+        }
+        return out;
+    }
+
+    // La operación ya está aplicada y confirmada en memoria: si no llega al disco, también hay que detenerse
+    private void esperarDurable(long pos) {
+        if (journal == null) return;
+        try {
+            journal.esperarDurable(pos);
+        } catch (RuntimeException e) {
+            throw detener(e);
+        }
+    }
+
+    /**
+     * Aplica las operaciones leídas del journal al arrancar.
+     * Corre en el constructor, antes de que nadie más vea el servicio,
+     * así que no necesita locks ni vuelve a escribir en el journal.
+     * Tampoco toca el índice por nombre ni el de vencimientos, que se arman después a demanda.
+     */
+    private class Recuperador implements JournalOperaciones.Receptor {
+        // El journal guarda milisegundos; el log trabaja en nanosegundos
+        private long nanos(long ts) {
+            return ts * 1_000_000;
+        }
+
+        @Override
+        public void alta(long ts, String dni, String nombre, Plan plan, LocalDate fechaAlta) {
+            Cliente c = new Cliente(dni, nombre, plan, fechaAlta);
+            if (clientes.agregar(c)) {
+                contarAlta(c);
+                log.registrar(TipoOperacion.ALTA, nanos(ts), dni, nombre, plan);
+            }
+        }
+
+        @Override
+        public void modificacion(long ts, String dni, String nuevoNombre) {
+            Cliente c = clientes.buscar(dni);
+            if (c == null) return;
+            String anterior = c.getNombre();
+            c.setNombre(nuevoNombre);
+            log.registrar(TipoOperacion.MODIFICACION, nanos(ts), dni, anterior, nuevoNombre);
+        }
+
+        @Override
+        public void cambioPlan(long ts, String dni, Plan plan) {
+            Cliente c = clientes.buscar(dni);
+            if (c == null) return;
+            Plan anterior = c.getPlan();
+            c.setPlan(plan);
+            estadisticas.cambioPlan(c, anterior, plan);
+            log.registrar(TipoOperacion.CAMBIO_PLAN, nanos(ts), dni, anterior, plan);
+        }
+
+        @Override
+        public void altaMasiva(long ts, String origen, List<Cliente> socios, int[] pagados) {
+            ArrayList<Cliente> agregados = new ArrayList<>(socios.size());
+            for (int i = 0; i < socios.size(); i++) {
+                Cliente c = socios.get(i);
+                if (clientes.agregar(c)) {
+                    contarAlta(c);
+                    if (pagados != null) pagos.alDia(c, pagados[i]);
+                    agregados.add(c);
+                }
+            }
+            if (!agregados.isEmpty()) log.registrar(TipoOperacion.ALTA_MASIVA, nanos(ts), null, dnis(agregados), origen);
+        }
+
+        @Override
+        public void baja(long ts, String dni) {
+            Cliente c = clientes.eliminar(dni);
+            if (c != null) {
+                estadisticas.baja(c, Reloj.aFecha(nanos(ts)).toLocalDate());
+                pagos.baja(c);
+                log.registrar(TipoOperacion.BAJA, nanos(ts), dni, null, null);
+            }
+        }
+
+        @Override
+        public void pago(long ts, String dni, long centavos) {
+            Cliente c = clientes.buscar(dni);
+            if (c == null) return;
+            // Ya se aceptó una vez: se aplica sin volver a controlar el adelanto
+            LibroPagos.Cuenta cuenta = pagos.pagar(c, centavos, null);
+            log.registrar(TipoOperacion.PAGO, nanos(ts), dni, centavos, LibroPagos.vencimientoDe(cuenta.mes()));
+        }
+
+        @Override
+        public void apertura(long ts, int mesPagado) {
+            pagos.abrir(mesPagado);
+            if (mesPagado != Integer.MIN_VALUE) {
+                log.registrar(TipoOperacion.APERTURA, nanos(ts), null, clientes.tamanio(),
+                        YearMonth.of(Math.floorDiv(mesPagado, 12), Math.floorMod(mesPagado, 12) + 1));
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package gym;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias en nanosegundos, con cubetas log-lineales (al estilo HDR).
+ * <p>
+ * Cada potencia de 2 se divide en {@value #SUB} cubetas iguales, así que el error
+ * relativo de cualquier percentil es menor al 3% desde 1 ns hasta siglos, con un
+ * arreglo fijo de contadores. Registrar un valor es calcular el índice con
+ * operaciones de bits e incrementar un contador atómico: no crea objetos ni toma locks.
+ * </p>
+ * <p>
+ * Para ver la latencia de a intervalos no hace falta reiniciarlo (lo que perdería
+ * los valores registrados mientras tanto): se toma una {@link Foto} al final de
+ * cada intervalo y se le resta la anterior con {@link Foto#menos(Foto)}.
+ * </p>
+ */
+public final class HistogramaLatencia {
+    private static final int BITS_SUB = 5;
+    private static final int SUB = 1 << BITS_SUB;
+    private static final int CUBETAS = (64 - BITS_SUB) * SUB;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * @param nanos Latencia a registrar (los negativos cuentan como 0).
+     */
+    public void registrar(long nanos) {
+        long v = Math.max(0, nanos);
+        cubetas.incrementAndGet(indice(v));
+        suma.add(v);
+        // Casi nunca hay un máximo nuevo: primero leemos y sólo entonces intentamos el CAS
+        long m = maximo.get();
+        while (v > m && !maximo.compareAndSet(m, v)) m = maximo.get();
+    }
+
+    static int indice(long v) {
+        if (v < SUB) return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (exp - BITS_SUB)) & (SUB - 1);
+        return (exp - BITS_SUB + 1) * SUB + sub;
+    }
+
+    /** @return el mayor valor que cae en la cubeta. */
+    static long limiteSuperior(int indice) {
+        if (indice < SUB) return indice;
+        int exp = indice / SUB + BITS_SUB - 1;
+        long sub = indice % SUB;
+        return ((SUB + sub + 1) << (exp - BITS_SUB)) - 1;
+    }
+
+    /**
+     * Copia de los contadores en un momento dado, para calcular varios percentiles coherentes.
+     */
+    public Foto foto() {
+        long[] c = new long[CUBETAS];
+        long total = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            c[i] = cubetas.get(i);
+            total += c[i];
+        }
+        return new Foto(c, total, suma.sum(), maximo.get());
+    }
+
+    /** Vuelve todos los contadores a cero. */
+    public void reiniciar() {
+        for (int i = 0; i < CUBETAS; i++) cubetas.set(i, 0);
+        suma.reset();
+        maximo.set(0);
+    }
+
+    /**
+     * Contadores copiados del histograma.
+     */
+    public record Foto(long[] cubetas, long cuenta, long suma, long maximo) {
+        /**
+         * @param p Percentil entre 0 y 100 (por ejemplo 99.9).
+         * @return la latencia en nanosegundos por debajo de la que queda ese porcentaje, o 0 si no hay datos.
+         */
+        public long percentil(double p) {
+            if (cuenta == 0) return 0;
+            long objetivo = Math.max(1, (long) Math.ceil(cuenta * p / 100));
+            long acumulado = 0;
+            for (int i = 0; i < cubetas.length; i++) {
+                acumulado += cubetas[i];
+                if (acumulado >= objetivo) return Math.min(limiteSuperior(i), maximo);
+            }
+            return maximo;
+        }
+
+        /** @return la latencia media en nanosegundos. */
+        public double media() {
+            return cuenta == 0 ? 0 : (double) suma / cuenta;
+        }
+
+        /**
+         * Lo registrado entre una foto anterior del mismo histograma y ésta.
+         * El máximo del intervalo no se guarda: se toma el límite de la cubeta
+         * más alta con valores (sin pasar del máximo total).
+         * * @param anterior Foto tomada antes, o null para devolver ésta.
+         * @return los contadores del intervalo.
+         */
+        public Foto menos(Foto anterior) {
+            if (anterior == null) return this;
+            long[] c = new long[cubetas.length];
+            long total = 0;
+            int alta = -1;
+            for (int i = 0; i < c.length; i++) {
+                c[i] = cubetas[i] - anterior.cubetas[i];
+                total += c[i];
+                if (c[i] > 0) alta = i;
+            }
+            return new Foto(c, total, suma - anterior.suma, alta < 0 ? 0 : Math.min(limiteSuperior(alta), maximo));
+        }
+
+        /**
+         * Junta dos fotos (por ejemplo de histogramas de operaciones distintas).
+         * * @param otra Foto a sumar, o null para devolver ésta.
+         * @return los contadores sumados.
+         */
+        public Foto mas(Foto otra) {
+            if (otra == null) return this;
+            long[] c = new long[cubetas.length];
+            for (int i = 0; i < c.length; i++) c[i] = cubetas[i] + otra.cubetas[i];
+            return new Foto(c, cuenta + otra.cuenta, suma + otra.suma, Math.max(maximo, otra.maximo));
+        }
+    }
+}
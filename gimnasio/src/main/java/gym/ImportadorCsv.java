@@ -0,0 +1,271 @@
+package gym;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Importación masiva de socios desde un archivo CSV.
+ * <p>
+ * Formato: una fila por socio con <code>dni, nombre, plan, fechaAlta[, pagadoHasta]</code>,
+ * separadas por coma o punto y coma (se detecta en la primera línea), con
+ * cabecera opcional. La fecha puede ser <code>yyyy-MM-dd</code> o <code>dd/MM/yyyy</code>
+ * y el plan es el nombre del {@link Plan} (sin importar mayúsculas). La última
+ * columna, opcional, es el último mes con la cuota paga (<code>yyyy-MM</code> o
+ * <code>MM/yyyy</code>); si falta o está vacía, el socio queda al día hasta el mes actual.
+ * </p>
+ * <p>
+ * El archivo se procesa de a lotes de {@value #FILAS_POR_LOTE} filas, así que la
+ * memoria no depende del tamaño del archivo: se lee un lote con un buffer grande,
+ * se parsea y valida en paralelo, y se entrega entero a
+ * {@link GimnasioService#altaMasiva(List, String)}, que descarta los DNIs ya
+ * registrados y deja una sola entrada en el log por lote. Las filas rechazadas
+ * se escriben en un reporte con su número de línea y el motivo.
+ * </p>
+ */
+public final class ImportadorCsv {
+    private static final int FILAS_POR_LOTE = 10_000;
+    private static final int BUFFER_LECTURA = 1 << 16;
+    private static final int MAX_DNI = 20;
+    private static final int MAX_NOMBRE = 200;
+
+    private final GimnasioService servicio;
+
+    /**
+     * @param servicio Servicio donde se dan de alta los socios.
+     */
+    public ImportadorCsv(GimnasioService servicio) {
+        this.servicio = servicio;
+    }
+
+    /**
+     * Una fila ya parseada: el socio si es válida o el motivo del rechazo.
+     */
+    private record Fila(Cliente socio, YearMonth pagadoHasta, String motivo) { }
+
+    /**
+     * Importa todos los socios del archivo.
+     * * @param csv Archivo a importar.
+     * @param rechazos Archivo donde reportar las filas rechazadas, o null para no reportarlas.
+     * @return el resumen de la importación.
+     * @throws IOException si no se puede leer el archivo o escribir el reporte.
+     */
+    public ResultadoImportacion importar(Path csv, Path rechazos) throws IOException {
+        String origen = csv.getFileName().toString();
+        long filas = 0, importadas = 0, rechazadas = 0;
+        int lotes = 0;
+
+        try (BufferedReader in = new BufferedReader(
+                     new InputStreamReader(Files.newInputStream(csv), StandardCharsets.UTF_8), BUFFER_LECTURA);
+             BufferedWriter reporte = rechazos == null ? null : Files.newBufferedWriter(rechazos, StandardCharsets.UTF_8)) {
+            if (reporte != null) reporte.write("linea;motivo;contenido\n");
+
+            String primera = in.readLine();
+            if (primera == null) return new ResultadoImportacion(0, 0, 0, 0);
+            char sep = primera.indexOf(';') >= 0 ? ';' : ',';
+            boolean cabecera = primera.trim().toLowerCase(Locale.ROOT).startsWith("dni");
+
+            String[] lineas = new String[FILAS_POR_LOTE];
+            long[] numeros = new long[FILAS_POR_LOTE];
+            long numero = 1;
+            String pendiente = cabecera ? null : primera;
+
+            while (true) {
+                // Lectura secuencial del lote
+                int n = 0;
+                String l = pendiente != null ? pendiente : in.readLine();
+                pendiente = null;
+                while (l != null) {
+                    if (!l.isBlank()) {
+                        lineas[n] = l;
+                        numeros[n] = numero;
+                        n++;
+                    }
+                    numero++;
+                    if (n == FILAS_POR_LOTE) break;
+                    l = in.readLine();
+                }
+                if (n == 0) break;
+                filas += n;
+
+                // Parseo y validación en paralelo
+                Fila[] parseadas = new Fila[n];
+                IntStream.range(0, n).parallel().forEach(i -> parseadas[i] = parsear(lineas[i], sep));
+
+                ArrayList<Cliente> validos = new ArrayList<>(n);
+                ArrayList<YearMonth> pagados = new ArrayList<>(n);
+                int[] posicion = new int[n];
+                for (int i = 0; i < n; i++) {
+                    if (parseadas[i].socio() != null) {
+                        posicion[validos.size()] = i;
+                        validos.add(parseadas[i].socio());
+                        pagados.add(parseadas[i].pagadoHasta());
+                    } else {
+                        rechazadas++;
+                        reportar(reporte, numeros[i], parseadas[i].motivo(), lineas[i]);
+                    }
+                }
+
+                // Alta del lote: los repetidos vuelven en el mismo orden en que se entregaron
+                List<Cliente> repetidos = servicio.altaMasiva(validos, pagados, origen);
+                int r = 0;
+                for (int v = 0; v < validos.size() && r < repetidos.size(); v++) {
+                    if (validos.get(v) == repetidos.get(r)) {
+                        int i = posicion[v];
+                        reportar(reporte, numeros[i], "DNI ya registrado", lineas[i]);
+                        r++;
+                    }
+                }
+                rechazadas += repetidos.size();
+                importadas += validos.size() - repetidos.size();
+                if (validos.size() > repetidos.size()) lotes++;
+                if (l == null) break;
+            }
+        }
+        return new ResultadoImportacion(filas, importadas, rechazadas, lotes);
+    }
+
+    private static void reportar(Writer reporte, long linea, String motivo, String contenido) throws IOException {
+        if (reporte == null) return;
+        reporte.append(Long.toString(linea)).append(';').append(motivo).append(';').append(contenido).append('\n');
+    }
+
+    /**
+     * Parsea y valida una fila. No toca el servicio, así que se puede llamar desde varios hilos.
+     */
+    private static Fila parsear(String linea, char sep) {
+        String[] campos = new String[5];
+        int n = separar(linea, sep, campos);
+        if (n != 4 && n != 5) return new Fila(null, null, "Se esperaban 4 o 5 columnas y hay " + n);
+
+        String dni = campos[0];
+        if (dni.isEmpty()) return new Fila(null, null, "DNI vacio");
+        if (dni.length() > MAX_DNI) return new Fila(null, null, "DNI demasiado largo");
+        for (int i = 0; i < dni.length(); i++) {
+            if (!Character.isLetterOrDigit(dni.charAt(i))) return new Fila(null, null, "DNI con caracteres invalidos");
+        }
+
+        String nombre = campos[1];
+        if (nombre.isEmpty()) return new Fila(null, null, "Nombre vacio");
+        if (nombre.length() > MAX_NOMBRE) return new Fila(null, null, "Nombre demasiado largo");
+
+        Plan plan = plan(campos[2]);
+        if (plan == null) return new Fila(null, null, "Plan desconocido");
+
+        LocalDate fecha = fecha(campos[3]);
+        if (fecha == null) return new Fila(null, null, "Fecha de alta invalida");
+
+        YearMonth pagado = null;
+        if (n == 5 && !campos[4].isEmpty()) {
+            pagado = mes(campos[4]);
+            if (pagado == null) return new Fila(null, null, "Mes pagado invalido");
+        }
+        return new Fila(new Cliente(dni, nombre, plan, fecha), pagado, null);
+    }
+
+    /**
+     * Separa una línea en campos (sin espacios alrededor). Acepta campos entre
+     * comillas dobles, con "" para una comilla dentro del campo.
+     * @return cantidad de campos encontrados (puede ser mayor que el arreglo).
+     */
+    private static int separar(String linea, char sep, String[] campos) {
+        int n = 0;
+        int i = 0;
+        int largo = linea.length();
+        while (true) {
+            String campo;
+            while (i < largo && linea.charAt(i) == ' ') i++;
+            if (i < largo && linea.charAt(i) == '"') {
+                StringBuilder sb = new StringBuilder();
+                i++;
+                while (i < largo) {
+                    char c = linea.charAt(i++);
+                    if (c == '"') {
+                        if (i < largo && linea.charAt(i) == '"') {
+                            sb.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        sb.append(c);
+                    }
+                }
+                campo = sb.toString();
+                while (i < largo && linea.charAt(i) != sep) i++;
+            } else {
+                int fin = linea.indexOf(sep, i);
+                if (fin < 0) fin = largo;
+                campo = linea.substring(i, fin).trim();
+                i = fin;
+            }
+            if (n < campos.length) campos[n] = campo;
+            n++;
+            if (i >= largo) return n;
+            i++; // el separador
+        }
+    }
+
+    static Plan plan(String s) {
+        for (Plan p : Plan.values()) {
+            if (p.name().equalsIgnoreCase(s)) return p;
+        }
+        return null;
+    }
+
+    /**
+     * Parsea <code>yyyy-MM-dd</code> o <code>dd/MM/yyyy</code> sin pasar por un formatter.
+     * @return la fecha, o null si no es válida.
+     */
+    static LocalDate fecha(String s) {
+        if (s.length() != 10) return null;
+        try {
+            if (s.charAt(4) == '-' && s.charAt(7) == '-') {
+                return LocalDate.of(numero(s, 0, 4), numero(s, 5, 7), numero(s, 8, 10));
+            }
+            if (s.charAt(2) == '/' && s.charAt(5) == '/') {
+                return LocalDate.of(numero(s, 6, 10), numero(s, 3, 5), numero(s, 0, 2));
+            }
+        } catch (DateTimeException | NumberFormatException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * Parsea <code>yyyy-MM</code> o <code>MM/yyyy</code>.
+     * @return el mes, o null si no es válido.
+     */
+    static YearMonth mes(String s) {
+        if (s.length() != 7) return null;
+        try {
+            if (s.charAt(4) == '-') return YearMonth.of(numero(s, 0, 4), numero(s, 5, 7));
+            if (s.charAt(2) == '/') return YearMonth.of(numero(s, 3, 7), numero(s, 0, 2));
+        } catch (DateTimeException | NumberFormatException e) {
+            return null;
+        }
+        return null;
+    }
+
+    private static int numero(String s, int desde, int hasta) {
+        int v = 0;
+        for (int i = desde; i < hasta; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) throw new NumberFormatException(s);
+            v = v * 10 + d;
+        }
+        return v;
+    }
+}
@@ -0,0 +1,228 @@
+package gym;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Índice de socios siempre ordenado por nombre.
+ * <p>
+ * Cada socio se guarda una vez en un ConcurrentSkipListSet como una clave de
+ * colación en español (calculada al darlo de alta o al cambiarle el nombre) más su DNI.
+ * Las claves se comparan byte a byte, así que ordenar no vuelve a pasar por
+ * el Collator: "Gómez" queda junto a "Gomez" (las tildes sólo desempatan) y no
+ * importan mayúsculas ni minúsculas. A igual nombre desempata el DNI.
+ * </p>
+ * <p>
+ * Como la clave empieza con los pesos primarios de cada letra, todos los nombres
+ * que empiezan con un prefijo quedan contiguos: listar la "G" o buscar "gom"
+ * es ir al primero y avanzar, sin tocar el resto del índice.
+ * </p>
+ * <p>
+ * El índice no guarda a los socios: al leer los busca por DNI en el almacén. Con
+ * {@link RepositorioCompacto} guardar una vista por socio desharía lo que el almacén
+ * ahorra; así sólo se arma la vista de los socios que se devuelven. Un socio que se
+ * da de baja mientras alguien recorre el índice puede ya no estar en el almacén: se saltea.
+ * </p>
+ * <p>
+ * No sincroniza nada por su cuenta: el servicio lo actualiza con el lock del DNI tomado.
+ * </p>
+ */
+final class IndiceNombres {
+    private static final Locale ESPANIOL = Locale.of("es", "AR");
+    private static final HexFormat HEX = HexFormat.of();
+
+    // Collator no es seguro entre hilos: uno por hilo, con cada fuerza ya configurada
+    private static final ThreadLocal<Collator> ORDEN = ThreadLocal.withInitial(() -> collator(Collator.SECONDARY));
+    private static final ThreadLocal<Collator> PREFIJO = ThreadLocal.withInitial(() -> collator(Collator.PRIMARY));
+
+    private final ConcurrentSkipListSet<Clave> porNombre = new ConcurrentSkipListSet<>();
+    // Busca al socio de un DNI en el almacén (null si ya no está)
+    private final Function<String, Cliente> socios;
+
+    /**
+     * @param socios Búsqueda por DNI en el almacén del servicio.
+     */
+    IndiceNombres(Function<String, Cliente> socios) {
+        this.socios = socios;
+    }
+
+    /**
+     * Clave del índice: bytes de colación del nombre y DNI para desempatar.
+     */
+    private record Clave(byte[] orden, String dni) implements Comparable<Clave> {
+        @Override
+        public int compareTo(Clave o) {
+            int c = Arrays.compareUnsigned(orden, o.orden);
+            return c != 0 ? c : dni.compareTo(o.dni);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Clave k && compareTo(k) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(orden) + dni.hashCode();
+        }
+
+        String comoToken() {
+            return HEX.formatHex(orden) + ":" + dni;
+        }
+
+        static Clave deToken(String token) {
+            int i = token.indexOf(':');
+            if (i < 0) throw new IllegalArgumentException("Token de pagina invalido");
+            return new Clave(HEX.parseHex(token, 0, i), token.substring(i + 1));
+        }
+    }
+
+    private static Collator collator(int fuerza) {
+        Collator c = Collator.getInstance(ESPANIOL);
+        c.setStrength(fuerza);
+        return c;
+    }
+
+    private static Clave clave(String nombre, String dni) {
+        return new Clave(orden(nombre), dni);
+    }
+
+    /**
+     * Calcula la clave de colación de un nombre. Es la parte cara de indexar,
+     * así que para lotes grandes conviene calcularla antes, fuera de los locks.
+     * * @param nombre Nombre del socio.
+     * @return los bytes de la clave.
+     */
+    static byte[] orden(String nombre) {
+        return ORDEN.get().getCollationKey(nombre == null ? "" : nombre).toByteArray();
+    }
+
+    /**
+     * @param c Socio a indexar con su nombre actual.
+     */
+    void agregar(Cliente c) {
+        porNombre.add(clave(c.getNombre(), c.getDni()));
+    }
+
+    /**
+     * Igual que {@link #agregar(Cliente)} con la clave ya calculada.
+     * * @param c Socio a indexar.
+     * @param orden Resultado de {@link #orden(String)} para su nombre actual.
+     */
+    void agregar(Cliente c, byte[] orden) {
+        porNombre.add(new Clave(orden, c.getDni()));
+    }
+
+    /**
+     * @param nombre Nombre con el que estaba indexado.
+     * @param dni DNI del socio.
+     */
+    void quitar(String nombre, String dni) {
+        porNombre.remove(clave(nombre, dni));
+    }
+
+    /**
+     * Reubica un socio después de cambiarle el nombre.
+     * * @param anterior Nombre con el que estaba indexado.
+     * @param c Socio, ya con el nombre nuevo.
+     */
+    void renombrar(String anterior, Cliente c) {
+        quitar(anterior, c.getDni());
+        agregar(c);
+    }
+
+    /** @return cantidad de socios indexados. */
+    int tamanio() {
+        return porNombre.size();
+    }
+
+    /** @return todos los socios en orden alfabético. */
+    Cliente[] todos() {
+        ArrayList<Cliente> out = new ArrayList<>(porNombre.size());
+        for (Clave k : porNombre) {
+            Cliente c = socios.apply(k.dni());
+            if (c != null) out.add(c);
+        }
+        return out.toArray(new Cliente[0]);
+    }
+
+    /**
+     * Recorre los socios en orden alfabético junto con la clave con que están indexados.
+     * * @param accion Recibe la clave de orden del nombre y el socio.
+     */
+    void recorrer(BiConsumer<byte[], Cliente> accion) {
+        for (Clave k : porNombre) {
+            Cliente c = socios.apply(k.dni());
+            if (c != null) accion.accept(k.orden(), c);
+        }
+    }
+
+    /**
+     * Compara dos socios igual que el índice.
+     * * @param ordenA Clave de orden ({@link #orden(String)}) del nombre del primero.
+     * @param dniA DNI del primero.
+     * @param ordenB Clave de orden del nombre del segundo.
+     * @param dniB DNI del segundo.
+     * @return negativo, cero o positivo según el primero vaya antes, igual o después.
+     */
+    static int comparar(byte[] ordenA, String dniA, byte[] ordenB, String dniB) {
+        return new Clave(ordenA, dniA).compareTo(new Clave(ordenB, dniB));
+    }
+
+    /**
+     * Arma el token de página que empieza en un socio dado.
+     * * @param orden Clave de orden ({@link #orden(String)}) de su nombre.
+     * @param dni DNI del socio.
+     * @return un token válido para {@link #pagina(String, int, String)} de cualquier índice.
+     */
+    static String token(byte[] orden, String dni) {
+        return new Clave(orden, dni).comoToken();
+    }
+
+    /**
+     * Lee una página de socios en orden alfabético.
+     * * @param prefijo Inicio del nombre (sin distinguir tildes ni mayúsculas), o null/vacío para todos.
+     * @param tamanio Cantidad máxima de socios.
+     * @param token Token de la página anterior, o null para empezar.
+     * @return la página pedida.
+     */
+    PaginaSocios pagina(String prefijo, int tamanio, String token) {
+        if (tamanio <= 0) {
+            throw new IllegalArgumentException("El tamaño de pagina debe ser positivo");
+        }
+        byte[] primario = prefijo == null || prefijo.isBlank() ? new byte[0] : primario(prefijo);
+        Clave desde = token != null ? Clave.deToken(token) : new Clave(primario, "");
+
+        ArrayList<Cliente> out = new ArrayList<>(Math.min(tamanio, 1024));
+        for (Clave k : porNombre.tailSet(desde, true)) {
+            if (!empiezaCon(k.orden(), primario)) break;
+            Cliente c = socios.apply(k.dni());
+            if (c == null) continue;
+            if (out.size() == tamanio) return new PaginaSocios(out, k.comoToken(), true);
+            out.add(c);
+        }
+        return new PaginaSocios(out, null, false);
+    }
+
+    /**
+     * Pesos primarios del prefijo, sin los ceros que cierran la clave:
+     * son el comienzo de la clave de cualquier nombre que empiece así.
+     */
+    private static byte[] primario(String prefijo) {
+        byte[] k = PREFIJO.get().getCollationKey(prefijo).toByteArray();
+        int n = k.length;
+        while (n >= 2 && k[n - 1] == 0 && k[n - 2] == 0) n -= 2;
+        return Arrays.copyOf(k, n);
+    }
+
+    private static boolean empiezaCon(byte[] clave, byte[] prefijo) {
+        return clave.length >= prefijo.length
+                && Arrays.equals(clave, 0, prefijo.length, prefijo, 0, prefijo.length);
+    }
+}
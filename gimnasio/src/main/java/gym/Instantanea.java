@@ -0,0 +1,223 @@
+package gym;
+
+import java.lang.ref.Cleaner;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.Supplier;
+
+/**
+ * Vista fija del gimnasio en un momento: socios, estadísticas y log coinciden
+ * entre sí aunque el servicio siga recibiendo cambios.
+ * <p>
+ * Se obtiene con {@link GimnasioService#abrirInstantanea()}. Abrirla no copia a
+ * los socios: guarda la posición del log, la cantidad de socios y los contadores
+ * de estadísticas (unos pocos enteros) y, mientras esté abierta, los cambios
+ * dejan cómo estaba cada socio antes de tocarlo (ver {@link Versiones}). Las
+ * consultas leen el estado actual y lo corrigen con esas versiones, sin tomar
+ * ningún lock de escritura: leer una instantánea nunca frena a las recepciones.
+ * </p>
+ * <p>
+ * Un socio que aparece en el listado aparece también en las estadísticas y su
+ * alta está en las líneas del log, y viceversa. Los Cliente devueltos son copias:
+ * modificarlos no cambia ni la instantánea ni el servicio.
+ * </p>
+ * <p>
+ * Hay que cerrarla al terminar (try-with-resources) para que las versiones
+ * viejas se liberen; si se pierde sin cerrar, se cierra sola cuando el
+ * recolector la descarta. Se puede usar desde varios hilos.
+ * </p>
+ */
+public final class Instantanea implements AutoCloseable {
+    private static final Cleaner LIMPIADOR = Cleaner.create();
+
+    private final AlmacenClientes clientes;
+    private final Supplier<IndiceNombres> indice;
+    private final RegistroOperaciones log;
+    private final long secuenciaLog;
+    private final int cantidad;
+    private final int[] altasPorMes;
+    private final int[] datosEstadisticas;
+    private EstadisticasSocios estadisticas;
+
+    private final Versiones versiones;
+    private final Cleaner.Cleanable limpieza;
+    private volatile boolean cerrada;
+    // Cambio más viejo de cada DNI desde que se abrió, y hasta dónde ya se recorrió la cadena
+    private final HashMap<String, Versiones.Cambio> primeros = new HashMap<>();
+    private Versiones.Cambio vistoHasta;
+
+    /**
+     * Se crea con las escrituras frenadas, así que todo lo recibido corresponde al mismo momento.
+     * * @param clientes Almacén de socios del servicio.
+     * @param indice Índice por nombre del servicio (se pide recién al listar).
+     * @param log Log de operaciones del servicio.
+     * @param versiones Versiones del servicio.
+     * @param secuenciaLog Secuencia que va a recibir la próxima operación.
+     * @param cantidad Cantidad de socios.
+     * @param altasPorMes Copia de las altas por mes.
+     * @param datosEstadisticas Resultado de {@link EstadisticasSocios#exportar()}.
+     */
+    Instantanea(AlmacenClientes clientes, Supplier<IndiceNombres> indice, RegistroOperaciones log, Versiones versiones,
+                long secuenciaLog, int cantidad, int[] altasPorMes, int[] datosEstadisticas) {
+        this.clientes = clientes;
+        this.indice = indice;
+        this.log = log;
+        this.versiones = versiones;
+        this.secuenciaLog = secuenciaLog;
+        this.cantidad = cantidad;
+        this.altasPorMes = altasPorMes;
+        this.datosEstadisticas = datosEstadisticas;
+        long apertura = versiones.abrir();
+        this.vistoHasta = versiones.marca(apertura);
+        this.limpieza = LIMPIADOR.register(this, cierre(versiones, apertura));
+    }
+
+    // Fuera de la instancia: si la acción la referenciara, nunca sería inalcanzable
+    private static Runnable cierre(Versiones versiones, long apertura) {
+        return () -> versiones.cerrar(apertura);
+    }
+
+    /**
+     * @return la secuencia del log hasta la que llega la instantánea: incluye
+     * las operaciones con secuencia menor, y ninguna otra.
+     */
+    public long secuenciaLog() {
+        return secuenciaLog;
+    }
+
+    /** @return cantidad de socios activos. */
+    public int cantidadClientes() {
+        abierta();
+        return cantidad;
+    }
+
+    /**
+     * Busca un socio como estaba al abrir la instantánea.
+     * * @param dni El documento a buscar.
+     * @return una copia del socio.
+     * @throws SocioNoEncontradoException si no había nadie con ese DNI.
+     */
+    public synchronized Cliente buscarPorDni(String dni) {
+        Cliente c = socio(dni);
+        if (c == null) throw new SocioNoEncontradoException("No existe cliente con DNI " + dni);
+        return c;
+    }
+
+    /**
+     * @param dni DNI a verificar.
+     * @return true si el DNI estaba registrado al abrir la instantánea.
+     */
+    public synchronized boolean existeDni(String dni) {
+        return socio(dni) != null;
+    }
+
+    private Cliente socio(String dni) {
+        abierta();
+        // Primero el estado actual, después las versiones: un cambio visto ya dejó la suya
+        Cliente vivo = clientes.buscar(dni);
+        Cliente copia = vivo == null ? null : Versiones.copia(vivo);
+        actualizar();
+        Versiones.Cambio c = primeros.get(dni);
+        if (c == null) return copia;
+        return c.anterior == null ? null : Versiones.copia(c.anterior);
+    }
+
+    /**
+     * Listado de los socios ordenado por nombre, como estaba al abrir la instantánea.
+     * <p>
+     * Recorre el índice por nombre actual y reemplaza a los socios que cambiaron
+     * desde entonces por su versión anterior: sólo a esos se les recalcula la
+     * clave de orden.
+     * </p>
+     * @return copias de los socios en orden alfabético.
+     */
+    public synchronized Cliente[] listarOrdenadosPorNombre() {
+        abierta();
+        ArrayList<byte[]> claves = new ArrayList<>(cantidad);
+        ArrayList<Cliente> vivos = new ArrayList<>(cantidad);
+        indice.get().recorrer((k, c) -> {
+            claves.add(k);
+            vivos.add(Versiones.copia(c));
+        });
+        actualizar();
+
+        // Los que cambiaron, con el nombre que tenían, ordenados igual que el índice
+        ArrayList<Version> viejos = new ArrayList<>();
+        for (Versiones.Cambio c : primeros.values()) {
+            if (c.anterior != null) viejos.add(new Version(IndiceNombres.orden(c.anterior.getNombre()), c.anterior));
+        }
+        viejos.sort((a, b) -> IndiceNombres.comparar(a.clave(), a.socio().getDni(), b.clave(), b.socio().getDni()));
+
+        ArrayList<Cliente> out = new ArrayList<>(cantidad);
+        int j = 0;
+        for (int i = 0; i < vivos.size(); i++) {
+            Cliente c = vivos.get(i);
+            if (primeros.containsKey(c.getDni())) continue;
+            while (j < viejos.size() && viejos.get(j).antesDe(claves.get(i), c)) {
+                out.add(Versiones.copia(viejos.get(j++).socio()));
+            }
+            out.add(c);
+        }
+        while (j < viejos.size()) out.add(Versiones.copia(viejos.get(j++).socio()));
+        return out.toArray(new Cliente[0]);
+    }
+
+    /** Versión anterior de un socio con su clave de orden. */
+    private record Version(byte[] clave, Cliente socio) {
+        boolean antesDe(byte[] otraClave, Cliente otro) {
+            return IndiceNombres.comparar(clave, socio.getDni(), otraClave, otro.getDni()) < 0;
+        }
+    }
+
+    /** @return copia de las altas por mes (índice 0 = Enero). */
+    public int[] getAltasPorMes() {
+        abierta();
+        return altasPorMes.clone();
+    }
+
+    /**
+     * @return las estadísticas de socios al abrir la instantánea; no cambian después.
+     */
+    public synchronized EstadisticasSocios estadisticas() {
+        abierta();
+        if (estadisticas == null) {
+            // Se arman la primera vez: abrir la instantánea sólo copió los enteros
+            estadisticas = new EstadisticasSocios(LocalDate.EPOCH);
+            estadisticas.cargar(datosEstadisticas);
+        }
+        return estadisticas;
+    }
+
+    /**
+     * Arma el texto de las operaciones que llegan hasta la instantánea, de la más vieja a la más nueva.
+     * Con un log circular, las que ya se pisaron no aparecen.
+     * * @return Arreglo con cada línea del log formateada con fecha y hora.
+     */
+    public String[] logComoLineas() {
+        abierta();
+        ArrayList<String> out = new ArrayList<>();
+        for (long seq = log.primeraSecuencia(); seq < secuenciaLog; seq++) {
+            EventoOperacion e = log.evento(seq);
+            if (e != null) out.add(e.comoLinea());
+        }
+        return out.toArray(new String[0]);
+    }
+
+    /**
+     * Suelta las versiones que guardaba esta instantánea. Después de cerrarla no se puede consultar.
+     */
+    @Override
+    public void close() {
+        cerrada = true;
+        limpieza.clean();
+    }
+
+    private void abierta() {
+        if (cerrada) throw new IllegalStateException("La instantanea ya esta cerrada");
+    }
+
+    private void actualizar() {
+        vistoHasta = versiones.recorrer(vistoHasta, primeros);
+    }
+}
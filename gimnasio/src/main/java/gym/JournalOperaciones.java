@@ -0,0 +1,777 @@
+package gym;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Journal de operaciones en disco (solo se agrega al final).
+ * <p>
+ * Cada operación se guarda como un registro binario:
+ * <code>[int largo][int crc32][payload]</code>, donde el payload tiene el código
+ * del {@link TipoOperacion}, el instante en milisegundos y los datos propios de
+ * cada tipo. Al arrancar se vuelve a leer el archivo completo para reconstruir
+ * el estado; si el último registro quedó cortado por un corte de luz (o tiene
+ * el CRC mal), se descarta y el archivo se trunca en el último registro sano.
+ * </p>
+ * <p>
+ * Un alta masiva se guarda en uno o más registros ALTA_MASIVA seguidos; el último
+ * lleva una marca de fin. Al reproducir, el lote se aplica recién cuando aparece
+ * esa marca: si el corte dejó un lote a medias, se descarta entero (y el archivo
+ * se trunca donde empezaba). Los lotes nuevos guardan además, por socio, el mes
+ * hasta el que tiene pagas las cuotas (lo indica un bit de la marca, así los
+ * registros viejos se siguen leyendo igual).
+ * </p>
+ * <p>
+ * <b>Escritura:</b> quien agrega una operación sólo la codifica en un buffer
+ * directo (en el orden del journal) y sigue; nunca toca el disco. Los buffers
+ * llenos pasan por una cola acotada a un único hilo escritor, que los baja al
+ * archivo de a varios juntos con una sola escritura secuencial, hace el fsync
+ * que haga falta y devuelve los buffers para reusarlos. Quien necesita saber
+ * que su operación ya está en disco pide un {@link CompletableFuture} con
+ * {@link #durable(long)}: todos los que esperan la misma tanda comparten un
+ * único futuro y un único fsync (group commit). Con {@link Durabilidad#SIEMPRE}
+ * el servicio espera ese futuro en cada operación; con las otras, no espera.
+ * </p>
+ * <p>
+ * <b>Contrapresión:</b> hay {@value #BUFFERS} buffers en total. Si el disco no da
+ * abasto y están todos llenos esperando al escritor, quien agrega una operación
+ * espera a que se libere uno, en vez de acumular memoria sin límite.
+ * </p>
+ */
+class JournalOperaciones implements AutoCloseable {
+    // "GYMJ" + versión del formato
+    private static final int MAGIA = 0x47594D4A;
+    private static final int VERSION = 1;
+    private static final int LARGO_CABECERA = 8;
+    private static final int CABECERA_REGISTRO = 8;
+    // Un registro nunca supera esto (dos strings de 64KB como mucho)
+    private static final int MAX_REGISTRO = 2 * 65_535 + 64;
+    // Largo máximo de un texto ya codificado (se guarda precedido por un short sin signo)
+    private static final int MAX_TEXTO = 65_535;
+    private static final byte[] SIN_TEXTO = new byte[0];
+    private static final long INTERVALO_VOLCADO_MS = 50;
+    private static final Plan[] PLANES = Plan.values();
+
+    /**
+     * Recibe las operaciones leídas del journal durante la recuperación.
+     */
+    interface Receptor {
+        void alta(long ts, String dni, String nombre, Plan plan, LocalDate fechaAlta);
+
+        void modificacion(long ts, String dni, String nuevoNombre);
+
+        void cambioPlan(long ts, String dni, Plan plan);
+
+        void baja(long ts, String dni);
+
+        /**
+         * @param socios Socios del lote completo; la lista sólo es válida durante la llamada.
+         * @param pagados Por socio, mes (año * 12 + mes - 1) hasta el que tiene pagas las
+         *                cuotas, o null si el lote es de antes de que se guardara.
+         */
+        void altaMasiva(long ts, String origen, List<Cliente> socios, int[] pagados);
+
+        /**
+         * @param centavos Monto pagado.
+         */
+        void pago(long ts, String dni, long centavos);
+
+        /**
+         * @param mesPagado Mes hasta el que se dieron por pagas las cuotas de los socios que había.
+         */
+        void apertura(long ts, int mesPagado);
+    }
+
+    // Bits de la marca de los registros ALTA_MASIVA
+    private static final int FIN_DE_LOTE = 1;
+    private static final int CON_PAGADOS = 2;
+
+    /**
+     * Socios (y meses pagados) de un lote que se está leyendo.
+     */
+    private static final class Lote {
+        final ArrayList<Cliente> socios = new ArrayList<>();
+        int[] pagados = new int[16];
+        boolean conPagados;
+
+        void limpiar() {
+            socios.clear();
+            conPagados = false;
+        }
+    }
+
+    private static final int BUFFERS = 8;
+    private static final int LARGO_BUFFER = 1 << 19;
+
+    private final FileChannel canal;
+    private final Durabilidad durabilidad;
+    private final CRC32 crc = new CRC32();
+    private final MetricasJournal metricas = new MetricasJournal(this);
+
+    // Codificación: quien agrega toma este lock. El escritor sólo lo prueba (tryLock),
+    // porque un llamador puede estar esperando un buffer libre con el lock tomado
+    private final ReentrantLock candado = new ReentrantLock();
+    private ByteBuffer buffer;
+    // Posición lógica del byte 0 de "buffer" (todo lo anterior ya está en la cola o en el archivo)
+    private long base;
+
+    // Buffers llenos, en orden, esperando al escritor; y buffers vacíos para reusar
+    private final ArrayBlockingQueue<ByteBuffer> llenos = new ArrayBlockingQueue<>(BUFFERS);
+    private final ArrayBlockingQueue<ByteBuffer> libres = new ArrayBlockingQueue<>(BUFFERS);
+
+    // Futuros de durabilidad: la tanda que el escritor está bajando y la próxima
+    private final Object candadoFuturos = new Object();
+    private CompletableFuture<Void> enCurso;
+    private long objetivoEnCurso;
+    private CompletableFuture<Void> siguiente;
+
+    private final Thread escritor;
+    // Bytes ya entregados al sistema operativo (sólo los cambia el escritor) y bytes con fsync hecho
+    private volatile long escrito;
+    private volatile long durable;
+    private volatile IOException falla;
+    private volatile boolean cerrado;
+    private volatile boolean detener;
+
+    private JournalOperaciones(FileChannel canal, long fin, Durabilidad durabilidad) {
+        this.canal = canal;
+        this.durabilidad = durabilidad;
+        this.base = fin;
+        this.escrito = fin;
+        this.durable = fin;
+        for (int i = 0; i < BUFFERS - 1; i++) libres.add(ByteBuffer.allocateDirect(LARGO_BUFFER));
+        this.buffer = ByteBuffer.allocateDirect(LARGO_BUFFER);
+        this.escritor = new Thread(this::escribirSiempre, "gym-journal");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Abre (o crea) el journal, reproduce sus operaciones sobre el receptor
+     * y lo deja listo para seguir agregando al final.
+     * * @param archivo Ruta del journal.
+     * @param durabilidad Cuándo forzar los datos a disco.
+     * @param desde Posición desde la que reproducir (0 = desde el principio;
+     *              con un snapshot, la posición que éste ya cubre).
+     * @param receptor Destino de las operaciones recuperadas.
+     * @return el journal abierto.
+     * @throws IOException si no se puede leer o crear el archivo, o si ya lo tiene
+     *                     abierto otro servicio (de este proceso o de otro).
+     */
+    static JournalOperaciones abrir(Path archivo, Durabilidad durabilidad, long desde, Receptor receptor) throws IOException {
+        FileChannel canal = FileChannel.open(archivo,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // Dos escritores sobre el mismo archivo se pisarían los registros. El lock se
+            // suelta solo al cerrar el canal (o si el proceso muere)
+            FileLock lock;
+            try {
+                lock = canal.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) throw new IOException("El journal ya esta abierto por otro servicio: " + archivo);
+            long fin;
+            if (canal.size() == 0) {
+                if (desde > LARGO_CABECERA) {
+                    throw new IOException("El journal esta vacio pero el snapshot cubre hasta la posicion " + desde);
+                }
+                ByteBuffer cab = ByteBuffer.allocate(LARGO_CABECERA).putInt(MAGIA).putInt(VERSION);
+                cab.flip();
+                while (cab.hasRemaining()) canal.write(cab, LARGO_CABECERA - cab.remaining());
+                canal.force(true);
+                fin = LARGO_CABECERA;
+            } else {
+                fin = reproducir(canal, desde, receptor);
+                // Si había una cola rota la descartamos para seguir escribiendo desde un registro sano
+                if (fin < canal.size()) {
+                    canal.truncate(fin);
+                    canal.force(true);
+                }
+            }
+            canal.position(fin);
+            return new JournalOperaciones(canal, fin, durabilidad);
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Lee los registros a partir de <code>desde</code> y los entrega al receptor.
+     * @return posición del final del último registro válido.
+     */
+    private static long reproducir(FileChannel canal, long desde, Receptor receptor) throws IOException {
+        ByteBuffer cab = ByteBuffer.allocate(LARGO_CABECERA);
+        while (cab.hasRemaining() && canal.read(cab, cab.position()) > 0) { }
+        cab.flip();
+        if (cab.remaining() < LARGO_CABECERA || cab.getInt() != MAGIA) {
+            throw new IOException("El archivo no es un journal del gimnasio");
+        }
+        int version = cab.getInt();
+        if (version != VERSION) {
+            throw new IOException("Version de journal no soportada: " + version);
+        }
+
+        long inicio = Math.max(desde, LARGO_CABECERA);
+        if (inicio > canal.size()) {
+            throw new IOException("El journal es mas corto que la posicion cubierta por el snapshot");
+        }
+
+        ByteBuffer in = ByteBuffer.allocate(1 << 22);
+        CRC32 crc = new CRC32();
+        long posArchivo = inicio; // posición en el archivo del byte 0 de "in"
+        long ultimoSano = inicio;
+        boolean finArchivo = false;
+        Lote lote = new Lote();
+        canal.position(inicio);
+        in.limit(0);
+
+        while (true) {
+            // Nos aseguramos de tener al menos un registro completo en memoria
+            if (in.remaining() < CABECERA_REGISTRO + MAX_REGISTRO && !finArchivo) {
+                posArchivo += in.position();
+                in.compact();
+                while (in.hasRemaining()) {
+                    if (canal.read(in) < 0) {
+                        finArchivo = true;
+                        break;
+                    }
+                }
+                in.flip();
+            }
+            if (in.remaining() < CABECERA_REGISTRO) break;
+
+            int reg = in.position();
+            int largo = in.getInt(reg);
+            if (largo <= 0 || largo > MAX_REGISTRO || in.remaining() < CABECERA_REGISTRO + largo) break;
+            int esperado = in.getInt(reg + 4);
+            crc.reset();
+            crc.update(in.array(), reg + CABECERA_REGISTRO, largo);
+            if ((int) crc.getValue() != esperado) break;
+
+            in.position(reg + CABECERA_REGISTRO);
+            boolean completo = decodificar(in, receptor, lote);
+            in.position(reg + CABECERA_REGISTRO + largo);
+            // En medio de un lote no hay un punto sano: si se corta acá, se descarta el lote entero
+            if (completo) ultimoSano = posArchivo + in.position();
+        }
+        return ultimoSano;
+    }
+
+    /**
+     * Aplica un registro sobre el receptor.
+     * @return false si el registro es parte de un lote que todavía no terminó.
+     */
+    private static boolean decodificar(ByteBuffer in, Receptor r, Lote lote) {
+        TipoOperacion tipo = TipoOperacion.desdeCodigo(in.get());
+        long ts = in.getLong();
+        String dni = leerTexto(in);
+        switch (tipo) {
+            case ALTA -> {
+                String nombre = leerTexto(in);
+                Plan plan = PLANES[in.get()];
+                LocalDate fecha = LocalDate.ofEpochDay(in.getInt());
+                r.alta(ts, dni, nombre, plan, fecha);
+            }
+            case MODIFICACION -> r.modificacion(ts, dni, leerTexto(in));
+            case CAMBIO_PLAN -> r.cambioPlan(ts, dni, PLANES[in.get()]);
+            case BAJA -> r.baja(ts, dni);
+            case PAGO -> r.pago(ts, dni, in.getLong());
+            case APERTURA -> r.apertura(ts, in.getInt());
+            case ALTA_MASIVA -> {
+                // En los lotes el lugar del DNI lleva el origen
+                int marca = in.get();
+                lote.conPagados = (marca & CON_PAGADOS) != 0;
+                int n = in.getInt();
+                for (int i = 0; i < n; i++) {
+                    String dniSocio = leerTexto(in);
+                    String nombre = leerTexto(in);
+                    Plan plan = PLANES[in.get()];
+                    lote.socios.add(new Cliente(dniSocio, nombre, plan, LocalDate.ofEpochDay(in.getInt())));
+                    if (lote.conPagados) {
+                        int k = lote.socios.size() - 1;
+                        if (k == lote.pagados.length) lote.pagados = Arrays.copyOf(lote.pagados, k * 2);
+                        lote.pagados[k] = in.getInt();
+                    }
+                }
+                if ((marca & FIN_DE_LOTE) == 0) return false;
+                r.altaMasiva(ts, dni, lote.socios, lote.conPagados ? Arrays.copyOf(lote.pagados, lote.socios.size()) : null);
+                lote.limpiar();
+            }
+        }
+        return true;
+    }
+
+    private static String leerTexto(ByteBuffer in) {
+        int n = in.getShort() & 0xFFFF;
+        String s = new String(in.array(), in.position(), n, StandardCharsets.UTF_8);
+        in.position(in.position() + n);
+        return s;
+    }
+
+    /**
+     * Agrega el alta de un cliente.
+     * @return posición lógica del final del registro (para esperar su durabilidad).
+     */
+    long alta(long ts, Cliente c) {
+        // Los textos se codifican (y validan) antes de escribir nada: si uno fallara a mitad
+        // de camino quedaría un registro sin terminar y al reabrir se perdería todo lo posterior
+        byte[] dni = texto(c.getDni());
+        byte[] nombre = texto(c.getNombre());
+        candado.lock();
+        try {
+            int inicio = empezar(TipoOperacion.ALTA, ts, dni);
+            escribirTexto(nombre);
+            buffer.put((byte) c.getPlan().ordinal());
+            buffer.putInt((int) c.getFechaAlta().toEpochDay());
+            return terminar(inicio);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    long modificacion(long ts, String dni, String nuevoNombre) {
+        byte[] bDni = texto(dni);
+        byte[] nombre = texto(nuevoNombre);
+        candado.lock();
+        try {
+            int inicio = empezar(TipoOperacion.MODIFICACION, ts, bDni);
+            escribirTexto(nombre);
+            return terminar(inicio);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    long cambioPlan(long ts, String dni, Plan plan) {
+        byte[] bDni = texto(dni);
+        candado.lock();
+        try {
+            int inicio = empezar(TipoOperacion.CAMBIO_PLAN, ts, bDni);
+            buffer.put((byte) plan.ordinal());
+            return terminar(inicio);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    long baja(long ts, String dni) {
+        byte[] bDni = texto(dni);
+        candado.lock();
+        try {
+            return terminar(empezar(TipoOperacion.BAJA, ts, bDni));
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    long pago(long ts, String dni, long centavos) {
+        byte[] bDni = texto(dni);
+        candado.lock();
+        try {
+            int inicio = empezar(TipoOperacion.PAGO, ts, bDni);
+            buffer.putLong(centavos);
+            return terminar(inicio);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Guarda la apertura del libro de pagos.
+     * * @param mesPagado Mes hasta el que se dieron por pagas las cuotas de los socios que había.
+     */
+    long apertura(long ts, int mesPagado) {
+        candado.lock();
+        try {
+            int inicio = empezar(TipoOperacion.APERTURA, ts, SIN_TEXTO);
+            buffer.putInt(mesPagado);
+            return terminar(inicio);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Agrega un alta masiva. Los socios se reparten en tantos registros como haga
+     * falta para respetar el tamaño máximo; el último lleva la marca de fin.
+     * * @param pagados Por socio, mes hasta el que tiene pagas las cuotas.
+     * @return posición lógica del final del último registro.
+     */
+    long altaMasiva(long ts, String origen, List<Cliente> socios, int[] pagados) {
+        if (pagados.length != socios.size()) throw new IllegalArgumentException("Hace falta un mes pagado por socio");
+        // Se valida todo antes de escribir: un lote nunca puede quedar a medias en el buffer
+        validarLote(origen, socios);
+        byte[] bOrigen = texto(origen);
+        candado.lock();
+        try {
+            return escribirLote(ts, bOrigen, socios, pagados);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    // Con el lock tomado de principio a fin: los registros de un lote quedan seguidos
+    private long escribirLote(long ts, byte[] origen, List<Cliente> socios, int[] pagados) {
+        int i = 0;
+        do {
+            int inicio = empezar(TipoOperacion.ALTA_MASIVA, ts, origen);
+            int marca = buffer.position();
+            buffer.put((byte) 0).putInt(0);
+            int n = 0;
+            while (i < socios.size()) {
+                Cliente c = socios.get(i);
+                byte[] dni = texto(c.getDni());
+                byte[] nombre = texto(c.getNombre());
+                int largo = 2 + dni.length + 2 + nombre.length + 1 + 4 + 4;
+                if (buffer.position() + largo - inicio - CABECERA_REGISTRO > MAX_REGISTRO) {
+                    // No entra: queda para el registro siguiente
+                    break;
+                }
+                buffer.putShort((short) dni.length).put(dni);
+                buffer.putShort((short) nombre.length).put(nombre);
+                buffer.put((byte) c.getPlan().ordinal());
+                buffer.putInt((int) c.getFechaAlta().toEpochDay());
+                buffer.putInt(pagados[i]);
+                i++;
+                n++;
+            }
+            buffer.put(marca, (byte) (CON_PAGADOS | (i == socios.size() ? FIN_DE_LOTE : 0)));
+            buffer.putInt(marca + 1, n);
+            terminar(inicio);
+        } while (i < socios.size());
+        return base + buffer.position();
+    }
+
+    // Después de empezar ya no puede fallar nada hasta terminar: los textos llegan codificados
+    private int empezar(TipoOperacion tipo, long ts, byte[] dni) {
+        verificar();
+        if (buffer.remaining() < CABECERA_REGISTRO + MAX_REGISTRO) cambiarBuffer();
+        int inicio = buffer.position();
+        buffer.position(inicio + CABECERA_REGISTRO);
+        buffer.put(tipo.codigo());
+        buffer.putLong(ts);
+        escribirTexto(dni);
+        return inicio;
+    }
+
+    private long terminar(int inicio) {
+        int fin = buffer.position();
+        // El buffer es directo (no tiene array): el CRC se calcula sobre una ventana del propio buffer
+        buffer.limit(fin).position(inicio + CABECERA_REGISTRO);
+        crc.reset();
+        crc.update(buffer);
+        buffer.limit(buffer.capacity());
+        buffer.putInt(inicio, fin - inicio - CABECERA_REGISTRO);
+        buffer.putInt(inicio + 4, (int) crc.getValue());
+        return base + fin;
+    }
+
+    private void escribirTexto(byte[] b) {
+        buffer.putShort((short) b.length);
+        buffer.put(b);
+    }
+
+    private static byte[] texto(String s) {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        if (b.length > MAX_TEXTO) {
+            throw new IllegalArgumentException("Texto demasiado largo para el journal");
+        }
+        return b;
+    }
+
+    /**
+     * Verifica que un texto entre en un registro sin codificarlo si no hace falta
+     * (en UTF-8 un carácter de Java ocupa como mucho 3 bytes).
+     * * @param s Texto a guardar (null se guarda como vacío).
+     * @throws IllegalArgumentException si codificado pasa del máximo del journal.
+     */
+    static void validarTexto(String s) {
+        if (s != null && s.length() > MAX_TEXTO / 3) texto(s);
+    }
+
+    /**
+     * Verifica que un lote entre en registros ALTA_MASIVA: cada texto tiene que
+     * entrar solo y cada socio, junto con el origen, en un registro.
+     * * @param origen Origen del lote.
+     * @param socios Socios del lote.
+     * @throws IllegalArgumentException si algún texto o algún socio no entra.
+     */
+    static void validarLote(String origen, List<Cliente> socios) {
+        int fijo = 1 + 8 + 2 + texto(origen).length + 1 + 4;
+        for (Cliente c : socios) {
+            validarTexto(c.getDni());
+            validarTexto(c.getNombre());
+            long cota = 3L * (c.getDni().length() + (c.getNombre() == null ? 0 : c.getNombre().length()));
+            if (fijo + 2 + 2 + 9 + cota > MAX_REGISTRO
+                    && fijo + 2 + texto(c.getDni()).length + 2 + texto(c.getNombre()).length + 9 > MAX_REGISTRO) {
+                throw new IllegalArgumentException("Socio demasiado grande para el journal: " + c.getDni());
+            }
+        }
+    }
+
+    /**
+     * Falla igual que fallaría agregar un registro en este momento. Sirve para
+     * rechazar una operación antes de aplicarla en memoria.
+     * @throws IllegalStateException si el journal está cerrado.
+     * @throws UncheckedIOException si el escritor ya no pudo escribir en el archivo.
+     */
+    void verificar() {
+        if (cerrado) throw new IllegalStateException("El journal esta cerrado");
+        IOException f = falla;
+        if (f != null) throw new UncheckedIOException("El journal no se pudo escribir", f);
+    }
+
+    /**
+     * Manda el buffer actual a la cola del escritor y toma uno libre; si no hay,
+     * espera (contrapresión). Hay que llamarlo con el lock tomado; quien agrega tiene
+     * además tomada su franja del servicio, que es un ReentrantLock para que un hilo
+     * virtual que espera acá suelte su hilo portador.
+     */
+    private void cambiarBuffer() {
+        ByteBuffer nuevo = libres.poll();
+        if (nuevo == null) {
+            // El disco va atrás: esperamos a que el escritor devuelva un buffer
+            long t0 = System.nanoTime();
+            sellar();
+            LockSupport.unpark(escritor);
+            // Sin cortar por interrupciones: la operación ya está aplicada en memoria y
+            // el buffer actual ya se selló, así que hay que terminar de escribirla
+            boolean interrumpido = false;
+            while (nuevo == null) {
+                try {
+                    nuevo = libres.take();
+                } catch (InterruptedException e) {
+                    interrumpido = true;
+                }
+            }
+            if (interrumpido) Thread.currentThread().interrupt();
+            metricas.contrapresion(System.nanoTime() - t0);
+        } else {
+            sellar();
+            LockSupport.unpark(escritor);
+        }
+        buffer = nuevo;
+    }
+
+    // Pasa el buffer actual a la cola de llenos; siempre hay lugar (hay tantos lugares como buffers)
+    private void sellar() {
+        buffer.flip();
+        base += buffer.remaining();
+        llenos.add(buffer);
+        buffer = null;
+    }
+
+    /**
+     * @return posición lógica del final del último registro agregado.
+     */
+    long posicion() {
+        candado.lock();
+        try {
+            return base + buffer.position();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Devuelve un futuro que se completa cuando todo hasta <code>posicion</code>
+     * está en disco (con fsync), sea cual sea la durabilidad.
+     * * @param posicion Valor devuelto al agregar un registro (o por {@link #posicion()}).
+     * @return el futuro, ya completo si la posición ya está en disco.
+     */
+    CompletableFuture<Void> durable(long posicion) {
+        if (durable >= posicion) return LISTO;
+        CompletableFuture<Void> f;
+        synchronized (candadoFuturos) {
+            if (durable >= posicion) return LISTO;
+            if (enCurso != null && posicion <= objetivoEnCurso) return enCurso;
+            if (siguiente == null) siguiente = new CompletableFuture<>();
+            f = siguiente;
+        }
+        LockSupport.unpark(escritor);
+        return f;
+    }
+
+    private static final CompletableFuture<Void> LISTO = CompletableFuture.completedFuture(null);
+
+    /**
+     * Fuerza a disco todo lo agregado hasta ahora, sin importar la durabilidad.
+     */
+    void forzar() {
+        esperar(durable(posicion()));
+    }
+
+    /**
+     * Espera (si la durabilidad lo pide) a que la operación que terminó en
+     * <code>posicion</code> esté en disco.
+     * * @param posicion Valor devuelto al agregar el registro.
+     */
+    void esperarDurable(long posicion) {
+        if (durabilidad == Durabilidad.SIEMPRE && durable < posicion) esperar(durable(posicion));
+    }
+
+    private static void esperar(CompletableFuture<Void> f) {
+        try {
+            f.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException u) throw u;
+            throw e;
+        }
+    }
+
+    /** @return las métricas de la cola y de las escrituras. */
+    MetricasJournal metricas() {
+        return metricas;
+    }
+
+    int bloquesEnCola() {
+        return llenos.size();
+    }
+
+    long bytesPendientes() {
+        return Math.max(0, base - escrito);
+    }
+
+    /**
+     * Bucle del hilo escritor: baja a disco los buffers llenos apenas llegan y,
+     * si alguien espera durabilidad o pasó el intervalo, también el que está a medio llenar.
+     */
+    private void escribirSiempre() {
+        long intervalo = INTERVALO_VOLCADO_MS * 1_000_000L;
+        long proximoVolcado = System.nanoTime() + intervalo;
+        ByteBuffer[] tanda = new ByteBuffer[BUFFERS];
+        while (!detener || !llenos.isEmpty()) {
+            boolean pedido;
+            synchronized (candadoFuturos) {
+                pedido = siguiente != null;
+            }
+            long ahora = System.nanoTime();
+            boolean vencido = ahora - proximoVolcado >= 0;
+            if (llenos.isEmpty() && !pedido && !vencido) {
+                // parkNanos y no sleep/interrupt: interrumpir un hilo en medio de un
+                // FileChannel.force cierra el canal
+                LockSupport.parkNanos(proximoVolcado - ahora);
+                continue;
+            }
+
+            // El buffer a medio llenar sólo se corta si hace falta: si no, que se llene.
+            // tryLock: si un llamador tiene el lock esperando un buffer libre, primero hay que devolverle uno
+            CompletableFuture<Void> futuro = null;
+            boolean cortado = false;
+            if ((pedido || vencido) && candado.tryLock()) {
+                try {
+                    if (buffer.position() > 0 && !libres.isEmpty()) {
+                        sellar();
+                        buffer = libres.poll();
+                    }
+                    if (buffer.position() == 0) {
+                        // Todo lo agregado hasta acá ya está en "llenos" (o en el archivo)
+                        cortado = true;
+                        synchronized (candadoFuturos) {
+                            futuro = enCurso = siguiente;
+                            objetivoEnCurso = base;
+                            siguiente = null;
+                        }
+                    }
+                } finally {
+                    candado.unlock();
+                }
+            }
+            if (cortado && vencido) proximoVolcado = ahora + intervalo;
+
+            int n = 0;
+            ByteBuffer b;
+            while (n < BUFFERS && (b = llenos.poll()) != null) tanda[n++] = b;
+            boolean fsync = futuro != null || (cortado && vencido && durabilidad == Durabilidad.AGRUPADA);
+            if (n == 0 && !fsync && !cortado) {
+                // El lock estaba ocupado y no había nada para bajar: se reintenta enseguida
+                Thread.yield();
+                continue;
+            }
+            bajar(tanda, n, fsync, futuro);
+        }
+    }
+
+    /**
+     * Escribe una tanda de buffers con una sola escritura (gathering), hace el
+     * fsync si corresponde, completa el futuro de la tanda y recicla los buffers.
+     */
+    private void bajar(ByteBuffer[] tanda, int n, boolean fsync, CompletableFuture<Void> futuro) {
+        long t0 = System.nanoTime();
+        long bytes = 0;
+        try {
+            if (falla != null) throw falla;
+            for (int i = 0; i < n; i++) bytes += tanda[i].remaining();
+            for (long hecho = 0; hecho < bytes; ) hecho += canal.write(tanda, 0, n);
+            escrito += bytes;
+            boolean forzado = fsync && durable < escrito;
+            if (forzado) {
+                canal.force(false);
+                durable = escrito;
+            }
+            metricas.volcado(bytes, forzado, System.nanoTime() - t0);
+            if (futuro != null) futuro.complete(null);
+        } catch (IOException e) {
+            if (falla == null) {
+                falla = e;
+                System.err.println("Aviso: fallo al escribir el journal: " + e.getMessage());
+            }
+            if (futuro != null) futuro.completeExceptionally(new UncheckedIOException("No se pudo escribir el journal", falla));
+        } finally {
+            for (int i = 0; i < n; i++) {
+                tanda[i].clear();
+                libres.add(tanda[i]);
+                tanda[i] = null;
+            }
+            synchronized (candadoFuturos) {
+                if (enCurso == futuro) enCurso = null;
+            }
+        }
+    }
+
+    /**
+     * Baja a disco todo lo pendiente y cierra el archivo.
+     */
+    @Override
+    public void close() throws IOException {
+        candado.lock();
+        try {
+            if (cerrado) return;
+            // Desde acá nadie más agrega; lo que ya se agregó se baja entero
+            cerrado = true;
+        } finally {
+            candado.unlock();
+        }
+        try {
+            forzar();
+        } finally {
+            detener = true;
+            LockSupport.unpark(escritor);
+            try {
+                escritor.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            canal.close();
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package gym;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * JSON hecho a mano para la API HTTP, sin librerías ni reflexión.
+ * <p>
+ * {@link Escritor} escribe directamente bytes UTF-8 en un único arreglo que
+ * después se manda tal cual: no arma árboles intermedios ni Strings por campo.
+ * {@link #leerObjeto(byte[])} sólo entiende objetos planos (los cuerpos que
+ * recibe la API), que es todo lo que hace falta.
+ * </p>
+ */
+final class Json {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private Json() { }
+
+    /**
+     * Escritor de JSON con las comas puestas solas: después de un valor, lo que
+     * sigue dentro del mismo objeto o lista lleva coma.
+     */
+    static final class Escritor {
+        private byte[] buf;
+        private int largo;
+        private boolean separar;
+
+        Escritor() {
+            this(256);
+        }
+
+        Escritor(int capacidad) {
+            buf = new byte[capacidad];
+        }
+
+        Escritor abrirObjeto() {
+            coma();
+            caracter('{');
+            separar = false;
+            return this;
+        }
+
+        Escritor cerrarObjeto() {
+            caracter('}');
+            separar = true;
+            return this;
+        }
+
+        Escritor abrirLista() {
+            coma();
+            caracter('[');
+            separar = false;
+            return this;
+        }
+
+        Escritor cerrarLista() {
+            caracter(']');
+            separar = true;
+            return this;
+        }
+
+        /** Escribe el nombre de un campo; lo que se escriba después es su valor. */
+        Escritor campo(String nombre) {
+            coma();
+            cadena(nombre);
+            caracter(':');
+            separar = false;
+            return this;
+        }
+
+        Escritor valor(String s) {
+            coma();
+            if (s == null) ascii("null");
+            else cadena(s);
+            separar = true;
+            return this;
+        }
+
+        Escritor valor(long v) {
+            coma();
+            if (v == Long.MIN_VALUE) {
+                ascii(Long.toString(v));
+            } else {
+                if (v < 0) {
+                    caracter('-');
+                    v = -v;
+                }
+                int digitos = 1;
+                for (long x = v; x >= 10; x /= 10) digitos++;
+                lugar(digitos);
+                for (int i = largo + digitos - 1; i >= largo; i--) {
+                    buf[i] = (byte) ('0' + v % 10);
+                    v /= 10;
+                }
+                largo += digitos;
+            }
+            separar = true;
+            return this;
+        }
+
+        /** Escribe un importe en centavos como número con dos decimales (sin pasar por double). */
+        Escritor centavos(long centavos) {
+            coma();
+            ascii(Facturacion.importe(centavos));
+            separar = true;
+            return this;
+        }
+
+        Escritor valor(boolean b) {
+            coma();
+            ascii(b ? "true" : "false");
+            separar = true;
+            return this;
+        }
+
+        /** @return cantidad de bytes escritos. */
+        int largo() {
+            return largo;
+        }
+
+        /**
+         * Manda lo escrito a un stream, sin copiarlo.
+         * * @param out Destino.
+         * @throws IOException si falla la escritura.
+         */
+        void enviar(OutputStream out) throws IOException {
+            out.write(buf, 0, largo);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buf, 0, largo, StandardCharsets.UTF_8);
+        }
+
+        private void coma() {
+            if (separar) caracter(',');
+        }
+
+        private void cadena(String s) {
+            // Peor caso: cada char ocupa 6 bytes (escape de un caracter de control)
+            lugar(s.length() * 6 + 2);
+            byte[] b = buf;
+            int n = largo;
+            b[n++] = '"';
+            for (int i = 0; i < s.length(); i++) {
+                char ch = s.charAt(i);
+                if (ch >= 0x20 && ch < 0x80 && ch != '"' && ch != '\\') {
+                    b[n++] = (byte) ch;
+                } else if (ch == '"' || ch == '\\') {
+                    b[n++] = '\\';
+                    b[n++] = (byte) ch;
+                } else if (ch < 0x20) {
+                    b[n++] = '\\';
+                    b[n++] = 'u';
+                    b[n++] = '0';
+                    b[n++] = '0';
+                    b[n++] = HEX[ch >> 4];
+                    b[n++] = HEX[ch & 0xF];
+                } else if (ch < 0x800) {
+                    b[n++] = (byte) (0xC0 | ch >> 6);
+                    b[n++] = (byte) (0x80 | ch & 0x3F);
+                } else if (Character.isHighSurrogate(ch) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(ch, s.charAt(++i));
+                    b[n++] = (byte) (0xF0 | cp >> 18);
+                    b[n++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                    b[n++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    b[n++] = (byte) (0x80 | cp & 0x3F);
+                } else {
+                    // Un surrogate suelto no es UTF-8 válido: va el carácter de reemplazo
+                    if (Character.isSurrogate(ch)) ch = '\uFFFD';
+                    b[n++] = (byte) (0xE0 | ch >> 12);
+                    b[n++] = (byte) (0x80 | ch >> 6 & 0x3F);
+                    b[n++] = (byte) (0x80 | ch & 0x3F);
+                }
+            }
+            b[n++] = '"';
+            largo = n;
+        }
+
+        private void ascii(String s) {
+            lugar(s.length());
+            for (int i = 0; i < s.length(); i++) buf[largo++] = (byte) s.charAt(i);
+        }
+
+        private void caracter(char c) {
+            lugar(1);
+            buf[largo++] = (byte) c;
+        }
+
+        private void lugar(int n) {
+            if (largo + n > buf.length) {
+                byte[] mas = new byte[Math.max(buf.length * 2, largo + n)];
+                System.arraycopy(buf, 0, mas, 0, largo);
+                buf = mas;
+            }
+        }
+    }
+
+    /**
+     * Lee un objeto JSON plano: valores string, número, true, false o null.
+     * Los números y booleanos se devuelven como texto; null como null.
+     * * @param datos Texto UTF-8 del objeto.
+     * @return los campos del objeto.
+     * @throws IllegalArgumentException si no es un objeto plano válido.
+     */
+    static Map<String, String> leerObjeto(byte[] datos) {
+        Lector l = new Lector(new String(datos, StandardCharsets.UTF_8));
+        Map<String, String> out = new HashMap<>();
+        l.esperar('{');
+        if (!l.siguienteEs('}')) {
+            do {
+                String nombre = l.cadena();
+                l.esperar(':');
+                out.put(nombre, l.valor());
+            } while (l.siguienteEs(','));
+            l.esperar('}');
+        }
+        l.saltarEspacios();
+        if (l.i < l.s.length()) throw l.error("texto de mas al final");
+        return out;
+    }
+
+    /** Cursor sobre el texto que se está leyendo. */
+    private static final class Lector {
+        final String s;
+        int i;
+
+        Lector(String s) {
+            this.s = s;
+        }
+
+        void saltarEspacios() {
+            while (i < s.length() && (s.charAt(i) == ' ' || s.charAt(i) == '\t' || s.charAt(i) == '\n' || s.charAt(i) == '\r')) i++;
+        }
+
+        void esperar(char c) {
+            saltarEspacios();
+            if (i >= s.length() || s.charAt(i) != c) throw error("se esperaba '" + c + "'");
+            i++;
+        }
+
+        /** Consume el carácter si es el que sigue. */
+        boolean siguienteEs(char c) {
+            saltarEspacios();
+            if (i < s.length() && s.charAt(i) == c) {
+                i++;
+                return true;
+            }
+            return false;
+        }
+
+        String valor() {
+            saltarEspacios();
+            if (i >= s.length()) throw error("falta un valor");
+            char c = s.charAt(i);
+            if (c == '"') return cadena();
+            if (c == '{' || c == '[') throw error("sólo se aceptan valores simples");
+            int desde = i;
+            while (i < s.length() && ",}] \t\r\n".indexOf(s.charAt(i)) < 0) i++;
+            String literal = s.substring(desde, i);
+            if (literal.equals("null")) return null;
+            if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                return literal;
+            }
+            throw error("valor invalido: " + literal);
+        }
+
+        String cadena() {
+            esperar('"');
+            StringBuilder sb = null;
+            int desde = i;
+            while (true) {
+                if (i >= s.length()) throw error("texto sin cerrar");
+                char c = s.charAt(i);
+                if (c == '"') break;
+                if (c < 0x20) throw error("caracter de control en un texto");
+                if (c != '\\') {
+                    i++;
+                    continue;
+                }
+                // Hay escapes: recién ahora hace falta armar el texto
+                if (sb == null) sb = new StringBuilder();
+                sb.append(s, desde, i);
+                if (++i >= s.length()) throw error("escape incompleto");
+                char e = s.charAt(i++);
+                switch (e) {
+                    case '"', '\\', '/' -> sb.append(e);
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'u' -> {
+                        if (i + 4 > s.length()) throw error("escape incompleto");
+                        try {
+                            sb.append((char) Integer.parseInt(s, i, i + 4, 16));
+                        } catch (NumberFormatException ex) {
+                            throw error("escape invalido");
+                        }
+                        i += 4;
+                    }
+                    default -> throw error("escape invalido: \\" + e);
+                }
+                desde = i;
+            }
+            String r = sb == null ? s.substring(desde, i) : sb.append(s, desde, i).toString();
+            i++;
+            return r;
+        }
+
+        IllegalArgumentException error(String motivo) {
+            return new IllegalArgumentException("JSON invalido en la posicion " + i + ": " + motivo);
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package gym;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Libro de pagos: lo que pagó cada socio, su próximo vencimiento y quién está atrasado.
+ * <p>
+ * La cuota de cada mes vence el día {@value #DIA_VENCIMIENTO}. Un socio debe desde
+ * el mes de su alta (o el siguiente, si se dio de alta después de ese día), y cada
+ * pago se suma a su saldo y cancela cuotas enteras, en orden, al precio de
+ * {@link Cliente#cuota(Plan, boolean)} con el descuento que tenga al vencer cada una.
+ * Lo que no alcanza para una cuota queda a favor. Las cuotas impagas se valúan
+ * con el plan actual del socio.
+ * </p>
+ * <p>
+ * <b>Saldo inicial:</b> los socios que ya estaban cuando se abrió el libro (ver
+ * {@link #abrir(int)}) no deben lo anterior: se dan por pagas sus cuotas hasta el
+ * mes de apertura, hayan pagado algo antes o no, y lo mismo vale para cualquier
+ * socio cuya alta sea anterior a ese mes. Los socios importados traen su propio mes pagado ({@link #alDia(Cliente, int)}).
+ * </p>
+ * <p>
+ * De cada socio sólo se guarda el primer mes impago y el saldo, y sólo si pagó
+ * alguna vez (a los demás se les calcula de la fecha de alta). Para las consultas
+ * hay un índice por vencimiento: un calendario con los DNIs que deben desde cada
+ * mes (como el de aniversarios de {@link EstadisticasSocios}), para listar a los
+ * morosos del más atrasado al menos, y un árbol de Fenwick por mes con la cantidad
+ * de socios, sus cuotas y saldos. Con él, cuántos deben y cuánto se debe en total
+ * a una fecha cualquiera salen en O(log meses), sin recorrer a nadie. Un pago
+ * mueve a un solo socio de un mes del calendario a otro (O(1)) y actualiza
+ * O(log meses) nodos del árbol.
+ * </p>
+ * <p>
+ * La deuda total es exacta aunque un socio cumpla el año (y gane el descuento)
+ * en medio de los meses que debe: cada socio suma <code>f * (U + 1 - m)</code>
+ * en su primer mes impago <code>m</code> (con <code>f</code> la cuota de ese mes
+ * y <code>U</code> el último mes vencido) y, si todavía no tiene descuento, resta
+ * <code>(f - d) * (U + 1 - a)</code> desde el mes <code>a</code> en que lo gana.
+ * Las dos sumas son lineales en <code>U</code>, así que el árbol guarda por mes
+ * la suma de los coeficientes y la de los coeficientes por el mes.
+ * </p>
+ * <p>
+ * El índice se arma recién con {@link #indexar()}, la primera vez que alguien lo
+ * consulta; desde entonces se mantiene con cada alta, cambio de plan, baja y pago.
+ * Los cambios llegan desde {@link GimnasioService} con el lock del DNI tomado, así
+ * que los de socios distintos pueden correr en paralelo; {@link #indexar()} no
+ * puede correr a la vez que ellos. Las consultas no toman locks: si corren a la
+ * vez que un pago pueden ver al socio a medio mover.
+ * </p>
+ */
+public final class LibroPagos {
+    /** Día del mes en que vence la cuota. */
+    public static final int DIA_VENCIMIENTO = 10;
+    /** Máximo de cuotas que puede adelantar un solo pago. */
+    public static final int CUOTAS_POR_PAGO = 120;
+
+    private static final Plan[] PLANES = Plan.values();
+    // Meses del árbol: de enero de 1900 a diciembre de 2199 (los de afuera se cuentan en el borde)
+    private static final int MES_BASE = 1900 * 12;
+    private static final int MESES = 300 * 12;
+    // Campos de cada nodo del árbol
+    private static final int SOCIOS = 0;
+    private static final int CUOTAS = 1;
+    private static final int CUOTAS_POR_MES = 2;
+    private static final int SALDOS = 3;
+    private static final int DESCUENTOS = 4;
+    private static final int DESCUENTOS_POR_MES = 5;
+    private static final int CAMPOS = 6;
+
+    /**
+     * Estado de la cuenta de un socio.
+     * * @param mes Primer mes impago (año * 12 + mes - 1).
+     * @param saldo Centavos a favor, menos que una cuota.
+     */
+    record Cuenta(int mes, long saldo) { }
+
+    /**
+     * Un socio con cuotas vencidas.
+     * * @param socio El socio.
+     * @param vencimiento Vencimiento de la cuota impaga más vieja.
+     * @param cuotas Cantidad de cuotas vencidas.
+     * @param centavos Lo que debe de esas cuotas, descontado su saldo a favor.
+     */
+    public record Moroso(Cliente socio, LocalDate vencimiento, int cuotas, long centavos) { }
+
+    /** Para mezclar morosos de varios libros: vencimiento más viejo primero (y por DNI, para que sea estable). */
+    static final Comparator<Moroso> ORDEN = Comparator.comparing(Moroso::vencimiento)
+            .thenComparing(m -> m.socio().getDni());
+
+    private final AlmacenClientes clientes;
+    // [plan][0 = sin descuento, 1 = con descuento], en centavos como en la facturación
+    private final long[][] centavosPorPlan = new long[PLANES.length][2];
+    // Sólo los que pagaron alguna vez; los demás deben desde el primer mes
+    private final ConcurrentHashMap<String, Cuenta> cuentas = new ConcurrentHashMap<>();
+
+    // Mes hasta el que se dan por pagas las cuotas de los socios sin cuenta (MIN_VALUE: ninguno)
+    private volatile int apertura = Integer.MIN_VALUE;
+    private volatile boolean abierto;
+    private volatile boolean indexado;
+    // Calendario de vencimientos: primer mes impago -> DNIs de los que deben desde ese mes
+    private final ConcurrentSkipListMap<Integer, Set<String>> calendario = new ConcurrentSkipListMap<>();
+    // Árbol de Fenwick por mes (índice 1 = MES_BASE), CAMPOS valores por nodo
+    private final AtomicLongArray arbol = new AtomicLongArray((MESES + 1) * CAMPOS);
+
+    /**
+     * @param clientes Almacén de socios (de ahí salen el plan y la fecha de alta).
+     */
+    LibroPagos(AlmacenClientes clientes) {
+        this.clientes = clientes;
+        for (Plan p : PLANES) {
+            centavosPorPlan[p.ordinal()][0] = Facturacion.centavos(Cliente.cuota(p, false));
+            centavosPorPlan[p.ordinal()][1] = Facturacion.centavos(Cliente.cuota(p, true));
+        }
+    }
+
+    /**
+     * @param fecha Una fecha.
+     * @return el mes de la fecha como año * 12 + mes - 1.
+     */
+    static int mes(LocalDate fecha) {
+        return fecha.getYear() * 12 + fecha.getMonthValue() - 1;
+    }
+
+    /**
+     * @param mes Mes como año * 12 + mes - 1.
+     * @return el día en que vence la cuota de ese mes.
+     */
+    static LocalDate vencimientoDe(int mes) {
+        return LocalDate.of(Math.floorDiv(mes, 12), Math.floorMod(mes, 12) + 1, DIA_VENCIMIENTO);
+    }
+
+    /** Primer mes cuya cuota vence ese día o después. */
+    private static int primerMesDesde(LocalDate fecha) {
+        return mes(fecha) + (fecha.getDayOfMonth() > DIA_VENCIMIENTO ? 1 : 0);
+    }
+
+    /** Primer mes cuya cuota vence con el socio ya con descuento. */
+    private static int mesDescuento(LocalDate fechaAlta) {
+        return primerMesDesde(LocalDate.ofEpochDay(EstadisticasSocios.aniversario(fechaAlta)));
+    }
+
+    /** Último mes cuya cuota ya venció a esa fecha (vence el día de vencimiento; al siguiente está atrasada). */
+    private static int ultimoVencido(LocalDate fecha) {
+        return mes(fecha) - (fecha.getDayOfMonth() > DIA_VENCIMIENTO ? 0 : 1);
+    }
+
+    private Cuenta cuenta(Cliente c) {
+        Cuenta cuenta = cuentas.get(c.getDni());
+        return cuenta != null ? cuenta : new Cuenta(Math.max(primerMesDesde(c.getFechaAlta()), apertura + 1), 0);
+    }
+
+    /**
+     * Abre el libro sobre los socios que ya había: sus cuotas hasta el mes dado
+     * (inclusive) se dan por pagas, también las de quienes ya habían pagado algo
+     * (conservan el saldo a favor). Se hace una sola vez en la vida de los datos,
+     * antes de indexar; {@link GimnasioService} la guarda en el journal.
+     * * @param mesPagado Mes (año * 12 + mes - 1) hasta el que se dan por pagas, o
+     *                  {@link Integer#MIN_VALUE} si no había socios.
+     * @throws IllegalStateException si el índice ya está armado.
+     */
+    void abrir(int mesPagado) {
+        reabrir(mesPagado);
+        if (mesPagado == Integer.MIN_VALUE) return;
+        cuentas.replaceAll((dni, c) -> c.mes() > mesPagado ? c : new Cuenta(mesPagado + 1, c.saldo()));
+    }
+
+    /**
+     * Vuelve a poner el mes de apertura al cargar un snapshot: las cuentas
+     * guardadas ya lo tienen aplicado.
+     * * @param mesPagado Mes de apertura guardado.
+     * @throws IllegalStateException si el índice ya está armado.
+     */
+    void reabrir(int mesPagado) {
+        if (indexado) throw new IllegalStateException("El libro de pagos ya esta indexado");
+        apertura = mesPagado;
+        abierto = true;
+    }
+
+    /** @return true si el libro ya se abrió (ver {@link #abrir(int)}). */
+    boolean abierto() {
+        return abierto;
+    }
+
+    /** @return el mes de apertura, o {@link Integer#MIN_VALUE} si no se dio nada por pago. */
+    int apertura() {
+        return apertura;
+    }
+
+    /**
+     * Deja al día a un socio importado: sus cuotas hasta el mes dado se dan por
+     * pagas. Se llama antes de {@link #alta(Cliente)}, con el lock del DNI tomado.
+     * * @param c Socio recién agregado.
+     * @param mesPagado Mes (año * 12 + mes - 1) hasta el que pagó.
+     */
+    void alDia(Cliente c, int mesPagado) {
+        int mes = Math.max(primerMesDesde(c.getFechaAlta()), mesPagado + 1);
+        // Sólo se guarda si difiere de lo que daría la apertura: el mes importado
+        // manda aunque sea anterior, y un socio sin deuda no ocupa lugar
+        if (mes != cuenta(c).mes()) cuentas.put(c.getDni(), new Cuenta(mes, 0));
+    }
+
+    /**
+     * Aplica un pago: se suma al saldo y cancela las cuotas que alcance. Las
+     * vencidas se cancelan siempre; de las que todavía no vencieron el pago puede
+     * adelantar hasta {@value #CUOTAS_POR_PAGO}.
+     * * @param c Socio que paga.
+     * @param centavos Monto pagado, positivo.
+     * @param fecha Día del pago (define qué cuotas ya vencieron), o null para no
+     *              controlar el adelanto (al recuperar un pago que ya se aceptó).
+     * @return el estado de la cuenta después del pago.
+     * @throws IllegalArgumentException si el monto no es positivo o adelanta más de {@value #CUOTAS_POR_PAGO} cuotas.
+     */
+    Cuenta pagar(Cliente c, long centavos, LocalDate fecha) {
+        // El tope sólo evita desbordar el saldo; las cuotas de más se rechazan abajo
+        if (centavos <= 0 || centavos > Long.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("El monto del pago debe ser positivo");
+        }
+        Cuenta antes = cuenta(c);
+        Plan plan = c.getPlan();
+        int descuento = mesDescuento(c.getFechaAlta());
+        // Las cuotas hasta este mes no cuentan para el tope (y las que faltan de pagar son finitas)
+        int tope = fecha == null ? Integer.MAX_VALUE : Math.max(antes.mes(), ultimoVencido(fecha) + 1) + CUOTAS_POR_PAGO;
+        int mes = antes.mes();
+        long saldo = antes.saldo() + centavos;
+        while (saldo >= cuota(plan, mes, descuento)) {
+            if (mes == tope) {
+                throw new IllegalArgumentException("Un pago no puede adelantar mas de " + CUOTAS_POR_PAGO + " cuotas");
+            }
+            saldo -= cuota(plan, mes, descuento);
+            mes++;
+        }
+        Cuenta despues = new Cuenta(mes, saldo);
+        cuentas.put(c.getDni(), despues);
+        if (indexado) {
+            sumar(c.getDni(), plan, antes, descuento, -1);
+            sumar(c.getDni(), plan, despues, descuento, 1);
+        }
+        return despues;
+    }
+
+    private long cuota(Plan plan, int mes, int mesDescuento) {
+        return centavosPorPlan[plan.ordinal()][mes >= mesDescuento ? 1 : 0];
+    }
+
+    /**
+     * Agrega a un socio nuevo al índice (debe desde su primer mes).
+     * * @param c Socio agregado.
+     */
+    void alta(Cliente c) {
+        if (indexado) sumar(c.getDni(), c.getPlan(), cuenta(c), mesDescuento(c.getFechaAlta()), 1);
+    }
+
+    /**
+     * Revalúa lo que debe un socio que cambió de plan.
+     * * @param c Socio.
+     * @param anterior Plan que tenía.
+     * @param nuevo Plan que tiene ahora.
+     */
+    void cambioPlan(Cliente c, Plan anterior, Plan nuevo) {
+        if (!indexado || anterior == nuevo) return;
+        Cuenta cuenta = cuenta(c);
+        int descuento = mesDescuento(c.getFechaAlta());
+        sumar(c.getDni(), anterior, cuenta, descuento, -1);
+        sumar(c.getDni(), nuevo, cuenta, descuento, 1);
+    }
+
+    /**
+     * Borra la cuenta de un socio dado de baja (si vuelve, empieza de cero).
+     * * @param c Socio eliminado, con el plan que tenía.
+     */
+    void baja(Cliente c) {
+        Cuenta cuenta = cuenta(c);
+        cuentas.remove(c.getDni());
+        if (indexado) sumar(c.getDni(), c.getPlan(), cuenta, mesDescuento(c.getFechaAlta()), -1);
+    }
+
+    /**
+     * Suma (o resta, con signo -1) a un socio en el calendario y en el árbol.
+     * Si no tiene descuento en su primer mes impago, la cuota es la llena y la
+     * diferencia se resta desde el mes en que lo gana.
+     */
+    private void sumar(String dni, Plan plan, Cuenta cuenta, int mesDescuento, int signo) {
+        Set<String> delMes = calendario.get(cuenta.mes());
+        if (signo > 0) {
+            if (delMes == null) delMes = calendario.computeIfAbsent(cuenta.mes(), k -> ConcurrentHashMap.newKeySet());
+            delMes.add(dni);
+        } else if (delMes != null) {
+            delMes.remove(dni);
+        }
+
+        long[] cuotas = centavosPorPlan[plan.ordinal()];
+        int m = posicion(cuenta.mes());
+        boolean conDescuento = cuenta.mes() >= mesDescuento;
+        long f = cuotas[conDescuento ? 1 : 0];
+        for (int i = m + 1; i <= MESES; i += i & -i) {
+            int nodo = i * CAMPOS;
+            arbol.addAndGet(nodo + SOCIOS, signo);
+            arbol.addAndGet(nodo + CUOTAS, signo * f);
+            arbol.addAndGet(nodo + CUOTAS_POR_MES, signo * f * m);
+            if (cuenta.saldo() != 0) arbol.addAndGet(nodo + SALDOS, signo * cuenta.saldo());
+        }
+        if (!conDescuento) {
+            long g = cuotas[0] - cuotas[1];
+            int a = posicion(mesDescuento);
+            for (int i = a + 1; i <= MESES; i += i & -i) {
+                int nodo = i * CAMPOS;
+                arbol.addAndGet(nodo + DESCUENTOS, signo * g);
+                arbol.addAndGet(nodo + DESCUENTOS_POR_MES, signo * g * a);
+            }
+        }
+    }
+
+    /** Posición (desde 0) de un mes en el árbol. */
+    private static int posicion(int mes) {
+        return Math.max(0, Math.min(MESES - 1, mes - MES_BASE));
+    }
+
+    /** Suma de un campo en los meses hasta la posición u inclusive. */
+    private long prefijo(int campo, int u) {
+        long s = 0;
+        for (int i = u + 1; i > 0; i -= i & -i) s += arbol.get(i * CAMPOS + campo);
+        return s;
+    }
+
+    /**
+     * Arma el índice con todos los socios actuales. No puede correr a la vez que
+     * altas, cambios, bajas o pagos: {@link GimnasioService} lo llama con las escrituras frenadas.
+     */
+    void indexar() {
+        if (indexado) return;
+        for (Cliente c : clientes.valores()) {
+            sumar(c.getDni(), c.getPlan(), cuenta(c), mesDescuento(c.getFechaAlta()), 1);
+        }
+        indexado = true;
+    }
+
+    /** @return true si el índice ya está armado. */
+    boolean indexado() {
+        return indexado;
+    }
+
+    /**
+     * Carga la cuenta de un socio (por ejemplo desde un snapshot), antes de indexar.
+     * * @param dni DNI del socio.
+     * @param cuenta Estado de su cuenta.
+     */
+    void cargar(String dni, Cuenta cuenta) {
+        cuentas.put(dni, cuenta);
+    }
+
+    /** @return copia de las cuentas de los socios que pagaron alguna vez. */
+    Map<String, Cuenta> exportar() {
+        return new HashMap<>(cuentas);
+    }
+
+    /**
+     * @param dni DNI del socio.
+     * @return el vencimiento de su cuota impaga más vieja.
+     * @throws SocioNoEncontradoException si no existe.
+     */
+    public LocalDate vencimiento(String dni) {
+        return vencimientoDe(cuenta(socio(dni)).mes());
+    }
+
+    /**
+     * @param dni DNI del socio.
+     * @return los centavos a favor que no alcanzan para una cuota.
+     * @throws SocioNoEncontradoException si no existe.
+     */
+    public long saldo(String dni) {
+        return cuenta(socio(dni)).saldo();
+    }
+
+    /**
+     * @param dni DNI del socio.
+     * @param fecha Fecha a la que se calcula.
+     * @return lo que debe de cuotas vencidas a esa fecha, en centavos (0 si está al día).
+     * @throws SocioNoEncontradoException si no existe.
+     */
+    public long deuda(String dni, LocalDate fecha) {
+        Cliente c = socio(dni);
+        return deuda(c, cuenta(c), ultimoVencido(fecha));
+    }
+
+    private Cliente socio(String dni) {
+        Cliente c = clientes.buscar(dni);
+        if (c == null) throw new SocioNoEncontradoException("No existe socio con DNI " + dni);
+        return c;
+    }
+
+    /** Deuda de un socio al último mes vencido u, con la misma regla que el árbol. */
+    private long deuda(Cliente c, Cuenta cuenta, int u) {
+        int m = cuenta.mes();
+        if (m > u) return 0;
+        long[] cuotas = centavosPorPlan[c.getPlan().ordinal()];
+        int a = mesDescuento(c.getFechaAlta());
+        long total = cuotas[m >= a ? 1 : 0] * (u + 1L - m);
+        if (m < a && a <= u) total -= (cuotas[0] - cuotas[1]) * (u + 1L - a);
+        return total - cuenta.saldo();
+    }
+
+    /**
+     * @param fecha Fecha a la que se calcula.
+     * @return cuántos socios tienen alguna cuota vencida e impaga a esa fecha.
+     */
+    public long cantidadMorosos(LocalDate fecha) {
+        int u = ultimoVencido(fecha) - MES_BASE;
+        if (u < 0) return 0;
+        return prefijo(SOCIOS, Math.min(u, MESES - 1));
+    }
+
+    /**
+     * Total a cobrar: la suma de las cuotas vencidas e impagas de todos los socios
+     * a esa fecha, descontados los saldos a favor de quienes deben. O(log meses).
+     * * @param fecha Fecha a la que se calcula.
+     * @return el total en centavos.
+     */
+    public long deudaVencida(LocalDate fecha) {
+        int u = ultimoVencido(fecha) - MES_BASE;
+        if (u < 0) return 0;
+        int p = Math.min(u, MESES - 1);
+        long cuotas = (u + 1L) * prefijo(CUOTAS, p) - prefijo(CUOTAS_POR_MES, p);
+        long descuentos = (u + 1L) * prefijo(DESCUENTOS, p) - prefijo(DESCUENTOS_POR_MES, p);
+        return cuotas - descuentos - prefijo(SALDOS, p);
+    }
+
+    /**
+     * Socios con cuotas vencidas a una fecha, del vencimiento más viejo al más
+     * nuevo (los del mismo vencimiento, sin un orden en particular). Sólo recorre
+     * los meses del calendario hasta juntar los que devuelve.
+     * * @param fecha Fecha a la que se calcula.
+     * @param maximo Cantidad máxima de socios a devolver.
+     * @return los morosos, los más atrasados primero.
+     * @throws IllegalArgumentException si el máximo no es positivo.
+     */
+    public List<Moroso> morosos(LocalDate fecha, int maximo) {
+        if (maximo <= 0) throw new IllegalArgumentException("La cantidad de resultados debe ser positiva");
+        int u = ultimoVencido(fecha);
+        ArrayList<Moroso> out = new ArrayList<>(Math.min(maximo, 1024));
+        for (Set<String> delMes : calendario.headMap(u, true).values()) {
+            for (String dni : delMes) {
+                if (out.size() == maximo) return out;
+                Cliente c = clientes.buscar(dni);
+                // Se pudo haber dado de baja o haber pagado después de leer el calendario
+                if (c == null) continue;
+                Cuenta cuenta = cuenta(c);
+                if (cuenta.mes() > u) continue;
+                out.add(new Moroso(c, vencimientoDe(cuenta.mes()), u + 1 - cuenta.mes(), deuda(c, cuenta, u)));
+            }
+        }
+        return out;
+    }
+}
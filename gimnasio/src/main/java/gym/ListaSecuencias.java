@@ -0,0 +1,72 @@
+package gym;
+
+import java.util.Arrays;
+
+/**
+ * Lista de números de secuencia ordenada, para los índices del log.
+ * <p>
+ * Sólo crece. Los escritores se sincronizan entre sí; los lectores no toman
+ * locks: leen una {@link Vista} (arreglo y tamaño publicados juntos, con una sola
+ * escritura volatile) y ven siempre elementos válidos y ordenados. Lo que ve una
+ * vista no cambia después: al final se escribe en un casillero que ninguna vista
+ * publicada alcanza, y en el caso raro de que haya que correr elementos para
+ * mantener el orden se arma un arreglo nuevo en lugar de correrlos en el que
+ * pueden estar leyendo.
+ * </p>
+ */
+final class ListaSecuencias {
+    /**
+     * Lo que ve un lector: las primeras <code>tamanio</code> posiciones de <code>datos</code>.
+     * * @param datos Arreglo interno (sólo lectura).
+     * @param tamanio Cantidad de secuencias válidas.
+     */
+    record Vista(long[] datos, int tamanio) { }
+
+    private volatile Vista vista = new Vista(new long[4], 0);
+
+    /**
+     * Agrega una secuencia manteniendo el orden. Normalmente llega la mayor,
+     * así que el costo es O(1); si dos productores se cruzan se copia el arreglo.
+     * * @param seq Secuencia a agregar.
+     */
+    synchronized void agregar(long seq) {
+        long[] d = vista.datos();
+        int n = vista.tamanio();
+        if (n == 0 || d[n - 1] <= seq) {
+            if (n == d.length) d = Arrays.copyOf(d, n * 2);
+            d[n] = seq;
+        } else {
+            long[] copia = new long[n == d.length ? n * 2 : d.length];
+            int i = primeraMayorOIgual(d, n, seq + 1);
+            System.arraycopy(d, 0, copia, 0, i);
+            copia[i] = seq;
+            System.arraycopy(d, i, copia, i + 1, n - i);
+            d = copia;
+        }
+        // Se publica cuando el casillero ya tiene su valor final
+        vista = new Vista(d, n + 1);
+    }
+
+    /** @return las secuencias agregadas hasta ahora. */
+    Vista vista() {
+        return vista;
+    }
+
+    /**
+     * Busca la primera posición con un valor mayor o igual a <code>seq</code>.
+     * * @param d Arreglo de una {@link Vista}.
+     * @param n Tamaño de la misma vista.
+     * @param seq Valor buscado.
+     * @return posición entre 0 y n.
+     */
+    static int primeraMayorOIgual(long[] d, int n, long seq) {
+        int lo = 0;
+        int hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (d[mid] < seq) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,644 @@
+package gym;
+
+import javax.management.JMException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Clase principal que contiene el método main y la interfaz de usuario por consola.
+ * Maneja el menú, la lectura de datos y captura las excepciones que puedan surgir.
+ * * @author Juampi
+ */
+public class Main {
+    private static final Scanner sc = new Scanner(System.in);
+    private static final DateTimeFormatter DF = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final int TAMANIO_PAGINA_LOG = 20;
+    private static final int TAMANIO_PAGINA_SOCIOS = 50;
+    private static final int RESULTADOS_BUSQUEDA = 10;
+    private static final int MOROSOS_A_MOSTRAR = 20;
+    private static final int BUFFER_LOTE = 1 << 16;
+
+    /**
+     * Punto de entrada de la aplicación.
+     * Inicializa el servicio, carga datos de prueba y lanza el bucle del menú.
+     * <p>
+     * Los datos se guardan en el journal indicado por la propiedad
+     * <code>gym.journal</code> (por defecto <code>gimnasio.journal</code>) con la
+     * durabilidad de <code>gym.durabilidad</code> (NINGUNA, AGRUPADA o SIEMPRE).
+     * Con <code>gym.log.capacidad</code> el log pasa a ser un buffer circular de
+     * ese tamaño (política en <code>gym.log.desborde</code>).
+     * Con <code>gym.almacen=compacto</code> (o <code>compacto-directo</code>, con los
+     * nombres fuera del heap) los socios se guardan en un {@link RepositorioCompacto}.
+     * Las métricas del servicio se exportan por JMX (se desactivan con
+     * <code>gym.metricas=false</code>).
+     * </p>
+     * <p>
+     * Con <code>--servidor [puerto]</code> no hay menú: se levanta la API HTTP de
+     * {@link ServidorHttp} (puerto 8080 por defecto) hasta que se corte el proceso.
+     * Con <code>--lote [archivo]</code> tampoco: se ejecutan los comandos del archivo
+     * (o de la entrada estándar si no se indica o es <code>-</code>) con {@link ComandosLote}
+     * y el proceso termina con código 1 si alguno falló.
+     * En estos dos modos no hay nadie mirando la consola: si el journal no se puede
+     * abrir, se informa y el proceso termina con código 1 en vez de seguir en memoria.
+     * </p>
+     * @param args <code>--servidor [puerto]</code>, <code>--lote [archivo]</code>, o nada para usar la consola.
+     */
+    public static void main(String[] args) {
+        // Los argumentos se validan antes de abrir el journal: un error acá no tiene que dejar nada escrito
+        if (args.length > 0 && !args[0].equals("--lote") && !args[0].equals("--servidor")) {
+            System.out.println("Opcion desconocida: " + args[0]);
+            System.out.println("Uso: java -jar Gimnasio.jar [--servidor [puerto] | --lote [archivo]]");
+            System.exit(1);
+        }
+        if (args.length > 0 && args[0].equals("--lote")) {
+            System.exit(lote(args.length > 1 ? args[1] : "-"));
+        }
+        boolean servidor = args.length > 0 && args[0].equals("--servidor");
+        int puerto = servidor && args.length > 1 ? leerPuerto(args[1]) : 8080;
+        if (puerto < 0) {
+            System.out.println("Error: puerto invalido: " + args[1] + " (tiene que ser un numero de 0 a 65535)");
+            System.exit(1);
+        }
+        GimnasioService servicio;
+        if (servidor) {
+            try {
+                servicio = abrirPersistente();
+            } catch (IOException | IllegalArgumentException e) {
+                System.out.println("Error: no se pudo abrir el journal: " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+        } else {
+            servicio = abrirServicio();
+        }
+        try {
+            servicio.getMetricas().exportarJmx("principal");
+        } catch (JMException e) {
+            System.out.println("Aviso: No se pudieron exportar las métricas por JMX: " + e.getMessage());
+        }
+
+        // Datos hardcodeados para probar funcionalidades sin cargar todo a mano
+        // (sólo la primera vez, cuando el journal todavía está vacío)
+        if (servicio.cantidadClientes() == 0) {
+            try {
+                servicio.altaCliente(new Cliente("12345678", "Ana Perez", Plan.BASICO, LocalDate.now().minusMonths(3)));
+                servicio.altaCliente(new Cliente("23456789", "Juan Gomez", Plan.FULL, LocalDate.now().minusMonths(13)));
+            } catch (Exception e) {
+                System.out.println("Aviso: No se pudieron cargar los datos de prueba: " + e.getMessage());
+            }
+        }
+
+        if (servidor) {
+            servir(servicio, puerto);
+            return;
+        }
+
+        int op;
+        do {
+            mostrarMenu();
+            // Usamos lectura recursiva para garantizar que ingrese un número
+            op = leerEnteroRecursivo("Ingrese opción: ");
+
+            try {
+                procesarOpcion(op, servicio);
+            } catch (SocioNoEncontradoException e) {
+                System.out.println(">> Error de lógica: " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                System.out.println(">> Dato inválido: " + e.getMessage());
+            } catch (Exception e) {
+                System.out.println(">> Ocurrió un error inesperado: " + e.getMessage());
+            }
+
+            // Hacemos una pausa para que el usuario pueda leer el resultado
+            if(op != 0) esperarEnter();
+
+        } while (op != 0);
+
+        try {
+            servicio.close();
+        } catch (IOException e) {
+            System.out.println("Aviso: No se pudo cerrar el journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return el puerto, o -1 si el texto no es un número de puerto válido (0 elige uno libre).
+     */
+    private static int leerPuerto(String texto) {
+        try {
+            int p = Integer.parseInt(texto.trim());
+            return p >= 0 && p <= 65_535 ? p : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Ejecuta un archivo de comandos sin pausas y con una única salida con buffer:
+     * no carga los datos de prueba ni espera a nadie.
+     * @return el código de salida del proceso (0 si no falló ningún comando).
+     */
+    private static int lote(String archivo) {
+        GimnasioService servicio;
+        try {
+            servicio = abrirPersistente();
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Error: no se pudo abrir el journal: " + e.getMessage());
+            return 1;
+        }
+        long t0 = System.nanoTime();
+        try (BufferedReader in = archivo.equals("-")
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), BUFFER_LOTE)
+                     : Files.newBufferedReader(Path.of(archivo), StandardCharsets.UTF_8)) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), BUFFER_LOTE);
+            ComandosLote.Resumen r = new ComandosLote(servicio).ejecutar(in, out);
+            out.write(String.format("# %d comandos, %d con error, en %.1f s%n",
+                    r.comandos(), r.errores(), (System.nanoTime() - t0) / 1e9));
+            out.flush();
+            return r.errores() == 0 ? 0 : 1;
+        } catch (IOException e) {
+            System.out.println("Error: no se pudo procesar el lote " + archivo + ": " + e.getMessage());
+            return 1;
+        } finally {
+            cerrar(servicio);
+        }
+    }
+
+    /**
+     * Atiende la API HTTP hasta que el proceso reciba la señal de terminar;
+     * al salir cierra el servidor y después el servicio (que baja el journal a disco).
+     */
+    private static void servir(GimnasioService servicio, int puerto) {
+        ServidorHttp servidor;
+        try {
+            servidor = new ServidorHttp(servicio, puerto);
+        } catch (IOException e) {
+            System.out.println("No se pudo abrir el puerto " + puerto + ": " + e.getMessage());
+            cerrar(servicio);
+            return;
+        }
+        CountDownLatch terminado = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.close();
+            cerrar(servicio);
+            terminado.countDown();
+        }, "cierre-servidor"));
+        servidor.iniciar();
+        System.out.println("API HTTP escuchando en el puerto " + servidor.puerto() + " (Ctrl+C para terminar)");
+        try {
+            terminado.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void cerrar(GimnasioService servicio) {
+        try {
+            servicio.close();
+        } catch (IOException e) {
+            System.out.println("Aviso: No se pudo cerrar el journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Abre el servicio persistente para la consola. Si el journal no se puede usar,
+     * seguimos en memoria para no dejar a la recepción sin sistema.
+     */
+    private static GimnasioService abrirServicio() {
+        try {
+            return abrirPersistente();
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Aviso: No se pudo abrir el journal (" + e.getMessage() + "). Se trabajará sólo en memoria.");
+            return new GimnasioService(crearLog(), crearAlmacen());
+        }
+    }
+
+    /**
+     * Abre el servicio con el journal y la durabilidad de las propiedades del sistema.
+     * @throws IOException si el journal no se puede abrir (o ya lo tiene abierto otro proceso).
+     * @throws IllegalArgumentException si la durabilidad no es válida.
+     */
+    private static GimnasioService abrirPersistente() throws IOException {
+        Path archivo = Path.of(System.getProperty("gym.journal", "gimnasio.journal"));
+        Durabilidad d = Durabilidad.valueOf(System.getProperty("gym.durabilidad", "AGRUPADA"));
+        GimnasioService s = new GimnasioService(archivo, d, crearLog(), crearAlmacen());
+        // Snapshot periódico para que el próximo arranque no reproduzca toda la historia
+        s.programarSnapshots(10);
+        return s;
+    }
+
+    private static AlmacenClientes crearAlmacen() {
+        return switch (System.getProperty("gym.almacen", "mapa")) {
+            case "compacto" -> new RepositorioCompacto();
+            case "compacto-directo" -> new RepositorioCompacto(true);
+            default -> new RepositorioClientes();
+        };
+    }
+
+    private static RegistroOperaciones crearLog() {
+        int capacidad = Integer.getInteger("gym.log.capacidad", 0);
+        if (capacidad <= 0) return new OperacionLog();
+        OperacionLogCircular.PoliticaDesborde p = OperacionLogCircular.PoliticaDesborde.valueOf(
+                System.getProperty("gym.log.desborde", "SOBRESCRIBIR_ANTIGUAS"));
+        return new OperacionLogCircular(capacidad, p);
+    }
+
+    private static void mostrarMenu() {
+        System.out.println("\n==================================");
+        System.out.println("   SISTEMA GESTIÓN GIMNASIO");
+        System.out.println("==================================");
+        System.out.println("1) Alta de Cliente");
+        System.out.println("2) Buscar Socio (por DNI)");
+        System.out.println("3) Modificar Nombre");
+        System.out.println("4) Cambiar Plan");
+        System.out.println("5) Dar de Baja");
+        System.out.println("6) Listar Clientes (A-Z)");
+        System.out.println("7) Calcular Cuota");
+        System.out.println("8) Estadísticas (socios, altas y bajas)");
+        System.out.println("9) Ver Log de Operaciones");
+        System.out.println("10) Auditoría (por socio, tipo y fechas)");
+        System.out.println("11) Facturación del mes");
+        System.out.println("12) Importar socios desde CSV");
+        System.out.println("13) Métricas del sistema");
+        System.out.println("14) Ingreso por molinete");
+        System.out.println("15) Visitas y hora pico");
+        System.out.println("16) Buscar Socio (por nombre)");
+        System.out.println("17) Registrar Pago");
+        System.out.println("18) Morosos y deuda vencida");
+        System.out.println("0) Salir");
+        System.out.println("==================================");
+    }
+
+    /**
+     * Distribuye la lógica según la opción elegida en el menú.
+     * Usamos Switch Expression para que el código quede más limpio.
+     */
+    private static void procesarOpcion(int op, GimnasioService servicio) {
+        switch (op) {
+            case 1 -> alta(servicio);
+            case 2 -> buscar(servicio);
+            case 3 -> modificarNombre(servicio);
+            case 4 -> cambiarPlan(servicio);
+            case 5 -> baja(servicio);
+            case 6 -> listar(servicio);
+            case 7 -> cuota(servicio);
+            case 8 -> estadisticas(servicio);
+            case 9 -> verLog(servicio);
+            case 10 -> auditoria(servicio);
+            case 11 -> facturacion(servicio);
+            case 12 -> importar(servicio);
+            case 13 -> metricas(servicio);
+            case 14 -> ingreso(servicio);
+            case 15 -> visitas(servicio);
+            case 16 -> buscarPorNombre(servicio);
+            case 17 -> pago(servicio);
+            case 18 -> morosos(servicio);
+            case 0 -> System.out.println("Cerrando sistema...");
+            default -> System.out.println("Opción desconocida, intente de nuevo.");
+        }
+    }
+
+    /**
+     * Lee un entero por consola usando recursividad.
+     * <p>
+     * <b>Nota técnica:</b> Cumple el requisito de "Ejemplo de recursividad simple".
+     * Si el usuario escribe texto en lugar de números, capturamos el error y
+     * el método se llama a sí mismo hasta obtener un dato válido.
+     * </p>
+     * * @param prompt Mensaje a mostrar al usuario.
+     * @return Un número entero válido.
+     */
+    private static int leerEnteroRecursivo(String prompt) {
+        System.out.print(prompt);
+        try {
+            String input = sc.nextLine().trim();
+            return Integer.parseInt(input);
+        } catch (NumberFormatException e) {
+            System.out.println("Error: Debe ingresar un número entero válido.");
+            return leerEnteroRecursivo(prompt); // Llamada recursiva
+        }
+    }
+
+    private static String leerTexto(String prompt) {
+        System.out.print(prompt);
+        return sc.nextLine();
+    }
+
+    private static void esperarEnter() {
+        System.out.println("(Presione Enter para continuar)");
+        sc.nextLine();
+    }
+
+    private static LocalDate leerFecha(String prompt) {
+        System.out.print(prompt);
+        String s = sc.nextLine().trim();
+        // Si aprieta enter sin escribir nada, asumimos hoy
+        if (s.isEmpty()) return LocalDate.now();
+        try {
+            return LocalDate.parse(s, DF);
+        } catch (Exception e) {
+            System.out.println("Formato de fecha incorrecto. Se usará la fecha de hoy.");
+            return LocalDate.now();
+        }
+    }
+
+    /**
+     * Igual que leerFecha, pero Enter significa "sin fecha".
+     */
+    private static LocalDate leerFechaOpcional(String prompt) {
+        System.out.print(prompt);
+        String s = sc.nextLine().trim();
+        if (s.isEmpty()) return null;
+        try {
+            return LocalDate.parse(s, DF);
+        } catch (Exception e) {
+            System.out.println("Formato de fecha incorrecto. No se aplicará ese límite.");
+            return null;
+        }
+    }
+
+    private static Plan leerPlan() {
+        System.out.println("Seleccione Plan: 1=BASICO ($15k)  2=FULL ($22k)  3=PREMIUM ($30k)");
+        int n = leerEnteroRecursivo("> ");
+        return switch (n) {
+            case 1 -> Plan.BASICO;
+            case 2 -> Plan.FULL;
+            case 3 -> Plan.PREMIUM;
+            default -> {
+                System.out.println("Opción de plan no válida, asignando BASICO por defecto.");
+                yield Plan.BASICO;
+            }
+        };
+    }
+
+    // --- Métodos auxiliares que conectan la consola con el servicio ---
+
+    private static void alta(GimnasioService s) {
+        System.out.println("-- Nuevo Socio --");
+        String dni = leerTexto("DNI: ").trim();
+        if (s.existeDni(dni)) {
+            System.out.println("Atención: Ese DNI ya existe.");
+            return;
+        }
+        String nombre = leerTexto("Nombre y Apellido: ");
+        Plan plan = leerPlan();
+        LocalDate alta = leerFecha("Fecha Alta (dd/MM/yyyy) [Enter=Hoy]: ");
+
+        s.altaCliente(new Cliente(dni, nombre, plan, alta));
+        System.out.println(">> Cliente registrado con éxito.");
+    }
+
+    private static void buscar(GimnasioService s) {
+        String dni = leerTexto("Ingrese DNI a buscar: ").trim();
+        Cliente c = s.buscarPorDni(dni);
+        System.out.println("Datos del socio: " + c);
+    }
+
+    /**
+     * Para cuando el socio no trae el DNI: alcanza con parte del nombre,
+     * sin tildes y aunque esté mal escrito.
+     */
+    private static void buscarPorNombre(GimnasioService s) {
+        String texto = leerTexto("Nombre (o parte) a buscar: ").trim();
+        List<Cliente> encontrados = s.buscarPorNombre(texto, RESULTADOS_BUSQUEDA);
+        if (encontrados.isEmpty()) {
+            System.out.println("(Ningún socio se parece a \"" + texto + "\")");
+            return;
+        }
+        for (Cliente c : encontrados) {
+            System.out.println(c);
+        }
+    }
+
+    private static void modificarNombre(GimnasioService s) {
+        String dni = leerTexto("DNI del socio: ").trim();
+        String nom = leerTexto("Nuevo nombre: ");
+        s.modificarNombre(dni, nom);
+        System.out.println(">> Nombre actualizado.");
+    }
+
+    private static void cambiarPlan(GimnasioService s) {
+        String dni = leerTexto("DNI del socio: ").trim();
+        Plan p = leerPlan();
+        s.cambiarPlan(dni, p);
+        System.out.println(">> Plan actualizado.");
+    }
+
+    private static void baja(GimnasioService s) {
+        String dni = leerTexto("DNI a dar de baja: ").trim();
+        boolean ok = s.baja(dni);
+        if(ok) System.out.println(">> Socio eliminado correctamente.");
+        else System.out.println(">> No se encontró socio con ese DNI.");
+    }
+
+    /**
+     * Lista los socios en orden alfabético de a páginas.
+     * Se puede indicar el comienzo del nombre (por ejemplo "G") para ir directo a esa sección.
+     */
+    private static void listar(GimnasioService s) {
+        String prefijo = leerTexto("Comienzo del nombre (Enter = todos): ").trim();
+        PaginaSocios pagina = s.listarPorNombre(prefijo, TAMANIO_PAGINA_SOCIOS, null);
+        if (pagina.socios().isEmpty()) {
+            System.out.println(prefijo.isEmpty() ? "(No hay clientes registrados)" : "(Ningún socio empieza con \"" + prefijo + "\")");
+            return;
+        }
+        while (true) {
+            for (Cliente c : pagina.socios()) {
+                System.out.println(c);
+            }
+            if (!pagina.hayMas()) break;
+            String r = leerTexto("Enter = página siguiente, 'q' = volver: ").trim();
+            if (r.equalsIgnoreCase("q")) break;
+            pagina = s.listarPorNombre(prefijo, TAMANIO_PAGINA_SOCIOS, pagina.token());
+        }
+    }
+
+    private static void cuota(GimnasioService s) {
+        String dni = leerTexto("DNI del socio: ").trim();
+        double q = s.cuotaDe(dni);
+        System.out.println("Valor de la cuota: $" + String.format("%.2f", q));
+    }
+
+    /**
+     * Muestra los activos por plan, la recaudación proyectada y las altas y bajas de los últimos 12 meses,
+     * todo desde una misma instantánea para que los números coincidan entre sí.
+     */
+    private static void estadisticas(GimnasioService s) {
+        try (Instantanea foto = s.abrirInstantanea()) {
+            System.out.println("--- Estadísticas de Socios ---");
+            System.out.println("Socios: " + foto.cantidadClientes() + " (operaciones registradas: " + foto.secuenciaLog() + ")");
+            for (String l : foto.estadisticas().comoLineas(YearMonth.now(), 12)) System.out.println(l);
+        }
+    }
+
+    private static void pago(GimnasioService s) {
+        String dni = leerTexto("DNI del socio: ").trim();
+        double monto = Double.parseDouble(leerTexto("Monto pagado: $").trim().replace(',', '.'));
+        LocalDate vence = s.registrarPago(dni, monto);
+        System.out.println(">> Pago registrado. Próximo vencimiento: " + DF.format(vence));
+    }
+
+    /**
+     * Muestra cuántos socios deben a una fecha, cuánto se debe en total y los más atrasados.
+     */
+    private static void morosos(GimnasioService s) {
+        LocalDate fecha = leerFechaOpcional("Fecha (dd/MM/yyyy, Enter = hoy): ");
+        if (fecha == null) fecha = LocalDate.now();
+        LibroPagos pagos = s.pagos();
+        System.out.println("--- Morosos al " + DF.format(fecha) + " ---");
+        System.out.println("Socios con cuotas vencidas: " + pagos.cantidadMorosos(fecha));
+        System.out.println("Deuda vencida total: $" + Facturacion.importe(pagos.deudaVencida(fecha)));
+        for (LibroPagos.Moroso m : pagos.morosos(fecha, MOROSOS_A_MOSTRAR)) {
+            System.out.printf("%-10s %-30s vence %s  %3d cuota(s)  $%s%n", m.socio().getDni(), m.socio().getNombre(),
+                    DF.format(m.vencimiento()), m.cuotas(), Facturacion.importe(m.centavos()));
+        }
+    }
+
+    private static void ingreso(GimnasioService s) {
+        String dni = leerTexto("DNI del socio: ").trim();
+        switch (s.ingresar(dni)) {
+            case PERMITIDO -> System.out.println("Adelante. Personas adentro: " + s.accesos().ocupacion());
+            case NO_ES_SOCIO -> System.out.println("Acceso denegado: no hay un socio con DNI " + dni);
+            case FUERA_DE_HORARIO -> System.out.println("Acceso denegado: su plan no permite entrar a esta hora");
+        }
+    }
+
+    /**
+     * Muestra la ocupación, las visitas por hora de los últimos 30 días y, si se pide, las de un socio.
+     */
+    private static void visitas(GimnasioService s) {
+        ControlAcceso a = s.accesos();
+        LocalDate hasta = LocalDate.now();
+        LocalDate desde = hasta.minusDays(29);
+        System.out.println("--- Visitas (últimos 30 días) ---");
+        System.out.println("Personas adentro ahora: " + a.ocupacion());
+        int[] porHora = a.visitasPorHora(desde, hasta);
+        for (int h = 0; h < 24; h++) {
+            if (porHora[h] > 0) System.out.printf("%02d:00-%02d:00  %d%n", h, h + 1, porHora[h]);
+        }
+        int pico = a.horaPico(desde, hasta);
+        System.out.println(pico < 0 ? "Sin visitas registradas." : String.format("Hora pico: %02d:00 a %02d:00", pico, pico + 1));
+        String dni = leerTexto("DNI para ver sus visitas (Enter = ninguno): ").trim();
+        if (!dni.isEmpty()) System.out.println("Visitas de " + dni + ": " + a.visitas(dni, desde, hasta));
+    }
+
+    /**
+     * Factura el mes a todos los socios y deja una factura por socio en un archivo CSV.
+     */
+    private static void facturacion(GimnasioService s) {
+        LocalDate ref = leerFechaOpcional("Fecha de facturación (dd/MM/yyyy, Enter = hoy): ");
+        if (ref == null) ref = LocalDate.now();
+        String archivo = String.format("facturas-%d-%02d.csv", ref.getYear(), ref.getMonthValue());
+        try {
+            ResumenFacturacion r = s.facturarMes(ref, Path.of(archivo));
+            System.out.println("--- Facturación al " + DF.format(ref) + " ---");
+            for (String l : r.comoLineas()) System.out.println(l);
+            System.out.println(">> Facturas guardadas en " + archivo);
+        } catch (IOException e) {
+            System.out.println("Error: no se pudo escribir " + archivo + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Importa socios desde un CSV (dni, nombre, plan, fechaAlta).
+     * Las filas rechazadas quedan en un reporte al lado del archivo.
+     */
+    private static void importar(GimnasioService s) {
+        String ruta = leerTexto("Archivo CSV: ").trim();
+        if (ruta.isEmpty()) return;
+        Path csv = Path.of(ruta);
+        Path rechazos = csv.resolveSibling(csv.getFileName() + ".rechazos.csv");
+        try {
+            long t0 = System.nanoTime();
+            ResultadoImportacion r = new ImportadorCsv(s).importar(csv, rechazos);
+            System.out.printf(">> %d socios importados de %d filas en %.1f s.%n",
+                    r.importadas(), r.filas(), (System.nanoTime() - t0) / 1e9);
+            if (r.rechazadas() > 0) {
+                System.out.println(">> " + r.rechazadas() + " filas rechazadas; detalle en " + rechazos);
+            }
+        } catch (IOException e) {
+            System.out.println("Error: no se pudo importar " + ruta + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Muestra latencias (en microsegundos), llamadas y errores de cada operación.
+     */
+    private static void metricas(GimnasioService s) {
+        MetricasServicio m = s.getMetricas();
+        System.out.println("--- Métricas (" + (m.isActivas() ? "activas" : "desactivadas") + ", latencias en µs) ---");
+        for (String l : m.comoLineas()) System.out.println(l);
+        String r = leerTexto("'a' = activar/desactivar, 'r' = reiniciar, Enter = volver: ").trim();
+        if (r.equalsIgnoreCase("a")) {
+            m.setActivas(!m.isActivas());
+            System.out.println(">> Métricas " + (m.isActivas() ? "activadas." : "desactivadas."));
+        } else if (r.equalsIgnoreCase("r")) {
+            m.reiniciar();
+            System.out.println(">> Métricas reiniciadas.");
+        }
+    }
+
+    /**
+     * Consulta el historial filtrando por socio, tipo de operación y rango de fechas.
+     * Usa los índices del log, así que responde al instante aunque haya millones de operaciones.
+     */
+    private static void auditoria(GimnasioService s) {
+        System.out.println("-- Auditoría (Enter = sin filtro) --");
+        String dni = leerTexto("DNI: ").trim();
+        // Las opciones salen del enum y se eligen por código, así un tipo nuevo aparece solo
+        StringBuilder opciones = new StringBuilder("Tipo: 0=Todos");
+        for (TipoOperacion o : TipoOperacion.values()) opciones.append(' ').append(o.codigo()).append('=').append(o.etiqueta());
+        System.out.println(opciones);
+        int t = leerEnteroRecursivo("> ");
+        TipoOperacion tipo = null;
+        for (TipoOperacion o : TipoOperacion.values()) {
+            if (o.codigo() == t) tipo = o;
+        }
+        if (t != 0 && tipo == null) System.out.println("(Tipo desconocido: se muestran todos)");
+        LocalDate desde = leerFechaOpcional("Desde (dd/MM/yyyy): ");
+        LocalDate hasta = leerFechaOpcional("Hasta inclusive (dd/MM/yyyy): ");
+
+        ConsultaLog consulta = ConsultaLog.masNuevasPrimero(TAMANIO_PAGINA_LOG)
+                .delSocio(dni.isEmpty() ? null : dni)
+                .deTipo(tipo)
+                .entre(desde == null ? null : desde.atStartOfDay(), hasta == null ? null : hasta.plusDays(1).atStartOfDay());
+        mostrarPaginas(s, consulta, "(No hay operaciones que coincidan)");
+    }
+
+    /**
+     * Muestra el log de a páginas, de la operación más nueva a la más vieja.
+     * Sólo se lee la página que se muestra, así que no importa cuán largo sea el log.
+     */
+    private static void verLog(GimnasioService s) {
+        System.out.println("--- Log de Operaciones (más recientes primero) ---");
+        mostrarPaginas(s, ConsultaLog.masNuevasPrimero(TAMANIO_PAGINA_LOG), "(El log está vacío)");
+    }
+
+    private static void mostrarPaginas(GimnasioService s, ConsultaLog consulta, String siVacio) {
+        PaginaLog pagina = s.leerLog(consulta);
+        if (pagina.eventos().isEmpty()) {
+            System.out.println(siVacio);
+            return;
+        }
+        while (true) {
+            for (String l : pagina.lineas()) System.out.println(l);
+            if (!pagina.hayMas()) break;
+            String r = leerTexto("Enter = página siguiente, 'q' = volver: ").trim();
+            if (r.equalsIgnoreCase("q")) break;
+            pagina = s.leerLog(consulta.continuarDesde(pagina.token()));
+        }
+    }
+}
\ No newline at end of file
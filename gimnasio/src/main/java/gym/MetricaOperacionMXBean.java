@@ -0,0 +1,27 @@
+package gym;
+
+import java.util.Map;
+
+/**
+ * Métricas de una operación de {@link GimnasioService}, exportadas por JMX
+ * como <code>gym:type=Operacion,servicio=...,name=&lt;operación&gt;</code>.
+ * Las latencias están en microsegundos.
+ */
+public interface MetricaOperacionMXBean {
+    long getLlamadas();
+
+    long getErrores();
+
+    /** @return errores por tipo de excepción (nombre simple de la clase). */
+    Map<String, Long> getErroresPorTipo();
+
+    double getMediaMicros();
+
+    double getP50Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaximoMicros();
+}
@@ -0,0 +1,85 @@
+package gym;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Profundidad de la cola, volcados, fsyncs y esperas por contrapresión de un {@link JournalOperaciones}.
+ * <p>
+ * El hilo escritor registra cada tanda (bytes, si hubo fsync y cuánto tardó) y
+ * quienes agregan registran cuánto esperaron por un buffer libre. La cola y los
+ * bytes pendientes se leen del journal en el momento de la consulta.
+ * </p>
+ */
+final class MetricasJournal implements MetricasJournalMXBean {
+    private final JournalOperaciones journal;
+    private final HistogramaLatencia volcados = new HistogramaLatencia();
+    private final LongAdder fsyncs = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final HistogramaLatencia esperas = new HistogramaLatencia();
+
+    MetricasJournal(JournalOperaciones journal) {
+        this.journal = journal;
+    }
+
+    void volcado(long bytesEscritos, boolean fsync, long nanos) {
+        if (bytesEscritos == 0 && !fsync) return;
+        volcados.registrar(nanos);
+        bytes.add(bytesEscritos);
+        if (fsync) fsyncs.increment();
+    }
+
+    void contrapresion(long nanos) {
+        esperas.registrar(nanos);
+    }
+
+    @Override
+    public int getBuffersEnCola() { return journal.bloquesEnCola(); }
+
+    @Override
+    public long getBytesPendientes() { return journal.bytesPendientes(); }
+
+    @Override
+    public long getVolcados() { return volcados.foto().cuenta(); }
+
+    @Override
+    public long getFsyncs() { return fsyncs.sum(); }
+
+    @Override
+    public long getBytesEscritos() { return bytes.sum(); }
+
+    @Override
+    public long getEsperasPorContrapresion() { return esperas.foto().cuenta(); }
+
+    @Override
+    public double getMediaEsperaContrapresionMicros() { return esperas.foto().media() / 1_000; }
+
+    @Override
+    public double getP50VolcadoMicros() { return volcados.foto().percentil(50) / 1_000.0; }
+
+    @Override
+    public double getP99VolcadoMicros() { return volcados.foto().percentil(99) / 1_000.0; }
+
+    @Override
+    public double getMaximoVolcadoMicros() { return volcados.foto().maximo() / 1_000.0; }
+
+    void reiniciar() {
+        volcados.reiniciar();
+        fsyncs.reset();
+        bytes.reset();
+        esperas.reiniciar();
+    }
+
+    /** @return una línea de resumen para la tabla de métricas. */
+    String comoLinea() {
+        HistogramaLatencia.Foto v = volcados.foto();
+        HistogramaLatencia.Foto e = esperas.foto();
+        return String.format(Locale.ROOT,
+                "journal: cola %d buffers (%d bytes), %d volcados (%.1f KB prom.), %d fsync, "
+                        + "volcado p50 %.1f us p99 %.1f us max %.1f us, contrapresion %d esperas (%.1f us prom.)",
+                getBuffersEnCola(), getBytesPendientes(), v.cuenta(),
+                v.cuenta() == 0 ? 0.0 : bytes.sum() / 1024.0 / v.cuenta(), fsyncs.sum(),
+                v.percentil(50) / 1_000.0, v.percentil(99) / 1_000.0, v.maximo() / 1_000.0,
+                e.cuenta(), e.media() / 1_000);
+    }
+}
@@ -0,0 +1,33 @@
+package gym;
+
+/**
+ * Métricas del journal de un {@link GimnasioService}, exportadas por JMX
+ * como <code>gym:type=Journal,servicio=...</code>.
+ * Las latencias están en microsegundos.
+ */
+public interface MetricasJournalMXBean {
+    /** @return buffers llenos esperando al hilo escritor. */
+    int getBuffersEnCola();
+
+    /** @return bytes agregados que todavía no se entregaron al sistema operativo. */
+    long getBytesPendientes();
+
+    /** @return tandas bajadas a disco (cada una es una sola escritura). */
+    long getVolcados();
+
+    long getFsyncs();
+
+    long getBytesEscritos();
+
+    /** @return veces que alguien tuvo que esperar un buffer libre porque el disco iba atrás. */
+    long getEsperasPorContrapresion();
+
+    double getMediaEsperaContrapresionMicros();
+
+    /** @return tiempo de escritura más fsync de cada tanda. */
+    double getP50VolcadoMicros();
+
+    double getP99VolcadoMicros();
+
+    double getMaximoVolcadoMicros();
+}
@@ -0,0 +1,307 @@
+package gym;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de latencia, cantidad de llamadas y errores de cada operación de {@link GimnasioService}.
+ * <p>
+ * Cada método público del servicio corre su cuerpo dentro de {@link #medir(Operacion, Medicion)},
+ * que hace <code>t0 = inicio()</code> al entrar y <code>fin(op, t0)</code> al salir
+ * (y <code>error(op, t0, e)</code> si lanza una excepción).
+ * Con las métricas desactivadas, <code>inicio()</code> devuelve {@link #APAGADAS} sin leer el reloj
+ * y <code>fin</code> vuelve enseguida: el costo es leer un booleano y una comparación.
+ * </p>
+ * <p>
+ * Se pueden consultar con {@link #comoLineas()} o exportar por JMX con {@link #exportarJmx(String)}.
+ * </p>
+ */
+public final class MetricasServicio implements MetricasServicioMXBean {
+
+    /**
+     * Operaciones medidas (una por método público del servicio).
+     */
+    public enum Operacion {
+        ALTA_CLIENTE("altaCliente"),
+        ALTA_MASIVA("altaMasiva"),
+        BUSCAR_POR_DNI("buscarPorDni"),
+        MODIFICAR_NOMBRE("modificarNombre"),
+        CAMBIAR_PLAN("cambiarPlan"),
+        BAJA("baja"),
+        LISTAR_ORDENADOS("listarOrdenadosPorNombre"),
+        LISTAR_POR_NOMBRE("listarPorNombre"),
+        BUSCAR_POR_NOMBRE("buscarPorNombre"),
+        CUOTA_DE("cuotaDe"),
+        FACTURAR_MES("facturarMes"),
+        EXISTE_DNI("existeDni"),
+        CANTIDAD_CLIENTES("cantidadClientes"),
+        ALTAS_POR_MES("getAltasPorMes"),
+        ESTADISTICAS("estadisticas"),
+        ABRIR_INSTANTANEA("abrirInstantanea"),
+        CONFIRMAR_EN_DISCO("confirmarEnDisco"),
+        SUSCRIBIR("suscribir"),
+        INGRESAR("ingresar"),
+        REGISTRAR_SALIDA("registrarSalida"),
+        REGISTRAR_PAGO("registrarPago"),
+        PAGOS("pagos"),
+        LOG_COMO_LINEAS("logComoLineas"),
+        LEER_LOG("leerLog"),
+        GUARDAR_SNAPSHOT("guardarSnapshot");
+
+        private final String metodo;
+
+        Operacion(String metodo) {
+            this.metodo = metodo;
+        }
+
+        /** @return el nombre del método del servicio. */
+        public String metodo() {
+            return metodo;
+        }
+    }
+
+    /**
+     * Lo que devuelve {@link #inicio()} con las métricas desactivadas. No puede ser
+     * un negativo cualquiera: <code>nanoTime</code> puede serlo.
+     */
+    static final long APAGADAS = Long.MIN_VALUE;
+
+    private final Metrica[] metricas = new Metrica[Operacion.values().length];
+    private volatile boolean activas;
+    private final List<ObjectName> exportadas = new ArrayList<>();
+    // Sólo si el servicio tiene journal
+    private volatile MetricasJournal journal;
+
+    /**
+     * @param activas Si se empieza midiendo.
+     */
+    MetricasServicio(boolean activas) {
+        this.activas = activas;
+        for (Operacion op : Operacion.values()) metricas[op.ordinal()] = new Metrica();
+    }
+
+    /**
+     * Contadores de una operación.
+     */
+    private static final class Metrica implements MetricaOperacionMXBean {
+        final HistogramaLatencia latencias = new HistogramaLatencia();
+        final LongAdder errores = new LongAdder();
+        final ConcurrentHashMap<String, LongAdder> erroresPorTipo = new ConcurrentHashMap<>();
+
+        @Override
+        public long getLlamadas() { return latencias.foto().cuenta(); }
+
+        @Override
+        public long getErrores() { return errores.sum(); }
+
+        @Override
+        public Map<String, Long> getErroresPorTipo() {
+            Map<String, Long> out = new TreeMap<>();
+            erroresPorTipo.forEach((k, v) -> out.put(k, v.sum()));
+            return out;
+        }
+
+        @Override
+        public double getMediaMicros() { return latencias.foto().media() / 1_000; }
+
+        @Override
+        public double getP50Micros() { return latencias.foto().percentil(50) / 1_000.0; }
+
+        @Override
+        public double getP99Micros() { return latencias.foto().percentil(99) / 1_000.0; }
+
+        @Override
+        public double getP999Micros() { return latencias.foto().percentil(99.9) / 1_000.0; }
+
+        @Override
+        public double getMaximoMicros() { return latencias.foto().maximo() / 1_000.0; }
+    }
+
+    /**
+     * @return el instante de inicio para pasarle a {@link #fin}, o {@link #APAGADAS} si las métricas están desactivadas.
+     */
+    long inicio() {
+        return activas ? System.nanoTime() : APAGADAS;
+    }
+
+    /**
+     * Registra la duración de una llamada (haya terminado bien o con error).
+     * * @param op Operación medida.
+     * @param t0 Valor devuelto por {@link #inicio()}.
+     */
+    void fin(Operacion op, long t0) {
+        if (t0 == APAGADAS) return;
+        metricas[op.ordinal()].latencias.registrar(System.nanoTime() - t0);
+    }
+
+    /**
+     * Cuenta un error de la operación según el tipo de excepción.
+     * * @param op Operación que falló.
+     * @param t0 Valor devuelto por {@link #inicio()} (si es {@link #APAGADAS} no se cuenta nada).
+     * @param e Excepción lanzada.
+     */
+    void error(Operacion op, long t0, Throwable e) {
+        if (t0 == APAGADAS) return;
+        Metrica m = metricas[op.ordinal()];
+        m.errores.increment();
+        m.erroresPorTipo.computeIfAbsent(e.getClass().getSimpleName(), k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Cuerpo medido que devuelve un valor (puede lanzar la excepción verificada <code>E</code>).
+     */
+    @FunctionalInterface
+    interface Medicion<T, E extends Exception> {
+        T ejecutar() throws E;
+    }
+
+    /**
+     * Cuerpo medido que no devuelve nada (puede lanzar la excepción verificada <code>E</code>).
+     */
+    @FunctionalInterface
+    interface Accion<E extends Exception> {
+        void ejecutar() throws E;
+    }
+
+    /**
+     * Corre <code>cuerpo</code> midiendo su latencia y contando el error si lanza una excepción.
+     * * @param op Operación medida.
+     * @param cuerpo Lo que hace la operación.
+     * @return lo que devuelve <code>cuerpo</code>.
+     * @throws E la misma excepción que lanzó <code>cuerpo</code>.
+     */
+    <T, E extends Exception> T medir(Operacion op, Medicion<T, E> cuerpo) throws E {
+        long t0 = inicio();
+        try {
+            return cuerpo.ejecutar();
+        } catch (Exception e) {
+            error(op, t0, e);
+            throw e;
+        } finally {
+            fin(op, t0);
+        }
+    }
+
+    /**
+     * Igual que {@link #medir(Operacion, Medicion)} para operaciones sin resultado.
+     * * @param op Operación medida.
+     * @param cuerpo Lo que hace la operación.
+     * @throws E la misma excepción que lanzó <code>cuerpo</code>.
+     */
+    <E extends Exception> void medir(Operacion op, Accion<E> cuerpo) throws E {
+        medir(op, () -> {
+            cuerpo.ejecutar();
+            return null;
+        });
+    }
+
+    @Override
+    public boolean isActivas() {
+        return activas;
+    }
+
+    @Override
+    public void setActivas(boolean activas) {
+        this.activas = activas;
+    }
+
+    @Override
+    public void reiniciar() {
+        for (Metrica m : metricas) {
+            m.latencias.reiniciar();
+            m.errores.reset();
+            m.erroresPorTipo.clear();
+        }
+        MetricasJournal j = journal;
+        if (j != null) j.reiniciar();
+    }
+
+    /**
+     * Suma las métricas del journal a la tabla y a lo que se exporta por JMX.
+     * * @param j Métricas del journal del servicio.
+     */
+    void agregarJournal(MetricasJournal j) {
+        this.journal = j;
+    }
+
+    /**
+     * @return las métricas del journal, o null si el servicio trabaja sólo en memoria.
+     */
+    public MetricasJournalMXBean journal() {
+        return journal;
+    }
+
+    /**
+     * @param op Operación a consultar.
+     * @return sus métricas.
+     */
+    public MetricaOperacionMXBean de(Operacion op) {
+        return metricas[op.ordinal()];
+    }
+
+    /**
+     * Arma una tabla con las operaciones que tuvieron al menos una llamada.
+     * Latencias en microsegundos.
+     * @return las líneas de la tabla.
+     */
+    public String[] comoLineas() {
+        List<String> out = new ArrayList<>();
+        out.add(String.format(Locale.ROOT, "%-26s %10s %10s %10s %10s %10s %10s  %s",
+                "operacion", "llamadas", "media", "p50", "p99", "p99.9", "max", "errores"));
+        for (Operacion op : Operacion.values()) {
+            Metrica m = metricas[op.ordinal()];
+            HistogramaLatencia.Foto f = m.latencias.foto();
+            if (f.cuenta() == 0) continue;
+            out.add(String.format(Locale.ROOT, "%-26s %10d %10.1f %10.1f %10.1f %10.1f %10.1f  %s",
+                    op.metodo(), f.cuenta(), f.media() / 1_000, f.percentil(50) / 1_000.0, f.percentil(99) / 1_000.0,
+                    f.percentil(99.9) / 1_000.0, f.maximo() / 1_000.0,
+                    m.errores.sum() == 0 ? "-" : m.errores.sum() + " " + m.getErroresPorTipo()));
+        }
+        MetricasJournal j = journal;
+        if (j != null) out.add(j.comoLinea());
+        return out.toArray(new String[0]);
+    }
+
+    /**
+     * Registra las métricas en el servidor JMX de la plataforma (se ven con jconsole o VisualVM).
+     * * @param servicio Nombre que distingue a este servicio si hay varios en la misma JVM.
+     * @throws JMException si ya hay otro servicio registrado con ese nombre.
+     */
+    public synchronized void exportarJmx(String servicio) throws JMException {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        String s = ObjectName.quote(servicio);
+        registrar(mbs, this, new ObjectName("gym:type=Metricas,servicio=" + s));
+        for (Operacion op : Operacion.values()) {
+            registrar(mbs, metricas[op.ordinal()], new ObjectName("gym:type=Operacion,servicio=" + s + ",name=" + op.metodo()));
+        }
+        MetricasJournal j = journal;
+        if (j != null) registrar(mbs, j, new ObjectName("gym:type=Journal,servicio=" + s));
+    }
+
+    private void registrar(MBeanServer mbs, Object bean, ObjectName nombre) throws JMException {
+        mbs.registerMBean(bean, nombre);
+        exportadas.add(nombre);
+    }
+
+    /**
+     * Quita del servidor JMX lo registrado con {@link #exportarJmx(String)}.
+     */
+    synchronized void dejarDeExportar() {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName n : exportadas) {
+            try {
+                mbs.unregisterMBean(n);
+            } catch (JMException ignorado) { }
+        }
+        exportadas.clear();
+    }
+}
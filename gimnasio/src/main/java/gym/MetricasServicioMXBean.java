@@ -0,0 +1,14 @@
+package gym;
+
+/**
+ * Control de las métricas de un {@link GimnasioService}, exportado por JMX
+ * como <code>gym:type=Metricas,servicio=...</code>.
+ */
+public interface MetricasServicioMXBean {
+    boolean isActivas();
+
+    void setActivas(boolean activas);
+
+    /** Vuelve a cero todos los contadores e histogramas. */
+    void reiniciar();
+}
@@ -0,0 +1,197 @@
+package gym;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Estructura de datos propia (TAD) para manejar el historial de acciones.
+ * Es una lista de bloques implementada manualmente: las operaciones se guardan
+ * en bloques de tamaño fijo y un directorio apunta a cada bloque.
+ * <p>
+ * Decidimos hacerla así para cumplir con el requisito de "Implementar estructura propia"
+ * y no depender solo de ArrayList o LinkedList de Java. A diferencia de una lista
+ * enlazada simple, permite llegar a cualquier operación por su número de secuencia
+ * en O(1), que es lo que necesita la lectura paginada (en ambas direcciones).
+ * </p>
+ * <p>
+ * Es segura para varios hilos sin usar locks en el camino normal: cada productor
+ * reserva su secuencia (junto con el instante) con una operación atómica y escribe
+ * en su casillero. Sólo se sincroniza al crear un bloque nuevo, una vez cada
+ * {@value #TAMANIO_BLOQUE} operaciones. Los lectores nunca se bloquean.
+ * </p>
+ * <p>
+ * Para auditoría mantiene índices invertidos: la lista de secuencias de cada DNI
+ * y de cada tipo de operación. Como el log está ordenado por tiempo, un rango de
+ * fechas se traduce a un rango de secuencias con búsqueda binaria, y dentro de
+ * cada lista se vuelve a buscar en binario. Así "qué le pasó al socio X el mes
+ * pasado" cuesta O(log n) más lo que se devuelve, sin recorrer el log.
+ * </p>
+ * <p>
+ * No tiene límite de tamaño; para acotar la memoria está {@link OperacionLogCircular}.
+ * </p>
+ * * @author Mateo
+ */
+public class OperacionLog implements RegistroOperaciones {
+    private static final int BITS_BLOQUE = 10;
+    static final int TAMANIO_BLOQUE = 1 << BITS_BLOQUE;
+    private static final int MASCARA_BLOQUE = TAMANIO_BLOQUE - 1;
+
+    // Directorio de bloques; se reemplaza por uno más grande cuando se llena
+    private volatile Bloque[] bloques = new Bloque[16];
+    private final AtomicLong siguiente = new AtomicLong();
+    // Instante más alto recibido al reconstruir historial (para no quedar "antes" que él)
+    private volatile long ultimoHistorico = Long.MIN_VALUE;
+
+    // Índices invertidos para auditoría
+    private final ConcurrentHashMap<String, ListaSecuencias> porDni = new ConcurrentHashMap<>();
+    private final ListaSecuencias[] porTipo = new ListaSecuencias[TipoOperacion.values().length];
+    {
+        for (int i = 0; i < porTipo.length; i++) porTipo[i] = new ListaSecuencias();
+    }
+
+    /**
+     * Bloque interno de la lista: un arreglo de eventos de tamaño fijo.
+     */
+    static final class Bloque {
+        final AtomicReferenceArray<EventoOperacion> eventos = new AtomicReferenceArray<>(TAMANIO_BLOQUE);
+    }
+
+    /**
+     * Agrega un nuevo registro al final del log.
+     * Tiene complejidad O(1): sólo se reserva la siguiente secuencia.
+     */
+    @Override
+    public long registrar(TipoOperacion tipo, String dni, Object anterior, Object nuevo){
+        long seq;
+        long ts;
+        // El instante se toma después de leer la secuencia y antes de reservarla:
+        // así, si dos productores compiten, el que gana la secuencia menor tiene
+        // también el instante menor y el log queda ordenado por tiempo
+        do {
+            seq = siguiente.get();
+            ts = Math.max(Reloj.epochNanos(), ultimoHistorico);
+        } while (!siguiente.compareAndSet(seq, seq + 1));
+        guardar(new EventoOperacion(seq, ts, tipo, dni, anterior, nuevo));
+        return ts;
+    }
+
+    @Override
+    public void registrar(TipoOperacion tipo, long epochNanos, String dni, Object anterior, Object nuevo){
+        // Sólo se usa al reconstruir, con un único hilo
+        long ts = Math.max(epochNanos, ultimoHistorico);
+        ultimoHistorico = ts;
+        long seq = siguiente.getAndIncrement();
+        guardar(new EventoOperacion(seq, ts, tipo, dni, anterior, nuevo));
+    }
+
+    private void guardar(EventoOperacion e) {
+        long seq = e.secuencia();
+        bloque((int) (seq >>> BITS_BLOQUE)).eventos.set((int) (seq & MASCARA_BLOQUE), e);
+        // Se indexa después de publicar: quien encuentre la secuencia en un índice ya puede leerla.
+        // Un ALTA_MASIVA queda en la lista de cada socio del lote
+        for (String dni : e.dnis()) porDni.computeIfAbsent(dni, k -> new ListaSecuencias()).agregar(seq);
+        porTipo[e.tipo().ordinal()].agregar(seq);
+    }
+
+    private Bloque bloque(int indice) {
+        Bloque[] dir = bloques;
+        if (indice < dir.length && dir[indice] != null) return dir[indice];
+        synchronized (this) {
+            dir = bloques;
+            if (indice >= dir.length) {
+                Bloque[] mas = new Bloque[Math.max(dir.length * 2, indice + 1)];
+                System.arraycopy(dir, 0, mas, 0, dir.length);
+                dir = mas;
+            }
+            if (dir[indice] == null) dir[indice] = new Bloque();
+            // Publicamos el directorio (nuevo o con el bloque agregado) con una escritura volatile
+            bloques = dir;
+            return dir[indice];
+        }
+    }
+
+    /**
+     * @return Cantidad de operaciones registradas.
+     */
+    @Override
+    public int size(){ return (int) siguiente.get(); }
+
+    @Override
+    public long primeraSecuencia(){ return 0; }
+
+    @Override
+    public long finSecuencia(){ return siguiente.get(); }
+
+    @Override
+    public EventoOperacion evento(long secuencia){
+        if (secuencia < 0 || secuencia >= siguiente.get()) return null;
+        Bloque[] dir = bloques;
+        int b = (int) (secuencia >>> BITS_BLOQUE);
+        if (b >= dir.length || dir[b] == null) return null;
+        return dir[b].eventos.get((int) (secuencia & MASCARA_BLOQUE));
+    }
+
+    /**
+     * Lee una página usando los índices cuando la consulta filtra por socio o por tipo.
+     * Si filtra por los dos, recorre la lista del socio (que es la más corta).
+     */
+    @Override
+    public PaginaLog leer(ConsultaLog consulta){
+        ListaSecuencias lista;
+        if (consulta.dni() != null) {
+            lista = porDni.get(consulta.dni());
+            if (lista == null) return new PaginaLog(new ArrayList<>(), -1, false);
+        } else if (consulta.tipo() != null) {
+            lista = porTipo[consulta.tipo().ordinal()];
+        } else {
+            return RegistroOperaciones.super.leer(consulta);
+        }
+
+        ListaSecuencias.Vista vista = lista.vista();
+        int n = vista.tamanio();
+        long[] d = vista.datos();
+        long inicio = primeraSecuenciaDesde(consulta.desdeNanos());
+        boolean sinFin = consulta.hastaNanos() == Long.MAX_VALUE;
+        long limite = sinFin ? finSecuencia() : primeraSecuenciaDesde(consulta.hastaNanos());
+        // Rango [a, b) de posiciones de la lista que caen dentro del rango de tiempo
+        int a = ListaSecuencias.primeraMayorOIgual(d, n, inicio);
+        int b = ListaSecuencias.primeraMayorOIgual(d, n, limite);
+        ArrayList<EventoOperacion> out = new ArrayList<>(Math.min(consulta.tamanioPagina(), 1024));
+
+        if (consulta.masNuevasPrimero()) {
+            int i = consulta.token() >= 0 ? Math.min(b, ListaSecuencias.primeraMayorOIgual(d, n, consulta.token() + 1)) - 1 : b - 1;
+            for (; i >= a && out.size() < consulta.tamanioPagina(); i--) {
+                EventoOperacion e = evento(d[i]);
+                if (e != null && consulta.coincide(e)) out.add(e);
+            }
+            return new PaginaLog(out, i >= a ? d[i] : -1, i >= a);
+        }
+
+        int i = consulta.token() >= 0 ? Math.max(a, ListaSecuencias.primeraMayorOIgual(d, n, consulta.token())) : a;
+        for (; i < b && out.size() < consulta.tamanioPagina(); i++) {
+            EventoOperacion e = evento(d[i]);
+            if (e != null && consulta.coincide(e)) out.add(e);
+        }
+        long token = i < b ? d[i] : (sinFin ? limite : -1);
+        return new PaginaLog(out, token, i < b);
+    }
+
+    /**
+     * Recorre el log y convierte todas las operaciones a un arreglo de Strings.
+     * Útil para imprimir el historial en la consola.
+     * * @return Arreglo con cada línea del log formateada con fecha y hora.
+     */
+    @Override
+    public String[] comoLineas(){
+        long fin = siguiente.get();
+        ArrayList<String> out = new ArrayList<>((int) fin);
+        for (long seq = 0; seq < fin; seq++) {
+            // Puede ser null si un productor todavía está escribiendo ese casillero
+            EventoOperacion e = evento(seq);
+            if (e != null) out.add(e.comoLinea());
+        }
+        return out.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,194 @@
+package gym;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log de operaciones sobre un buffer circular de tamaño fijo.
+ * <p>
+ * Todo se reserva al crearlo (arreglos paralelos por campo), así que registrar
+ * una operación no crea objetos: se reserva un número de secuencia (junto con el
+ * instante) con una operación atómica y se escriben los campos en la posición
+ * <code>secuencia % capacidad</code>. Varios productores escriben a la vez sin locks.
+ * Los objetos {@link EventoOperacion} se arman recién al leer.
+ * </p>
+ * <p>
+ * Cada posición tiene un "sello" con la secuencia que la ocupa. Quien escribe
+ * marca el sello como "en escritura", copia los campos y recién después publica
+ * la secuencia; quien lee verifica el sello antes y después de copiar y descarta
+ * la entrada si cambió en el medio (por ejemplo, porque se sobreescribió).
+ * </p>
+ * <p>
+ * Al pisar entradas, dos productores a una vuelta de distancia caen en la misma
+ * posición. Por eso la marca de "en escritura" se pone con un CAS desde el sello
+ * de la vuelta anterior: si ese productor todavía no publicó, el nuevo lo espera
+ * en lugar de mezclar sus campos con los de él. Con una capacidad mucho mayor que
+ * la cantidad de productores concurrentes la espera no ocurre en la práctica.
+ * </p>
+ */
+public class OperacionLogCircular implements RegistroOperaciones {
+
+    /**
+     * Qué hacer cuando el buffer está lleno.
+     */
+    public enum PoliticaDesborde {
+        /** Se pisan las entradas más viejas: siempre quedan las últimas N. */
+        SOBRESCRIBIR_ANTIGUAS,
+
+        /** Se descartan las nuevas: quedan las primeras N y se cuenta lo perdido. */
+        DESCARTAR_NUEVAS
+    }
+
+    private final int capacidad;
+    private final int mascara;
+    private final PoliticaDesborde politica;
+
+    private final long[] ts;
+    private final TipoOperacion[] tipos;
+    private final String[] dnis;
+    private final Object[] anteriores;
+    private final Object[] nuevos;
+    // sello[i] = secuencia + 1 publicada en la posición i; negativo mientras se escribe
+    private final AtomicLongArray sellos;
+
+    private final AtomicLong siguiente = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+    private volatile long ultimoHistorico = Long.MIN_VALUE;
+
+    /**
+     * Crea el buffer con todos sus arreglos.
+     * * @param capacidad Cantidad máxima de entradas (se redondea a potencia de 2).
+     * @param politica Qué hacer cuando se llena.
+     */
+    public OperacionLogCircular(int capacidad, PoliticaDesborde politica) {
+        if (capacidad <= 0 || capacidad > (1 << 30)) {
+            throw new IllegalArgumentException("Capacidad de log invalida: " + capacidad);
+        }
+        int cap = 1;
+        while (cap < capacidad) cap <<= 1;
+        this.capacidad = cap;
+        this.mascara = this.capacidad - 1;
+        this.politica = politica;
+        this.ts = new long[this.capacidad];
+        this.tipos = new TipoOperacion[this.capacidad];
+        this.dnis = new String[this.capacidad];
+        this.anteriores = new Object[this.capacidad];
+        this.nuevos = new Object[this.capacidad];
+        this.sellos = new AtomicLongArray(this.capacidad);
+    }
+
+    @Override
+    public long registrar(TipoOperacion tipo, String dni, Object anterior, Object nuevo) {
+        long seq;
+        long ts;
+        // Igual que en OperacionLog: instante tomado entre la lectura y la reserva
+        // de la secuencia, para que el orden por secuencia sea también por tiempo
+        do {
+            seq = siguiente.get();
+            ts = Math.max(Reloj.epochNanos(), ultimoHistorico);
+            if (politica == PoliticaDesborde.DESCARTAR_NUEVAS && seq >= capacidad) {
+                descartadas.incrementAndGet();
+                return ts;
+            }
+        } while (!siguiente.compareAndSet(seq, seq + 1));
+        escribir(seq, tipo, ts, dni, anterior, nuevo);
+        return ts;
+    }
+
+    @Override
+    public void registrar(TipoOperacion tipo, long epochNanos, String dni, Object anterior, Object nuevo) {
+        // Sólo se usa al reconstruir, con un único hilo
+        long ts = Math.max(epochNanos, ultimoHistorico);
+        ultimoHistorico = ts;
+        long seq = siguiente.get();
+        if (politica == PoliticaDesborde.DESCARTAR_NUEVAS && seq >= capacidad) {
+            descartadas.incrementAndGet();
+            return;
+        }
+        siguiente.set(seq + 1);
+        escribir(seq, tipo, ts, dni, anterior, nuevo);
+    }
+
+    private void escribir(long seq, TipoOperacion tipo, long epochNanos, String dni, Object anterior, Object nuevo) {
+        int i = (int) (seq & mascara);
+        // La posición es nuestra cuando quien la ocupó una vuelta antes terminó de publicar
+        long previo = seq < capacidad ? 0 : seq - capacidad + 1;
+        for (int intentos = 0; !sellos.compareAndSet(i, previo, -(seq + 1)); intentos++) {
+            if (intentos < 100) Thread.onSpinWait();
+            else Thread.yield();
+        }
+        // Que los campos no se escriban antes de marcar la posición como "en escritura"
+        VarHandle.storeStoreFence();
+        ts[i] = epochNanos;
+        tipos[i] = tipo;
+        dnis[i] = dni;
+        anteriores[i] = anterior;
+        nuevos[i] = nuevo;
+        sellos.set(i, seq + 1);
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(siguiente.get(), capacidad);
+    }
+
+    /**
+     * @return capacidad real del buffer (potencia de 2).
+     */
+    public int capacidad() {
+        return capacidad;
+    }
+
+    /**
+     * @return cantidad de entradas perdidas: pisadas o descartadas según la política.
+     */
+    public long perdidas() {
+        return politica == PoliticaDesborde.SOBRESCRIBIR_ANTIGUAS
+                ? Math.max(0, siguiente.get() - capacidad)
+                : descartadas.get();
+    }
+
+    @Override
+    public long primeraSecuencia() {
+        return Math.max(0, siguiente.get() - capacidad);
+    }
+
+    @Override
+    public long finSecuencia() {
+        return siguiente.get();
+    }
+
+    @Override
+    public String[] comoLineas() {
+        long hasta = siguiente.get();
+        long desde = Math.max(0, hasta - capacidad);
+        ArrayList<String> out = new ArrayList<>((int) (hasta - desde));
+        for (long seq = desde; seq < hasta; seq++) {
+            EventoOperacion e = evento(seq);
+            if (e != null) out.add(e.comoLinea());
+        }
+        return out.toArray(new String[0]);
+    }
+
+    /**
+     * Lee una entrada si sigue publicada con esa secuencia.
+     * @return el evento, o null si todavía se está escribiendo o ya se pisó.
+     */
+    @Override
+    public EventoOperacion evento(long seq) {
+        if (seq < 0) return null;
+        int i = (int) (seq & mascara);
+        if (sellos.get(i) != seq + 1) return null;
+        long t = ts[i];
+        TipoOperacion tipo = tipos[i];
+        String dni = dnis[i];
+        Object anterior = anteriores[i];
+        Object nuevo = nuevos[i];
+        // Las lecturas de los campos tienen que terminar antes de volver a mirar el sello
+        VarHandle.acquireFence();
+        if (sellos.get(i) != seq + 1) return null;
+        return new EventoOperacion(seq, t, tipo, dni, anterior, nuevo);
+    }
+}
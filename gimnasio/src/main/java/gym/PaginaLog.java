@@ -0,0 +1,37 @@
+package gym;
+
+import java.util.List;
+
+/**
+ * Una página de resultados del log.
+ * El token permite pedir la página siguiente sin volver a recorrer las anteriores.
+ */
+public final class PaginaLog {
+    private final List<EventoOperacion> eventos;
+    private final long token;
+    private final boolean hayMas;
+
+    PaginaLog(List<EventoOperacion> eventos, long token, boolean hayMas) {
+        this.eventos = List.copyOf(eventos);
+        this.token = token;
+        this.hayMas = hayMas;
+    }
+
+    /** @return las operaciones de la página, en el orden pedido. */
+    public List<EventoOperacion> eventos() { return eventos; }
+
+    /** @return valor para {@link ConsultaLog#continuarDesde(long)}. */
+    public long token() { return token; }
+
+    /** @return true si quedan operaciones por leer en esa dirección. */
+    public boolean hayMas() { return hayMas; }
+
+    /**
+     * @return las operaciones formateadas como líneas de log.
+     */
+    public String[] lineas() {
+        String[] out = new String[eventos.size()];
+        for (int i = 0; i < out.length; i++) out[i] = eventos.get(i).comoLinea();
+        return out;
+    }
+}
@@ -0,0 +1,28 @@
+package gym;
+
+import java.util.List;
+
+/**
+ * Una página del listado de socios ordenado por nombre.
+ * El token permite pedir la página siguiente sin volver a recorrer las anteriores.
+ */
+public final class PaginaSocios {
+    private final List<Cliente> socios;
+    private final String token;
+    private final boolean hayMas;
+
+    PaginaSocios(List<Cliente> socios, String token, boolean hayMas) {
+        this.socios = List.copyOf(socios);
+        this.token = token;
+        this.hayMas = hayMas;
+    }
+
+    /** @return los socios de la página, en orden alfabético. */
+    public List<Cliente> socios() { return socios; }
+
+    /** @return valor para pedir la página siguiente, o null si no hay más. */
+    public String token() { return token; }
+
+    /** @return true si quedan socios por leer. */
+    public boolean hayMas() { return hayMas; }
+}
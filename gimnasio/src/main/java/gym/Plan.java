@@ -0,0 +1,50 @@
+package gym;
+
+import java.time.DayOfWeek;
+
+/**
+ * Enum que define los tipos de planes disponibles en el gimnasio.
+ * Cada plan tiene asociado un precio base mensual.
+ * * @author Lautaro
+ */
+public enum Plan {
+    /** Plan básico, acceso limitado (lunes a viernes de 7 a 17). Precio: $15000. */
+    BASICO(15000, 7, 17, false),
+
+    /** Plan completo, acceso a todas las máquinas (todos los días de 6 a 23). Precio: $22000. */
+    FULL(22000, 6, 23, true),
+
+    /** Plan premium, incluye clases y spa (las 24 horas). Precio: $30000. */
+    PREMIUM(30000, 0, 24, true);
+
+    private final double precio;
+    // Por día de la semana (0 = lunes), bit h encendido = se puede entrar de h a h+1
+    private final int[] horasPorDia = new int[7];
+
+    Plan(double p, int abre, int cierra, boolean finesDeSemana){
+        this.precio = p;
+        int horas = (int) ((1L << cierra) - (1L << abre));
+        for (int d = 0; d < 7; d++) {
+            if (d < 5 || finesDeSemana) horasPorDia[d] = horas;
+        }
+    }
+
+    /**
+     * Devuelve el precio base del plan sin descuentos aplicados.
+     * @return el valor monetario del plan.
+     */
+    public double precio(){
+        return precio;
+    }
+
+    /**
+     * Indica si el plan deja entrar al gimnasio en un horario. No crea objetos:
+     * el control de acceso lo consulta en cada pasada por el molinete.
+     * * @param dia Día de la semana.
+     * @param hora Hora del día (0 a 23).
+     * @return true si el plan permite el ingreso en esa hora.
+     */
+    public boolean permiteIngreso(DayOfWeek dia, int hora){
+        return (horasPorDia[dia.ordinal()] >>> hora & 1) != 0;
+    }
+}
\ No newline at end of file
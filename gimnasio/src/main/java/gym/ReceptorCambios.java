@@ -0,0 +1,30 @@
+package gym;
+
+import java.util.List;
+
+/**
+ * Quien recibe los cambios de una {@link Suscripcion}.
+ * <p>
+ * Se llama siempre desde el hilo de la suscripción, de a lotes y en el orden
+ * del log: el lote siguiente no se entrega hasta que vuelve el anterior.
+ * </p>
+ */
+@FunctionalInterface
+public interface ReceptorCambios {
+    /**
+     * Recibe un lote de operaciones consecutivas.
+     * * @param eventos Operaciones, de la más vieja a la más nueva (no se puede modificar).
+     * @throws Exception si no se pudo procesar: la suscripción se detiene sin avanzar
+     *         (ver {@link Suscripcion#error()} y {@link Suscripcion#posicion()}).
+     */
+    void recibir(List<EventoOperacion> eventos) throws Exception;
+
+    /**
+     * Avisa que se perdieron operaciones porque el log ya las había descartado
+     * (un log circular que dio la vuelta antes de que se entregaran). Por defecto no hace nada.
+     * * @param desde Primera secuencia perdida.
+     * @param hasta Secuencia siguiente a la última perdida.
+     */
+    default void perdidos(long desde, long hasta) {
+    }
+}
@@ -0,0 +1,127 @@
+package gym;
+
+import java.util.ArrayList;
+
+/**
+ * Contrato común de los motores de log de operaciones.
+ * <p>
+ * Las operaciones se guardan "en crudo" (tipo, instante y argumentos) y el
+ * texto legible se arma recién cuando alguien lee el log, porque la mayoría
+ * de las entradas nunca se miran.
+ * </p>
+ * <p>
+ * Cada operación recibe un número de secuencia consecutivo y los instantes
+ * nunca decrecen con la secuencia, así que el log está ordenado por tiempo.
+ * Eso permite leerlo de a páginas en cualquier dirección sin copiarlo entero.
+ * </p>
+ */
+public interface RegistroOperaciones {
+    /**
+     * Registra una operación que ocurre ahora.
+     * * @param tipo Tipo de operación.
+     * @param dni DNI del socio afectado.
+     * @param anterior Valor previo (o primer argumento, según el tipo).
+     * @param nuevo Valor nuevo (o segundo argumento, según el tipo).
+     * @return el instante asignado, en nanosegundos desde 1970.
+     */
+    long registrar(TipoOperacion tipo, String dni, Object anterior, Object nuevo);
+
+    /**
+     * Registra una operación que ocurrió antes (al reconstruir el historial).
+     * Si el instante es anterior al último registrado se ajusta para no romper el orden.
+     * * @param tipo Tipo de operación.
+     * @param epochNanos Instante original en nanosegundos desde 1970.
+     * @param dni DNI del socio afectado.
+     * @param anterior Valor previo (o primer argumento, según el tipo).
+     * @param nuevo Valor nuevo (o segundo argumento, según el tipo).
+     */
+    void registrar(TipoOperacion tipo, long epochNanos, String dni, Object anterior, Object nuevo);
+
+    /**
+     * @return Cantidad de operaciones que se pueden leer.
+     */
+    int size();
+
+    /**
+     * @return secuencia de la operación más vieja que todavía se puede leer.
+     */
+    long primeraSecuencia();
+
+    /**
+     * @return secuencia que va a recibir la próxima operación.
+     */
+    long finSecuencia();
+
+    /**
+     * @param secuencia Posición en el log.
+     * @return la operación, o null si ya no está o todavía se está escribiendo.
+     */
+    EventoOperacion evento(long secuencia);
+
+    /**
+     * Arma el texto de cada operación guardada, de la más vieja a la más nueva.
+     * * @return Arreglo con cada línea del log formateada con fecha y hora.
+     */
+    String[] comoLineas();
+
+    /**
+     * Lee una página del log. Sólo recorre las operaciones de esa página (más las
+     * que descarten los filtros), así que la memoria usada no depende del largo
+     * del log. El rango de tiempo se ubica con búsqueda binaria.
+     * <p>
+     * Esta implementación filtra por socio y tipo recorriendo; los motores con
+     * índices (como {@link OperacionLog}) la reemplazan.
+     * </p>
+     * * @param consulta Dirección, tamaño de página, filtros y token de continuación.
+     * @return la página leída.
+     */
+    default PaginaLog leer(ConsultaLog consulta) {
+        ArrayList<EventoOperacion> out = new ArrayList<>(Math.min(consulta.tamanioPagina(), 1024));
+        long inicio = primeraSecuenciaDesde(consulta.desdeNanos());
+        long limite = consulta.hastaNanos() == Long.MAX_VALUE ? finSecuencia() : primeraSecuenciaDesde(consulta.hastaNanos());
+
+        if (consulta.masNuevasPrimero()) {
+            long seq = consulta.token() >= 0 ? Math.min(consulta.token(), limite - 1) : limite - 1;
+            while (seq >= inicio && out.size() < consulta.tamanioPagina()) {
+                EventoOperacion e = evento(seq--);
+                if (e != null && consulta.coincide(e)) out.add(e);
+            }
+            return new PaginaLog(out, seq >= inicio ? seq : -1, seq >= inicio);
+        }
+
+        long seq = consulta.token() >= 0 ? Math.max(consulta.token(), inicio) : inicio;
+        while (seq < limite && out.size() < consulta.tamanioPagina()) {
+            EventoOperacion e = evento(seq++);
+            if (e != null && consulta.coincide(e)) out.add(e);
+        }
+        // Sin límite de tiempo el token apunta al final: sirve para leer lo que llegue después
+        long token = seq < limite || consulta.hastaNanos() == Long.MAX_VALUE ? seq : -1;
+        return new PaginaLog(out, token, seq < limite);
+    }
+
+    /**
+     * Búsqueda binaria de la primera operación con instante mayor o igual al dado.
+     * Funciona porque los instantes no decrecen con la secuencia.
+     * * @param epochNanos Instante buscado.
+     * @return la secuencia encontrada (o {@link #finSecuencia()} si no hay ninguna).
+     */
+    default long primeraSecuenciaDesde(long epochNanos) {
+        long lo = primeraSecuencia();
+        long hi = finSecuencia();
+        if (epochNanos == Long.MIN_VALUE) return lo;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            EventoOperacion e = evento(mid);
+            // Casillero vacío: se pisó (está antes) o se está escribiendo (está al final)
+            if (e == null) {
+                if (mid < primeraSecuencia()) lo = mid + 1;
+                else hi = mid;
+            } else if (e.epochNanos() < epochNanos) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,76 @@
+package gym;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reloj barato para sellar operaciones.
+ * <p>
+ * Devuelve nanosegundos desde 1970 sin crear objetos: toma la hora del sistema
+ * como ancla y le suma lo que avanza <code>System.nanoTime()</code>.
+ * Además es monótono, así que dos operaciones seguidas nunca quedan "al revés".
+ * </p>
+ * <p>
+ * El reloj de <code>nanoTime</code> no lo corrige NTP, así que con el proceso
+ * levantado días se iría separando de la hora real. Por eso el ancla se vuelve a
+ * tomar cada {@value #REANCLAR_MS} ms. La nueva es la hora del sistema o lo que
+ * daba la anterior, lo que sea mayor: si la hora del sistema se atrasó, el reloj
+ * no vuelve para atrás, sólo deja de adelantarse hasta que la hora lo alcanza.
+ * </p>
+ */
+public final class Reloj {
+    private static final long REANCLAR_MS = 1_000;
+    private static final long REANCLAR_NS = REANCLAR_MS * 1_000_000L;
+
+    /** Hora del sistema (en nanos desde 1970) en el instante <code>nano</code> de <code>System.nanoTime()</code>. */
+    private record Ancla(long epoch, long nano) { }
+
+    private static final AtomicReference<Ancla> ANCLA =
+            new AtomicReference<>(new Ancla(System.currentTimeMillis() * 1_000_000L, System.nanoTime()));
+    private static final DateTimeFormatter FORMATO = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private Reloj() { }
+
+    /**
+     * @return instante actual en nanosegundos desde 1970.
+     */
+    public static long epochNanos() {
+        Ancla a = ANCLA.get();
+        long ahora = System.nanoTime();
+        if (ahora - a.nano() >= REANCLAR_NS) a = reanclar(a, ahora);
+        return a.epoch() + (ahora - a.nano());
+    }
+
+    /**
+     * Toma un ancla nueva, nunca por detrás de lo que daba la anterior.
+     * Si otro hilo se adelantó a moverla, vale la suya.
+     */
+    private static Ancla reanclar(Ancla vieja, long ahora) {
+        long seguido = vieja.epoch() + (ahora - vieja.nano());
+        Ancla nueva = new Ancla(Math.max(System.currentTimeMillis() * 1_000_000L, seguido), ahora);
+        return ANCLA.compareAndSet(vieja, nueva) ? nueva : ANCLA.get();
+    }
+
+    /**
+     * Convierte un instante del reloj a fecha/hora local.
+     * * @param epochNanos Instante en nanosegundos desde 1970.
+     * @return la fecha y hora en la zona del sistema.
+     */
+    public static LocalDateTime aFecha(long epochNanos) {
+        Instant i = Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L));
+        return LocalDateTime.ofInstant(i, ZoneId.systemDefault());
+    }
+
+    /**
+     * Arma una línea de log: <code>[fecha hora] descripción</code>.
+     * * @param epochNanos Instante de la operación.
+     * @param descripcion Texto de la operación.
+     * @return la línea formateada.
+     */
+    static String linea(long epochNanos, String descripcion) {
+        return "[" + aFecha(epochNanos).format(FORMATO) + "] " + descripcion;
+    }
+}
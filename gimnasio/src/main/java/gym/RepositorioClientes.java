@@ -0,0 +1,139 @@
+package gym;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Repositorio de socios indexado por DNI (el almacén por defecto).
+ * <p>
+ * Reemplaza el recorrido lineal del ArrayList por una tabla hash cuya clave es
+ * {@link Identificable#id()}, así que alta, búsqueda y baja cuestan O(1) en promedio
+ * sin importar cuántos socios haya cargados.
+ * </p>
+ * <p>
+ * Usa un ConcurrentHashMap: las lecturas nunca se bloquean y el alta es atómica
+ * (putIfAbsent), así que dos recepciones no pueden registrar el mismo DNI a la vez.
+ * </p>
+ * <p>
+ * Puede arrancar apoyado en un {@link SnapshotClientes}: los socios del snapshot
+ * se pasan al mapa recién la primera vez que se consultan, y las bajas de socios
+ * que todavía no se materializaron se recuerdan aparte para no "revivirlos".
+ * </p>
+ */
+public class RepositorioClientes implements AlmacenClientes {
+    // Clave = id() del cliente (el DNI)
+    private final ConcurrentHashMap<String, Cliente> porDni = new ConcurrentHashMap<>();
+    private final AtomicInteger tamanio = new AtomicInteger();
+
+    // Snapshot del que todavía quedan socios sin materializar (null si no hay)
+    private volatile SnapshotClientes base;
+    private final Set<String> eliminadosDeBase = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Usa un snapshot como contenido inicial. Sólo se puede llamar con el repositorio vacío.
+     * * @param snapshot Snapshot ya mapeado.
+     */
+    void cargarBase(SnapshotClientes snapshot) {
+        if (tamanio.get() != 0 || base != null) {
+            throw new IllegalStateException("El repositorio ya tiene datos");
+        }
+        base = snapshot;
+        tamanio.set(snapshot.cantidad());
+    }
+
+    /**
+     * Agrega un cliente si su DNI todavía no está registrado.
+     * * @param c Cliente a guardar.
+     * @return true si se agregó, false si el DNI ya existía.
+     */
+    @Override
+    public boolean agregar(Cliente c) {
+        String dni = c.id();
+        if (enBase(dni)) return false;
+        if (porDni.putIfAbsent(dni, c) != null) return false;
+        tamanio.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @param dni DNI a buscar.
+     * @return el cliente con ese DNI, o null si no existe.
+     */
+    @Override
+    public Cliente buscar(String dni) {
+        if (dni == null) return null;
+        Cliente c = porDni.get(dni);
+        if (c != null || base == null) return c;
+        // Primera vez que se pide: lo traemos del snapshot de forma atómica respecto de una baja
+        return porDni.computeIfAbsent(dni, this::leerDeBase);
+    }
+
+    /**
+     * @param dni DNI a verificar.
+     * @return true si hay un cliente con ese DNI.
+     */
+    @Override
+    public boolean contiene(String dni) {
+        return dni != null && (porDni.containsKey(dni) || enBase(dni));
+    }
+
+    /**
+     * Quita un cliente del repositorio.
+     * * @param dni DNI del cliente a eliminar.
+     * @return el cliente eliminado, o null si no existía.
+     */
+    @Override
+    public Cliente eliminar(String dni) {
+        if (dni == null) return null;
+        Cliente[] eliminado = new Cliente[1];
+        porDni.compute(dni, (k, actual) -> {
+            eliminado[0] = actual != null ? actual : leerDeBase(k);
+            SnapshotClientes b = base;
+            if (b != null && b.contiene(k)) eliminadosDeBase.add(k);
+            return null;
+        });
+        if (eliminado[0] != null) tamanio.decrementAndGet();
+        return eliminado[0];
+    }
+
+    /**
+     * @return cantidad de clientes registrados.
+     */
+    @Override
+    public int tamanio() {
+        return tamanio.get();
+    }
+
+    /**
+     * Devuelve todos los clientes. Si quedaban socios del snapshot sin leer,
+     * primero los materializa a todos.
+     * @return vista de solo lectura de todos los clientes (sin orden definido).
+     */
+    @Override
+    public Collection<Cliente> valores() {
+        if (base != null) materializarTodo();
+        return Collections.unmodifiableCollection(porDni.values());
+    }
+
+    private synchronized void materializarTodo() {
+        SnapshotClientes b = base;
+        if (b == null) return;
+        b.recorrer(c -> porDni.computeIfAbsent(c.getDni(), k -> eliminadosDeBase.contains(k) ? null : c));
+        base = null;
+        eliminadosDeBase.clear();
+    }
+
+    private boolean enBase(String dni) {
+        SnapshotClientes b = base;
+        return b != null && !eliminadosDeBase.contains(dni) && !porDni.containsKey(dni) && b.contiene(dni);
+    }
+
+    private Cliente leerDeBase(String dni) {
+        SnapshotClientes b = base;
+        if (b == null || eliminadosDeBase.contains(dni)) return null;
+        return b.leer(dni);
+    }
+}
@@ -0,0 +1,507 @@
+package gym;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Almacén de socios compacto, pensado para millones de registros.
+ * <p>
+ * No guarda objetos por socio: cada uno ocupa una posición ("slot") con una fila
+ * de 3 longs dentro de un único arreglo (DNI como número, fecha de alta como día
+ * epoch, plan como byte y dónde está el nombre), y los nombres van todos juntos
+ * en un buffer de bytes UTF-8, que puede estar fuera del heap. El DNI se busca en
+ * una tabla hash propia de direccionamiento abierto sobre un <code>int[]</code>,
+ * sin objetos por entrada. Los DNIs que no son números (raros) van a un mapa aparte.
+ * </p>
+ * <p>
+ * Los campos de un socio van juntos en la fila y no en un arreglo por campo
+ * porque con millones de socios cada acceso es un fallo de caché: así una búsqueda
+ * toca la tabla, la fila y el nombre, en vez de un arreglo por campo.
+ * </p>
+ * <p>
+ * {@link #buscar(String)} y {@link #valores()} devuelven "vistas": objetos
+ * {@link Cliente} livianos que leen y escriben la fila, así que quien los usa
+ * no nota la diferencia. Cambiar el nombre o el plan de una vista lo cambia en el almacén.
+ * Un nombre null se guarda como "" (igual que en el snapshot).
+ * </p>
+ * <p>
+ * Las escrituras se serializan con un {@link StampedLock}; las lecturas son
+ * optimistas (no escriben nada compartido) y sólo toman el lock si una escritura
+ * se cruzó en el medio.
+ * </p>
+ */
+public final class RepositorioCompacto implements AlmacenClientes {
+    private static final Plan[] PLANES = Plan.values();
+    // Valores especiales de la columna DNI de la fila
+    private static final long DNI_TEXTO = -1;
+    private static final long LIBRE = -2;
+    private static final int SIN_FECHA = Integer.MIN_VALUE;
+    private static final int MAX_NOMBRE = 65_535;
+    private static final int LARGO_FILA = 3;
+
+    private final StampedLock cerrojo = new StampedLock();
+    private final boolean fueraDelHeap;
+
+    // Tabla hash DNI -> slot + 1 (0 = vacío); capacidad potencia de 2, a lo sumo medio llena
+    private int[] tabla;
+
+    // Por slot: [DNI] [fecha de alta << 32 | inicio del nombre] [largo del nombre << 32 | plan << 16 | generación]
+    // La generación cambia al liberar el slot, para que una vista vieja no lea al socio que lo reusa
+    private long[] filas;
+    private int usados;
+    private int[] libres = new int[16];
+    private int cantidadLibres;
+
+    // DNIs que no entran en un long: DNI -> slot y slot -> DNI
+    private final ConcurrentHashMap<String, Integer> textoASlot = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, String> slotATexto = new ConcurrentHashMap<>();
+
+    // Nombres en UTF-8, uno atrás del otro; los que se reemplazan quedan como basura hasta compactar
+    private ByteBuffer arena;
+    private int finArena;
+    private int basura;
+
+    private volatile int tamanio;
+
+    /**
+     * Crea un almacén vacío con los nombres en el heap.
+     */
+    public RepositorioCompacto() {
+        this(false);
+    }
+
+    /**
+     * Crea un almacén vacío.
+     * * @param fueraDelHeap true para guardar los nombres en memoria directa (fuera del heap).
+     */
+    public RepositorioCompacto(boolean fueraDelHeap) {
+        this.fueraDelHeap = fueraDelHeap;
+        this.tabla = new int[1024];
+        this.filas = new long[256 * LARGO_FILA];
+        this.arena = reservar(1 << 16);
+    }
+
+    /**
+     * Un socio visto a través del almacén: nombre y plan se leen de la fila en cada
+     * llamada. Si el socio se da de baja, la vista se queda con los datos que tenía
+     * al crearse o que se le asignaron (aunque después se vuelva a dar de alta el mismo DNI).
+     */
+    private static final class Vista extends Cliente {
+        private final RepositorioCompacto almacen;
+        private final int slot;
+        private final short generacion;
+
+        Vista(RepositorioCompacto almacen, int slot, String dni, String nombre, Plan plan, LocalDate fechaAlta) {
+            super(dni, nombre, plan, fechaAlta);
+            this.almacen = almacen;
+            this.slot = slot;
+            this.generacion = almacen.generacion(slot);
+        }
+
+        @Override
+        public String getNombre() {
+            String n = almacen.leerConsistente(() -> almacen.esDe(this) ? almacen.nombre(slot) : null);
+            return n != null ? n : super.getNombre();
+        }
+
+        @Override
+        public void setNombre(String n) {
+            almacen.renombrar(this, n);
+            super.setNombre(n);
+        }
+
+        @Override
+        public Plan getPlan() {
+            int p = almacen.leerConsistente(() -> almacen.esDe(this) ? almacen.codigoPlan(slot) : -2);
+            if (p == -2) return super.getPlan();
+            return p < 0 ? null : PLANES[p];
+        }
+
+        @Override
+        public void setPlan(Plan p) {
+            almacen.cambiarPlan(this, p);
+            super.setPlan(p);
+        }
+    }
+
+    @Override
+    public boolean agregar(Cliente c) {
+        String dni = c.getDni();
+        long clave = clave(dni);
+        byte[] nombre = texto(c.getNombre());
+        long sello = cerrojo.writeLock();
+        try {
+            if (buscarSlot(dni, clave) >= 0) return false;
+            int s = slotLibre();
+            int f = s * LARGO_FILA;
+            int fecha = c.getFechaAlta() == null ? SIN_FECHA : (int) c.getFechaAlta().toEpochDay();
+            int plan = c.getPlan() == null ? -1 : c.getPlan().ordinal();
+            filas[f] = clave;
+            filas[f + 1] = (long) fecha << 32;
+            filas[f + 2] = (filas[f + 2] & 0xFFFF) | (plan & 0xFFL) << 16;
+            guardarNombre(s, nombre);
+            if (clave == DNI_TEXTO) {
+                textoASlot.put(dni, s);
+                slotATexto.put(s, dni);
+            } else {
+                insertar(clave, s);
+            }
+            tamanio++;
+            return true;
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    @Override
+    public boolean ahorraMemoria() {
+        return true;
+    }
+
+    @Override
+    public Cliente buscar(String dni) {
+        if (dni == null) return null;
+        long clave = clave(dni);
+        return leerConsistente(() -> {
+            int s = buscarSlot(dni, clave);
+            return s < 0 ? null : vista(s, dni);
+        });
+    }
+
+    @Override
+    public Plan planDe(String dni) {
+        if (dni == null) return null;
+        long clave = clave(dni);
+        // Lo mismo que leerConsistente, sin la lambda ni la vista
+        long sello = cerrojo.tryOptimisticRead();
+        if (sello != 0) {
+            try {
+                int s = buscarSlot(dni, clave);
+                Plan p = s < 0 ? null : plan(s);
+                if (cerrojo.validate(sello)) return p;
+            } catch (RuntimeException inconsistente) {
+                // Se cruzó una escritura; se repite con el lock
+            }
+        }
+        sello = cerrojo.readLock();
+        try {
+            int s = buscarSlot(dni, clave);
+            return s < 0 ? null : plan(s);
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    @Override
+    public boolean contiene(String dni) {
+        if (dni == null) return false;
+        long clave = clave(dni);
+        return leerConsistente(() -> buscarSlot(dni, clave) >= 0);
+    }
+
+    @Override
+    public Cliente eliminar(String dni) {
+        if (dni == null) return null;
+        long clave = clave(dni);
+        long sello = cerrojo.writeLock();
+        try {
+            int s = buscarSlot(dni, clave);
+            if (s < 0) return null;
+            // Se devuelve una copia común: la vista ya no tendría de dónde leer
+            Cliente c = new Cliente(dni, nombre(s), plan(s), fecha(s));
+            if (clave == DNI_TEXTO) {
+                textoASlot.remove(dni);
+                slotATexto.remove(s);
+            } else {
+                quitar(clave);
+            }
+            int f = s * LARGO_FILA;
+            basura += largoNombre(s);
+            filas[f] = LIBRE;
+            filas[f + 2] = (filas[f + 2] & ~0xFFFFL) | ((filas[f + 2] + 1) & 0xFFFF);
+            if (cantidadLibres == libres.length) libres = Arrays.copyOf(libres, libres.length * 2);
+            libres[cantidadLibres++] = s;
+            tamanio--;
+            compactarSiConviene();
+            return c;
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    @Override
+    public int tamanio() {
+        return tamanio;
+    }
+
+    /**
+     * Arma una vista por socio. Las vistas son objetos nuevos: conviene
+     * recorrerlas y soltarlas, no guardarlas todas.
+     * @return vistas de todos los socios (sin orden definido).
+     */
+    @Override
+    public Collection<Cliente> valores() {
+        long sello = cerrojo.readLock();
+        try {
+            ArrayList<Cliente> out = new ArrayList<>(tamanio);
+            for (int s = 0; s < usados; s++) {
+                long clave = filas[s * LARGO_FILA];
+                if (clave == LIBRE) continue;
+                out.add(vista(s, clave == DNI_TEXTO ? slotATexto.get(s) : Long.toString(clave)));
+            }
+            return out;
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    /**
+     * @return bytes que ocupan los arreglos y los nombres (incluida la basura sin compactar).
+     */
+    public long bytesReservados() {
+        long sello = cerrojo.readLock();
+        try {
+            return 4L * tabla.length + 8L * filas.length + 4L * libres.length + arena.capacity();
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    /**
+     * Ejecuta una lectura sin lock y la repite con el lock de lectura si en el
+     * medio hubo una escritura. La lectura optimista puede ver arreglos a medio
+     * cambiar y hasta fallar: en ese caso su resultado se descarta.
+     */
+    private <T> T leerConsistente(Supplier<T> lectura) {
+        long sello = cerrojo.tryOptimisticRead();
+        if (sello != 0) {
+            try {
+                T r = lectura.get();
+                if (cerrojo.validate(sello)) return r;
+            } catch (RuntimeException inconsistente) {
+                // Se cruzó una escritura; se repite con el lock
+            }
+        }
+        sello = cerrojo.readLock();
+        try {
+            return lectura.get();
+        } finally {
+            cerrojo.unlockRead(sello);
+        }
+    }
+
+    private Vista vista(int s, String dni) {
+        return new Vista(this, s, dni, nombre(s), plan(s), fecha(s));
+    }
+
+    /** @return true si el slot de la vista sigue siendo de su socio (no cambia mientras esté activo). */
+    private boolean esDe(Vista v) {
+        return filas[v.slot * LARGO_FILA] != LIBRE && generacion(v.slot) == v.generacion;
+    }
+
+    private void renombrar(Vista v, String nuevo) {
+        byte[] b = texto(nuevo);
+        long sello = cerrojo.writeLock();
+        try {
+            if (!esDe(v)) return;
+            basura += largoNombre(v.slot);
+            guardarNombre(v.slot, b);
+            compactarSiConviene();
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    private void cambiarPlan(Vista v, Plan p) {
+        long sello = cerrojo.writeLock();
+        try {
+            if (!esDe(v)) return;
+            int f = v.slot * LARGO_FILA + 2;
+            filas[f] = (filas[f] & ~0xFF_0000L) | ((p == null ? -1 : p.ordinal()) & 0xFFL) << 16;
+        } finally {
+            cerrojo.unlockWrite(sello);
+        }
+    }
+
+    // ---- Filas ----
+
+    private int inicioNombre(int s) {
+        return (int) filas[s * LARGO_FILA + 1];
+    }
+
+    private int largoNombre(int s) {
+        return (int) (filas[s * LARGO_FILA + 2] >>> 32);
+    }
+
+    private int codigoPlan(int s) {
+        return (byte) (filas[s * LARGO_FILA + 2] >>> 16);
+    }
+
+    private short generacion(int s) {
+        return (short) filas[s * LARGO_FILA + 2];
+    }
+
+    private String nombre(int s) {
+        byte[] b = new byte[largoNombre(s)];
+        arena.get(inicioNombre(s), b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private Plan plan(int s) {
+        int p = codigoPlan(s);
+        return p < 0 ? null : PLANES[p];
+    }
+
+    private LocalDate fecha(int s) {
+        int dia = (int) (filas[s * LARGO_FILA + 1] >> 32);
+        return dia == SIN_FECHA ? null : LocalDate.ofEpochDay(dia);
+    }
+
+    private int slotLibre() {
+        if (cantidadLibres > 0) return libres[--cantidadLibres];
+        if ((usados + 1) * LARGO_FILA > filas.length) {
+            if (filas.length > (Integer.MAX_VALUE - 8) / 2) throw new IllegalStateException("Demasiados socios");
+            filas = Arrays.copyOf(filas, filas.length * 2);
+        }
+        return usados++;
+    }
+
+    private static byte[] texto(String s) {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        if (b.length > MAX_NOMBRE) {
+            throw new IllegalArgumentException("Nombre demasiado largo: " + b.length + " bytes");
+        }
+        return b;
+    }
+
+    private void guardarNombre(int s, byte[] b) {
+        if ((long) finArena + b.length > arena.capacity()) {
+            long pedida = Math.max(2L * arena.capacity(), (long) finArena + b.length);
+            if (pedida > Integer.MAX_VALUE - 8) pedida = Integer.MAX_VALUE - 8;
+            if (finArena + b.length > pedida) throw new IllegalStateException("No hay mas lugar para nombres");
+            ByteBuffer mas = reservar((int) pedida);
+            mas.put(0, arena, 0, finArena);
+            arena = mas;
+        }
+        arena.put(finArena, b);
+        int f = s * LARGO_FILA;
+        filas[f + 1] = (filas[f + 1] & ~0xFFFF_FFFFL) | finArena;
+        filas[f + 2] = (filas[f + 2] & 0xFFFF_FFFFL) | (long) b.length << 32;
+        finArena += b.length;
+    }
+
+    /**
+     * Cuando la mitad de los nombres es basura, los copia a un buffer nuevo sin huecos.
+     */
+    private void compactarSiConviene() {
+        if (basura < 1 << 20 || basura < finArena / 2) return;
+        ByteBuffer nueva = reservar(Math.max(1 << 16, (finArena - basura) * 2));
+        int fin = 0;
+        for (int s = 0; s < usados; s++) {
+            int f = s * LARGO_FILA;
+            if (filas[f] == LIBRE) continue;
+            int largo = largoNombre(s);
+            nueva.put(fin, arena, inicioNombre(s), largo);
+            filas[f + 1] = (filas[f + 1] & ~0xFFFF_FFFFL) | fin;
+            fin += largo;
+        }
+        arena = nueva;
+        finArena = fin;
+        basura = 0;
+    }
+
+    private ByteBuffer reservar(int capacidad) {
+        return fueraDelHeap ? ByteBuffer.allocateDirect(capacidad) : ByteBuffer.allocate(capacidad);
+    }
+
+    // ---- Tabla hash de DNIs ----
+
+    /**
+     * @return el DNI como número si es sólo dígitos sin ceros adelante (hasta 18), o {@link #DNI_TEXTO}.
+     */
+    static long clave(String dni) {
+        int n = dni.length();
+        if (n == 0 || n > 18 || (dni.charAt(0) == '0' && n > 1)) return DNI_TEXTO;
+        long v = 0;
+        for (int i = 0; i < n; i++) {
+            char ch = dni.charAt(i);
+            if (ch < '0' || ch > '9') return DNI_TEXTO;
+            v = v * 10 + (ch - '0');
+        }
+        return v;
+    }
+
+    private static int indice(long clave, int mascara) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mascara;
+    }
+
+    private int buscarSlot(String dni, long clave) {
+        if (clave == DNI_TEXTO) {
+            Integer s = textoASlot.get(dni);
+            return s == null ? -1 : s;
+        }
+        int[] t = tabla;
+        long[] f = filas;
+        int m = t.length - 1;
+        int i = indice(clave, m);
+        // Acotado por si una lectura optimista ve la tabla a medio cambiar
+        for (int vueltas = 0; vueltas <= m; vueltas++) {
+            int e = t[i];
+            if (e == 0) return -1;
+            if (f[(e - 1) * LARGO_FILA] == clave) return e - 1;
+            i = (i + 1) & m;
+        }
+        return -1;
+    }
+
+    private void insertar(long clave, int slot) {
+        if ((tamanio - textoASlot.size() + 1) * 2 > tabla.length) agrandarTabla();
+        int m = tabla.length - 1;
+        int i = indice(clave, m);
+        while (tabla[i] != 0) i = (i + 1) & m;
+        tabla[i] = slot + 1;
+    }
+
+    private void agrandarTabla() {
+        int[] vieja = tabla;
+        int[] t = new int[vieja.length * 2];
+        int m = t.length - 1;
+        for (int e : vieja) {
+            if (e == 0) continue;
+            int i = indice(filas[(e - 1) * LARGO_FILA], m);
+            while (t[i] != 0) i = (i + 1) & m;
+            t[i] = e;
+        }
+        tabla = t;
+    }
+
+    /**
+     * Quita una clave corriendo hacia atrás las que vienen después en la misma
+     * cadena de sondeo, así la tabla nunca acumula lápidas.
+     */
+    private void quitar(long clave) {
+        int m = tabla.length - 1;
+        int i = indice(clave, m);
+        while (filas[(tabla[i] - 1) * LARGO_FILA] != clave) i = (i + 1) & m;
+        int j = i;
+        while (true) {
+            j = (j + 1) & m;
+            if (tabla[j] == 0) break;
+            int ideal = indice(filas[(tabla[j] - 1) * LARGO_FILA], m);
+            // Si su posición ideal está en (i, j], la entrada puede quedarse donde está
+            boolean quedarse = i <= j ? (i < ideal && ideal <= j) : (i < ideal || ideal <= j);
+            if (quedarse) continue;
+            tabla[i] = tabla[j];
+            i = j;
+        }
+        tabla[i] = 0;
+    }
+}
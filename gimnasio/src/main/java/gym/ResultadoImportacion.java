@@ -0,0 +1,36 @@
+package gym;
+
+/**
+ * Resumen de una importación de socios desde CSV.
+ */
+public final class ResultadoImportacion {
+    private final long filas;
+    private final long importadas;
+    private final long rechazadas;
+    private final int lotes;
+
+    ResultadoImportacion(long filas, long importadas, long rechazadas, int lotes) {
+        this.filas = filas;
+        this.importadas = importadas;
+        this.rechazadas = rechazadas;
+        this.lotes = lotes;
+    }
+
+    /** @return filas de datos leídas (sin contar la cabecera ni las líneas vacías). */
+    public long filas() { return filas; }
+
+    /** @return socios dados de alta. */
+    public long importadas() { return importadas; }
+
+    /** @return filas rechazadas por formato inválido o DNI ya registrado. */
+    public long rechazadas() { return rechazadas; }
+
+    /** @return cantidad de lotes en que se aplicó la importación (uno por entrada del log). */
+    public int lotes() { return lotes; }
+
+    @Override
+    public String toString() {
+        return "ResultadoImportacion [filas=" + filas + ", importadas=" + importadas
+                + ", rechazadas=" + rechazadas + ", lotes=" + lotes + "]";
+    }
+}
@@ -0,0 +1,82 @@
+package gym;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Totales de una corrida de facturación, por plan.
+ * <p>
+ * Los montos se acumulan en centavos (long) y no en double: así la suma da
+ * exactamente lo mismo sin importar en qué orden la hagan los hilos, y se puede
+ * comparar la corrida paralela con la secuencial con un simple equals.
+ * </p>
+ */
+public final class ResumenFacturacion {
+    private static final Plan[] PLANES = Plan.values();
+
+    private final LocalDate referencia;
+    private final long[] socios;
+    private final long[] conDescuento;
+    private final long[] centavos;
+
+    ResumenFacturacion(LocalDate referencia, long[] socios, long[] conDescuento, long[] centavos) {
+        this.referencia = referencia;
+        this.socios = socios.clone();
+        this.conDescuento = conDescuento.clone();
+        this.centavos = centavos.clone();
+    }
+
+    /** @return fecha a la que se calculó la antigüedad de todos los socios. */
+    public LocalDate referencia() { return referencia; }
+
+    /** @return cantidad de socios facturados con ese plan. */
+    public long socios(Plan p) { return socios[p.ordinal()]; }
+
+    /** @return cantidad de socios de ese plan con descuento por antigüedad. */
+    public long conDescuento(Plan p) { return conDescuento[p.ordinal()]; }
+
+    /** @return total facturado a ese plan, en centavos. */
+    public long totalCentavos(Plan p) { return centavos[p.ordinal()]; }
+
+    /** @return cantidad total de socios facturados. */
+    public long socios() { return Arrays.stream(socios).sum(); }
+
+    /** @return cantidad total de socios con descuento. */
+    public long conDescuento() { return Arrays.stream(conDescuento).sum(); }
+
+    /** @return total facturado, en centavos. */
+    public long totalCentavos() { return Arrays.stream(centavos).sum(); }
+
+    /**
+     * @return el resumen como líneas para mostrar en la consola.
+     */
+    public String[] comoLineas() {
+        String[] out = new String[PLANES.length + 1];
+        for (Plan p : PLANES) {
+            out[p.ordinal()] = String.format("%-8s %8d socios  %8d c/desc.  $%s",
+                    p, socios(p), conDescuento(p), Facturacion.importe(totalCentavos(p)));
+        }
+        out[PLANES.length] = String.format("%-8s %8d socios  %8d c/desc.  $%s",
+                "TOTAL", socios(), conDescuento(), Facturacion.importe(totalCentavos()));
+        return out;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ResumenFacturacion r)) return false;
+        return referencia.equals(r.referencia) && Arrays.equals(socios, r.socios)
+                && Arrays.equals(conDescuento, r.conDescuento) && Arrays.equals(centavos, r.centavos);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * referencia.hashCode() + Arrays.hashCode(centavos);
+    }
+
+    @Override
+    public String toString() {
+        return "ResumenFacturacion [referencia=" + referencia + ", socios=" + socios()
+                + ", conDescuento=" + conDescuento() + ", total=$" + Facturacion.importe(totalCentavos()) + "]";
+    }
+}
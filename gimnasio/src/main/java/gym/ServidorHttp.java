@@ -0,0 +1,487 @@
+package gym;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * API HTTP con JSON sobre el servidor que trae el JDK, para kioscos y recepciones.
+ * <p>
+ * Cada pedido se atiende en su propio hilo virtual: un pedido que espera el
+ * fsync del journal o un lock no ocupa un hilo del sistema, así que miles de
+ * pedidos simultáneos no necesitan miles de hilos. Las respuestas se arman con
+ * {@link Json.Escritor}, que escribe los bytes directamente.
+ * </p>
+ * <pre>
+ * POST   /socios                  {"dni","nombre","plan","fechaAlta"?}  alta (201; 409 si el DNI existe)
+ * GET    /socios?prefijo=&amp;tamanio=&amp;token=                          listado por nombre, de a páginas
+ * GET    /socios?nombre=&amp;tamanio=                                    búsqueda aproximada por nombre, los más parecidos primero
+ * GET    /socios/{dni}                                                 búsqueda
+ * PATCH  /socios/{dni}            {"nombre"?, "plan"?}                  modificación
+ * DELETE /socios/{dni}                                                 baja
+ * GET    /socios/{dni}/cuota                                           cuota del mes
+ * GET    /estadisticas?meses=12                                        activos, recaudación, altas y bajas
+ * GET    /log?dni=&amp;tipo=&amp;desde=&amp;hasta=&amp;tamanio=&amp;token=&amp;orden=asc   auditoría
+ * POST   /ingresos                {"dni"}                               molinete de entrada (200, o 403 si no pasa)
+ * POST   /salidas                                                      molinete de salida
+ * GET    /accesos?desde=&amp;hasta=&amp;dni=                                 ocupación, visitas por hora y hora pico
+ * POST   /pagos                   {"dni","monto"}                       pago (devuelve el próximo vencimiento)
+ * GET    /morosos?fecha=&amp;tamanio=                                     deuda vencida y los socios más atrasados
+ * </pre>
+ * Los errores vuelven como <code>{"error": "..."}</code> con 400, 404, 405, 409 o 500.
+ * Las fechas son <code>yyyy-MM-dd</code> y los rangos incluyen el último día.
+ */
+public final class ServidorHttp implements AutoCloseable {
+    private static final int MAX_CUERPO = 64 * 1024;
+    private static final int MAX_PAGINA = 1000;
+
+    static {
+        // El servidor del JDK manda cabeceras y cuerpo en dos escrituras: con Nagle
+        // activo, la segunda espera el ACK demorado del cliente (~40 ms por pedido).
+        // Tiene que quedar puesto antes de crear el primer HttpServer.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final GimnasioService servicio;
+    private final HttpServer http;
+    private final ExecutorService hilos;
+
+    /**
+     * Crea el servidor sin arrancarlo.
+     * * @param servicio Servicio al que se delegan los pedidos (no se cierra con el servidor).
+     * @param puerto Puerto TCP, o 0 para que el sistema elija uno libre.
+     * @throws IOException si no se puede abrir el puerto.
+     */
+    public ServidorHttp(GimnasioService servicio, int puerto) throws IOException {
+        this.servicio = servicio;
+        this.http = HttpServer.create(new InetSocketAddress(puerto), 1024);
+        this.hilos = Executors.newVirtualThreadPerTaskExecutor();
+        http.setExecutor(hilos);
+        http.createContext("/socios", ex -> atender(ex, this::socios));
+        http.createContext("/estadisticas", ex -> atender(ex, this::estadisticas));
+        http.createContext("/log", ex -> atender(ex, this::log));
+        http.createContext("/ingresos", ex -> atender(ex, this::ingresos));
+        http.createContext("/salidas", ex -> atender(ex, this::salidas));
+        http.createContext("/accesos", ex -> atender(ex, this::accesos));
+        http.createContext("/pagos", ex -> atender(ex, this::pagos));
+        http.createContext("/morosos", ex -> atender(ex, this::morosos));
+        // Todo lo demás: 404 en JSON en vez de la página HTML del JDK
+        http.createContext("/", ex -> atender(ex, p -> error(404, "Ruta desconocida: " + ex.getRequestURI().getPath())));
+    }
+
+    /** Empieza a aceptar pedidos. */
+    public void iniciar() {
+        http.start();
+    }
+
+    /** @return el puerto en el que escucha. */
+    public int puerto() {
+        return http.getAddress().getPort();
+    }
+
+    /**
+     * Deja de aceptar pedidos y espera un instante a que terminen los que están en curso.
+     */
+    @Override
+    public void close() {
+        http.stop(1);
+        hilos.shutdown();
+    }
+
+    /** Respuesta de una ruta: estado HTTP y cuerpo JSON (null para no mandar cuerpo). */
+    private record Respuesta(int estado, Json.Escritor cuerpo) { }
+
+    @FunctionalInterface
+    private interface Ruta {
+        Respuesta atender(Pedido p) throws IOException;
+    }
+
+    /** Lo que las rutas necesitan del pedido, ya decodificado. */
+    private static final class Pedido {
+        final String metodo;
+        // Segmentos del camino después del contexto: /socios/123/cuota -> ["123", "cuota"]
+        final String[] camino;
+        final Map<String, String> parametros;
+        final HttpExchange ex;
+
+        Pedido(HttpExchange ex) {
+            this.ex = ex;
+            this.metodo = ex.getRequestMethod();
+            String contexto = ex.getHttpContext().getPath();
+            String resto = ex.getRequestURI().getRawPath().substring(contexto.length());
+            this.camino = segmentos(resto);
+            this.parametros = parametros(ex.getRequestURI().getRawQuery());
+        }
+
+        String parametro(String nombre) {
+            String v = parametros.get(nombre);
+            return v == null || v.isEmpty() ? null : v;
+        }
+
+        int entero(String nombre, int omision, int maximo) {
+            String v = parametro(nombre);
+            if (v == null) return omision;
+            int n;
+            try {
+                n = Integer.parseInt(v);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("El parametro " + nombre + " debe ser un numero: " + v);
+            }
+            if (n <= 0 || n > maximo) {
+                throw new IllegalArgumentException("El parametro " + nombre + " debe estar entre 1 y " + maximo);
+            }
+            return n;
+        }
+
+        Map<String, String> cuerpo() throws IOException {
+            try (InputStream in = ex.getRequestBody()) {
+                byte[] datos = in.readNBytes(MAX_CUERPO + 1);
+                if (datos.length > MAX_CUERPO) throw new IllegalArgumentException("Cuerpo demasiado grande");
+                return Json.leerObjeto(datos);
+            }
+        }
+
+        private static String[] segmentos(String camino) {
+            List<String> out = new java.util.ArrayList<>(4);
+            for (String s : camino.split("/")) {
+                if (!s.isEmpty()) out.add(URLDecoder.decode(s, StandardCharsets.UTF_8));
+            }
+            return out.toArray(new String[0]);
+        }
+
+        private static Map<String, String> parametros(String query) {
+            Map<String, String> out = new HashMap<>();
+            if (query == null) return out;
+            for (String par : query.split("&")) {
+                int igual = par.indexOf('=');
+                String k = igual < 0 ? par : par.substring(0, igual);
+                String v = igual < 0 ? "" : par.substring(igual + 1);
+                out.put(URLDecoder.decode(k, StandardCharsets.UTF_8), URLDecoder.decode(v, StandardCharsets.UTF_8));
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Corre la ruta y traduce sus excepciones a códigos HTTP.
+     */
+    private void atender(HttpExchange ex, Ruta ruta) throws IOException {
+        Respuesta r;
+        try {
+            r = ruta.atender(new Pedido(ex));
+        } catch (SocioNoEncontradoException e) {
+            r = error(404, e.getMessage());
+        } catch (IllegalArgumentException | DateTimeException e) {
+            r = error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error atendiendo " + ex.getRequestMethod() + " " + ex.getRequestURI() + ": " + e);
+            r = error(500, "Error interno: " + e.getMessage());
+        }
+        try (ex) {
+            if (r.cuerpo() == null) {
+                ex.sendResponseHeaders(r.estado(), -1);
+                return;
+            }
+            ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            ex.sendResponseHeaders(r.estado(), r.cuerpo().largo());
+            try (OutputStream out = ex.getResponseBody()) {
+                r.cuerpo().enviar(out);
+            }
+        }
+    }
+
+    private static Respuesta error(int estado, String mensaje) {
+        return new Respuesta(estado, new Json.Escritor().abrirObjeto().campo("error").valor(mensaje).cerrarObjeto());
+    }
+
+    private static Respuesta metodoNoPermitido(Pedido p, String permitidos) {
+        p.ex.getResponseHeaders().set("Allow", permitidos);
+        return error(405, "Metodo no permitido: " + p.metodo);
+    }
+
+    // ---- /socios ----
+
+    private Respuesta socios(Pedido p) throws IOException {
+        String[] c = p.camino;
+        if (c.length == 0) {
+            return switch (p.metodo) {
+                case "GET" -> listar(p);
+                case "POST" -> alta(p);
+                default -> metodoNoPermitido(p, "GET, POST");
+            };
+        }
+        String dni = c[0];
+        if (c.length == 1) {
+            return switch (p.metodo) {
+                case "GET" -> new Respuesta(200, socio(new Json.Escritor(), servicio.buscarPorDni(dni)));
+                case "PATCH" -> modificar(p, dni);
+                case "DELETE" -> servicio.baja(dni) ? new Respuesta(204, null)
+                        : error(404, "No existe cliente con DNI " + dni);
+                default -> metodoNoPermitido(p, "GET, PATCH, DELETE");
+            };
+        }
+        if (c.length == 2 && c[1].equals("cuota")) {
+            if (!p.metodo.equals("GET")) return metodoNoPermitido(p, "GET");
+            double cuota = servicio.cuotaDe(dni);
+            return new Respuesta(200, new Json.Escritor().abrirObjeto()
+                    .campo("dni").valor(dni)
+                    .campo("cuota").centavos(Facturacion.centavos(cuota))
+                    .cerrarObjeto());
+        }
+        return error(404, "Ruta desconocida: " + p.ex.getRequestURI().getPath());
+    }
+
+    private Respuesta alta(Pedido p) throws IOException {
+        Map<String, String> b = p.cuerpo();
+        String nombre = b.get("nombre");
+        if (nombre == null || nombre.isBlank()) throw new IllegalArgumentException("El nombre no puede estar vacio");
+        String fecha = b.get("fechaAlta");
+        Cliente c = new Cliente(b.get("dni"), nombre, plan(b.get("plan")),
+                fecha == null ? LocalDate.now() : LocalDate.parse(fecha));
+        try {
+            servicio.altaCliente(c);
+        } catch (IllegalArgumentException duplicado) {
+            // Plan y fecha ya están validados: lo único que queda por rechazar es el DNI repetido
+            return error(409, duplicado.getMessage());
+        }
+        p.ex.getResponseHeaders().set("Location", "/socios/" + c.getDni());
+        return new Respuesta(201, socio(new Json.Escritor(), c));
+    }
+
+    private Respuesta modificar(Pedido p, String dni) throws IOException {
+        Map<String, String> b = p.cuerpo();
+        if (!b.containsKey("nombre") && !b.containsKey("plan")) {
+            throw new IllegalArgumentException("Hay que indicar nombre o plan");
+        }
+        Plan plan = b.containsKey("plan") ? plan(b.get("plan")) : null;
+        if (b.containsKey("nombre")) {
+            String nombre = b.get("nombre");
+            if (nombre == null || nombre.isBlank()) throw new IllegalArgumentException("El nombre no puede estar vacio");
+            servicio.modificarNombre(dni, nombre);
+        }
+        if (plan != null) servicio.cambiarPlan(dni, plan);
+        return new Respuesta(200, socio(new Json.Escritor(), servicio.buscarPorDni(dni)));
+    }
+
+    private Respuesta listar(Pedido p) {
+        String nombre = p.parametro("nombre");
+        if (nombre != null) {
+            List<Cliente> encontrados = servicio.buscarPorNombre(nombre, p.entero("tamanio", 10, MAX_PAGINA));
+            Json.Escritor w = new Json.Escritor(128 + encontrados.size() * 96);
+            w.abrirObjeto().campo("socios").abrirLista();
+            for (Cliente c : encontrados) socio(w, c);
+            return new Respuesta(200, w.cerrarLista().cerrarObjeto());
+        }
+        PaginaSocios pagina = servicio.listarPorNombre(p.parametro("prefijo"),
+                p.entero("tamanio", 50, MAX_PAGINA), p.parametro("token"));
+        Json.Escritor w = new Json.Escritor(128 + pagina.socios().size() * 96);
+        w.abrirObjeto().campo("socios").abrirLista();
+        for (Cliente c : pagina.socios()) socio(w, c);
+        w.cerrarLista().campo("token").valor(pagina.token()).campo("hayMas").valor(pagina.hayMas());
+        return new Respuesta(200, w.cerrarObjeto());
+    }
+
+    private static Plan plan(String nombre) {
+        if (nombre == null) throw new IllegalArgumentException("Falta el plan");
+        try {
+            return Plan.valueOf(nombre.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Plan desconocido: " + nombre);
+        }
+    }
+
+    private static Json.Escritor socio(Json.Escritor w, Cliente c) {
+        Plan plan = c.getPlan();
+        LocalDate alta = c.getFechaAlta();
+        return w.abrirObjeto()
+                .campo("dni").valor(c.getDni())
+                .campo("nombre").valor(c.getNombre())
+                .campo("plan").valor(plan == null ? null : plan.name())
+                .campo("fechaAlta").valor(alta == null ? null : alta.toString())
+                .cerrarObjeto();
+    }
+
+    // ---- /estadisticas ----
+
+    private Respuesta estadisticas(Pedido p) {
+        if (!p.metodo.equals("GET")) return metodoNoPermitido(p, "GET");
+        if (p.camino.length != 0) return error(404, "Ruta desconocida: " + p.ex.getRequestURI().getPath());
+        int meses = p.entero("meses", 12, 120);
+        EstadisticasSocios e = servicio.estadisticas();
+        Json.Escritor w = new Json.Escritor(512 + meses * 48);
+        w.abrirObjeto()
+                .campo("fecha").valor(e.fecha().toString())
+                .campo("activos").valor(e.activos())
+                .campo("conDescuento").valor(e.conDescuento())
+                .campo("recaudacionMensual").centavos(e.recaudacionCentavos())
+                .campo("planes").abrirLista();
+        for (Plan plan : Plan.values()) {
+            w.abrirObjeto()
+                    .campo("plan").valor(plan.name())
+                    .campo("activos").valor(e.activos(plan))
+                    .campo("conDescuento").valor(e.conDescuento(plan))
+                    .campo("recaudacionMensual").centavos(e.recaudacionCentavos(plan))
+                    .cerrarObjeto();
+        }
+        w.cerrarLista().campo("meses").abrirLista();
+        YearMonth hasta = YearMonth.now();
+        for (YearMonth m = hasta.minusMonths(meses - 1); !m.isAfter(hasta); m = m.plusMonths(1)) {
+            w.abrirObjeto()
+                    .campo("mes").valor(m.toString())
+                    .campo("altas").valor(e.altas(m))
+                    .campo("bajas").valor(e.bajas(m))
+                    .cerrarObjeto();
+        }
+        return new Respuesta(200, w.cerrarLista().cerrarObjeto());
+    }
+
+    // ---- /log ----
+
+    private Respuesta log(Pedido p) {
+        if (!p.metodo.equals("GET")) return metodoNoPermitido(p, "GET");
+        if (p.camino.length != 0) return error(404, "Ruta desconocida: " + p.ex.getRequestURI().getPath());
+        int tamanio = p.entero("tamanio", 20, MAX_PAGINA);
+        ConsultaLog consulta = "asc".equals(p.parametro("orden"))
+                ? ConsultaLog.masViejasPrimero(tamanio) : ConsultaLog.masNuevasPrimero(tamanio);
+        String tipo = p.parametro("tipo");
+        String desde = p.parametro("desde");
+        String hasta = p.parametro("hasta");
+        String token = p.parametro("token");
+        consulta = consulta.delSocio(p.parametro("dni"))
+                .deTipo(tipo == null ? null : TipoOperacion.valueOf(tipo.toUpperCase()))
+                // "hasta" es un día incluido, como en la auditoría de la consola
+                .entre(desde == null ? null : LocalDate.parse(desde).atStartOfDay(),
+                        hasta == null ? null : LocalDate.parse(hasta).plusDays(1).atStartOfDay());
+        if (token != null) consulta = consulta.continuarDesde(Long.parseLong(token));
+
+        PaginaLog pagina = servicio.leerLog(consulta);
+        Json.Escritor w = new Json.Escritor(128 + pagina.eventos().size() * 160);
+        w.abrirObjeto().campo("eventos").abrirLista();
+        for (EventoOperacion e : pagina.eventos()) {
+            w.abrirObjeto()
+                    .campo("secuencia").valor(e.secuencia())
+                    .campo("instante").valor(Reloj.aFecha(e.epochNanos()).toString())
+                    .campo("tipo").valor(e.tipo().name())
+                    .campo("dni").valor(e.dni())
+                    .campo("descripcion").valor(e.tipo().describir(e.dni(), e.anterior(), e.nuevo()))
+                    .cerrarObjeto();
+        }
+        w.cerrarLista()
+                .campo("token").valor(pagina.hayMas() ? Long.toString(pagina.token()) : null)
+                .campo("hayMas").valor(pagina.hayMas());
+        return new Respuesta(200, w.cerrarObjeto());
+    }
+
+    // ---- molinetes ----
+
+    private Respuesta ingresos(Pedido p) throws IOException {
+        if (!p.metodo.equals("POST")) return metodoNoPermitido(p, "POST");
+        if (p.camino.length != 0) return error(404, "Ruta desconocida: " + p.ex.getRequestURI().getPath());
+        String dni = p.cuerpo().get("dni");
+        if (dni == null || dni.isEmpty()) throw new IllegalArgumentException("Falta el dni");
+        ControlAcceso.Ingreso r = servicio.ingresar(dni);
+        return new Respuesta(r == ControlAcceso.Ingreso.PERMITIDO ? 200 : 403, new Json.Escritor(96).abrirObjeto()
+                .campo("resultado").valor(r.name())
+                .campo("ocupacion").valor(servicio.accesos().ocupacion())
+                .cerrarObjeto());
+    }
+
+    private Respuesta salidas(Pedido p) {
+        if (!p.metodo.equals("POST")) return metodoNoPermitido(p, "POST");
+        if (p.camino.length != 0) return error(404, "Ruta desconocida: " + p.ex.getRequestURI().getPath());
+        servicio.registrarSalida();
+        return new Respuesta(200, new Json.Escritor(32).abrirObjeto()
+                .campo("ocupacion").valor(servicio.accesos().ocupacion())
+                .cerrarObjeto());
+    }
+
+    private Respuesta accesos(Pedido p) {
+        if (!p.metodo.equals("GET")) return metodoNoPermitido(p, "GET");
+        if (p.camino.length != 0) return error(404, "Ruta desconocida: " + p.ex.getRequestURI().getPath());
+        String h = p.parametro("hasta");
+        String d = p.parametro("desde");
+        LocalDate hasta = h == null ? LocalDate.now() : LocalDate.parse(h);
+        LocalDate desde = d == null ? hasta.minusDays(29) : LocalDate.parse(d);
+        ControlAcceso a = servicio.accesos();
+        Json.Escritor w = new Json.Escritor(512);
+        w.abrirObjeto()
+                .campo("ocupacion").valor(a.ocupacion())
+                .campo("desde").valor(desde.toString())
+                .campo("hasta").valor(hasta.toString())
+                .campo("visitasPorHora").abrirLista();
+        for (int visitas : a.visitasPorHora(desde, hasta)) w.valor(visitas);
+        w.cerrarLista();
+        int pico = a.horaPico(desde, hasta);
+        w.campo("horaPico");
+        if (pico < 0) w.valor((String) null);
+        else w.valor(pico);
+        String dni = p.parametro("dni");
+        if (dni != null) w.campo("dni").valor(dni).campo("visitas").valor(a.visitas(dni, desde, hasta));
+        return new Respuesta(200, w.cerrarObjeto());
+    }
+
+    // ---- /pagos y /morosos ----
+
+    private Respuesta pagos(Pedido p) throws IOException {
+        if (!p.metodo.equals("POST")) return metodoNoPermitido(p, "POST");
+        if (p.camino.length != 0) return error(404, "Ruta desconocida: " + p.ex.getRequestURI().getPath());
+        Map<String, String> b = p.cuerpo();
+        String dni = b.get("dni");
+        String monto = b.get("monto");
+        if (dni == null || dni.isEmpty()) throw new IllegalArgumentException("Falta el dni");
+        if (monto == null) throw new IllegalArgumentException("Falta el monto");
+        double valor;
+        try {
+            valor = Double.parseDouble(monto);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El monto debe ser un numero: " + monto);
+        }
+        LocalDate vence = servicio.registrarPago(dni, valor);
+        return new Respuesta(200, new Json.Escritor(96).abrirObjeto()
+                .campo("dni").valor(dni)
+                .campo("vencimiento").valor(vence.toString())
+                .campo("saldo").centavos(servicio.pagos().saldo(dni))
+                .cerrarObjeto());
+    }
+
+    private Respuesta morosos(Pedido p) {
+        if (!p.metodo.equals("GET")) return metodoNoPermitido(p, "GET");
+        if (p.camino.length != 0) return error(404, "Ruta desconocida: " + p.ex.getRequestURI().getPath());
+        String f = p.parametro("fecha");
+        LocalDate fecha = f == null ? LocalDate.now() : LocalDate.parse(f);
+        LibroPagos pagos = servicio.pagos();
+        List<LibroPagos.Moroso> morosos = pagos.morosos(fecha, p.entero("tamanio", 50, MAX_PAGINA));
+        Json.Escritor w = new Json.Escritor(256 + morosos.size() * 128);
+        w.abrirObjeto()
+                .campo("fecha").valor(fecha.toString())
+                .campo("cantidad").valor(pagos.cantidadMorosos(fecha))
+                .campo("deuda").centavos(pagos.deudaVencida(fecha))
+                .campo("morosos").abrirLista();
+        for (LibroPagos.Moroso m : morosos) {
+            w.abrirObjeto()
+                    .campo("dni").valor(m.socio().getDni())
+                    .campo("nombre").valor(m.socio().getNombre())
+                    .campo("vencimiento").valor(m.vencimiento().toString())
+                    .campo("cuotas").valor(m.cuotas())
+                    .campo("deuda").centavos(m.centavos())
+                    .cerrarObjeto();
+        }
+        return new Respuesta(200, w.cerrarLista().cerrarObjeto());
+    }
+}
@@ -0,0 +1,316 @@
+package gym;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Foto binaria (snapshot) de todos los socios en un momento dado.
+ * <p>
+ * Formato del archivo:
+ * <pre>
+ * cabecera (128 bytes): magia, versión, posición del journal cubierta,
+ *                       cantidad de socios, slots de la tabla, offsets, altas por mes,
+ *                       offset y largo de las estadísticas, offset y cantidad de cuentas,
+ *                       mes de apertura del libro de pagos (desde la versión 4)
+ * datos:  por socio [short largo][dni UTF-8][short largo][nombre UTF-8][byte plan][int día epoch]
+ * tabla:  int[slots] con (offset del registro + 1), 0 = vacío; direccionamiento abierto por hash del DNI
+ * estadísticas: int[] de {@link EstadisticasSocios#exportar()} (desde la versión 2)
+ * cuentas: por socio que pagó [short largo][dni UTF-8][int mes impago][long saldo] (desde la versión 3)
+ * </pre>
+ * Al abrirlo sólo se mapea en memoria (mmap) y se lee la cabecera, así que el
+ * tiempo de arranque no depende de la cantidad de socios. Los objetos
+ * {@link Cliente} se arman recién cuando alguien los pide.
+ * </p>
+ */
+final class SnapshotClientes {
+    // "GYMS" + versión del formato
+    private static final int MAGIA = 0x47594D53;
+    private static final int VERSION = 4;
+    private static final int LARGO_CABECERA = 128;
+    private static final Plan[] PLANES = Plan.values();
+
+    private final MappedByteBuffer mapa;
+    private final long posicionJournal;
+    private final int cantidad;
+    private final int mascara;
+    private final int inicioTabla;
+    private final int inicioDatos;
+    private final int finDatos;
+    private final int[] altasPorMes = new int[12];
+    private final int inicioEstadisticas;
+    private final int largoEstadisticas;
+    private final int inicioCuentas;
+    private final int cantidadCuentas;
+    private final boolean conApertura;
+    private final int apertura;
+
+    private SnapshotClientes(MappedByteBuffer mapa) throws IOException {
+        this.mapa = mapa;
+        if (mapa.capacity() < LARGO_CABECERA || mapa.getInt(0) != MAGIA) {
+            throw new IOException("El archivo no es un snapshot del gimnasio");
+        }
+        int version = mapa.getInt(4);
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Version de snapshot no soportada: " + mapa.getInt(4));
+        }
+        this.posicionJournal = mapa.getLong(8);
+        this.cantidad = mapa.getInt(16);
+        this.mascara = mapa.getInt(20) - 1;
+        this.inicioDatos = mapa.getInt(24);
+        this.inicioTabla = mapa.getInt(28);
+        this.finDatos = inicioTabla;
+        for (int i = 0; i < 12; i++) altasPorMes[i] = mapa.getInt(32 + i * 4);
+        // La versión 1 no guardaba estadísticas
+        this.inicioEstadisticas = version == 1 ? 0 : mapa.getInt(80);
+        this.largoEstadisticas = version == 1 ? 0 : mapa.getInt(84);
+        // Antes de la versión 3 no había pagos
+        this.inicioCuentas = version < 3 ? 0 : mapa.getInt(88);
+        this.cantidadCuentas = version < 3 ? 0 : mapa.getInt(92);
+        // Antes de la versión 4 el libro de pagos no se abría
+        this.conApertura = version >= 4;
+        this.apertura = conApertura ? mapa.getInt(96) : Integer.MIN_VALUE;
+    }
+
+    /**
+     * Mapea un snapshot existente. No lee los socios: eso se hace a demanda.
+     * * @param archivo Ruta del snapshot.
+     * @return el snapshot listo para consultar.
+     * @throws IOException si el archivo no existe o no tiene el formato esperado.
+     */
+    static SnapshotClientes abrir(Path archivo) throws IOException {
+        try (FileChannel ch = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot demasiado grande para mapear: " + ch.size() + " bytes");
+            }
+            // El mapeo sigue siendo válido aunque cerremos el canal
+            return new SnapshotClientes(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    /**
+     * Escribe un snapshot nuevo.
+     * * @param archivo Destino (se sobreescribe).
+     * @param posicionJournal Posición del journal hasta la que llega esta foto.
+     * @param altasPorMes Estadística de altas a guardar.
+     * @param estadisticas Resto de las estadísticas, de {@link EstadisticasSocios#exportar()}.
+     * @param clientes Socios a guardar.
+     * @param cuentas Cuentas del libro de pagos, de {@link LibroPagos#exportar()}.
+     * @param apertura Mes de apertura del libro de pagos, de {@link LibroPagos#apertura()}.
+     * @throws IOException si falla la escritura.
+     */
+    static void escribir(Path archivo, long posicionJournal, int[] altasPorMes, int[] estadisticas,
+                         Collection<Cliente> clientes, Map<String, LibroPagos.Cuenta> cuentas, int apertura) throws IOException {
+        int n = clientes.size();
+        int slots = Integer.highestOneBit(Math.max(2, n) * 2 - 1) << 1;
+        int[] tabla = new int[slots];
+
+        try (FileChannel ch = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocate(1 << 20);
+            long pos = LARGO_CABECERA;
+            ch.position(pos);
+
+            // Datos: vamos anotando en la tabla dónde quedó cada registro
+            for (Cliente c : clientes) {
+                byte[] dni = c.getDni().getBytes(StandardCharsets.UTF_8);
+                byte[] nombre = texto(c.getNombre());
+                int largo = 2 + dni.length + 2 + nombre.length + 1 + 4;
+                if (buf.remaining() < largo) pos += vaciar(ch, buf);
+
+                int offset = (int) (pos + buf.position() - LARGO_CABECERA);
+                int i = indice(c.getDni().hashCode(), slots - 1);
+                while (tabla[i] != 0) i = (i + 1) & (slots - 1);
+                tabla[i] = offset + 1;
+
+                buf.putShort((short) dni.length).put(dni);
+                buf.putShort((short) nombre.length).put(nombre);
+                buf.put((byte) c.getPlan().ordinal());
+                buf.putInt((int) c.getFechaAlta().toEpochDay());
+            }
+            pos += vaciar(ch, buf);
+            if (pos + 4L * slots > Integer.MAX_VALUE) {
+                throw new IOException("Demasiados socios para un solo snapshot");
+            }
+            int inicioTabla = (int) pos;
+
+            for (int t : tabla) {
+                if (buf.remaining() < 4) pos += vaciar(ch, buf);
+                buf.putInt(t);
+            }
+            pos += vaciar(ch, buf);
+            if (pos + 4L * estadisticas.length > Integer.MAX_VALUE) {
+                throw new IOException("Demasiados socios para un solo snapshot");
+            }
+            int inicioEstadisticas = (int) pos;
+
+            for (int e : estadisticas) {
+                if (buf.remaining() < 4) pos += vaciar(ch, buf);
+                buf.putInt(e);
+            }
+            pos += vaciar(ch, buf);
+            int inicioCuentas = (int) pos;
+
+            for (Map.Entry<String, LibroPagos.Cuenta> e : cuentas.entrySet()) {
+                byte[] dni = e.getKey().getBytes(StandardCharsets.UTF_8);
+                if (buf.remaining() < 2 + dni.length + 4 + 8) pos += vaciar(ch, buf);
+                buf.putShort((short) dni.length).put(dni);
+                buf.putInt(e.getValue().mes()).putLong(e.getValue().saldo());
+            }
+            pos += vaciar(ch, buf);
+            if (pos > Integer.MAX_VALUE) {
+                throw new IOException("Demasiados socios para un solo snapshot");
+            }
+
+            // La cabecera va al final: un snapshot a medio escribir queda sin magia válida
+            buf.putInt(MAGIA).putInt(VERSION).putLong(posicionJournal).putInt(n).putInt(slots)
+               .putInt(LARGO_CABECERA).putInt(inicioTabla);
+            for (int a : altasPorMes) buf.putInt(a);
+            buf.putInt(inicioEstadisticas).putInt(estadisticas.length);
+            buf.putInt(inicioCuentas).putInt(cuentas.size());
+            buf.putInt(apertura);
+            buf.flip();
+            long p = 0;
+            while (buf.hasRemaining()) p += ch.write(buf, p);
+            ch.force(true);
+        }
+    }
+
+    private static byte[] texto(String s) throws IOException {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        if (b.length > 65_535) throw new IOException("Nombre demasiado largo para el snapshot");
+        return b;
+    }
+
+    private static int vaciar(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        int n = 0;
+        while (buf.hasRemaining()) n += ch.write(buf);
+        buf.clear();
+        return n;
+    }
+
+    private static int indice(int hash, int mascara) {
+        return (hash * 0x9E3779B9 >>> 7) & mascara;
+    }
+
+    /** @return posición del journal desde la que hay que reproducir. */
+    long posicionJournal() { return posicionJournal; }
+
+    /** @return cantidad de socios guardados. */
+    int cantidad() { return cantidad; }
+
+    /** @return copia de las altas por mes al momento del snapshot. */
+    int[] altasPorMes() { return altasPorMes.clone(); }
+
+    /** @return las estadísticas guardadas, o null si el snapshot es de la versión 1. */
+    int[] estadisticas() {
+        if (inicioEstadisticas == 0) return null;
+        int[] out = new int[largoEstadisticas];
+        for (int i = 0; i < out.length; i++) out[i] = mapa.getInt(inicioEstadisticas + i * 4);
+        return out;
+    }
+
+    /** @return true si el libro de pagos ya estaba abierto (snapshots desde la versión 4). */
+    boolean conApertura() { return conApertura; }
+
+    /** @return el mes de apertura del libro de pagos (ver {@link LibroPagos#abrir(int)}). */
+    int apertura() { return apertura; }
+
+    /**
+     * Recorre las cuentas del libro de pagos (ninguna si el snapshot es anterior a la versión 3).
+     * * @param destino Recibe el DNI y la cuenta.
+     */
+    void recorrerCuentas(BiConsumer<String, LibroPagos.Cuenta> destino) {
+        int off = inicioCuentas;
+        for (int i = 0; i < cantidadCuentas; i++) {
+            int largo = mapa.getShort(off) & 0xFFFF;
+            String dni = leerTexto(off + 2, largo);
+            off += 2 + largo;
+            destino.accept(dni, new LibroPagos.Cuenta(mapa.getInt(off), mapa.getLong(off + 4)));
+            off += 12;
+        }
+    }
+
+    /**
+     * Busca un socio en la tabla hash del archivo y lo materializa.
+     * * @param dni DNI a buscar.
+     * @return un Cliente nuevo con los datos guardados, o null si no está.
+     */
+    Cliente leer(String dni) {
+        int off = ubicar(dni);
+        return off < 0 ? null : materializar(off);
+    }
+
+    /**
+     * @param dni DNI a verificar.
+     * @return true si el DNI está en el snapshot.
+     */
+    boolean contiene(String dni) {
+        return ubicar(dni) >= 0;
+    }
+
+    /**
+     * Materializa todos los socios del snapshot en orden de archivo.
+     * * @param destino Recibe cada cliente.
+     */
+    void recorrer(Consumer<Cliente> destino) {
+        int off = inicioDatos;
+        while (off < finDatos) {
+            destino.accept(materializar(off - inicioDatos));
+            int dni = mapa.getShort(off) & 0xFFFF;
+            int nombre = mapa.getShort(off + 2 + dni) & 0xFFFF;
+            off += 2 + dni + 2 + nombre + 1 + 4;
+        }
+    }
+
+    /** @return offset (relativo a los datos) del registro del DNI, o -1. */
+    private int ubicar(String dni) {
+        if (dni == null || cantidad == 0) return -1;
+        byte[] clave = dni.getBytes(StandardCharsets.UTF_8);
+        int i = indice(dni.hashCode(), mascara);
+        while (true) {
+            int slot = mapa.getInt(inicioTabla + i * 4);
+            if (slot == 0) return -1;
+            if (mismoDni(inicioDatos + slot - 1, clave)) return slot - 1;
+            i = (i + 1) & mascara;
+        }
+    }
+
+    private boolean mismoDni(int off, byte[] clave) {
+        int largo = mapa.getShort(off) & 0xFFFF;
+        if (largo != clave.length) return false;
+        for (int k = 0; k < largo; k++) {
+            if (mapa.get(off + 2 + k) != clave[k]) return false;
+        }
+        return true;
+    }
+
+    private Cliente materializar(int offsetRelativo) {
+        int off = inicioDatos + offsetRelativo;
+        int largoDni = mapa.getShort(off) & 0xFFFF;
+        String dni = leerTexto(off + 2, largoDni);
+        off += 2 + largoDni;
+        int largoNombre = mapa.getShort(off) & 0xFFFF;
+        String nombre = leerTexto(off + 2, largoNombre);
+        off += 2 + largoNombre;
+        Plan plan = PLANES[mapa.get(off)];
+        LocalDate fecha = LocalDate.ofEpochDay(mapa.getInt(off + 1));
+        return new Cliente(dni, nombre, plan, fecha);
+    }
+
+    private String leerTexto(int off, int largo) {
+        byte[] b = new byte[largo];
+        mapa.get(off, b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+}
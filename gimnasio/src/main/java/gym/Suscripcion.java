@@ -0,0 +1,169 @@
+package gym;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Entrega a un {@link ReceptorCambios} las operaciones del log a partir de una secuencia.
+ * <p>
+ * No hay una cola por suscriptor que los cambios tengan que llenar: el log ya
+ * guarda cada operación una vez con su secuencia, y cada suscripción tiene su
+ * propio hilo (virtual) que lo lee desde su posición, de a lotes de tamaño fijo.
+ * El lote es todo lo que la suscripción tiene en memoria, y no lee el siguiente
+ * hasta que el receptor devuelve el anterior: un receptor lento sólo se atrasa él,
+ * sin frenar a los cambios ni a las otras suscripciones. Con un log circular, lo
+ * que se pisó antes de entregarse se avisa con {@link ReceptorCambios#perdidos(long, long)}.
+ * </p>
+ * <p>
+ * Al alcanzar el final del log el hilo duerme hasta que el {@link DifusorCambios}
+ * lo despierte por una operación nueva.
+ * </p>
+ */
+public final class Suscripcion implements AutoCloseable {
+    // Vueltas que se espera a que un productor termine de publicar una secuencia reservada
+    private static final int ESPERAS_ACTIVAS = 64;
+
+    private final RegistroOperaciones log;
+    private final DifusorCambios difusor;
+    private final ReceptorCambios receptor;
+    private final int tamanioLote;
+    private final Thread hilo;
+
+    private volatile long posicion;
+    private volatile long entregados;
+    private volatile long perdidos;
+    private volatile Exception error;
+    private volatile boolean cerrada;
+    // true mientras el hilo duerme o está por dormir (lo lee el difusor)
+    volatile boolean dormida;
+
+    Suscripcion(RegistroOperaciones log, DifusorCambios difusor, long desde, int tamanioLote,
+                ReceptorCambios receptor, String nombre) {
+        this.log = log;
+        this.difusor = difusor;
+        this.receptor = receptor;
+        this.tamanioLote = tamanioLote;
+        this.posicion = desde;
+        this.hilo = Thread.ofVirtual().name(nombre).unstarted(this::correr);
+    }
+
+    void iniciar() {
+        hilo.start();
+    }
+
+    /** @return secuencia de la próxima operación a entregar. */
+    public long posicion() {
+        return posicion;
+    }
+
+    /** @return operaciones entregadas hasta ahora. */
+    public long entregados() {
+        return entregados;
+    }
+
+    /** @return operaciones que el log descartó antes de poder entregarlas. */
+    public long perdidos() {
+        return perdidos;
+    }
+
+    /** @return operaciones registradas que todavía no se entregaron. */
+    public long atraso() {
+        return Math.max(0, log.finSecuencia() - posicion);
+    }
+
+    /** @return lo que lanzó el receptor si por eso se detuvo, o null. */
+    public Exception error() {
+        return error;
+    }
+
+    /** @return true si ya no entrega más (se cerró o falló el receptor). */
+    public boolean terminada() {
+        return !hilo.isAlive() && (cerrada || error != null);
+    }
+
+    private void correr() {
+        int esperas = 0;
+        while (!cerrada) {
+            long fin = log.finSecuencia();
+            if (posicion >= fin) {
+                dormir();
+                continue;
+            }
+            long primera = log.primeraSecuencia();
+            if (posicion < primera) {
+                receptor.perdidos(posicion, primera);
+                perdidos += primera - posicion;
+                posicion = primera;
+                continue;
+            }
+
+            ArrayList<EventoOperacion> lote = new ArrayList<>((int) Math.min(tamanioLote, fin - posicion));
+            long seq = posicion;
+            while (seq < fin && lote.size() < tamanioLote) {
+                EventoOperacion e = log.evento(seq);
+                // null: se está escribiendo (o se acaba de pisar; se ve en la vuelta siguiente)
+                if (e == null) break;
+                lote.add(e);
+                seq++;
+            }
+            if (lote.isEmpty()) {
+                // El productor reservó la secuencia pero todavía no la publicó
+                if (++esperas < ESPERAS_ACTIVAS) Thread.onSpinWait();
+                else Thread.yield();
+                continue;
+            }
+            esperas = 0;
+            try {
+                receptor.recibir(Collections.unmodifiableList(lote));
+            } catch (Exception e) {
+                error = e;
+                break;
+            }
+            posicion = seq;
+            entregados += lote.size();
+        }
+        difusor.quitar(this);
+    }
+
+    private void dormir() {
+        dormida = true;
+        difusor.esperando();
+        // Volver a mirar después de anotarse: una operación que llegó antes ya no va a despertar a nadie
+        if (log.finSecuencia() > posicion || cerrada) {
+            dormida = false;
+            return;
+        }
+        LockSupport.park(this);
+        dormida = false;
+    }
+
+    /** Despierta al hilo si está dormido (lo llama el difusor). */
+    void despertar() {
+        if (dormida) {
+            dormida = false;
+            LockSupport.unpark(hilo);
+        }
+    }
+
+    /**
+     * Deja de entregar. Si hay un lote en curso se espera a que el receptor lo
+     * devuelva (salvo que se cierre desde el propio receptor).
+     */
+    @Override
+    public void close() {
+        cerrada = true;
+        LockSupport.unpark(hilo);
+        if (Thread.currentThread() == hilo) return;
+        boolean interrumpido = false;
+        while (true) {
+            try {
+                hilo.join();
+                break;
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+        if (interrumpido) Thread.currentThread().interrupt();
+    }
+}
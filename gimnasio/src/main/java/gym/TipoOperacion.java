@@ -0,0 +1,76 @@
+package gym;
+
+import java.util.List;
+
+/**
+ * Tipos de operación que modifican el estado del gimnasio.
+ * Cada tipo tiene un código de un byte que es el que se guarda en disco,
+ * así el formato no depende del orden en que estén declaradas las constantes.
+ */
+public enum TipoOperacion {
+    ALTA((byte) 1, "Alta"),
+    MODIFICACION((byte) 2, "Modificación"),
+    CAMBIO_PLAN((byte) 3, "Cambio de plan"),
+    BAJA((byte) 4, "Baja"),
+    ALTA_MASIVA((byte) 5, "Alta masiva"),
+    PAGO((byte) 6, "Pago"),
+    APERTURA((byte) 7, "Apertura");
+
+    private final byte codigo;
+    private final String etiqueta;
+
+    TipoOperacion(byte codigo, String etiqueta){
+        this.codigo = codigo;
+        this.etiqueta = etiqueta;
+    }
+
+    /**
+     * @return el código binario del tipo.
+     */
+    public byte codigo(){
+        return codigo;
+    }
+
+    /**
+     * @return el nombre del tipo para mostrar en pantalla.
+     */
+    public String etiqueta(){
+        return etiqueta;
+    }
+
+    /**
+     * Arma el texto legible de una operación a partir de sus argumentos crudos.
+     * Se llama sólo cuando alguien lee el log.
+     * * @param dni DNI del socio (null en ALTA_MASIVA).
+     * @param anterior ALTA: nombre; MODIFICACION: nombre anterior; CAMBIO_PLAN: plan anterior;
+     *                 ALTA_MASIVA: DNIs de los socios agregados (lista); PAGO: monto en centavos.
+     * @param nuevo ALTA: plan; MODIFICACION: nombre nuevo; CAMBIO_PLAN: plan nuevo;
+     *              ALTA_MASIVA: origen de los datos (por ejemplo el archivo importado);
+     *              PAGO: vencimiento de la próxima cuota impaga.
+     * @return la descripción de la operación.
+     */
+    public String describir(String dni, Object anterior, Object nuevo){
+        return switch (this) {
+            case ALTA -> "ALTA: " + dni + " (" + anterior + ") - Plan " + nuevo;
+            case MODIFICACION -> "MODIFICACION: " + dni + " nombre '" + anterior + "' -> '" + nuevo + "'";
+            case CAMBIO_PLAN -> "CAMBIO PLAN: " + dni + " ahora es " + nuevo;
+            case BAJA -> "BAJA: " + dni;
+            case ALTA_MASIVA -> "ALTA MASIVA: " + (anterior instanceof List<?> l ? l.size() : anterior) + " socios desde " + nuevo;
+            case PAGO -> "PAGO: " + dni + " $" + (anterior instanceof Long c ? Facturacion.importe(c) : anterior) + " - proximo vencimiento " + nuevo;
+            case APERTURA -> "APERTURA: libro de pagos abierto con " + anterior + " socios al dia hasta " + nuevo;
+        };
+    }
+
+    /**
+     * Obtiene el tipo a partir de su código binario.
+     * * @param codigo Código leído de disco.
+     * @return el tipo correspondiente.
+     * @throws IllegalArgumentException si el código no corresponde a ningún tipo.
+     */
+    public static TipoOperacion desdeCodigo(byte codigo){
+        for (TipoOperacion t : values()) {
+            if (t.codigo == codigo) return t;
+        }
+        throw new IllegalArgumentException("Codigo de operacion desconocido: " + codigo);
+    }
+}
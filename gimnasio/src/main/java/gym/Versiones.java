@@ -0,0 +1,133 @@
+package gym;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Versiones anteriores de los socios, para que las {@link Instantanea}s abiertas
+ * sigan viendo el estado del momento en que se abrieron.
+ * <p>
+ * Mientras haya alguna abierta, cada cambio deja antes de aplicarse una copia
+ * de cómo estaba el socio (o que no existía) en una cadena de cambios, de la más
+ * nueva a la más vieja. Se agrega con un CAS, sin locks. Una instantánea lee el
+ * estado actual y después recorre la cadena hasta la marca que dejó al abrirse:
+ * la copia más vieja de cada DNI es cómo estaba ese socio al abrirla. Como la
+ * copia se guarda antes del cambio, cualquier cambio que la lectura haya visto
+ * ya está en la cadena cuando la recorre.
+ * </p>
+ * <p>
+ * Sin instantáneas abiertas los cambios no copian nada. Al cerrarse la más vieja
+ * se corta la cadena detrás de la marca de la siguiente, y al cerrarse la última
+ * se suelta entera: las versiones viejas quedan para el recolector.
+ * </p>
+ */
+final class Versiones {
+
+    /** Cómo estaba un socio antes de un cambio. */
+    static final class Cambio {
+        final String dni;
+        // Copia suelta (nadie la modifica); null si el socio no existía
+        final Cliente anterior;
+        // Hacia los cambios más viejos; se corta al cerrar instantáneas
+        volatile Cambio siguiente;
+
+        Cambio(String dni, Cliente anterior, Cambio siguiente) {
+            this.dni = dni;
+            this.anterior = anterior;
+            this.siguiente = siguiente;
+        }
+    }
+
+    private final AtomicReference<Cambio> ultimo = new AtomicReference<>();
+    private volatile boolean hayLecturas;
+
+    // Instantáneas abiertas por orden de apertura -> su marca en la cadena (null = cadena vacía al abrir)
+    private final TreeMap<Long, Cambio> abiertas = new TreeMap<>();
+    private long aperturas;
+
+    /** @return true si los cambios tienen que guardar cómo estaba el socio. */
+    boolean hayLecturas() {
+        return hayLecturas;
+    }
+
+    /**
+     * Guarda cómo estaba un socio antes de cambiarlo. Se llama con el lock del DNI
+     * tomado y antes de tocar el almacén.
+     * * @param dni DNI del socio que va a cambiar.
+     * @param actual El socio como está ahora, o null si no existe.
+     */
+    void guardar(String dni, Cliente actual) {
+        Cambio c = new Cambio(dni, actual == null ? null : copia(actual), null);
+        Cambio anterior;
+        do {
+            anterior = ultimo.get();
+            c.siguiente = anterior;
+        } while (!ultimo.compareAndSet(anterior, c));
+    }
+
+    /**
+     * Registra una instantánea nueva. Se llama con las escrituras frenadas.
+     * * @return el número de la apertura, para {@link #cerrar(long)}.
+     */
+    synchronized long abrir() {
+        long n = aperturas++;
+        abiertas.put(n, ultimo.get());
+        hayLecturas = true;
+        return n;
+    }
+
+    /**
+     * @param apertura Número devuelto por {@link #abrir()}.
+     * @return la marca que dejó esa instantánea al abrirse.
+     */
+    synchronized Cambio marca(long apertura) {
+        return abiertas.get(apertura);
+    }
+
+    /**
+     * Da de baja una instantánea y suelta las versiones que ya nadie puede leer.
+     * * @param apertura Número devuelto por {@link #abrir()}.
+     */
+    synchronized void cerrar(long apertura) {
+        // La marca puede ser null: se pregunta por la clave
+        if (!abiertas.containsKey(apertura)) return;
+        abiertas.remove(apertura);
+        if (abiertas.isEmpty()) {
+            // Un cambio que leyó hayLecturas justo antes puede colgar una copia más; no molesta
+            hayLecturas = false;
+            ultimo.set(null);
+            return;
+        }
+        // Lo que está detrás de la marca más vieja no lo lee ninguna
+        Cambio masVieja = abiertas.firstEntry().getValue();
+        if (masVieja != null) masVieja.siguiente = null;
+    }
+
+    /**
+     * Recorre los cambios desde el más nuevo hasta una marca (sin incluirla) y
+     * agrega a <code>primeros</code> el más viejo de cada DNI que todavía no esté.
+     * * @param hasta Marca donde parar.
+     * @param primeros Cambio más viejo por DNI; los que ya están no se pisan.
+     * @return el cambio más nuevo recorrido, que es la marca para la próxima vez.
+     */
+    Cambio recorrer(Cambio hasta, Map<String, Cambio> primeros) {
+        Cambio cabeza = ultimo.get();
+        HashMap<String, Cambio> nuevos = new HashMap<>();
+        for (Cambio c = cabeza; c != null && c != hasta; c = c.siguiente) {
+            // De nuevo a viejo: queda el más viejo de cada DNI
+            nuevos.put(c.dni, c);
+        }
+        nuevos.forEach(primeros::putIfAbsent);
+        return cabeza == null ? hasta : cabeza;
+    }
+
+    /**
+     * @param c Socio (puede ser una vista del almacén compacto).
+     * @return un Cliente nuevo con los mismos datos, que no cambia con el original.
+     */
+    static Cliente copia(Cliente c) {
+        return new Cliente(c.getDni(), c.getNombre(), c.getPlan(), c.getFechaAlta());
+    }
+}
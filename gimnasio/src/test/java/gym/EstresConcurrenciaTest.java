@@ -0,0 +1,100 @@
+package gym;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Prueba de estrés de GimnasioService con muchos hilos a la vez.
+ * <p>
+ * Cada hilo registra sus propios socios, intenta registrar DNIs "disputados"
+ * que todos los hilos quieren a la vez, cambia planes y da bajas. Al final se
+ * verifica que no se hayan perdido actualizaciones: las altas por mes, las
+ * estadísticas por plan y el tamaño del log tienen que coincidir exactamente
+ * con las operaciones exitosas.
+ * </p>
+ */
+class EstresConcurrenciaTest {
+    private static final int HILOS = 8;
+    private static final int POR_HILO = 5_000;
+    private static final int DISPUTADOS = 500;
+
+    @Test
+    void sinActualizacionesPerdidas() throws InterruptedException {
+        verificar(new GimnasioService());
+    }
+
+    @Test
+    void sinActualizacionesPerdidasConAlmacenCompacto() throws InterruptedException {
+        verificar(new GimnasioService(new OperacionLog(), new RepositorioCompacto()));
+    }
+
+    private static void verificar(GimnasioService s) throws InterruptedException {
+        AtomicInteger altasOk = new AtomicInteger();
+        AtomicInteger cambiosOk = new AtomicInteger();
+        AtomicInteger bajasOk = new AtomicInteger();
+        CountDownLatch largada = new CountDownLatch(1);
+        Thread[] ts = new Thread[HILOS];
+
+        for (int h = 0; h < HILOS; h++) {
+            final int id = h;
+            ts[h] = new Thread(() -> {
+                try {
+                    largada.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                LocalDate fecha = LocalDate.of(2024, 1 + id % 12, 1);
+                for (int i = 0; i < POR_HILO; i++) {
+                    String dni = String.valueOf(id * 10_000_000L + i + 100_000_000L);
+                    s.altaCliente(new Cliente(dni, "Socio " + i, Plan.BASICO, fecha));
+                    altasOk.incrementAndGet();
+
+                    // Todos los hilos pelean por los mismos DNIs: sólo uno debe ganar cada uno
+                    if (i < DISPUTADOS) {
+                        try {
+                            s.altaCliente(new Cliente("D" + i, "Disputado", Plan.FULL, fecha));
+                            altasOk.incrementAndGet();
+                        } catch (IllegalArgumentException yaExiste) {
+                            // esperado para todos menos uno
+                        }
+                    }
+                    if (i % 3 == 0) {
+                        s.cambiarPlan(dni, Plan.PREMIUM);
+                        cambiosOk.incrementAndGet();
+                    }
+                    if (i % 5 == 0 && s.baja(dni)) bajasOk.incrementAndGet();
+                }
+            });
+            ts[h].start();
+        }
+        largada.countDown();
+        for (Thread t : ts) t.join();
+
+        int totalMeses = 0;
+        for (int a : s.getAltasPorMes()) totalMeses += a;
+        EstadisticasSocios est = s.estadisticas();
+        int altas2024 = 0;
+        for (int m = 1; m <= 12; m++) altas2024 += est.altas(YearMonth.of(2024, m));
+        int premium = 0;
+        for (int h = 0; h < HILOS; h++) {
+            for (int i = 0; i < POR_HILO; i += 3) if (i % 5 != 0) premium++;
+        }
+        int operaciones = altasOk.get() + cambiosOk.get() + bajasOk.get();
+        int esperadosVivos = altasOk.get() - bajasOk.get();
+
+        assertEquals(DISPUTADOS, altasOk.get() - HILOS * POR_HILO, "altas de DNIs disputados");
+        assertEquals(altasOk.get(), totalMeses, "suma de getAltasPorMes");
+        assertEquals(operaciones, s.logComoLineas().length, "lineas del log");
+        assertEquals(esperadosVivos, s.cantidadClientes(), "socios activos");
+        assertEquals(altasOk.get(), altas2024, "altas de 2024 en las estadisticas");
+        assertEquals(esperadosVivos, est.activos(), "activos en las estadisticas");
+        assertEquals(premium, est.activos(Plan.PREMIUM), "activos PREMIUM en las estadisticas");
+        assertEquals(bajasOk.get(), est.bajas(YearMonth.now()), "bajas del mes en las estadisticas");
+    }
+}
@@ -0,0 +1,62 @@
+package gym;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * La facturación paralela tiene que dar exactamente los mismos totales y las
+ * mismas facturas que la secuencial. Las fechas de alta incluyen 29 de febrero
+ * y fechas justo en el límite del descuento.
+ */
+class FacturacionTest {
+    private static final LocalDate REFERENCIA = LocalDate.of(2025, 2, 28);
+
+    private static List<Cliente> socios(int n) {
+        Plan[] planes = Plan.values();
+        Random r = new Random(42);
+        List<Cliente> socios = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            LocalDate alta = switch (i % 10) {
+                case 0 -> LocalDate.of(2024, 2, 29);                // 11 meses al 28/02/2025: sin descuento
+                case 1 -> REFERENCIA.minusMonths(12);               // justo en el límite: con descuento
+                case 2 -> REFERENCIA.minusMonths(12).plusDays(1);   // un día después: sin descuento
+                default -> REFERENCIA.minusDays(r.nextInt(1500));
+            };
+            socios.add(new Cliente(String.valueOf(10_000_000 + i), "Socio " + i, planes[r.nextInt(planes.length)], alta));
+        }
+        return socios;
+    }
+
+    @Test
+    void paralelaDaLosMismosTotales() throws IOException {
+        List<Cliente> socios = socios(200_000);
+        Facturacion f = new Facturacion(REFERENCIA);
+        assertEquals(f.facturarSecuencial(socios, null), f.facturar(socios, null));
+    }
+
+    @Test
+    void paralelaEscribeLasMismasFacturas(@TempDir Path dir) throws IOException {
+        List<Cliente> socios = socios(200_000);
+        Facturacion f = new Facturacion(REFERENCIA);
+        Path sec = dir.resolve("sec.csv");
+        Path par = dir.resolve("par.csv");
+        assertEquals(f.facturarSecuencial(socios, sec), f.facturar(socios, par));
+
+        // El archivo paralelo puede tener los bloques en otro orden
+        List<String> a = Files.readAllLines(sec);
+        List<String> b = Files.readAllLines(par);
+        a.sort(null);
+        b.sort(null);
+        assertEquals(a, b);
+    }
+}
@@ -0,0 +1,82 @@
+package gym;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lo que el journal rechaza no puede dejar nada a medias en el archivo (las
+ * operaciones confirmadas después tienen que seguir ahí al reabrir) ni en memoria
+ * (el servicio lo rechaza antes de aplicarlo).
+ */
+class JournalOperacionesTest {
+    private static final LocalDate ALTA = LocalDate.of(2025, 3, 1);
+
+    @Test
+    void unTextoDemasiadoLargoNoCortaElJournal(@TempDir Path dir) throws IOException {
+        Path archivo = dir.resolve("gimnasio.journal");
+        try (GimnasioService s = new GimnasioService(archivo, Durabilidad.SIEMPRE)) {
+            String largo = "x".repeat(70_000);
+            assertThrows(IllegalArgumentException.class,
+                    () -> s.altaCliente(new Cliente("1", largo, Plan.BASICO, ALTA)));
+            s.altaCliente(new Cliente("2", "Ana", Plan.BASICO, ALTA));
+        }
+        try (GimnasioService s = new GimnasioService(archivo, Durabilidad.SIEMPRE)) {
+            assertTrue(s.existeDni("2"));
+            assertFalse(s.existeDni("1"));
+        }
+    }
+
+    @Test
+    void loQueElJournalRechazaNoSeAplicaEnMemoria(@TempDir Path dir) throws IOException {
+        String largo = "x".repeat(70_000);
+        try (GimnasioService s = new GimnasioService(dir.resolve("gimnasio.journal"), Durabilidad.SIEMPRE)) {
+            s.altaCliente(new Cliente("1", "Ana", Plan.BASICO, ALTA));
+
+            assertThrows(IllegalArgumentException.class, () -> s.modificarNombre("1", largo));
+            assertEquals("Ana", s.buscarPorDni("1").getNombre());
+
+            List<Cliente> lote = List.of(new Cliente("2", "Luis", Plan.FULL, ALTA),
+                    new Cliente("3", largo, Plan.FULL, ALTA));
+            assertThrows(IllegalArgumentException.class, () -> s.altaMasiva(lote, "prueba"));
+            assertFalse(s.existeDni("2"));
+            assertEquals(1, s.cantidadClientes());
+        }
+    }
+
+    @Test
+    void conElJournalCerradoNoSeAplicaNada(@TempDir Path dir) throws IOException {
+        GimnasioService s = new GimnasioService(dir.resolve("gimnasio.journal"), Durabilidad.SIEMPRE);
+        s.altaCliente(new Cliente("1", "Ana", Plan.BASICO, ALTA));
+        s.close();
+
+        assertThrows(IllegalStateException.class, () -> s.altaCliente(new Cliente("2", "Luis", Plan.BASICO, ALTA)));
+        assertThrows(IllegalStateException.class, () -> s.cambiarPlan("1", Plan.PREMIUM));
+        assertThrows(IllegalStateException.class, () -> s.baja("1"));
+        assertFalse(s.existeDni("2"));
+        assertEquals(Plan.BASICO, s.buscarPorDni("1").getPlan());
+    }
+
+    @Test
+    void noSePuedeAbrirDosVeces(@TempDir Path dir) throws IOException {
+        Path archivo = dir.resolve("gimnasio.journal");
+        try (GimnasioService s = new GimnasioService(archivo, Durabilidad.SIEMPRE)) {
+            s.altaCliente(new Cliente("1", "Ana", Plan.BASICO, ALTA));
+            assertThrows(IOException.class, () -> new GimnasioService(archivo, Durabilidad.SIEMPRE));
+            // El intento fallido no le quita el lock al que lo tiene
+            assertThrows(IOException.class, () -> new GimnasioService(archivo, Durabilidad.SIEMPRE));
+        }
+        try (GimnasioService s = new GimnasioService(archivo, Durabilidad.SIEMPRE)) {
+            assertTrue(s.existeDni("1"));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package gym;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El reloj tiene que seguir siendo monótono al cambiar de ancla y quedar cerca
+ * de la hora del sistema.
+ */
+class RelojTest {
+
+    @Test
+    void esMonotonoAlReanclarYSigueLaHoraDelSistema() {
+        long fin = System.nanoTime() + 2_500_000_000L;
+        long anterior = Reloj.epochNanos();
+        while (System.nanoTime() < fin) {
+            long t = Reloj.epochNanos();
+            assertTrue(t >= anterior, "El reloj volvio para atras: " + anterior + " -> " + t);
+            anterior = t;
+        }
+        long diferencia = Math.abs(Reloj.epochNanos() / 1_000_000L - System.currentTimeMillis());
+        assertTrue(diferencia < 1_000, "El reloj se separo " + diferencia + " ms de la hora del sistema");
+    }
+}
@@ -0,0 +1,68 @@
+package gym.bench;
+
+import gym.Cliente;
+import gym.Durabilidad;
+import gym.GimnasioService;
+import gym.Plan;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Compara el arranque en frío con y sin snapshot.
+ * <p>
+ * Para cada tamaño carga N socios, guarda un snapshot, agrega unas cuantas
+ * operaciones más (la "cola" del journal) y cierra. Después mide cuánto tarda
+ * en abrir el servicio y responder la primera búsqueda usando el snapshot, y
+ * cuánto tarda reproduciendo el journal completo.
+ * </p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.BenchArranque</code>
+ */
+public class BenchArranque {
+    private static final int[] TAMANIOS = {10_000, 100_000, 1_000_000};
+    private static final int COLA = 1_000;
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("socios      con snapshot   sin snapshot");
+        for (int n : TAMANIOS) {
+            Path dir = Files.createTempDirectory("gym-arranque");
+            Path journal = dir.resolve("gimnasio.journal");
+            LocalDate base = LocalDate.of(2021, 3, 1);
+
+            try (GimnasioService s = new GimnasioService(journal, Durabilidad.NINGUNA)) {
+                for (int i = 0; i < n; i++) {
+                    s.altaCliente(new Cliente(String.valueOf(30_000_000 + i), "Socio " + i, Plan.values()[i % 3], base.plusDays(i % 700)));
+                }
+                s.guardarSnapshot();
+                for (int i = 0; i < COLA; i++) s.cambiarPlan(String.valueOf(30_000_000 + i), Plan.PREMIUM);
+            }
+
+            long conSnapshot = arrancar(journal, n);
+            // Sin snapshot: lo borramos y se reproduce todo el journal
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*.snap")) {
+                for (Path p : ds) Files.delete(p);
+            }
+            long sinSnapshot = arrancar(journal, n);
+
+            System.out.printf("%-11d %9.1f ms   %9.1f ms%n", n, conSnapshot / 1e6, sinSnapshot / 1e6);
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+                for (Path p : ds) Files.delete(p);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    private static long arrancar(Path journal, int n) throws IOException {
+        long t0 = System.nanoTime();
+        try (GimnasioService s = new GimnasioService(journal, Durabilidad.NINGUNA)) {
+            Cliente c = s.buscarPorDni(String.valueOf(30_000_000 + n / 2));
+            long t = System.nanoTime() - t0;
+            if (s.cantidadClientes() != n || c == null) throw new IllegalStateException("Estado recuperado incorrecto");
+            if (s.buscarPorDni("30000000").getPlan() != Plan.PREMIUM) throw new IllegalStateException("No se reprodujo la cola");
+            return t;
+        }
+    }
+}
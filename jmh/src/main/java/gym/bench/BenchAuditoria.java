@@ -0,0 +1,74 @@
+package gym.bench;
+
+import gym.ConsultaLog;
+import gym.OperacionLog;
+import gym.PaginaLog;
+import gym.Plan;
+import gym.TipoOperacion;
+
+import java.util.Random;
+
+/**
+ * Mide consultas de auditoría sobre un log con millones de operaciones.
+ * <p>
+ * Carga el log directamente (sin el servicio) y mide: historial completo de un
+ * socio, una página de un tipo dentro de un rango de tiempo y una página de un
+ * rango de tiempo sin otros filtros. Con los índices cada consulta debería
+ * quedar por debajo del milisegundo.
+ * </p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.BenchAuditoria [operaciones] [socios]</code>
+ */
+public class BenchAuditoria {
+
+    public static void main(String[] args) {
+        int operaciones = args.length > 0 ? Integer.parseInt(args[0]) : 3_000_000;
+        int socios = args.length > 1 ? Integer.parseInt(args[1]) : 300_000;
+        TipoOperacion[] tipos = TipoOperacion.values();
+        String[] dnis = new String[socios];
+        for (int i = 0; i < socios; i++) dnis[i] = String.valueOf(40_000_000 + i);
+
+        OperacionLog log = new OperacionLog();
+        Random r = new Random(7);
+        long t0 = System.nanoTime();
+        long[] marcas = new long[11];
+        for (int i = 0; i < operaciones; i++) {
+            if (i % (operaciones / 10) == 0) marcas[i / (operaciones / 10)] = log.registrar(tipos[0], null, null, null);
+            log.registrar(tipos[r.nextInt(tipos.length)], dnis[r.nextInt(socios)], "Nombre", Plan.FULL);
+        }
+        marcas[10] = Long.MAX_VALUE;
+        System.out.printf("carga: %d operaciones en %.2fs%n", log.size(), (System.nanoTime() - t0) / 1e9);
+
+        int consultas = 20_000;
+        long encontrados = 0;
+        // Calentamiento y medición del historial por socio
+        for (int vuelta = 0; vuelta < 2; vuelta++) {
+            t0 = System.nanoTime();
+            for (int i = 0; i < consultas; i++) {
+                PaginaLog p = log.leer(ConsultaLog.masNuevasPrimero(100).delSocio(dnis[r.nextInt(socios)]));
+                encontrados += p.eventos().size();
+            }
+        }
+        System.out.printf("historial de un socio:          %.1f us/consulta%n", (System.nanoTime() - t0) / 1e3 / consultas);
+
+        for (int vuelta = 0; vuelta < 2; vuelta++) {
+            t0 = System.nanoTime();
+            for (int i = 0; i < consultas; i++) {
+                int m = r.nextInt(9);
+                PaginaLog p = log.leer(ConsultaLog.masViejasPrimero(50).deTipo(TipoOperacion.BAJA).entreNanos(marcas[m], marcas[m + 1]));
+                encontrados += p.eventos().size();
+            }
+        }
+        System.out.printf("bajas en un rango (pagina 50):  %.1f us/consulta%n", (System.nanoTime() - t0) / 1e3 / consultas);
+
+        for (int vuelta = 0; vuelta < 2; vuelta++) {
+            t0 = System.nanoTime();
+            for (int i = 0; i < consultas; i++) {
+                int m = r.nextInt(9);
+                PaginaLog p = log.leer(ConsultaLog.masNuevasPrimero(50).entreNanos(marcas[m], marcas[m + 1]));
+                encontrados += p.eventos().size();
+            }
+        }
+        System.out.printf("rango de tiempo (pagina 50):    %.1f us/consulta%n", (System.nanoTime() - t0) / 1e3 / consultas);
+        if (encontrados == 0) System.out.println("(ninguna consulta devolvio resultados)");
+    }
+}
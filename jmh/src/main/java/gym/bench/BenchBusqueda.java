@@ -0,0 +1,59 @@
+package gym.bench;
+
+import gym.Cliente;
+import gym.GimnasioService;
+import gym.Plan;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Benchmark simple de latencia de búsqueda por DNI.
+ * Carga el servicio con distintas cantidades de socios y mide cuánto tarda
+ * <code>buscarPorDni</code>; con el repositorio indexado el tiempo debería
+ * mantenerse plano desde 1k hasta 1M de socios.
+ * <p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.BenchBusqueda [busquedas]</code>
+ * </p>
+ */
+public class BenchBusqueda {
+    private static final int[] TAMANIOS = {1_000, 10_000, 100_000, 1_000_000};
+
+    public static void main(String[] args) {
+        int busquedas = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        LocalDate hoy = LocalDate.now();
+        Plan[] planes = Plan.values();
+
+        System.out.println("socios      ns/busqueda");
+        for (int n : TAMANIOS) {
+            GimnasioService s = new GimnasioService();
+            String[] dnis = new String[n];
+            for (int i = 0; i < n; i++) {
+                dnis[i] = String.valueOf(10_000_000 + i);
+                s.altaCliente(new Cliente(dnis[i], "Socio " + i, planes[i % planes.length], hoy.minusDays(i % 900)));
+            }
+
+            // Orden de acceso aleatorio pero fijo, para no medir el generador
+            Random r = new Random(42);
+            int[] orden = new int[1 << 16];
+            for (int i = 0; i < orden.length; i++) orden[i] = r.nextInt(n);
+
+            medir(s, dnis, orden, busquedas / 4); // calentamiento del JIT
+            long ns = medir(s, dnis, orden, busquedas);
+            System.out.printf("%-11d %.1f%n", n, (double) ns / busquedas);
+        }
+    }
+
+    private static long medir(GimnasioService s, String[] dnis, int[] orden, int veces) {
+        int mask = orden.length - 1;
+        long acumulado = 0;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < veces; i++) {
+            acumulado += s.buscarPorDni(dnis[orden[i & mask]]).getPlan().ordinal();
+        }
+        long t = System.nanoTime() - t0;
+        // Usamos el resultado para que el JIT no elimine el bucle
+        if (acumulado == -1) System.out.println(acumulado);
+        return t;
+    }
+}
@@ -0,0 +1,101 @@
+package gym.bench;
+
+import gym.Cliente;
+import gym.GimnasioService;
+import gym.OperacionLogCircular;
+import gym.Plan;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Latencia de {@link GimnasioService#buscarPorNombre(String, int)} con muchos socios.
+ * <p>
+ * Carga socios con nombres y apellidos comunes (con tildes) y busca los 10 más
+ * parecidos para distintos tipos de texto: el nombre completo sin tildes, un
+ * apellido suelto, un nombre a medio escribir y uno con errores de tipeo.
+ * Informa cuánta memoria ocupa cada socio con sus índices y p50/p99 de cada tipo.
+ * </p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.BenchBusquedaNombres [socios] [consultas]</code>
+ */
+public class BenchBusquedaNombres {
+    private static final String[] NOMBRES = {"Juan", "María", "José", "Ana", "Luis", "Lucía", "Martín", "Sofía",
+            "Diego", "Valentina", "Nicolás", "Camila", "Matías", "Florencia", "Santiago", "Julieta", "Tomás",
+            "Agustina", "Joaquín", "Milagros", "Facundo", "Rocío", "Ramón", "Inés", "Germán", "Belén"};
+    private static final String[] APELLIDOS = {"González", "Rodríguez", "Gómez", "Fernández", "López", "Díaz",
+            "Martínez", "Pérez", "García", "Sánchez", "Romero", "Sosa", "Álvarez", "Torres", "Ruiz", "Ramírez",
+            "Flores", "Acosta", "Benítez", "Medina", "Suárez", "Herrera", "Aguirre", "Giménez", "Gutiérrez",
+            "Pereyra", "Rojas", "Molina", "Castro", "Ortiz", "Núñez", "Ibáñez", "Muñoz", "Peña", "Zárate"};
+    private static final Plan[] PLANES = Plan.values();
+
+    public static void main(String[] args) {
+        int socios = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int consultas = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        SplittableRandom r = new SplittableRandom(42);
+        List<Cliente> lote = new ArrayList<>(socios);
+        LocalDate base = LocalDate.of(2023, 1, 1);
+        for (int i = 0; i < socios; i++) {
+            lote.add(new Cliente(String.valueOf(20_000_000 + i), nombre(r), PLANES[i % PLANES.length], base.plusDays(i % 700)));
+        }
+
+        GimnasioService s = new GimnasioService(new OperacionLogCircular(1 << 10, OperacionLogCircular.PoliticaDesborde.SOBRESCRIBIR_ANTIGUAS));
+        long antes = usado();
+        long t0 = System.nanoTime();
+        s.altaMasiva(lote, "bench");
+        long t1 = System.nanoTime();
+        System.out.printf("%,d socios cargados en %.1f s (incluye indice A-Z y buscador)%n", socios, (t1 - t0) / 1e9);
+        System.out.printf("memoria de socios e indices: %.0f bytes por socio%n", (double) (usado() - antes) / socios);
+
+        String[] tipos = {"completo", "apellido", "a medio escribir", "con errores"};
+        for (int ronda = 0; ronda < 2; ronda++) {
+            for (int tipo = 0; tipo < tipos.length; tipo++) {
+                long[] ns = new long[consultas];
+                int resultados = 0;
+                for (int q = 0; q < consultas; q++) {
+                    String texto = consulta(lote.get(r.nextInt(socios)).getNombre(), tipo, r);
+                    long a = System.nanoTime();
+                    resultados += s.buscarPorNombre(texto, 10).size();
+                    ns[q] = System.nanoTime() - a;
+                }
+                if (ronda == 0) continue;
+                Arrays.sort(ns);
+                System.out.printf("%-17s p50 %6.2f ms   p99 %6.2f ms   max %6.2f ms   (%.1f resultados)%n", tipos[tipo],
+                        ns[consultas / 2] / 1e6, ns[(int) (consultas * 0.99)] / 1e6, ns[consultas - 1] / 1e6,
+                        (double) resultados / consultas);
+            }
+        }
+    }
+
+    private static String nombre(SplittableRandom r) {
+        return NOMBRES[r.nextInt(NOMBRES.length)] + " " + APELLIDOS[r.nextInt(APELLIDOS.length)]
+                + (r.nextInt(3) == 0 ? " " + APELLIDOS[r.nextInt(APELLIDOS.length)] : "");
+    }
+
+    private static String consulta(String nombre, int tipo, SplittableRandom r) {
+        String[] partes = nombre.split(" ");
+        return switch (tipo) {
+            case 0 -> nombre.toLowerCase().replace('á', 'a').replace('é', 'e').replace('í', 'i').replace('ó', 'o').replace('ú', 'u');
+            case 1 -> partes[1];
+            case 2 -> partes[0] + " " + partes[1].substring(0, Math.min(3, partes[1].length()));
+            default -> {
+                // Dos letras vecinas cambiadas de lugar
+                char[] cs = nombre.toCharArray();
+                int i = 1 + r.nextInt(cs.length - 2);
+                char c = cs[i];
+                cs[i] = cs[i + 1];
+                cs[i + 1] = c;
+                yield new String(cs);
+            }
+        };
+    }
+
+    private static long usado() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
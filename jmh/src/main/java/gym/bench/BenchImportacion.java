@@ -0,0 +1,107 @@
+package gym.bench;
+
+import gym.Cliente;
+import gym.Durabilidad;
+import gym.GimnasioService;
+import gym.ImportadorCsv;
+import gym.Plan;
+import gym.ResultadoImportacion;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Mide la importación masiva desde CSV y verifica sus resultados.
+ * <p>
+ * Genera un archivo con filas válidas, filas mal formadas (cada 1000) y DNIs
+ * repetidos (cada 500, contra socios cargados antes y dentro del mismo archivo),
+ * lo importa en memoria y con journal, y comprueba las cantidades y que el
+ * journal reconstruya los mismos socios. Termina con código 1 si algo no coincide.
+ * </p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.BenchImportacion [filas]</code>
+ */
+public class BenchImportacion {
+
+    public static void main(String[] args) throws IOException {
+        int filas = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dir = Files.createTempDirectory("gym-import");
+        Path csv = dir.resolve("socios.csv");
+        Plan[] planes = Plan.values();
+        Random r = new Random(42);
+        LocalDate base = LocalDate.of(2020, 1, 1);
+
+        int malas = 0, repetidas = 0;
+        try (BufferedWriter w = Files.newBufferedWriter(csv)) {
+            w.write("dni;nombre;plan;fechaAlta\n");
+            for (int i = 0; i < filas; i++) {
+                if (i % 1000 == 999) {
+                    w.write(i % 2 == 0 ? (20_000_000 + i) + ";Sin plan;ORO;2021-01-01\n" : "renglon roto\n");
+                    malas++;
+                } else if (i % 500 == 499) {
+                    // Repite un DNI ya escrito (o precargado, para i < 1000)
+                    w.write((20_000_000 + i - 250) + ";Repetido " + i + ";FULL;2021-01-01\n");
+                    repetidas++;
+                } else {
+                    LocalDate f = base.plusDays(r.nextInt(2000));
+                    w.write((20_000_000 + i) + ";Socio " + i + ";" + planes[i % 3].name().toLowerCase() + ";"
+                            + (i % 2 == 0 ? f.toString() : String.format("%02d/%02d/%d", f.getDayOfMonth(), f.getMonthValue(), f.getYear())) + "\n");
+                }
+            }
+        }
+        System.out.printf("archivo: %d filas, %d MB%n", filas, Files.size(csv) >> 20);
+        long esperadas = filas - malas - repetidas;
+        boolean ok = true;
+
+        try {
+            Runtime rt = Runtime.getRuntime();
+            GimnasioService mem = new GimnasioService();
+            long t0 = System.nanoTime();
+            ResultadoImportacion res = new ImportadorCsv(mem).importar(csv, dir.resolve("rechazos.csv"));
+            long t = System.nanoTime() - t0;
+            System.gc();
+            System.out.printf("en memoria:   %.2f s  (%.0f filas/s)  heap usado %d MB%n",
+                    t / 1e9, filas / (t / 1e9), (rt.totalMemory() - rt.freeMemory()) >> 20);
+            ok &= verificar("en memoria", res, esperadas, mem.cantidadClientes());
+            long lineasRechazo = Files.lines(dir.resolve("rechazos.csv")).count() - 1;
+            ok &= lineasRechazo == res.rechazadas();
+            System.out.println((lineasRechazo == res.rechazadas() ? "  ok    " : "  FALLA ") + "reporte: " + lineasRechazo + " rechazos");
+            mem = null;
+
+            Path journal = dir.resolve("gimnasio.journal");
+            try (GimnasioService s = new GimnasioService(journal, Durabilidad.AGRUPADA)) {
+                s.altaCliente(new Cliente("20000249", "Precargado", Plan.BASICO, base));
+                t0 = System.nanoTime();
+                res = new ImportadorCsv(s).importar(csv, null);
+                t = System.nanoTime() - t0;
+                System.out.printf("con journal:  %.2f s  (%.0f filas/s)%n", t / 1e9, filas / (t / 1e9));
+                ok &= verificar("con journal", res, esperadas - 1, s.cantidadClientes() - 1);
+            }
+            try (GimnasioService s = new GimnasioService(journal, Durabilidad.AGRUPADA)) {
+                boolean igual = s.cantidadClientes() == esperadas;
+                System.out.println((igual ? "  ok    " : "  FALLA ") + "recuperado del journal: " + s.cantidadClientes() + " socios");
+                ok &= igual;
+            }
+        } finally {
+            try (var archivos = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) archivos::iterator) Files.deleteIfExists(p);
+            }
+            Files.deleteIfExists(dir);
+        }
+
+        if (!ok) {
+            System.out.println("FALLA: la importacion no dio los resultados esperados");
+            System.exit(1);
+        }
+        System.out.println("OK: importacion correcta");
+    }
+
+    private static boolean verificar(String que, ResultadoImportacion r, long esperadas, long enServicio) {
+        boolean ok = r.importadas() == esperadas && enServicio == esperadas;
+        System.out.println((ok ? "  ok    " : "  FALLA ") + que + ": " + r + " (esperadas " + esperadas + ")");
+        return ok;
+    }
+}
@@ -0,0 +1,97 @@
+package gym.bench;
+
+import gym.Cliente;
+import gym.ControlAcceso;
+import gym.GimnasioService;
+import gym.OperacionLog;
+import gym.Plan;
+import gym.RepositorioClientes;
+import gym.RepositorioCompacto;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ráfagas de ingresos por molinete contra el servicio.
+ * <p>
+ * Carga socios de los tres planes y hace que varios hilos (un molinete cada uno)
+ * validen DNIs al azar: la mayoría socios, algunos desconocidos. Informa los
+ * ingresos por segundo, los bytes reservados por ingreso (medidos por hilo) y
+ * verifica que las visitas por hora sumen exactamente los ingresos permitidos.
+ * </p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.BenchIngresos [molinetes] [ingresosPorMolinete] [socios] [compacto]</code>
+ */
+public class BenchIngresos {
+    private static final Plan[] PLANES = Plan.values();
+
+    public static void main(String[] args) throws InterruptedException {
+        int molinetes = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int porMolinete = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        int socios = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+        boolean compacto = args.length > 3 && args[3].equals("compacto");
+
+        GimnasioService s = new GimnasioService(new OperacionLog(), compacto ? new RepositorioCompacto() : new RepositorioClientes());
+        LocalDate base = LocalDate.of(2023, 1, 1);
+        for (int i = 0; i < socios; i++) {
+            s.altaCliente(new Cliente(String.valueOf(40_000_000 + i), "Socio " + i, PLANES[i % PLANES.length], base.plusDays(i % 700)));
+        }
+        // Los DNIs se arman antes: un molinete real recibe el texto ya leído
+        String[] dnis = new String[1 << 16];
+        SplittableRandom r = new SplittableRandom(7);
+        for (int i = 0; i < dnis.length; i++) {
+            dnis[i] = String.valueOf(r.nextInt(10) == 0 ? 90_000_000 + i : 40_000_000 + r.nextInt(socios));
+        }
+
+        com.sun.management.ThreadMXBean hilosMx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long permitidos = 0;
+        for (int ronda = 0; ronda < 2; ronda++) {
+            long[] resultados = new long[ControlAcceso.Ingreso.values().length];
+            AtomicLong bytes = new AtomicLong();
+            CountDownLatch largada = new CountDownLatch(1);
+            Thread[] ts = new Thread[molinetes];
+            long[][] porHilo = new long[molinetes][resultados.length];
+            for (int m = 0; m < molinetes; m++) {
+                final int id = m;
+                ts[m] = new Thread(() -> {
+                    try {
+                        largada.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long[] cuenta = porHilo[id];
+                    long antes = hilosMx.getCurrentThreadAllocatedBytes();
+                    int mascara = dnis.length - 1;
+                    for (int i = 0; i < porMolinete; i++) {
+                        cuenta[s.ingresar(dnis[(i * 31 + id * 7919) & mascara]).ordinal()]++;
+                        if ((i & 1) == 0) s.registrarSalida();
+                    }
+                    bytes.addAndGet(hilosMx.getCurrentThreadAllocatedBytes() - antes);
+                });
+                ts[m].start();
+            }
+            long t0 = System.nanoTime();
+            largada.countDown();
+            for (Thread t : ts) t.join();
+            long ns = System.nanoTime() - t0;
+            for (long[] c : porHilo) for (int k = 0; k < c.length; k++) resultados[k] += c[k];
+            permitidos += resultados[ControlAcceso.Ingreso.PERMITIDO.ordinal()];
+
+            long total = (long) molinetes * porMolinete;
+            System.out.printf("%s: %,d ingresos en %.2f s = %,.0f/s, %.2f bytes/ingreso, resultados %s%n",
+                    ronda == 0 ? "calentamiento" : "medicion", total, ns / 1e9, total / (ns / 1e9),
+                    (double) bytes.get() / total, Arrays.toString(resultados));
+        }
+
+        LocalDate hoy = LocalDate.now();
+        long visitas = Arrays.stream(s.accesos().visitasPorHora(hoy.minusDays(1), hoy)).sum();
+        System.out.printf("visitas registradas: %,d, ocupacion: %,d, hora pico: %d%n",
+                visitas, s.accesos().ocupacion(), s.accesos().horaPico(hoy.minusDays(1), hoy));
+        if (visitas != permitidos) {
+            throw new IllegalStateException("Se perdieron visitas: " + visitas + " de " + permitidos);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package gym.bench;
+
+import gym.Cliente;
+import gym.GimnasioService;
+import gym.Instantanea;
+import gym.OperacionLogCircular;
+import gym.Plan;
+import gym.SocioNoEncontradoException;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Costo de las instantáneas para las escrituras.
+ * <p>
+ * Varios hilos cambian planes y nombres y dan altas y bajas sin parar. Primero
+ * corren solos y después con un hilo que abre instantáneas una tras otra, lista
+ * a todos los socios por nombre, lee las estadísticas y la cierra. Informa las
+ * escrituras por segundo en cada caso, cuánto tarda abrir una instantánea
+ * (que es lo único que frena a las escrituras) y cuánto tarda cada reporte.
+ * </p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.BenchInstantaneas [escritores] [segundos] [socios]</code>
+ */
+public class BenchInstantaneas {
+    private static final Plan[] PLANES = Plan.values();
+
+    public static void main(String[] args) throws InterruptedException {
+        int escritores = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int socios = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        GimnasioService s = new GimnasioService(new OperacionLogCircular(1 << 16, OperacionLogCircular.PoliticaDesborde.SOBRESCRIBIR_ANTIGUAS));
+        LocalDate base = LocalDate.of(2023, 1, 1);
+        for (int i = 0; i < socios; i++) {
+            s.altaCliente(new Cliente(String.valueOf(20_000_000 + i), "Socio " + i, PLANES[i % PLANES.length], base.plusDays(i % 700)));
+        }
+        s.listarOrdenadosPorNombre();
+
+        for (int ronda = 0; ronda < 2; ronda++) {
+            String nombre = ronda == 0 ? "calentamiento" : "medicion";
+            double solas = escribir(s, escritores, segundos, socios, false);
+            System.out.printf("%s sin instantaneas: %,.0f escrituras/s%n", nombre, solas);
+            double conReportes = escribir(s, escritores, segundos, socios, true);
+            System.out.printf("%s con instantaneas: %,.0f escrituras/s (%.1f%%)%n",
+                    nombre, conReportes, 100 * conReportes / solas);
+        }
+    }
+
+    private static double escribir(GimnasioService s, int escritores, int segundos, int socios, boolean reportes)
+            throws InterruptedException {
+        AtomicBoolean fin = new AtomicBoolean();
+        AtomicLong escrituras = new AtomicLong();
+        Thread[] ts = new Thread[escritores];
+        for (int w = 0; w < escritores; w++) {
+            final int id = w;
+            ts[w] = new Thread(() -> {
+                SplittableRandom r = new SplittableRandom(id);
+                long n = 0;
+                while (!fin.get()) {
+                    String dni = String.valueOf(20_000_000 + r.nextInt(socios + socios / 10));
+                    try {
+                        switch (r.nextInt(8)) {
+                            case 0 -> s.altaCliente(new Cliente(dni, "Nuevo " + n, PLANES[r.nextInt(PLANES.length)], LocalDate.now()));
+                            case 1 -> s.baja(dni);
+                            case 2, 3, 4 -> s.cambiarPlan(dni, PLANES[r.nextInt(PLANES.length)]);
+                            default -> s.modificarNombre(dni, "Cambiado " + n);
+                        }
+                    } catch (IllegalArgumentException | SocioNoEncontradoException e) {
+                        // DNI repetido o que no existe: igual cuenta como pedido atendido
+                    }
+                    n++;
+                }
+                escrituras.addAndGet(n);
+            });
+            ts[w].start();
+        }
+
+        long[] aperturas = new long[1 << 12];
+        int hechos = 0;
+        long nsReportes = 0;
+        long t0 = System.nanoTime();
+        long hasta = t0 + segundos * 1_000_000_000L;
+        if (reportes) {
+            while (System.nanoTime() < hasta) {
+                long a = System.nanoTime();
+                try (Instantanea foto = s.abrirInstantanea()) {
+                    long b = System.nanoTime();
+                    Cliente[] lista = foto.listarOrdenadosPorNombre();
+                    if (lista.length != foto.estadisticas().activos()) {
+                        throw new IllegalStateException("Listado y estadisticas no coinciden");
+                    }
+                    if (hechos < aperturas.length) aperturas[hechos] = b - a;
+                    nsReportes += System.nanoTime() - b;
+                }
+                hechos++;
+            }
+        } else {
+            Thread.sleep(segundos * 1000L);
+        }
+        fin.set(true);
+        for (Thread t : ts) t.join();
+        double s1 = (System.nanoTime() - t0) / 1e9;
+
+        if (reportes && hechos > 0) {
+            long[] medidas = Arrays.copyOf(aperturas, Math.min(hechos, aperturas.length));
+            Arrays.sort(medidas);
+            System.out.printf("  %d reportes, cada uno %.1f ms; abrir: p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                    hechos, nsReportes / 1e6 / hechos, medidas[medidas.length / 2] / 1e3,
+                    medidas[(int) (medidas.length * 0.99)] / 1e3, medidas[medidas.length - 1] / 1e3);
+        }
+        return escrituras.get() / s1;
+    }
+}
@@ -0,0 +1,61 @@
+package gym.bench;
+
+import gym.Cliente;
+import gym.GimnasioService;
+import gym.PaginaSocios;
+import gym.Plan;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Benchmark del listado por nombre.
+ * Mide la página de 50 socios que muestra la recepción (desde el principio y
+ * desde un prefijo) contra el listado completo, y el costo que el índice agrega
+ * a cada alta. Con el índice la página no depende de la cantidad de socios.
+ * <p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.BenchListado [socios]</code>
+ * </p>
+ */
+public class BenchListado {
+    private static final String[] NOMBRES = {"Álvarez", "Benítez", "Castro", "Díaz", "Fernández", "Gómez",
+            "González", "López", "Martínez", "Muñoz", "Núñez", "Pérez", "Rodríguez", "Sánchez", "Suárez"};
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        LocalDate hoy = LocalDate.now();
+        Random r = new Random(42);
+
+        GimnasioService s = new GimnasioService();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            String nombre = NOMBRES[r.nextInt(NOMBRES.length)] + " " + (char) ('A' + r.nextInt(26)) + r.nextInt(1000);
+            s.altaCliente(new Cliente(String.valueOf(10_000_000 + i), nombre, Plan.BASICO, hoy));
+        }
+        System.out.printf("alta con indice:        %.2f us/socio%n", (System.nanoTime() - t0) / 1e3 / n);
+
+        int veces = 20_000;
+        long acumulado = 0;
+        for (int vuelta = 0; vuelta < 2; vuelta++) { // la primera vuelta es calentamiento
+            t0 = System.nanoTime();
+            for (int i = 0; i < veces; i++) acumulado += s.listarPorNombre(null, 50, null).socios().size();
+        }
+        System.out.printf("primera pagina (50):    %.1f us%n", (System.nanoTime() - t0) / 1e3 / veces);
+
+        for (int vuelta = 0; vuelta < 2; vuelta++) {
+            t0 = System.nanoTime();
+            for (int i = 0; i < veces; i++) {
+                String prefijo = NOMBRES[i % NOMBRES.length].substring(0, 3);
+                PaginaSocios p = s.listarPorNombre(prefijo, 50, null);
+                acumulado += s.listarPorNombre(prefijo, 50, p.token()).socios().size();
+            }
+        }
+        System.out.printf("prefijo + pagina 2:     %.1f us%n", (System.nanoTime() - t0) / 1e3 / veces);
+
+        t0 = System.nanoTime();
+        for (int i = 0; i < 5; i++) acumulado += s.listarOrdenadosPorNombre().length;
+        System.out.printf("listado completo:       %.1f ms%n", (System.nanoTime() - t0) / 1e6 / 5);
+        // Usamos el resultado para que el JIT no elimine los bucles
+        if (acumulado == -1) System.out.println(acumulado);
+    }
+}
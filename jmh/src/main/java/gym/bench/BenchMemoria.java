@@ -0,0 +1,128 @@
+package gym.bench;
+
+import gym.AlmacenClientes;
+import gym.Cliente;
+import gym.GimnasioService;
+import gym.OperacionLog;
+import gym.Plan;
+import gym.RepositorioClientes;
+import gym.RepositorioCompacto;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Mide cuánta memoria ocupa cada socio en los distintos almacenes.
+ * <p>
+ * Para cada almacén carga N socios (cada uno con su DNI, nombre y fecha, como si
+ * vinieran de un archivo), fuerza varias recolecciones de basura y compara el heap
+ * usado (y la memoria directa) contra el de antes de crearlo. Después mide una
+ * búsqueda por DNI, que en el almacén compacto incluye armar la vista.
+ * </p>
+ * <p>
+ * La última columna es el servicio entero sobre ese almacén, con el índice por
+ * nombre y el de trigramas ya armados (se listan y se busca una vez): muestra
+ * cuánto agregan los índices a lo que ocupa el almacén solo.
+ * </p>
+ * Uso: <code>java -Xmx4g -cp benchmarks.jar gym.bench.BenchMemoria [socios]</code>
+ */
+public class BenchMemoria {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.printf("%d socios%n", n);
+        System.out.println("almacen              heap B/socio   directa B/socio   ns/busqueda   servicio B/socio");
+        medir("mapa", n, RepositorioClientes::new);
+        medir("compacto", n, RepositorioCompacto::new);
+        medir("compacto-directo", n, () -> new RepositorioCompacto(true));
+    }
+
+    private static void medir(String nombre, int n, Supplier<AlmacenClientes> crear) {
+        long heap0 = heapUsado();
+        long directa0 = memoriaDirecta();
+        AlmacenClientes a = crear.get();
+        Plan[] planes = Plan.values();
+        LocalDate base = LocalDate.of(2020, 1, 1);
+        for (int i = 0; i < n; i++) {
+            String dni = String.valueOf(20_000_000 + i);
+            a.agregar(new Cliente(dni, "Socio Numero " + i, planes[i % planes.length], base.plusDays(i % 2000)));
+        }
+        long heap = heapUsado() - heap0;
+        long directa = memoriaDirecta() - directa0;
+
+        Random r = new Random(42);
+        String[] dnis = new String[1 << 16];
+        for (int i = 0; i < dnis.length; i++) dnis[i] = String.valueOf(20_000_000 + r.nextInt(n));
+        buscar(a, dnis, 1_000_000); // calentamiento del JIT
+        int veces = 4_000_000;
+        long t0 = System.nanoTime();
+        long acumulado = buscar(a, dnis, veces);
+        long ns = System.nanoTime() - t0;
+
+        // Que el almacén siga vivo hasta después de medir
+        if (a.tamanio() != n) throw new IllegalStateException("Faltan socios: " + a.tamanio());
+        a = null;
+        double servicio = conIndices(n, crear);
+
+        System.out.printf("%-18s %12.1f %17.1f %13.1f %18.1f%n", nombre, (double) heap / n, (double) directa / n,
+                (double) ns / veces, servicio);
+        if (acumulado == 42) System.out.println();
+    }
+
+    /**
+     * Heap por socio de un servicio en memoria con los dos índices por nombre armados.
+     */
+    private static double conIndices(int n, Supplier<AlmacenClientes> crear) {
+        long heap0 = heapUsado();
+        GimnasioService s = new GimnasioService(new OperacionLog(), crear.get());
+        Plan[] planes = Plan.values();
+        LocalDate base = LocalDate.of(2020, 1, 1);
+        // De a lotes, para no tener a todos los socios en una lista aparte mientras se mide
+        for (int desde = 0; desde < n; desde += 10_000) {
+            List<Cliente> lote = new ArrayList<>(10_000);
+            for (int i = desde; i < Math.min(n, desde + 10_000); i++) {
+                lote.add(new Cliente(String.valueOf(20_000_000 + i), "Socio Numero " + i,
+                        planes[i % planes.length], base.plusDays(i % 2000)));
+            }
+            s.altaMasiva(lote, "bench");
+        }
+        s.listarPorNombre(null, 1, null);
+        s.buscarPorNombre("socio numero", 1);
+        long heap = heapUsado() - heap0;
+        if (s.cantidadClientes() != n) throw new IllegalStateException("Faltan socios: " + s.cantidadClientes());
+        return (double) heap / n;
+    }
+
+    private static long buscar(AlmacenClientes a, String[] dnis, int veces) {
+        long acumulado = 0;
+        for (int i = 0; i < veces; i++) {
+            Cliente c = a.buscar(dnis[i & (dnis.length - 1)]);
+            acumulado += c.getFechaAlta().getDayOfMonth();
+        }
+        return acumulado;
+    }
+
+    private static long heapUsado() {
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long memoriaDirecta() {
+        for (BufferPoolMXBean b : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (b.getName().equals("direct")) return b.getMemoryUsed();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,89 @@
+package gym.bench;
+
+import gym.Cliente;
+import gym.GimnasioService;
+import gym.LibroPagos;
+import gym.Plan;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Libro de pagos con muchos socios.
+ * <p>
+ * Da de alta socios con fechas de alta repartidas en varios años, arma el índice
+ * de vencimientos, registra pagos al azar (cada uno mueve a un socio en el índice)
+ * y mide cuánto tardan las consultas de morosos y deuda vencida a distintas
+ * fechas. Para comparar, calcula lo mismo socio por socio (lo que habría que
+ * hacer sin el índice) y verifica que los totales coincidan.
+ * </p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.BenchPagos [socios] [pagos] [consultas]</code>
+ */
+public class BenchPagos {
+    private static final Plan[] PLANES = Plan.values();
+
+    public static void main(String[] args) throws IOException {
+        int socios = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int pagos = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        int consultas = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        try (GimnasioService s = new GimnasioService()) {
+            LocalDate base = LocalDate.of(2021, 1, 1);
+            String[] dnis = new String[socios];
+            for (int i = 0; i < socios; i++) {
+                dnis[i] = String.valueOf(30_000_000 + i);
+                s.altaCliente(new Cliente(dnis[i], "Socio " + i, PLANES[i % PLANES.length], base.plusDays(i % 1500)));
+            }
+
+            long t0 = System.nanoTime();
+            LibroPagos libro = s.pagos();
+            System.out.printf("indice de %,d socios armado en %.0f ms%n", socios, (System.nanoTime() - t0) / 1e6);
+
+            SplittableRandom r = new SplittableRandom(7);
+            for (int ronda = 0; ronda < 2; ronda++) {
+                t0 = System.nanoTime();
+                for (int i = 0; i < pagos; i++) {
+                    // De media cuota a tres cuotas: unos se ponen al día, otros siguen debiendo
+                    s.registrarPago(dnis[r.nextInt(socios)], 7_500 + r.nextInt(82_500));
+                }
+                long ns = System.nanoTime() - t0;
+                System.out.printf("ronda %d: %,d pagos, %.0f ns por pago (%,.0f pagos/s)%n",
+                        ronda, pagos, (double) ns / pagos, pagos / (ns / 1e9));
+            }
+
+            LocalDate[] fechas = new LocalDate[1024];
+            for (int i = 0; i < fechas.length; i++) fechas[i] = LocalDate.of(2021, 1, 1).plusDays(r.nextInt(2500));
+            long suma = 0;
+            t0 = System.nanoTime();
+            for (int i = 0; i < consultas; i++) {
+                LocalDate f = fechas[i & (fechas.length - 1)];
+                suma += libro.cantidadMorosos(f) + libro.deudaVencida(f);
+            }
+            long ns = System.nanoTime() - t0;
+            System.out.printf("cantidadMorosos + deudaVencida: %.0f ns por fecha (control %d)%n", (double) ns / consultas, suma);
+
+            LocalDate hoy = LocalDate.of(2026, 6, 15);
+            t0 = System.nanoTime();
+            int vueltas = Math.max(1, consultas / 100);
+            for (int i = 0; i < vueltas; i++) suma += libro.morosos(hoy, 50).size();
+            System.out.printf("morosos (50 mas atrasados): %.1f us por consulta%n", (System.nanoTime() - t0) / 1e3 / vueltas);
+
+            // Sin índice: recorrer a todos los socios calculando su deuda
+            t0 = System.nanoTime();
+            long morosos = 0, deuda = 0;
+            for (String dni : dnis) {
+                long d = libro.deuda(dni, hoy);
+                if (libro.vencimiento(dni).isBefore(hoy)) morosos++;
+                deuda += d;
+            }
+            double recorrido = (System.nanoTime() - t0) / 1e6;
+            List<LibroPagos.Moroso> primeros = libro.morosos(hoy, 1);
+            System.out.printf("recorrido socio por socio: %.0f ms; indice: %,d morosos, $%,.2f (recorrido: %,d, $%,.2f) %s%n",
+                    recorrido, libro.cantidadMorosos(hoy), libro.deudaVencida(hoy) / 100.0, morosos, deuda / 100.0,
+                    morosos == libro.cantidadMorosos(hoy) && deuda == libro.deudaVencida(hoy) ? "OK" : "DISTINTOS");
+            if (!primeros.isEmpty()) System.out.println("mas atrasado: " + primeros.get(0));
+        }
+    }
+}
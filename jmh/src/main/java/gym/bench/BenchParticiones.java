@@ -0,0 +1,94 @@
+package gym.bench;
+
+import gym.Cliente;
+import gym.GimnasioParticionado;
+import gym.Plan;
+import gym.SocioNoEncontradoException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escalado de {@link GimnasioParticionado} con la cantidad de particiones.
+ * <p>
+ * Para cada cantidad de particiones carga los mismos socios y hace que varios
+ * hilos mezclen búsquedas, cambios de plan y de nombre, altas y bajas durante
+ * unos segundos. Informa las operaciones por segundo y cuánto tardan el listado
+ * completo por nombre y la facturación, que recorren todas las particiones en paralelo.
+ * Con menos núcleos que hilos el escalado no se nota: lo que se mide es la contención.
+ * </p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.BenchParticiones [hilos] [segundos] [socios] [particiones,...]</code>
+ */
+public class BenchParticiones {
+    private static final Plan[] PLANES = Plan.values();
+
+    public static void main(String[] args) throws Exception {
+        int hilos = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int socios = args.length > 2 ? Integer.parseInt(args[2]) : 200_000;
+        String[] cantidades = (args.length > 3 ? args[3] : "1,2,4,8").split(",");
+
+        List<Cliente> lote = new ArrayList<>(socios);
+        LocalDate base = LocalDate.of(2023, 1, 1);
+        for (int i = 0; i < socios; i++) {
+            lote.add(new Cliente(String.valueOf(20_000_000 + i), "Socio " + i, PLANES[i % PLANES.length], base.plusDays(i % 700)));
+        }
+
+        System.out.printf("%d hilos, %d socios, %d nucleos%n", hilos, socios, Runtime.getRuntime().availableProcessors());
+        for (String texto : cantidades) {
+            int particiones = Integer.parseInt(texto.trim());
+            try (GimnasioParticionado g = new GimnasioParticionado(particiones)) {
+                // Copias: cada corrida tiene sus propios socios
+                g.altaMasiva(lote.stream().map(c -> new Cliente(c.getDni(), c.getNombre(), c.getPlan(), c.getFechaAlta())).toList(), "bench");
+                correr(g, hilos, 1, socios);
+                double porSegundo = correr(g, hilos, segundos, socios);
+
+                long t0 = System.nanoTime();
+                int listados = g.listarOrdenadosPorNombre().length;
+                long t1 = System.nanoTime();
+                long facturados = g.facturarMes(LocalDate.now(), null).socios();
+                long t2 = System.nanoTime();
+                System.out.printf("%2d particiones: %,12.0f ops/s   listado %,d en %.1f ms   facturacion %,d en %.1f ms%n",
+                        particiones, porSegundo, listados, (t1 - t0) / 1e6, facturados, (t2 - t1) / 1e6);
+            }
+        }
+    }
+
+    private static double correr(GimnasioParticionado g, int hilos, int segundos, int socios) throws InterruptedException {
+        AtomicBoolean fin = new AtomicBoolean();
+        AtomicLong ops = new AtomicLong();
+        Thread[] ts = new Thread[hilos];
+        for (int h = 0; h < hilos; h++) {
+            final int id = h;
+            ts[h] = new Thread(() -> {
+                SplittableRandom r = new SplittableRandom(id);
+                long n = 0;
+                while (!fin.get()) {
+                    String dni = String.valueOf(20_000_000 + r.nextInt(socios + socios / 10));
+                    try {
+                        int dado = r.nextInt(10);
+                        if (dado < 5) g.existeDni(dni);
+                        else if (dado < 7) g.cambiarPlan(dni, PLANES[r.nextInt(PLANES.length)]);
+                        else if (dado == 7) g.modificarNombre(dni, "Cambiado " + n);
+                        else if (dado == 8) g.altaCliente(new Cliente(dni, "Nuevo " + n, PLANES[r.nextInt(PLANES.length)], LocalDate.now()));
+                        else g.baja(dni);
+                    } catch (IllegalArgumentException | SocioNoEncontradoException e) {
+                        // DNI repetido o que no existe: igual cuenta como operación atendida
+                    }
+                    n++;
+                }
+                ops.addAndGet(n);
+            });
+            ts[h].start();
+        }
+        long t0 = System.nanoTime();
+        Thread.sleep(segundos * 1000L);
+        fin.set(true);
+        for (Thread t : ts) t.join();
+        return ops.get() / ((System.nanoTime() - t0) / 1e9);
+    }
+}
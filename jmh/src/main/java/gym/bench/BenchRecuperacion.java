@@ -0,0 +1,70 @@
+package gym.bench;
+
+import gym.Cliente;
+import gym.Durabilidad;
+import gym.GimnasioService;
+import gym.Plan;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * Mide cuánto tarda GimnasioService en reconstruirse desde el journal.
+ * <p>
+ * Escribe N operaciones (altas, cambios de nombre y de plan, bajas), cierra,
+ * corta los últimos bytes del archivo para simular un corte de luz a mitad de
+ * un registro y vuelve a abrir midiendo el tiempo de recuperación.
+ * </p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.BenchRecuperacion [operaciones]</code>
+ */
+public class BenchRecuperacion {
+
+    public static void main(String[] args) throws IOException {
+        int operaciones = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path archivo = Files.createTempFile("gym-bench", ".journal");
+        Files.delete(archivo);
+        LocalDate base = LocalDate.of(2020, 1, 1);
+        Plan[] planes = Plan.values();
+
+        int escritas = 0;
+        long t0 = System.nanoTime();
+        try (GimnasioService s = new GimnasioService(archivo, Durabilidad.NINGUNA)) {
+            for (int i = 0; escritas < operaciones; i++) {
+                String dni = String.valueOf(20_000_000 + i);
+                s.altaCliente(new Cliente(dni, "Socio Numero " + i, planes[i % 3], base.plusDays(i % 1500)));
+                escritas++;
+                // Tres de cada cuatro altas tienen además otra operación
+                if (i % 4 == 1) s.modificarNombre(dni, "Socio Renombrado " + i);
+                else if (i % 4 == 2) s.cambiarPlan(dni, Plan.PREMIUM);
+                else if (i % 4 == 3) s.baja(dni);
+                if (i % 4 != 0) escritas++;
+            }
+        }
+        double escritura = (System.nanoTime() - t0) / 1e9;
+        long tamanio = Files.size(archivo);
+
+        // Simulamos un registro cortado a la mitad al final del archivo
+        try (FileChannel ch = FileChannel.open(archivo, StandardOpenOption.WRITE)) {
+            ch.truncate(tamanio - 5);
+        }
+
+        t0 = System.nanoTime();
+        int socios;
+        int lineas;
+        try (GimnasioService s = new GimnasioService(archivo, Durabilidad.NINGUNA)) {
+            socios = s.cantidadClientes();
+            lineas = s.logComoLineas().length;
+        }
+        double lectura = (System.nanoTime() - t0) / 1e9;
+
+        System.out.printf("journal: %d operaciones, %.1f MB, escritura %.2fs%n", escritas, tamanio / 1e6, escritura);
+        System.out.printf("recuperacion: %.2fs (%.0f op/s), %d socios activos, %d lineas de log%n",
+                lectura, lineas / lectura, socios, lineas);
+        System.out.println("archivo truncado en el ultimo registro sano: " + Files.size(archivo) + " bytes");
+        Files.delete(archivo);
+    }
+}
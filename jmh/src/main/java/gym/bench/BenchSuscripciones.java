@@ -0,0 +1,95 @@
+package gym.bench;
+
+import gym.Cliente;
+import gym.GimnasioService;
+import gym.Plan;
+import gym.Suscripcion;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reparto de cambios a muchos suscriptores.
+ * <p>
+ * Varios hilos cambian planes sin parar, primero sin suscriptores y después
+ * con muchos suscriptores que sólo cuentan lo que reciben más uno lento, que
+ * tarda unos milisegundos por lote. Informa las escrituras por segundo en
+ * cada caso (el lento no debería frenarlas), los eventos entregados por
+ * segundo sumando a todos, y cuánto quedó atrasado cada uno al terminar.
+ * </p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.BenchSuscripciones [suscriptores] [segundos] [escritores] [lote]</code>
+ */
+public class BenchSuscripciones {
+    private static final Plan[] PLANES = Plan.values();
+    private static final int SOCIOS = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        int suscriptores = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int escritores = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int lote = args.length > 3 ? Integer.parseInt(args[3]) : 256;
+
+        try (GimnasioService s = new GimnasioService()) {
+            LocalDate base = LocalDate.of(2023, 1, 1);
+            for (int i = 0; i < SOCIOS; i++) {
+                s.altaCliente(new Cliente(String.valueOf(20_000_000 + i), "Socio " + i, PLANES[i % PLANES.length], base.plusDays(i % 700)));
+            }
+            escribir(s, escritores, 1);
+
+            double solas = escribir(s, escritores, segundos);
+            System.out.printf("sin suscriptores: %,.0f escrituras/s%n", solas);
+
+            AtomicLong recibidos = new AtomicLong();
+            List<Suscripcion> rapidas = new ArrayList<>(suscriptores);
+            for (int i = 0; i < suscriptores; i++) {
+                rapidas.add(s.suscribir(Long.MAX_VALUE, lote, eventos -> recibidos.addAndGet(eventos.size())));
+            }
+            Suscripcion lenta = s.suscribir(Long.MAX_VALUE, lote, eventos -> Thread.sleep(5));
+
+            long t0 = System.nanoTime();
+            double con = escribir(s, escritores, segundos);
+            long atrasoMaximo = 0;
+            for (Suscripcion r : rapidas) atrasoMaximo = Math.max(atrasoMaximo, r.atraso());
+            double entregados = recibidos.get() / ((System.nanoTime() - t0) / 1e9);
+            System.out.printf("con %d suscriptores + 1 lento: %,.0f escrituras/s (%.1f%%)%n",
+                    suscriptores, con, 100 * con / solas);
+            System.out.printf("  entregados: %,.0f eventos/s en total; atraso al terminar: rapidos max %,d, lento %,d%n",
+                    entregados, atrasoMaximo, lenta.atraso());
+
+            // Cuánto tardan los rápidos en ponerse al día
+            long t1 = System.nanoTime();
+            for (Suscripcion r : rapidas) {
+                while (r.atraso() > 0) Thread.onSpinWait();
+            }
+            System.out.printf("  al dia en %.1f ms%n", (System.nanoTime() - t1) / 1e6);
+        }
+    }
+
+    private static double escribir(GimnasioService s, int escritores, int segundos) throws InterruptedException {
+        AtomicBoolean fin = new AtomicBoolean();
+        AtomicLong escrituras = new AtomicLong();
+        Thread[] ts = new Thread[escritores];
+        for (int w = 0; w < escritores; w++) {
+            final int id = w;
+            ts[w] = new Thread(() -> {
+                SplittableRandom r = new SplittableRandom(id);
+                long n = 0;
+                while (!fin.get()) {
+                    s.cambiarPlan(String.valueOf(20_000_000 + r.nextInt(SOCIOS)), PLANES[r.nextInt(PLANES.length)]);
+                    n++;
+                }
+                escrituras.addAndGet(n);
+            });
+            ts[w].start();
+        }
+        long t0 = System.nanoTime();
+        Thread.sleep(segundos * 1000L);
+        fin.set(true);
+        for (Thread t : ts) t.join();
+        return escrituras.get() / ((System.nanoTime() - t0) / 1e9);
+    }
+}
@@ -0,0 +1,188 @@
+package gym.bench;
+
+import gym.Cliente;
+import gym.GimnasioService;
+import gym.Plan;
+import gym.ServidorHttp;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de carga para la API HTTP.
+ * <p>
+ * Sin URL levanta un {@link ServidorHttp} en un puerto libre, sobre un servicio en
+ * memoria con socios precargados, y le pega desde el mismo proceso. Con URL le
+ * pega a un servidor que ya esté corriendo (<code>Main --servidor</code>), que
+ * tiene que tener los socios 30000000 en adelante.
+ * </p>
+ * <p>
+ * Cada cliente es un hilo virtual que manda pedidos de a uno, sin pausa, durante
+ * los segundos indicados. La mezcla imita una recepción: casi todo búsquedas, y
+ * algunas cuotas, cambios de plan, altas y páginas del listado. Cada cliente
+ * anota sus latencias en su propio arreglo, que se ordenan al final.
+ * </p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.CargaHttp [clientes] [segundos] [socios] [url]</code>
+ */
+public class CargaHttp {
+    private static final Plan[] PLANES = Plan.values();
+
+    public static void main(String[] args) throws Exception {
+        int clientes = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int socios = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        String url = args.length > 3 ? args[3] : null;
+
+        GimnasioService servicio = null;
+        ServidorHttp servidor = null;
+        if (url == null) {
+            servicio = new GimnasioService();
+            LocalDate base = LocalDate.of(2022, 1, 1);
+            for (int i = 0; i < socios; i++) {
+                servicio.altaCliente(new Cliente(String.valueOf(30_000_000 + i), "Socio Numero " + i,
+                        PLANES[i % PLANES.length], base.plusDays(i % 1000)));
+            }
+            servidor = new ServidorHttp(servicio, 0);
+            servidor.iniciar();
+            url = "http://localhost:" + servidor.puerto();
+        }
+        System.out.printf("%d clientes, %d s contra %s%n", clientes, segundos, url);
+
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        URI raiz = URI.create(url);
+
+        // Primero una pasada corta para calentar el JIT de los dos lados
+        correr(http, raiz, clientes, Math.min(2, segundos), socios, 0);
+        Resultado r = correr(http, raiz, clientes, segundos, socios, 1);
+
+        long total = r.latencias.length;
+        System.out.printf("pedidos:   %d (%.0f/s)%n", total, total / (double) segundos);
+        System.out.printf("latencia:  p50 %.2f ms  p99 %.2f ms  p99.9 %.2f ms  max %.2f ms%n",
+                percentil(r.latencias, 0.50), percentil(r.latencias, 0.99),
+                percentil(r.latencias, 0.999), r.latencias.length == 0 ? 0 : r.latencias[r.latencias.length - 1] / 1e6);
+        System.out.println("estados:   " + r.estados);
+        if (r.fallas.get() > 0) System.out.println("fallas de conexion: " + r.fallas.get());
+
+        if (servidor != null) {
+            servidor.close();
+            servicio.close();
+        }
+    }
+
+    private record Resultado(long[] latencias, Map<Integer, Long> estados, AtomicLong fallas) { }
+
+    private static Resultado correr(HttpClient http, URI raiz, int clientes, int segundos, int socios, int semilla)
+            throws InterruptedException {
+        long[][] latencias = new long[clientes][];
+        int[] cantidades = new int[clientes];
+        List<Map<Integer, Long>> estados = new ArrayList<>(Collections.nCopies(clientes, null));
+        AtomicLong fallas = new AtomicLong();
+        CountDownLatch largada = new CountDownLatch(1);
+        long fin = System.nanoTime() + segundos * 1_000_000_000L;
+        Thread[] ts = new Thread[clientes];
+
+        for (int c = 0; c < clientes; c++) {
+            final int id = c;
+            ts[c] = Thread.ofVirtual().unstarted(() -> {
+                SplittableRandom rnd = new SplittableRandom(semilla * 1_000_003L + id);
+                long[] lat = new long[1 << 14];
+                int n = 0;
+                int altas = 0;
+                Map<Integer, Long> porEstado = new TreeMap<>();
+                try {
+                    largada.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (System.nanoTime() < fin) {
+                    HttpRequest pedido = pedido(raiz, rnd, socios, semilla, id, altas);
+                    if (pedido.method().equals("POST")) altas++;
+                    long t0 = System.nanoTime();
+                    int estado;
+                    try {
+                        estado = http.send(pedido, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (Exception e) {
+                        fallas.incrementAndGet();
+                        continue;
+                    }
+                    long ns = System.nanoTime() - t0;
+                    if (n == lat.length) lat = Arrays.copyOf(lat, n * 2);
+                    lat[n++] = ns;
+                    porEstado.merge(estado, 1L, Long::sum);
+                }
+                latencias[id] = lat;
+                cantidades[id] = n;
+                estados.set(id, porEstado);
+            });
+        }
+        for (Thread t : ts) t.start();
+        largada.countDown();
+        for (Thread t : ts) t.join();
+
+        int total = 0;
+        for (int n : cantidades) total += n;
+        long[] todas = new long[total];
+        Map<Integer, Long> porEstado = new TreeMap<>();
+        int k = 0;
+        for (int c = 0; c < clientes; c++) {
+            if (latencias[c] == null) continue;
+            System.arraycopy(latencias[c], 0, todas, k, cantidades[c]);
+            k += cantidades[c];
+            estados.get(c).forEach((e, n) -> porEstado.merge(e, n, Long::sum));
+        }
+        Arrays.sort(todas);
+        return new Resultado(todas, porEstado, fallas);
+    }
+
+    /**
+     * 80% búsquedas, 8% cuotas, 5% cambios de plan, 5% altas y 2% páginas del listado.
+     */
+    private static HttpRequest pedido(URI raiz, SplittableRandom rnd, int socios, int semilla, int cliente, int altas) {
+        int dado = rnd.nextInt(100);
+        String dni = String.valueOf(30_000_000 + rnd.nextInt(socios));
+        if (dado < 80) {
+            return HttpRequest.newBuilder(raiz.resolve("/socios/" + dni)).GET().build();
+        }
+        if (dado < 88) {
+            return HttpRequest.newBuilder(raiz.resolve("/socios/" + dni + "/cuota")).GET().build();
+        }
+        if (dado < 93) {
+            String cuerpo = "{\"plan\":\"" + PLANES[rnd.nextInt(PLANES.length)] + "\"}";
+            return HttpRequest.newBuilder(raiz.resolve("/socios/" + dni))
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString(cuerpo)).build();
+        }
+        if (dado < 98) {
+            // DNIs nuevos que no chocan entre clientes ni entre pasadas
+            String nuevo = "N" + semilla + "-" + cliente + "-" + altas;
+            String cuerpo = "{\"dni\":\"" + nuevo + "\",\"nombre\":\"Nuevo " + altas + "\",\"plan\":\"BASICO\"}";
+            return HttpRequest.newBuilder(raiz.resolve("/socios"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(cuerpo)).build();
+        }
+        return HttpRequest.newBuilder(raiz.resolve("/socios?tamanio=50&prefijo=Socio%20Numero%20" + rnd.nextInt(10)))
+                .GET().build();
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) return 0;
+        int i = (int) Math.min(ordenadas.length - 1, Math.ceil(p * ordenadas.length) - 1);
+        return ordenadas[Math.max(0, i)] / 1e6;
+    }
+}
@@ -0,0 +1,371 @@
+package gym.bench;
+
+import gym.Cliente;
+import gym.Durabilidad;
+import gym.GimnasioService;
+import gym.HistogramaLatencia;
+import gym.Plan;
+import gym.SocioNoEncontradoException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prueba de carga de {@link GimnasioService} con tráfico parecido al de producción.
+ * <p>
+ * Carga un padrón de {@link GeneradorSocios} y lanza muchos clientes (un hilo cada
+ * uno) que mezclan búsquedas por DNI y por nombre, cuotas, páginas del listado,
+ * altas, cambios de plan, bajas y pagos según los pesos de <code>--mezcla</code>.
+ * Las bajas y búsquedas eligen entre todos los socios que hubo, así que algunas
+ * no encuentran al socio (se cuentan aparte de los errores), y las altas usan
+ * números de socio nuevos.
+ * </p>
+ * <p>
+ * Sin <code>--tasa</code> cada cliente manda la operación siguiente apenas vuelve
+ * la anterior (lo máximo que aguanta el servicio). Con <code>--tasa</code> los
+ * clientes reparten esa cantidad de operaciones por segundo a intervalos fijos, y
+ * cuando un cliente quedó atrasado la latencia se mide desde que la operación
+ * <i>tendría</i> que haber salido: si el servicio se traba, las demoras de las
+ * operaciones que quedaron esperando también cuentan (no se cae en la omisión coordinada).
+ * </p>
+ * <p>
+ * Cada operación anota su latencia en un {@link HistogramaLatencia} por tipo. Después
+ * del calentamiento, en cada intervalo se imprimen las operaciones por segundo, los
+ * percentiles del intervalo, las colecciones y el tiempo de GC, los bytes asignados
+ * por segundo (sumando todos los hilos) y el heap en uso; con <code>--csv</code> la
+ * misma serie queda en un archivo. Al final, la tabla por operación de toda la medición.
+ * </p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.CargaServicio [--socios 1000000] [--clientes 64] [--segundos 30]
+ * [--calentamiento 10] [--intervalo 1] [--tasa 0] [--mezcla buscar=55,nombre=5,...]
+ * [--planes 50,35,15] [--anios 8] [--semilla 1] [--journal archivo] [--durabilidad AGRUPADA]
+ * [--csv archivo]</code>
+ */
+public class CargaServicio {
+    private static final String MEZCLA = "buscar=55,nombre=5,cuota=15,listar=5,alta=6,plan=6,baja=4,pago=4";
+    private static final int TAMANIO_PAGINA = 50;
+    private static final int LOTE_CARGA = 10_000;
+
+    /**
+     * Lo que puede hacer un cliente.
+     */
+    enum Tipo {
+        BUSCAR("buscar"), NOMBRE("nombre"), CUOTA("cuota"), LISTAR("listar"),
+        ALTA("alta"), PLAN("plan"), BAJA("baja"), PAGO("pago");
+
+        final String clave;
+
+        Tipo(String clave) {
+            this.clave = clave;
+        }
+    }
+
+    /**
+     * Contadores de un tipo de operación, compartidos por todos los clientes.
+     */
+    private static final class Contadores {
+        final HistogramaLatencia latencias = new HistogramaLatencia();
+        final LongAdder noEncontrados = new LongAdder();
+        final LongAdder errores = new LongAdder();
+    }
+
+    /**
+     * Lo acumulado hasta un momento: latencias por tipo, GC y memoria asignada.
+     */
+    private record Corte(long nanos, HistogramaLatencia.Foto[] fotos, long[] noEncontrados, long[] errores,
+                         long colecciones, long msGc, long asignados) {
+        HistogramaLatencia.Foto total() {
+            HistogramaLatencia.Foto t = null;
+            for (HistogramaLatencia.Foto f : fotos) t = f.mas(t);
+            return t;
+        }
+    }
+
+    private final GimnasioService servicio;
+    private final GeneradorSocios generador;
+    private final int[] pesos;
+    private final int totalPesos;
+    private final long periodo;
+    private final Contadores[] contadores = new Contadores[Tipo.values().length];
+    // Próximo número de socio para las altas; las búsquedas eligen entre 0 y éste
+    private final AtomicLong siguiente;
+    private volatile boolean terminar;
+
+    private final List<GarbageCollectorMXBean> colectores = ManagementFactory.getGarbageCollectorMXBeans();
+    private final com.sun.management.ThreadMXBean hilosMx =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private CargaServicio(GimnasioService servicio, GeneradorSocios generador, int[] pesos, long socios, long periodo) {
+        this.servicio = servicio;
+        this.generador = generador;
+        this.pesos = pesos;
+        int total = 0;
+        for (int p : pesos) total += p;
+        this.totalPesos = total;
+        this.periodo = periodo;
+        this.siguiente = new AtomicLong(socios);
+        for (int i = 0; i < contadores.length; i++) contadores[i] = new Contadores();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> o = Opciones.leer(args);
+        int socios = Integer.parseInt(o.getOrDefault("socios", "1000000"));
+        int clientes = Integer.parseInt(o.getOrDefault("clientes", "64"));
+        int segundos = Integer.parseInt(o.getOrDefault("segundos", "30"));
+        int calentamiento = Integer.parseInt(o.getOrDefault("calentamiento", "10"));
+        double intervalo = Double.parseDouble(o.getOrDefault("intervalo", "1"));
+        double tasa = Double.parseDouble(o.getOrDefault("tasa", "0"));
+        int[] pesos = mezcla(o.getOrDefault("mezcla", MEZCLA));
+        int[] planes = Opciones.enteros(o.getOrDefault("planes", "50,35,15"));
+        int anios = Integer.parseInt(o.getOrDefault("anios", "8"));
+        long semilla = Long.parseLong(o.getOrDefault("semilla", "1"));
+        if (clientes < 1 || segundos < 1 || calentamiento < 0 || intervalo <= 0 || tasa < 0) {
+            throw new IllegalArgumentException("clientes y segundos deben ser positivos; calentamiento, intervalo y tasa no negativos");
+        }
+
+        GimnasioService servicio = o.containsKey("journal")
+                ? new GimnasioService(Path.of(o.get("journal")), Durabilidad.valueOf(o.getOrDefault("durabilidad", "AGRUPADA")))
+                : new GimnasioService();
+        GeneradorSocios generador = new GeneradorSocios(semilla, planes, anios, LocalDate.now());
+
+        long t0 = System.nanoTime();
+        List<Cliente> lote = new ArrayList<>(LOTE_CARGA);
+        List<YearMonth> pagados = new ArrayList<>(LOTE_CARGA);
+        for (int i = 0; i < socios; i++) {
+            Cliente c = generador.socio(i);
+            lote.add(c);
+            pagados.add(generador.pagadoHasta(c, i));
+            if (lote.size() == LOTE_CARGA || i == socios - 1) {
+                servicio.altaMasiva(lote, pagados, "carga");
+                lote.clear();
+                pagados.clear();
+            }
+        }
+        System.out.printf(Locale.ROOT, "padron: %,d socios en %.1f s; %d clientes, %s, mezcla %s, %d procesadores%n",
+                servicio.cantidadClientes(), (System.nanoTime() - t0) / 1e9, clientes,
+                tasa > 0 ? String.format(Locale.ROOT, "%.0f op/s objetivo", tasa) : "sin pausa",
+                o.getOrDefault("mezcla", MEZCLA), Runtime.getRuntime().availableProcessors());
+
+        long periodo = tasa > 0 ? (long) (clientes * 1e9 / tasa) : 0;
+        CargaServicio carga = new CargaServicio(servicio, generador, pesos, socios, periodo);
+        Thread[] hilos = new Thread[clientes];
+        for (int c = 0; c < clientes; c++) {
+            final long id = c;
+            hilos[c] = Thread.ofPlatform().daemon().name("cliente-" + c)
+                    .start(() -> carga.cliente(new SplittableRandom(semilla * 1_000_003L + id)));
+        }
+
+        Path csv = o.containsKey("csv") ? Path.of(o.get("csv")) : null;
+        Corte inicio, fin;
+        try (BufferedWriter serie = csv == null ? null : Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            if (calentamiento > 0) {
+                System.out.printf("calentando %d s...%n", calentamiento);
+                Thread.sleep(calentamiento * 1000L);
+            }
+            inicio = carga.corte();
+            fin = carga.medir(inicio, segundos, (long) (intervalo * 1e9), serie);
+        } finally {
+            carga.terminar = true;
+            for (Thread h : hilos) h.join();
+        }
+        carga.resumen(inicio, fin);
+        System.out.printf("socios al terminar: %,d%n", servicio.cantidadClientes());
+        servicio.close();
+    }
+
+    /**
+     * Lee los pesos de la mezcla, con la forma <code>buscar=55,alta=5,...</code>
+     * (los tipos que no aparecen no se usan).
+     */
+    static int[] mezcla(String texto) {
+        int[] pesos = new int[Tipo.values().length];
+        int total = 0;
+        for (String parte : texto.split(",")) {
+            String[] kv = parte.trim().split("=");
+            Tipo tipo = null;
+            for (Tipo t : Tipo.values()) if (t.clave.equals(kv[0].trim())) tipo = t;
+            if (tipo == null || kv.length != 2) throw new IllegalArgumentException("Mezcla invalida: " + parte);
+            pesos[tipo.ordinal()] = Integer.parseInt(kv[1].trim());
+            if (pesos[tipo.ordinal()] < 0) throw new IllegalArgumentException("Peso negativo: " + parte);
+            total += pesos[tipo.ordinal()];
+        }
+        if (total == 0) throw new IllegalArgumentException("La mezcla no tiene operaciones");
+        return pesos;
+    }
+
+    private void cliente(SplittableRandom r) {
+        Tipo[] tipos = Tipo.values();
+        long proximo = System.nanoTime();
+        while (!terminar) {
+            int dado = r.nextInt(totalPesos);
+            int t = 0;
+            while ((dado -= pesos[t]) >= 0) t++;
+            Tipo tipo = tipos[t];
+
+            // Los datos de la operación se arman antes de tomar el tiempo
+            long socio = tipo == Tipo.ALTA ? siguiente.getAndIncrement() : r.nextLong(siguiente.get());
+            String dni = GeneradorSocios.dni(socio);
+            Cliente nuevo = tipo == Tipo.ALTA ? generador.nuevo(socio, r) : null;
+            String texto = tipo == Tipo.NOMBRE ? generador.nombre(r)
+                    : tipo == Tipo.LISTAR && r.nextInt(5) > 0 ? generador.prefijo(r) : null;
+            Plan plan = generador.plan(r);
+            double monto = 15_000 + r.nextInt(45_000);
+
+            long t0;
+            if (periodo > 0) {
+                // Si hubo que esperar, se mide desde que se despertó (el atraso del timer no es del
+                // servicio); si ya estaba atrasado por la operación anterior, desde la hora prevista
+                long espera = proximo - System.nanoTime();
+                if (espera > 0) {
+                    LockSupport.parkNanos(espera);
+                    t0 = System.nanoTime();
+                } else {
+                    t0 = proximo;
+                }
+                proximo += periodo;
+            } else {
+                t0 = System.nanoTime();
+            }
+            Contadores c = contadores[t];
+            try {
+                if (!ejecutar(tipo, dni, nuevo, texto, plan, monto)) c.noEncontrados.increment();
+            } catch (SocioNoEncontradoException e) {
+                c.noEncontrados.increment();
+            } catch (RuntimeException e) {
+                c.errores.increment();
+            }
+            c.latencias.registrar(System.nanoTime() - t0);
+        }
+    }
+
+    /**
+     * @return false si la operación no encontró al socio.
+     */
+    private boolean ejecutar(Tipo tipo, String dni, Cliente nuevo, String texto, Plan plan, double monto) {
+        switch (tipo) {
+            case BUSCAR -> servicio.buscarPorDni(dni);
+            case NOMBRE -> {
+                return !servicio.buscarPorNombre(texto, 10).isEmpty();
+            }
+            case CUOTA -> servicio.cuotaDe(dni);
+            case LISTAR -> servicio.listarPorNombre(texto, TAMANIO_PAGINA, null);
+            case ALTA -> servicio.altaCliente(nuevo);
+            case PLAN -> servicio.cambiarPlan(dni, plan);
+            case BAJA -> {
+                return servicio.baja(dni);
+            }
+            case PAGO -> servicio.registrarPago(dni, monto);
+        }
+        return true;
+    }
+
+    private Corte corte() {
+        HistogramaLatencia.Foto[] fotos = new HistogramaLatencia.Foto[contadores.length];
+        long[] noEncontrados = new long[contadores.length];
+        long[] errores = new long[contadores.length];
+        for (int i = 0; i < contadores.length; i++) {
+            fotos[i] = contadores[i].latencias.foto();
+            noEncontrados[i] = contadores[i].noEncontrados.sum();
+            errores[i] = contadores[i].errores.sum();
+        }
+        long colecciones = 0, ms = 0;
+        for (GarbageCollectorMXBean gc : colectores) {
+            colecciones += Math.max(0, gc.getCollectionCount());
+            ms += Math.max(0, gc.getCollectionTime());
+        }
+        return new Corte(System.nanoTime(), fotos, noEncontrados, errores, colecciones, ms,
+                hilosMx.getTotalThreadAllocatedBytes());
+    }
+
+    /**
+     * Imprime una línea por intervalo hasta completar los segundos pedidos.
+     * @return el corte final.
+     */
+    private Corte medir(Corte inicio, int segundos, long intervalo, BufferedWriter serie) throws IOException {
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        String titulo = String.format(Locale.ROOT, "%8s %11s %9s %9s %9s %9s %9s %8s %5s %7s %10s %8s",
+                "seg", "op/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "errores", "gc", "gc ms", "asig MB/s", "heap MB");
+        System.out.println(titulo);
+        if (serie != null) serie.write("seg,op_s,p50_us,p90_us,p99_us,p999_us,max_us,errores,gc,gc_ms,asig_mb_s,heap_mb\n");
+
+        long limite = inicio.nanos() + segundos * 1_000_000_000L;
+        Corte anterior = inicio;
+        for (long k = 1; ; k++) {
+            long objetivo = Math.min(limite, inicio.nanos() + k * intervalo);
+            long espera;
+            while ((espera = objetivo - System.nanoTime()) > 0) LockSupport.parkNanos(espera);
+            Corte actual = corte();
+            HistogramaLatencia.Foto f = actual.total().menos(anterior.total());
+            double seg = (actual.nanos() - anterior.nanos()) / 1e9;
+            long errores = 0;
+            for (int i = 0; i < contadores.length; i++) errores += actual.errores()[i] - anterior.errores()[i];
+            long heap = memoria.getHeapMemoryUsage().getUsed() >> 20;
+            Object[] fila = {(actual.nanos() - inicio.nanos()) / 1e9, f.cuenta() / seg,
+                    f.percentil(50) / 1e3, f.percentil(90) / 1e3, f.percentil(99) / 1e3, f.percentil(99.9) / 1e3,
+                    f.maximo() / 1e3, errores, actual.colecciones() - anterior.colecciones(), actual.msGc() - anterior.msGc(),
+                    (actual.asignados() - anterior.asignados()) / seg / (1 << 20), heap};
+            System.out.println(String.format(Locale.ROOT, "%8.1f %11.0f %9.1f %9.1f %9.1f %9.1f %9.1f %8d %5d %7d %10.1f %8d", fila));
+            if (serie != null) {
+                serie.write(String.format(Locale.ROOT, "%.1f,%.0f,%.1f,%.1f,%.1f,%.1f,%.1f,%d,%d,%d,%.1f,%d%n", fila));
+            }
+            anterior = actual;
+            if (actual.nanos() >= limite) return actual;
+        }
+    }
+
+    private void resumen(Corte inicio, Corte fin) {
+        double seg = (fin.nanos() - inicio.nanos()) / 1e9;
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "%-8s %11s %10s %9s %9s %9s %9s %9s %9s %11s %8s",
+                "op", "cantidad", "op/s", "media us", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "no encontr", "errores"));
+        for (Tipo t : Tipo.values()) {
+            int i = t.ordinal();
+            HistogramaLatencia.Foto f = fin.fotos()[i].menos(inicio.fotos()[i]);
+            if (f.cuenta() == 0) continue;
+            fila(t.clave, f, seg, fin.noEncontrados()[i] - inicio.noEncontrados()[i], fin.errores()[i] - inicio.errores()[i]);
+        }
+        HistogramaLatencia.Foto total = fin.total().menos(inicio.total());
+        long noEncontrados = 0, errores = 0;
+        for (int i = 0; i < contadores.length; i++) {
+            noEncontrados += fin.noEncontrados()[i] - inicio.noEncontrados()[i];
+            errores += fin.errores()[i] - inicio.errores()[i];
+        }
+        fila("total", total, seg, noEncontrados, errores);
+
+        System.out.println();
+        long asignados = fin.asignados() - inicio.asignados();
+        System.out.printf(Locale.ROOT, "asignado: %,.1f MB/s, %,.0f bytes por operacion%n",
+                asignados / seg / (1 << 20), total.cuenta() == 0 ? 0.0 : (double) asignados / total.cuenta());
+        long msGc = fin.msGc() - inicio.msGc();
+        System.out.printf(Locale.ROOT, "gc: %d colecciones, %d ms (%.2f%% del tiempo)%n",
+                fin.colecciones() - inicio.colecciones(), msGc, 100.0 * msGc / 1e3 / seg);
+        for (GarbageCollectorMXBean gc : colectores) {
+            System.out.printf(Locale.ROOT, "  %-24s %6d colecciones %8d ms en total%n",
+                    gc.getName(), gc.getCollectionCount(), gc.getCollectionTime());
+        }
+        MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+        System.out.printf(Locale.ROOT, "heap: %,d MB en uso de %,d MB%n",
+                memoria.getHeapMemoryUsage().getUsed() >> 20, memoria.getHeapMemoryUsage().getMax() >> 20);
+    }
+
+    private static void fila(String nombre, HistogramaLatencia.Foto f, double seg, long noEncontrados, long errores) {
+        System.out.println(String.format(Locale.ROOT, "%-8s %11d %10.0f %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f %11d %8d",
+                nombre, f.cuenta(), f.cuenta() / seg, f.media() / 1e3, f.percentil(50) / 1e3, f.percentil(90) / 1e3,
+                f.percentil(99) / 1e3, f.percentil(99.9) / 1e3, f.maximo() / 1e3, noEncontrados, errores));
+    }
+}
@@ -0,0 +1,180 @@
+package gym.bench;
+
+import gym.Cliente;
+import gym.Plan;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.SplittableRandom;
+
+/**
+ * Padrones de socios sintéticos, parecidos a los de un gimnasio real.
+ * <p>
+ * El socio número <code>i</code> es siempre el mismo para una misma semilla: su
+ * DNI sale de recorrer los DNIs de 10.000.000 a 49.999.999 con un salto coprimo
+ * con el rango (así son únicos, de 8 cifras y no consecutivos), y el resto de sus
+ * datos de un generador sembrado con <code>i</code>. Los nombres combinan nombres
+ * y apellidos comunes en castellano (con tildes, a veces dos nombres o dos
+ * apellidos), el plan sigue una mezcla configurable y las fechas de alta se
+ * reparten en los últimos años con más altas cuanto más recientes. Casi todos
+ * tienen pagada la cuota del mes; uno de cada diez debe de uno a tres meses y uno
+ * de cada veinte, hasta un año.
+ * </p>
+ * <p>
+ * Lo usa {@link CargaServicio}; como programa escribe el padrón en un CSV que
+ * se puede importar con {@link gym.ImportadorCsv}.
+ * </p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.GeneradorSocios [socios] [archivo] [anios] [semilla]</code>
+ */
+public class GeneradorSocios {
+    private static final int PRIMER_DNI = 10_000_000;
+    private static final int RANGO_DNI = 40_000_000;
+    // Impar y no múltiplo de 5: coprimo con 40.000.000 = 2^9 * 5^7
+    private static final long SALTO_DNI = 7_368_787;
+    /** Mezcla de planes por defecto (BASICO, FULL, PREMIUM). */
+    static final int[] MEZCLA_PLANES = {50, 35, 15};
+
+    private static final String[] NOMBRES = {
+            "Juan", "María", "José", "Ana", "Carlos", "Lucía", "Luis", "Sofía", "Jorge", "Valentina",
+            "Miguel", "Camila", "Martín", "Julieta", "Diego", "Florencia", "Pablo", "Martina", "Javier", "Agustina",
+            "Sebastián", "Paula", "Nicolás", "Carolina", "Alejandro", "Laura", "Fernando", "Victoria", "Ricardo", "Micaela",
+            "Matías", "Belén", "Andrés", "Rocío", "Tomás", "Gabriela", "Facundo", "Natalia", "Gonzalo", "Inés",
+            "Ramón", "Mónica", "Hernán", "Silvia", "Joaquín", "Verónica", "Ignacio", "Mercedes", "Ezequiel", "Noelia"
+    };
+    private static final String[] APELLIDOS = {
+            "González", "Rodríguez", "Gómez", "Fernández", "López", "Díaz", "Martínez", "Pérez", "García", "Sánchez",
+            "Romero", "Sosa", "Álvarez", "Torres", "Ruiz", "Ramírez", "Flores", "Acosta", "Benítez", "Medina",
+            "Suárez", "Herrera", "Aguirre", "Giménez", "Gutiérrez", "Pereyra", "Rojas", "Molina", "Castro", "Ortiz",
+            "Silva", "Núñez", "Luna", "Juárez", "Cabrera", "Ríos", "Morales", "Godoy", "Moreno", "Ferreyra",
+            "Domínguez", "Carrizo", "Peralta", "Castillo", "Ledesma", "Quiroga", "Vega", "Vera", "Muñoz", "Ojeda"
+    };
+    private static final Plan[] PLANES = Plan.values();
+
+    private final long semilla;
+    private final int[] pesosPlanes;
+    private final int totalPesos;
+    private final int diasAtras;
+    private final LocalDate hoy;
+
+    /**
+     * * @param semilla Semilla del padrón: con la misma se generan los mismos socios.
+     * @param pesosPlanes Peso de cada plan, en el orden de {@link Plan#values()}.
+     * @param anios Años hacia atrás en los que se reparten las fechas de alta.
+     * @param hoy Fecha de las altas nuevas y desde la que se cuentan los años.
+     */
+    GeneradorSocios(long semilla, int[] pesosPlanes, int anios, LocalDate hoy) {
+        if (pesosPlanes.length != PLANES.length) {
+            throw new IllegalArgumentException("Hace falta un peso por plan: " + PLANES.length);
+        }
+        int total = 0;
+        for (int p : pesosPlanes) {
+            if (p < 0) throw new IllegalArgumentException("Peso de plan negativo: " + p);
+            total += p;
+        }
+        if (total == 0) throw new IllegalArgumentException("Algun plan tiene que tener peso");
+        if (anios < 1) throw new IllegalArgumentException("Los anios deben ser al menos 1");
+        this.semilla = semilla;
+        this.pesosPlanes = pesosPlanes.clone();
+        this.totalPesos = total;
+        this.diasAtras = anios * 365;
+        this.hoy = hoy;
+    }
+
+    /**
+     * @param i Número de socio (de 0 a 39.999.999).
+     * @return su DNI.
+     */
+    static String dni(long i) {
+        return String.valueOf(PRIMER_DNI + (i % RANGO_DNI) * SALTO_DNI % RANGO_DNI);
+    }
+
+    /**
+     * @param i Número de socio.
+     * @return el socio número <code>i</code> del padrón.
+     */
+    Cliente socio(long i) {
+        SplittableRandom r = new SplittableRandom(semilla * 0x9E3779B97F4A7C15L + i);
+        return new Cliente(dni(i), nombre(r), plan(r), fechaAlta(r));
+    }
+
+    /**
+     * @param i Número de socio.
+     * @param r Generador del cliente que hace el alta.
+     * @return un socio que se anota hoy.
+     */
+    Cliente nuevo(long i, SplittableRandom r) {
+        return new Cliente(dni(i), nombre(r), plan(r), hoy);
+    }
+
+    /**
+     * @param c El socio número <code>i</code> (de {@link #socio(long)}).
+     * @param i Número de socio.
+     * @return el último mes que tiene pago.
+     */
+    YearMonth pagadoHasta(Cliente c, long i) {
+        SplittableRandom r = new SplittableRandom(semilla * 0x9E3779B97F4A7C15L - i);
+        int dado = r.nextInt(100);
+        int atraso = dado < 85 ? 0 : dado < 95 ? 1 + r.nextInt(3) : 4 + r.nextInt(9);
+        YearMonth pagado = YearMonth.from(hoy).minusMonths(atraso);
+        // No puede deber de antes de anotarse
+        YearMonth alta = YearMonth.from(c.getFechaAlta()).minusMonths(1);
+        return pagado.isBefore(alta) ? alta : pagado;
+    }
+
+    /** @return un nombre completo al azar ("Nombre Apellido", a veces con dos de cada uno). */
+    String nombre(SplittableRandom r) {
+        StringBuilder sb = new StringBuilder(40).append(NOMBRES[r.nextInt(NOMBRES.length)]);
+        if (r.nextInt(5) == 0) sb.append(' ').append(NOMBRES[r.nextInt(NOMBRES.length)]);
+        sb.append(' ').append(APELLIDOS[r.nextInt(APELLIDOS.length)]);
+        if (r.nextInt(10) < 3) sb.append(' ').append(APELLIDOS[r.nextInt(APELLIDOS.length)]);
+        return sb.toString();
+    }
+
+    /** @return el inicio de un nombre común, como lo tipearía alguien en recepción. */
+    String prefijo(SplittableRandom r) {
+        String n = NOMBRES[r.nextInt(NOMBRES.length)];
+        return n.substring(0, 1 + r.nextInt(3));
+    }
+
+    /** @return un plan según la mezcla. */
+    Plan plan(SplittableRandom r) {
+        int dado = r.nextInt(totalPesos);
+        for (int p = 0; ; p++) {
+            dado -= pesosPlanes[p];
+            if (dado < 0) return PLANES[p];
+        }
+    }
+
+    /**
+     * El máximo de dos uniformes tiene densidad creciente: hay el doble de altas
+     * recientes que de altas de hace la mitad del período.
+     */
+    private LocalDate fechaAlta(SplittableRandom r) {
+        int antiguedad = Math.min(r.nextInt(diasAtras), r.nextInt(diasAtras));
+        return hoy.minusDays(antiguedad);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int socios = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Path archivo = Path.of(args.length > 1 ? args[1] : "socios.csv");
+        int anios = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        long semilla = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+        GeneradorSocios g = new GeneradorSocios(semilla, MEZCLA_PLANES, anios, LocalDate.now());
+        long t0 = System.nanoTime();
+        try (BufferedWriter w = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            w.write("dni;nombre;plan;fechaAlta;pagadoHasta\n");
+            for (int i = 0; i < socios; i++) {
+                Cliente c = g.socio(i);
+                w.write(c.getDni() + ";" + c.getNombre() + ";" + c.getPlan() + ";" + c.getFechaAlta()
+                        + ";" + g.pagadoHasta(c, i) + "\n");
+            }
+        }
+        System.out.printf("%,d socios escritos en %s (%.0f ms)%n", socios, archivo, (System.nanoTime() - t0) / 1e6);
+    }
+}
@@ -0,0 +1,40 @@
+package gym.bench;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Lectura de los argumentos <code>--clave valor</code> de los programas de bench.
+ */
+public final class Opciones {
+
+    private Opciones() {
+    }
+
+    /**
+     * @param args Argumentos con la forma <code>--clave valor</code>.
+     * @return las opciones leídas.
+     * @throws IllegalArgumentException si algún argumento no tiene esa forma.
+     */
+    public static Map<String, String> leer(String[] args) {
+        Map<String, String> out = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Argumento invalido: " + args[i]);
+            }
+            out.put(args[i].substring(2), args[++i]);
+        }
+        return out;
+    }
+
+    /**
+     * @param texto Enteros separados por coma (se admiten guiones bajos: 100_000).
+     * @return los enteros.
+     */
+    public static int[] enteros(String texto) {
+        String[] partes = texto.split(",");
+        int[] out = new int[partes.length];
+        for (int i = 0; i < partes.length; i++) out[i] = Integer.parseInt(partes[i].trim().replace("_", ""));
+        return out;
+    }
+}
@@ -0,0 +1,33 @@
+package gym.bench.jmh;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.SplittableRandom;
+
+/**
+ * Accesos aleatorios de un hilo: cada hilo recorre su propio arreglo de
+ * posiciones de socios, armado antes de medir.
+ */
+@State(Scope.Thread)
+public class Accesos {
+    // Potencia de 2
+    private static final int ACCESOS = 1 << 14;
+
+    private final int[] orden = new int[ACCESOS];
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void preparar(Socios s, ThreadParams hilo) {
+        SplittableRandom r = new SplittableRandom(42 + hilo.getThreadIndex());
+        for (int i = 0; i < ACCESOS; i++) orden[i] = r.nextInt(s.socios);
+    }
+
+    /** @return la posición del próximo socio a consultar. */
+    int siguiente() {
+        return orden[cursor++ & (ACCESOS - 1)];
+    }
+}
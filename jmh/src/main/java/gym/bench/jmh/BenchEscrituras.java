@@ -0,0 +1,88 @@
+package gym.bench.jmh;
+
+import gym.Cliente;
+import gym.Plan;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Altas y bajas, que consumen estado: cada iteración es un lote de
+ * {@link #LOTE} operaciones por hilo y antes de cada una se repone (sin medir)
+ * lo que consumió la anterior, así el servicio mantiene su tamaño. El tiempo
+ * informado es el de un lote entero.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 50, batchSize = BenchEscrituras.LOTE)
+@Measurement(iterations = 200, batchSize = BenchEscrituras.LOTE)
+@Fork(1)
+public class BenchEscrituras {
+    static final int LOTE = 256;
+
+    /** Socios nuevos de un hilo, que se dan de baja antes de cada lote. */
+    @State(Scope.Thread)
+    public static class Nuevos {
+        final Cliente[] clientes = new Cliente[LOTE];
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void preparar(ThreadParams hilo) {
+            for (int i = 0; i < LOTE; i++) {
+                String dni = String.valueOf(90_000_000 + hilo.getThreadIndex() * LOTE + i);
+                clientes[i] = new Cliente(dni, "Nuevo " + dni, Plan.FULL, Socios.HOY);
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void reponer(Socios s) {
+            for (Cliente c : clientes) s.servicio.baja(c.getDni());
+            cursor = 0;
+        }
+    }
+
+    /** Franja de socios existentes de un hilo, que se vuelven a dar de alta antes de cada lote. */
+    @State(Scope.Thread)
+    public static class Franja {
+        int desde;
+        int cursor;
+
+        @Setup(Level.Trial)
+        public void preparar(Socios s, ThreadParams hilo) {
+            if ((hilo.getThreadIndex() + 1) * LOTE > s.socios) {
+                throw new IllegalStateException("Hacen falta al menos " + LOTE + " socios por hilo");
+            }
+            desde = hilo.getThreadIndex() * LOTE;
+        }
+
+        @Setup(Level.Iteration)
+        public void reponer(Socios s) {
+            for (int i = desde; i < desde + LOTE; i++) {
+                if (!s.servicio.existeDni(s.dnis[i])) s.servicio.altaCliente(s.clientes[i]);
+            }
+            cursor = desde;
+        }
+    }
+
+    @Benchmark
+    public void altaCliente(Socios s, Nuevos n) {
+        s.servicio.altaCliente(n.clientes[n.cursor++]);
+    }
+
+    @Benchmark
+    public boolean baja(Socios s, Franja f) {
+        return s.servicio.baja(s.dnis[f.cursor++]);
+    }
+}
@@ -0,0 +1,68 @@
+package gym.bench.jmh;
+
+import gym.Cliente;
+import gym.Facturacion;
+import gym.Plan;
+import gym.ResumenFacturacion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Facturación mensual secuencial y paralela, sólo los totales (sin archivo).
+ * Que las dos den lo mismo lo verifica <code>FacturacionTest</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchFacturacion {
+    private static final LocalDate REFERENCIA = LocalDate.of(2025, 2, 28);
+
+    @Param({"1000000"})
+    public int socios;
+
+    private List<Cliente> padron;
+    private Facturacion facturacion;
+
+    @Setup(Level.Trial)
+    public void cargar() {
+        Plan[] planes = Plan.values();
+        SplittableRandom r = new SplittableRandom(42);
+        padron = new ArrayList<>(socios);
+        for (int i = 0; i < socios; i++) {
+            padron.add(new Cliente(String.valueOf(10_000_000 + i), "Socio " + i,
+                    planes[r.nextInt(planes.length)], REFERENCIA.minusDays(r.nextInt(1500))));
+        }
+        facturacion = new Facturacion(REFERENCIA);
+    }
+
+    @Benchmark
+    public ResumenFacturacion secuencial() throws IOException {
+        return facturacion.facturarSecuencial(padron, null);
+    }
+
+    @Benchmark
+    public ResumenFacturacion paralela() throws IOException {
+        return facturacion.facturar(padron, null);
+    }
+}
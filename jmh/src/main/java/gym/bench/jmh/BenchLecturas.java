@@ -0,0 +1,55 @@
+package gym.bench.jmh;
+
+import gym.Cliente;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas que no modifican nada: búsqueda por DNI, existencia, listado
+ * ordenado y cálculo de cuota. Con <code>-t N</code> se corren en N hilos sobre
+ * el mismo servicio.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchLecturas {
+
+    @Benchmark
+    public Cliente buscarPorDni(Socios s, Accesos a) {
+        return s.servicio.buscarPorDni(s.dnis[a.siguiente()]);
+    }
+
+    /** La mitad de las consultas son de DNIs que no existen. */
+    @Benchmark
+    public boolean existeDni(Socios s, Accesos a) {
+        String dni = s.dnis[a.siguiente()];
+        return s.servicio.existeDni((a.siguiente() & 1) == 0 ? dni : "X" + dni.substring(1));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Cliente[] listarOrdenadosPorNombre(Socios s) {
+        return s.servicio.listarOrdenadosPorNombre();
+    }
+
+    @Benchmark
+    public double calcularCuota(Socios s, Accesos a) {
+        return s.clientes[a.siguiente()].calcularCuota();
+    }
+
+    /** Con la fecha de referencia ya resuelta: sin leer el reloj. */
+    @Benchmark
+    public double calcularCuotaReferencia(Socios s, Accesos a) {
+        return s.clientes[a.siguiente()].calcularCuota(Socios.HOY);
+    }
+}
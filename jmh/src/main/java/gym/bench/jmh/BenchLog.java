@@ -0,0 +1,91 @@
+package gym.bench.jmh;
+
+import gym.OperacionLog;
+import gym.OperacionLogCircular;
+import gym.Plan;
+import gym.RegistroOperaciones;
+import gym.TipoOperacion;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registro de operaciones en los dos logs y volcado del log a texto.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchLog {
+
+    /**
+     * Log donde se registra. Se vuelve a crear en cada iteración para que la
+     * memoria no crezca sin límite durante la corrida.
+     */
+    @State(Scope.Benchmark)
+    public static class Destino {
+        @Param({"lista", "circular"})
+        public String log;
+
+        RegistroOperaciones registro;
+        final String[] dnis = new String[1024];
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            for (int i = 0; i < dnis.length; i++) dnis[i] = String.valueOf(10_000_000 + i);
+        }
+
+        @Setup(Level.Iteration)
+        public void reiniciar() {
+            registro = log.equals("circular")
+                    ? new OperacionLogCircular(1 << 20, OperacionLogCircular.PoliticaDesborde.SOBRESCRIBIR_ANTIGUAS)
+                    : new OperacionLog();
+        }
+    }
+
+    /** Log con <code>entradas</code> altas ya registradas. */
+    @State(Scope.Benchmark)
+    public static class Lleno {
+        @Param({"1000", "100000"})
+        public int entradas;
+
+        OperacionLog registro;
+
+        @Setup(Level.Trial)
+        public void llenar() {
+            registro = new OperacionLog();
+            for (int i = 0; i < entradas; i++) {
+                registro.registrar(TipoOperacion.ALTA, String.valueOf(10_000_000 + i), "Socio " + i, Plan.FULL);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+    }
+
+    @Benchmark
+    public long registrar(Destino d, Cursor c) {
+        return d.registro.registrar(TipoOperacion.MODIFICACION, d.dnis[c.i++ & 1023], "Anterior", "Nuevo");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public String[] comoLineas(Lleno l) {
+        return l.registro.comoLineas();
+    }
+}
@@ -0,0 +1,99 @@
+package gym.bench.jmh;
+
+import gym.Cliente;
+import gym.GimnasioService;
+import gym.Plan;
+import gym.RepositorioClientes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cuánto cuestan las métricas en las operaciones más baratas del servicio.
+ * <p>
+ * Compara <code>existeDni</code> y <code>buscarPorDni</code> con las métricas
+ * activas, desactivadas y contra el repositorio directo (sin servicio ni métricas).
+ * Con las métricas desactivadas la diferencia con el repositorio debería
+ * quedar dentro del ruido de la medición.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchMetricas {
+
+    /** Los mismos socios en un servicio y en un repositorio sueltos. */
+    @State(Scope.Benchmark)
+    public static class Destino {
+        @Param({"repositorio", "desactivadas", "activas"})
+        public String destino;
+
+        @Param({"100000"})
+        public int socios;
+
+        RepositorioClientes repo;
+        GimnasioService servicio;
+        String[] dnis;
+
+        @Setup(Level.Trial)
+        public void cargar() {
+            dnis = new String[socios];
+            if (destino.equals("repositorio")) {
+                repo = new RepositorioClientes();
+            } else {
+                servicio = new GimnasioService();
+                servicio.getMetricas().setActivas(destino.equals("activas"));
+            }
+            for (int i = 0; i < socios; i++) {
+                dnis[i] = String.valueOf(10_000_000 + i);
+                Cliente c = new Cliente(dnis[i], "Socio " + i, Plan.FULL, Socios.HOY);
+                if (repo != null) repo.agregar(c);
+                else servicio.altaCliente(c);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() throws IOException {
+            if (servicio != null) servicio.close();
+        }
+    }
+
+    /** Cursor de cada hilo sobre los DNIs (salto impar: recorre todos sin repetir seguidos). */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int i;
+
+        String siguiente(Destino d) {
+            i = (i + 7_919) % d.dnis.length;
+            return d.dnis[i];
+        }
+    }
+
+    @Benchmark
+    public boolean existeDni(Destino d, Cursor c) {
+        String dni = c.siguiente(d);
+        return d.repo != null ? d.repo.contiene(dni) : d.servicio.existeDni(dni);
+    }
+
+    @Benchmark
+    public Cliente buscarPorDni(Destino d, Cursor c) {
+        String dni = c.siguiente(d);
+        return d.repo != null ? d.repo.buscar(dni) : d.servicio.buscarPorDni(dni);
+    }
+}
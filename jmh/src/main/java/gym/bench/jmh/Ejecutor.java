@@ -0,0 +1,140 @@
+package gym.bench.jmh;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import gym.bench.Opciones;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Corre los benchmarks JMH para cada cantidad de hilos pedida, con el perfilador
+ * de GC (bytes asignados por operación), y guarda todos los resultados en un
+ * JSON de JMH (el mismo formato que <code>-rf json</code>).
+ * <p>
+ * Ese archivo es la línea de base: con <code>--comparar</code> se muestra la
+ * variación de cada caso contra una corrida anterior y el programa termina con
+ * código 1 si alguno empeoró más que la tolerancia.
+ * </p>
+ * Uso: <code>java -cp benchmarks.jar gym.bench.jmh.Ejecutor [--filtro regex]
+ * [--hilos 1,4] [--param socios=1000] [--guardar jmh-resultado.json]
+ * [--comparar base.json] [--tolerancia 10] [--rapido si]</code>
+ */
+public class Ejecutor {
+
+    /**
+     * Un caso medido, leído del JSON.
+     * * @param score Valor medido.
+     * @param unidad Unidad del valor.
+     * @param mayorEsMejor true para rendimiento (ops/tiempo), false para tiempos.
+     * @param bytesPorOp Bytes asignados por operación, o -1 si no se midió.
+     */
+    record Medicion(double score, String unidad, boolean mayorEsMejor, double bytesPorOp) { }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        Map<String, String> o = Opciones.leer(args);
+        Path salida = Path.of(o.getOrDefault("guardar", "jmh-resultado.json"));
+        double tolerancia = Double.parseDouble(o.getOrDefault("tolerancia", "10"));
+        Map<String, Medicion> base = o.containsKey("comparar") ? leer(Path.of(o.get("comparar"))) : Map.of();
+
+        List<RunResult> resultados = new ArrayList<>();
+        for (int hilos : Opciones.enteros(o.getOrDefault("hilos", "1,4"))) {
+            ChainedOptionsBuilder b = new OptionsBuilder()
+                    .include(o.getOrDefault("filtro", Ejecutor.class.getPackageName() + ".Bench"))
+                    .threads(hilos)
+                    .addProfiler(GCProfiler.class)
+                    .shouldFailOnError(true);
+            if (o.containsKey("param")) {
+                String[] p = o.get("param").split("=", 2);
+                b.param(p[0], p[1].split(","));
+            }
+            if (o.getOrDefault("rapido", "no").equals("si")) {
+                b.forks(1).warmupIterations(1).measurementIterations(2)
+                        .warmupTime(TimeValue.milliseconds(200)).measurementTime(TimeValue.milliseconds(200));
+            }
+            resultados.addAll(new Runner(b.build()).run());
+        }
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, salida.toString()).writeOut(resultados);
+        System.out.println("Resultados guardados en " + salida);
+
+        List<String> peores = new ArrayList<>();
+        System.out.printf("%n%-70s %14s %-8s %12s %9s%n", "caso", "score", "unidad", "B/op", "vs base");
+        for (Map.Entry<String, Medicion> e : leer(salida).entrySet()) {
+            Medicion m = e.getValue();
+            Medicion b = base.get(e.getKey());
+            String variacion = "";
+            if (b != null) {
+                double v = variacion(m, b);
+                variacion = String.format("%+8.1f%%", v);
+                if (v > tolerancia) peores.add(e.getKey());
+            }
+            System.out.printf("%-70s %14.3f %-8s %12.1f %9s%n", e.getKey(), m.score(), m.unidad(), m.bytesPorOp(), variacion);
+        }
+        if (!peores.isEmpty()) {
+            System.out.println("EMPEORARON (mas de " + tolerancia + "%): " + peores);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return cuánto empeoró <code>m</code> respecto de <code>base</code>, en
+     * porcentaje (negativo si mejoró), según si el score sube o baja al mejorar.
+     */
+    static double variacion(Medicion m, Medicion base) {
+        double cambio = (m.score() - base.score()) / base.score() * 100;
+        return m.mayorEsMejor() ? -cambio : cambio;
+    }
+
+    /**
+     * Lee un JSON de resultados de JMH.
+     * * @param archivo Archivo escrito con <code>-rf json</code> o por este programa.
+     * @return las mediciones por caso (benchmark, parámetros e hilos).
+     */
+    static Map<String, Medicion> leer(Path archivo) throws IOException {
+        Map<String, Medicion> out = new LinkedHashMap<>();
+        try (Reader r = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            JsonArray casos = JsonParser.parseReader(r).getAsJsonArray();
+            for (JsonElement e : casos) {
+                JsonObject c = e.getAsJsonObject();
+                StringBuilder clave = new StringBuilder(c.get("benchmark").getAsString()
+                        .replace(Ejecutor.class.getPackageName() + ".", ""));
+                if (c.has("params")) {
+                    // Ordenados por nombre, para que la clave no dependa del orden del archivo
+                    Map<String, String> params = new TreeMap<>();
+                    c.getAsJsonObject("params").entrySet().forEach(p -> params.put(p.getKey(), p.getValue().getAsString()));
+                    params.forEach((k, v) -> clave.append(' ').append(k).append('=').append(v));
+                }
+                clave.append(" hilos=").append(c.get("threads").getAsInt());
+                JsonObject primaria = c.getAsJsonObject("primaryMetric");
+                double bytes = -1;
+                JsonObject secundarias = c.getAsJsonObject("secondaryMetrics");
+                if (secundarias != null && secundarias.has("gc.alloc.rate.norm")) {
+                    bytes = secundarias.getAsJsonObject("gc.alloc.rate.norm").get("score").getAsDouble();
+                }
+                out.put(clave.toString(), new Medicion(primaria.get("score").getAsDouble(),
+                        primaria.get("scoreUnit").getAsString(), c.get("mode").getAsString().equals("thrpt"), bytes));
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,49 @@
+package gym.bench.jmh;
+
+import gym.Cliente;
+import gym.GimnasioService;
+import gym.Plan;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Servicio en memoria cargado con <code>socios</code> socios, compartido por
+ * todos los hilos de un benchmark. Los DNIs van de 10.000.000 en adelante.
+ */
+@State(Scope.Benchmark)
+public class Socios {
+    static final LocalDate HOY = LocalDate.now();
+    private static final Plan[] PLANES = Plan.values();
+
+    @Param({"1000", "100000"})
+    public int socios;
+
+    GimnasioService servicio;
+    String[] dnis;
+    Cliente[] clientes;
+
+    @Setup(Level.Trial)
+    public void cargar() {
+        servicio = new GimnasioService();
+        dnis = new String[socios];
+        clientes = new Cliente[socios];
+        for (int i = 0; i < socios; i++) {
+            dnis[i] = String.valueOf(10_000_000 + i);
+            clientes[i] = new Cliente(dnis[i], "Socio " + i, PLANES[i % PLANES.length], HOY.minusDays(i % 900));
+            servicio.altaCliente(clientes[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws IOException {
+        servicio.close();
+    }
+}